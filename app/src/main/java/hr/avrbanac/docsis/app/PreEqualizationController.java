@@ -2,11 +2,12 @@ package hr.avrbanac.docsis.app;
 
 import hr.avrbanac.docsis.lib.analysis.ChannelWidth;
 import hr.avrbanac.docsis.lib.analysis.PreEqAnalysis;
+import hr.avrbanac.docsis.lib.analysis.PreEqTapSnapshot;
 import hr.avrbanac.docsis.lib.analysis.Signature;
 import hr.avrbanac.docsis.lib.struct.Coefficient;
-import hr.avrbanac.docsis.lib.struct.DefaultPreEqData;
 import hr.avrbanac.docsis.lib.struct.PreEqData;
-import hr.avrbanac.docsis.lib.util.ParsingUtility;
+import hr.avrbanac.docsis.lib.struct.PreEqParseResult;
+import hr.avrbanac.docsis.lib.struct.PreEqParser;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
@@ -48,6 +49,7 @@ public class PreEqualizationController {
     private Label signature;
 
     private ChannelWidth channelWidth = ChannelWidth.CW_US_6_4;
+    private final PreEqParser preEqParser = new PreEqParser();
 
     /**
      * Plotting for this app happens only after pre-eq string has been provided. That is why it is safe to apply lookup inline styling to
@@ -56,19 +58,40 @@ public class PreEqualizationController {
     public void onCalculateClick() {
         String inputString = preEqStringInput.getText();
         channelWidth = ChannelWidth.valueOf(channelWidthGroup.getSelectedToggle().getUserData().toString());
-        if (ParsingUtility.isPreEqStringValid(inputString, DefaultPreEqData.INPUT_STRING_LENGTH)) {
-            PreEqData preEqData = new DefaultPreEqData(inputString);
+        PreEqParseResult parseResult = preEqParser.parse(inputString);
+        if (parseResult.isValid()) {
+            PreEqData preEqData = parseResult.getPreEqData();
             PreEqAnalysis preEqAnalysis = new PreEqAnalysis(preEqData);
 
-            coefficientTable.setItems(getTableCoefficients(preEqData));
+            PreEqTapSnapshot tapSnapshot = preEqAnalysis.getTapSnapshot();
+
+            coefficientTable.setItems(getTableCoefficients(preEqData, tapSnapshot));
             addMetricsToVBoxes(preEqData, preEqAnalysis.getTDR(channelWidth, 2, false));
 
-            tapsBarChart.setBarChartData(preEqData);
+            tapsBarChart.setBarChartData(tapSnapshot);
             icfrLineChart.setICFRData(preEqAnalysis.getInChannelFrequencyResponseMagnitude(), channelWidth.getValue());
 
             addMRSeverity(preEqAnalysis);
         } else {
+            addParseError(parseResult);
+        }
+    }
+
+    /**
+     * Helper method to deal with rejected pre-eq string: reason is shown instead of the severity and the caret is moved to the first
+     * invalid char (if known), otherwise input is cleared.
+     * @param parseResult {@link PreEqParseResult} rejected parse result
+     */
+    private void addParseError(final PreEqParseResult parseResult) {
+        signature.setFont(Font.font(FONT_FAMILY, FontWeight.BOLD, 12));
+        signature.setTextFill(Color.DARKRED);
+        if (parseResult.getOffset() < 0) {
+            signature.setText(parseResult.getErrorClass().getErrorMessage());
             preEqStringInput.clear();
+        } else {
+            signature.setText(String.format("%s (at char %d)", parseResult.getErrorClass().getErrorMessage(), parseResult.getOffset()));
+            preEqStringInput.requestFocus();
+            preEqStringInput.positionCaret(parseResult.getOffset());
         }
     }
 
@@ -135,16 +158,18 @@ public class PreEqualizationController {
     /**
      * Helper method to fetch table coefficients from preEqString.
      * @param preEqData {@link PreEqData} validated pre-eq string
+     * @param tapSnapshot {@link PreEqTapSnapshot} per-tap values of the analyzed pre-eq data
      * @return {@link ObservableList} of {@link TableCoefficient} pojo elements created from pre-eq coefficients
      */
-    private ObservableList<TableCoefficient> getTableCoefficients(final PreEqData preEqData) {
+    private ObservableList<TableCoefficient> getTableCoefficients(
+            final PreEqData preEqData,
+            final PreEqTapSnapshot tapSnapshot) {
+
         List<Coefficient> coefficients = preEqData.getCoefficients();
-        long lMTNA = preEqData.getMTNA();
-        long lMTNE = preEqData.getMTNE();
 
         ObservableList<TableCoefficient> tableCoefficients = FXCollections.observableArrayList();
         for (int i = 0; i < coefficients.size(); i++) {
-            tableCoefficients.add(new TableCoefficient(coefficients.get(i),i + 1, lMTNA, lMTNE, ROUND_SCALE));
+            tableCoefficients.add(new TableCoefficient(coefficients.get(i),i + 1, tapSnapshot, ROUND_SCALE));
         }
 
         return tableCoefficients;
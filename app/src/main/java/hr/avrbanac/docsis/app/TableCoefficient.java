@@ -1,5 +1,6 @@
 package hr.avrbanac.docsis.app;
 
+import hr.avrbanac.docsis.lib.analysis.PreEqTapSnapshot;
 import hr.avrbanac.docsis.lib.struct.Coefficient;
 import hr.avrbanac.docsis.lib.util.ParsingUtility;
 
@@ -20,8 +21,7 @@ public class TableCoefficient {
     public TableCoefficient(
             final Coefficient coefficient,
             final int tapIndex,
-            final long lMTNA,
-            final long lMTNE,
+            final PreEqTapSnapshot tapSnapshot,
             final int scale) {
 
         String formatting = "%." + scale + "f";
@@ -31,9 +31,9 @@ public class TableCoefficient {
         this.imagBytes = ParsingUtility.byteArrayToHexString(bytes, bytes.length / 2, bytes.length);
         this.realDec = coefficient.getReal();
         this.imagDec = coefficient.getImag();
-        this.realRelPwr = String.format(formatting, coefficient.getRelativePowerReal(lMTNA));
-        this.imagRelPwr =  String.format(formatting, coefficient.getRelativePowerImag(lMTNA));
-        this.energyRatio =  String.format(formatting, coefficient.getNominalEnergyRatio(lMTNE));
+        this.realRelPwr = String.format(formatting, tapSnapshot.getRelativePowerReal(tapIndex - 1));
+        this.imagRelPwr =  String.format(formatting, tapSnapshot.getRelativePowerImag(tapIndex - 1));
+        this.energyRatio =  String.format(formatting, tapSnapshot.getNominalEnergyRatio(tapIndex - 1));
     }
 
     /**
@@ -1,6 +1,6 @@
 package hr.avrbanac.docsis.app;
 
-import hr.avrbanac.docsis.lib.struct.PreEqData;
+import hr.avrbanac.docsis.lib.analysis.PreEqTapSnapshot;
 import javafx.beans.NamedArg;
 import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
@@ -74,22 +74,21 @@ public class TapBarChart extends StackedBarChart<String, Double> {
      * Sets stacked barchart data (for taps graph) with filled series. It needs to be stacked barchart instead of barchart since there is
      * no easy way to show negative values from bottom to top with barchart. This problem is solved by using stacked graph. There is an
      * invisible bar over each visible tap bar, spanning in Y value all the way up to the zero.
-     * @param preEqData {@link PreEqData} provided parsed pre-eq data
+     * @param tapSnapshot {@link PreEqTapSnapshot} per-tap values of the analyzed pre-eq data
      */
-    public void setBarChartData(final PreEqData preEqData) {
-        long lMTNE = preEqData.getMTNE();
+    public void setBarChartData(final PreEqTapSnapshot tapSnapshot) {
         ObservableList<XYChart.Series<String, Double>> barData = FXCollections.observableArrayList();
         XYChart.Series<String, Double> invisibleSeries = new XYChart.Series<>();
         barData.add(invisibleSeries);
         XYChart.Series<String, Double> visibleSeries = new XYChart.Series<>();
         barData.add(visibleSeries);
 
-        preEqData.getCoefficients().forEach(coefficient -> {
-            double value = Math.max(coefficient.getNominalEnergyRatio(lMTNE), -60.0d);
-            String index = String.valueOf(coefficient.getIndex());
+        for (int i = 0; i < tapSnapshot.getTapCount(); i++) {
+            double value = Math.max(tapSnapshot.getNominalEnergyRatio(i), -60.0d);
+            String index = String.valueOf(i + 1);
             invisibleSeries.getData().add(new XYChart.Data<>(index, value));
             visibleSeries.getData().add(new XYChart.Data<>(index, -60 - value));
-        });
+        }
 
         setData(barData);
     }
@@ -0,0 +1,53 @@
+package hr.avrbanac.docsis.bench;
+
+import hr.avrbanac.docsis.lib.analysis.PreEqBatchAnalysis;
+import hr.avrbanac.docsis.lib.analysis.PreEqCorrelationEngine;
+import hr.avrbanac.docsis.lib.struct.PreEqBatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pairwise ICFR correlation benchmark for a single node. ICFR magnitudes of the node devices are calculated in setup, so the reported
+ * score is the time of the whole correlation matrix (all pairs) per node.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CorrelationBenchmark {
+
+    @Param({ "300", "800" })
+    private int nodeSize;
+
+    private PreEqBatchAnalysis batchAnalysis;
+    private PreEqCorrelationEngine engine;
+
+    @Setup
+    public void setup() {
+        List<String> corpus = PreEqCorpus.generate(nodeSize, PreEqCorpus.DEFAULT_SEED);
+        PreEqBatch batch = new PreEqBatch(nodeSize);
+        corpus.forEach(batch::add);
+        batchAnalysis = new PreEqBatchAnalysis(batch);
+        batchAnalysis.getInChannelFrequencyResponseMagnitude();
+        engine = new PreEqCorrelationEngine.Builder().build();
+    }
+
+    @Benchmark
+    public Object correlate() {
+        return engine.correlate(batchAnalysis);
+    }
+}
@@ -0,0 +1,71 @@
+package hr.avrbanac.docsis.bench;
+
+import hr.avrbanac.docsis.lib.analysis.PreEqAnalysis;
+import hr.avrbanac.docsis.lib.analysis.PreEqFFTInputFormat;
+import hr.avrbanac.docsis.lib.struct.DefaultPreEqData;
+import hr.avrbanac.docsis.lib.struct.PreEqData;
+import hr.avrbanac.docsis.lib.util.MathUtility;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ICFR benchmarks (complex and magnitude) over already parsed pre-eq data. Since ICFR is cached in the analysis, new {@link PreEqAnalysis}
+ * is created for each ICFR calculation (analysis CTOR is negligible compared to ICFR). Magnitude is benchmarked with both exact and fast
+ * dB precision. Each invocation runs over the whole corpus, so the reported score is per single pre-eq data.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ICFRBenchmark {
+
+    private PreEqData[] preEqData;
+
+    @Setup
+    public void setup() {
+        String[] corpus = PreEqCorpus.generate().toArray(new String[0]);
+        preEqData = new PreEqData[corpus.length];
+        for (int i = 0; i < corpus.length; i++) {
+            preEqData[i] = new DefaultPreEqData(corpus[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PreEqCorpus.DEFAULT_SIZE)
+    public void inChannelFrequencyResponse(final Blackhole blackhole) {
+        for (PreEqData ped : preEqData) {
+            blackhole.consume(new PreEqAnalysis(ped).getInChannelFrequencyResponse());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PreEqCorpus.DEFAULT_SIZE)
+    public void inChannelFrequencyResponseMagnitude(final Blackhole blackhole) {
+        for (PreEqData ped : preEqData) {
+            blackhole.consume(new PreEqAnalysis(ped).getInChannelFrequencyResponseMagnitude());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PreEqCorpus.DEFAULT_SIZE)
+    public void inChannelFrequencyResponseMagnitudeFast(final Blackhole blackhole) {
+        for (PreEqData ped : preEqData) {
+            blackhole.consume(new PreEqAnalysis(ped, PreEqFFTInputFormat.FIRST_TAP_FIRST_POINT, MathUtility.DecibelPrecision.FAST)
+                    .getInChannelFrequencyResponseMagnitude());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package hr.avrbanac.docsis.bench;
+
+import hr.avrbanac.docsis.lib.analysis.ICFRSimilarityIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ICFR similarity index benchmarks (top-k query and per-poll update) over an index of synthetic ICFR ripple shapes. Reported score is per
+ * single query or update.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ICFRSimilarityIndexBenchmark {
+    private static final int DIMENSION = 128;
+    private static final int QUERY_COUNT = 1024;
+
+    @Param({ "100000", "1000000" })
+    private int deviceCount;
+
+    private ICFRSimilarityIndex index;
+    private double[][] queries;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(PreEqCorpus.DEFAULT_SEED);
+        index = new ICFRSimilarityIndex.Builder(DIMENSION).build();
+        for (long device = 0; device < deviceCount; device++) {
+            index.update(device, ripple(random));
+        }
+
+        queries = new double[QUERY_COUNT][];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            queries[i] = ripple(random);
+        }
+    }
+
+    @Benchmark
+    public Object queryTop10() {
+        return index.query(queries[next++ & (QUERY_COUNT - 1)], 10);
+    }
+
+    @Benchmark
+    public void update() {
+        int i = next++ & (QUERY_COUNT - 1);
+        index.update(i, queries[i]);
+    }
+
+    private static double[] ripple(final Random random) {
+        double frequency = 0.05d + random.nextDouble() * 0.5d;
+        double phase = random.nextDouble() * Math.PI * 2;
+        double[] result = new double[DIMENSION];
+        for (int k = 0; k < DIMENSION; k++) {
+            result[k] = Math.sin(k * frequency + phase) + random.nextGaussian() * 0.2d;
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,65 @@
+package hr.avrbanac.docsis.bench;
+
+import hr.avrbanac.docsis.lib.struct.DefaultPreEqData;
+import hr.avrbanac.docsis.lib.util.HexDecoder;
+import hr.avrbanac.docsis.lib.util.ParsingUtility;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing benchmarks: hex decoding alone ({@link ParsingUtility#hexStringToByteArray(String)} and single scan
+ * {@link HexDecoder#decode(CharSequence, byte[], int, int)} with validation) and complete pre-eq data creation with all key metrics
+ * ({@link DefaultPreEqData#DefaultPreEqData(String)}). Each invocation runs over the whole corpus, so the reported score is per single
+ * pre-eq string.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParsingBenchmark {
+    private String[] corpus;
+
+    @Setup
+    public void setup() {
+        corpus = PreEqCorpus.generate().toArray(new String[0]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PreEqCorpus.DEFAULT_SIZE)
+    public void hexStringToByteArray(final Blackhole blackhole) {
+        for (String preEqString : corpus) {
+            blackhole.consume(ParsingUtility.hexStringToByteArray(preEqString));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PreEqCorpus.DEFAULT_SIZE)
+    public void validateAndDecode(final Blackhole blackhole) {
+        byte[] payload = new byte[DefaultPreEqData.INPUT_BYTE_LENGTH];
+        for (String preEqString : corpus) {
+            blackhole.consume(HexDecoder.decode(preEqString, payload, 0, payload.length));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PreEqCorpus.DEFAULT_SIZE)
+    public void parseDefaultPreEqData(final Blackhole blackhole) {
+        for (String preEqString : corpus) {
+            blackhole.consume(new DefaultPreEqData(preEqString));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package hr.avrbanac.docsis.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <p>
+ * Generator of the synthetic, but realistic pre-eq corpus used as benchmark input. Generated strings follow the structure of the pre-eq
+ * strings collected from the plant: main tap at (mostly) eighth position carrying almost all the energy, main tap nominal amplitude of the
+ * common CM implementations (511, 1023, 2047), low level noise on all other taps, some group delay on taps adjacent to the main tap and a
+ * micro-reflection (echo) of random level and delay on a part of the devices. Both 3-nibble and 4-nibble encodings are generated.
+ * </p>
+ * <p>
+ * Corpus is generated from the provided seed, so the same seed always gives the same corpus (benchmark runs are comparable).
+ * </p>
+ */
+public final class PreEqCorpus {
+    public static final long DEFAULT_SEED = 20240601L;
+    public static final int DEFAULT_SIZE = 1024;
+
+    private static final int TAP_COUNT = 24;
+    private static final int[] NOMINAL_AMPLITUDES = new int[] { 511, 1023, 2047 };
+    private static final double ECHO_PROBABILITY = 0.4d;
+    private static final double THREE_NIBBLE_PROBABILITY = 0.2d;
+
+    private PreEqCorpus() { }
+
+    /**
+     * Generates corpus of the default size with the default seed.
+     * @return {@link List} of pre-eq strings (normalized: lower case without delimiters)
+     */
+    public static List<String> generate() {
+        return generate(DEFAULT_SIZE, DEFAULT_SEED);
+    }
+
+    /**
+     * Generates corpus of the provided size with the provided seed.
+     * @param size int number of pre-eq strings
+     * @param seed long random generator seed
+     * @return {@link List} of pre-eq strings (normalized: lower case without delimiters)
+     */
+    public static List<String> generate(
+            final int size,
+            final long seed) {
+
+        Random random = new Random(seed);
+        List<String> corpus = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            corpus.add(generateOne(random));
+        }
+
+        return corpus;
+    }
+
+    private static String generateOne(final Random random) {
+        int mainTapIndex = random.nextDouble() < 0.9d ? 8 : 4 + random.nextInt(9);
+        int nominalAmplitude = NOMINAL_AMPLITUDES[random.nextInt(NOMINAL_AMPLITUDES.length)];
+        boolean use3NibbleEncoding = random.nextDouble() < THREE_NIBBLE_PROBABILITY;
+        double noiseLevel = nominalAmplitude * 0.004d;
+
+        double[] real = new double[TAP_COUNT];
+        double[] imag = new double[TAP_COUNT];
+        for (int i = 0; i < TAP_COUNT; i++) {
+            real[i] = random.nextGaussian() * noiseLevel;
+            imag[i] = random.nextGaussian() * noiseLevel;
+        }
+
+        // main tap with slight compression
+        int main = mainTapIndex - 1;
+        real[main] = nominalAmplitude * (0.97d + 0.03d * random.nextDouble());
+        imag[main] = random.nextGaussian() * noiseLevel;
+
+        // group delay on adjacent taps (-35 dB to -20 dB)
+        addTap(real, imag, main - 1, nominalAmplitude * dbToRatio(-35 + 15 * random.nextDouble()), random);
+        addTap(real, imag, main + 1, nominalAmplitude * dbToRatio(-35 + 15 * random.nextDouble()), random);
+
+        // micro-reflection (-40 dB to -15 dB) spread over 3 taps
+        if (random.nextDouble() < ECHO_PROBABILITY) {
+            int echo = main + 2 + random.nextInt(TAP_COUNT - main - 2);
+            double echoAmplitude = nominalAmplitude * dbToRatio(-40 + 25 * random.nextDouble());
+            addTap(real, imag, echo, echoAmplitude, random);
+            if (echo - 1 > main) addTap(real, imag, echo - 1, echoAmplitude / 3, random);
+            if (echo + 1 < TAP_COUNT) addTap(real, imag, echo + 1, echoAmplitude / 3, random);
+        }
+
+        StringBuilder sb = new StringBuilder((TAP_COUNT + 1) * 8);
+        sb.append(String.format("%02x%02x%02x%02x", mainTapIndex, 1, TAP_COUNT, 0));
+        for (int i = 0; i < TAP_COUNT; i++) {
+            sb.append(encode(real[i], use3NibbleEncoding)).append(encode(imag[i], use3NibbleEncoding));
+        }
+
+        return sb.toString();
+    }
+
+    private static void addTap(
+            final double[] real,
+            final double[] imag,
+            final int tap,
+            final double amplitude,
+            final Random random) {
+
+        double phase = 2 * Math.PI * random.nextDouble();
+        real[tap] += amplitude * Math.cos(phase);
+        imag[tap] += amplitude * Math.sin(phase);
+    }
+
+    private static double dbToRatio(final double db) {
+        return Math.pow(10, db / 20);
+    }
+
+    private static String encode(
+            final double value,
+            final boolean use3NibbleEncoding) {
+
+        int rounded = (int) Math.round(value);
+        return String.format("%04x", rounded & (use3NibbleEncoding ? 0x0fff : 0xffff));
+    }
+}
@@ -0,0 +1,57 @@
+package hr.avrbanac.docsis.bench;
+
+import hr.avrbanac.docsis.lib.analysis.ChannelWidth;
+import hr.avrbanac.docsis.lib.analysis.PreEqAnalysis;
+import hr.avrbanac.docsis.lib.analysis.Signature;
+import hr.avrbanac.docsis.lib.struct.DefaultPreEqData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signature benchmark over already calculated ICFR magnitudes, for both channel widths. Each invocation runs over the whole corpus, so the
+ * reported score is per single signature.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignatureBenchmark {
+
+    @Param({ "CW_US_3_2", "CW_US_6_4" })
+    private ChannelWidth channelWidth;
+
+    private double[][] icfrMagnitudes;
+
+    @Setup
+    public void setup() {
+        List<String> corpus = PreEqCorpus.generate();
+        icfrMagnitudes = new double[corpus.size()][];
+        for (int i = 0; i < corpus.size(); i++) {
+            icfrMagnitudes[i] = new PreEqAnalysis(new DefaultPreEqData(corpus.get(i))).getInChannelFrequencyResponseMagnitude();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PreEqCorpus.DEFAULT_SIZE)
+    public void signature(final Blackhole blackhole) {
+        for (double[] icfrMagnitude : icfrMagnitudes) {
+            blackhole.consume(new Signature(icfrMagnitude, channelWidth));
+        }
+    }
+}
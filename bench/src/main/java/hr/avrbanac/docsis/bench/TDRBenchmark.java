@@ -0,0 +1,76 @@
+package hr.avrbanac.docsis.bench;
+
+import hr.avrbanac.docsis.lib.PreEqException;
+import hr.avrbanac.docsis.lib.analysis.ChannelWidth;
+import hr.avrbanac.docsis.lib.analysis.PreEqAnalysis;
+import hr.avrbanac.docsis.lib.analysis.PreEqBatchAnalysis;
+import hr.avrbanac.docsis.lib.struct.DefaultPreEqData;
+import hr.avrbanac.docsis.lib.struct.PreEqBatch;
+import hr.avrbanac.docsis.lib.util.MathUtility;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TDR benchmark for both parabolic interpolation variants, for single device analyses and for the whole corpus as a batch. TDR is not
+ * cached in the analysis, so analyses are created only once. Pre-eq data without post-main reflection (TDR calculation error) is part of
+ * the corpus as well, since it is part of every plant sweep. Each invocation runs over the whole corpus, so the reported score is per
+ * single TDR.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TDRBenchmark {
+
+    @Param({ "V1", "V2" })
+    private MathUtility.ParabolicInterpolation interpolation;
+
+    private PreEqAnalysis[] preEqAnalyses;
+    private PreEqBatchAnalysis batchAnalysis;
+
+    @Setup
+    public void setup() {
+        List<String> corpus = PreEqCorpus.generate();
+        preEqAnalyses = new PreEqAnalysis[corpus.size()];
+        for (int i = 0; i < corpus.size(); i++) {
+            preEqAnalyses[i] = new PreEqAnalysis(new DefaultPreEqData(corpus.get(i)));
+        }
+        PreEqBatch batch = new PreEqBatch(corpus.size());
+        corpus.forEach(batch::add);
+        batchAnalysis = new PreEqBatchAnalysis(batch);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PreEqCorpus.DEFAULT_SIZE)
+    public void tdr(final Blackhole blackhole) {
+        for (PreEqAnalysis pea : preEqAnalyses) {
+            try {
+                blackhole.consume(pea.getTDR(ChannelWidth.CW_US_6_4, 1, false, interpolation));
+            } catch (PreEqException e) {
+                blackhole.consume(e);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PreEqCorpus.DEFAULT_SIZE)
+    public void tdrBatch(final Blackhole blackhole) {
+        blackhole.consume(batchAnalysis.getTDR(ChannelWidth.CW_US_6_4, 1, false, interpolation));
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * Contains JMH benchmarks for the pre-eq library (parsing, key metrics, ICFR, TDR and Signature) together with the synthetic pre-eq corpus
+ * used as benchmark input.
+ */
+package hr.avrbanac.docsis.bench;
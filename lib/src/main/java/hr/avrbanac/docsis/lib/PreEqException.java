@@ -13,6 +13,8 @@ public class PreEqException extends RuntimeException {
     public static final PreEqException STRING_MISMATCH_BYTE_SIZE = new PreEqException(ErrorClass.STRING_MISMATCH_BYTE_SIZE);
     public static final PreEqException COEFFICIENT_PER_SYMBOL_MISMATCH = new PreEqException(ErrorClass.COEFFICIENT_PER_SYMBOL_MISMATCH);
     public static final PreEqException WRONG_TAP_COUNT = new PreEqException(ErrorClass.WRONG_TAP_COUNT);
+    public static final PreEqException MAIN_TAP_OUT_OF_BOUNDS = new PreEqException(ErrorClass.MAIN_TAP_OUT_OF_BOUNDS);
+    public static final PreEqException ZERO_NON_MAIN_TAP_ENERGY = new PreEqException(ErrorClass.ZERO_NON_MAIN_TAP_ENERGY);
     public static final PreEqException STRING_NOT_BYTE_REPRESENTATION = new PreEqException(ErrorClass.STRING_NOT_BYTE_REPRESENTATION);
     public static final PreEqException FFT_TAP_COUNT_ERROR = new PreEqException(ErrorClass.FFT_TAP_COUNT_ERROR);
     public static final PreEqException TDR_CALCULATION_ERROR = new PreEqException(ErrorClass.TDR_CALCULATION_ERROR);
@@ -34,6 +36,27 @@ public class PreEqException extends RuntimeException {
         return errorClass;
     }
 
+    /**
+     * Returns preallocated exception of the provided error class, so that no exception is created when invalid input is rejected.
+     * @param errorClass {@link ErrorClass} error class
+     * @return {@link PreEqException} shared exception ({@link #GENERAL_ERROR} for error classes without a preallocated exception)
+     */
+    public static PreEqException of(final ErrorClass errorClass) {
+        switch (errorClass) {
+            case COEFFICIENT_MISMATCH_BYTE_SIZE: return COEFFICIENT_MISMATCH_BYTE_SIZE;
+            case STRING_MISMATCH_BYTE_SIZE: return STRING_MISMATCH_BYTE_SIZE;
+            case COEFFICIENT_PER_SYMBOL_MISMATCH: return COEFFICIENT_PER_SYMBOL_MISMATCH;
+            case WRONG_TAP_COUNT: return WRONG_TAP_COUNT;
+            case MAIN_TAP_OUT_OF_BOUNDS: return MAIN_TAP_OUT_OF_BOUNDS;
+            case ZERO_NON_MAIN_TAP_ENERGY: return ZERO_NON_MAIN_TAP_ENERGY;
+            case STRING_NOT_BYTE_REPRESENTATION: return STRING_NOT_BYTE_REPRESENTATION;
+            case FFT_TAP_COUNT_ERROR: return FFT_TAP_COUNT_ERROR;
+            case TDR_CALCULATION_ERROR: return TDR_CALCULATION_ERROR;
+            case TEST_ERROR: return TEST_ERROR;
+            default: return GENERAL_ERROR;
+        }
+    }
+
     public enum ErrorClass {
 
         /**
@@ -72,6 +95,19 @@ public class PreEqException extends RuntimeException {
         COEFFICIENT_PER_SYMBOL_MISMATCH(2001,
                 "Expected different value for coefficient per symbol, current implementation does not support this"),
 
+        /**
+         * Pre-eq error occurred while parsing pre-eq string data: main tap index in header is out of bounds (both adjacent taps are
+         * required).
+         */
+        MAIN_TAP_OUT_OF_BOUNDS(2002,
+                "PreEqualization string contains header with main tap index out of bounds"),
+
+        /**
+         * Pre-eq error occurred while parsing pre-eq string data: there is no post-main tap energy, which would produce division by zero.
+         */
+        ZERO_NON_MAIN_TAP_ENERGY(2003,
+                "PreEqualization string contains no post-main tap energy, this would produce division by zero"),
+
         /**
          * Pre-eq error occurred while parsing pre-eq string data: wrong tap count information.
          */
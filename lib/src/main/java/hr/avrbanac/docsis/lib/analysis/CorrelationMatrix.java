@@ -0,0 +1,101 @@
+package hr.avrbanac.docsis.lib.analysis;
+
+import java.util.Arrays;
+
+/**
+ * Symmetric matrix of the pairwise ICFR correlation coefficients calculated by {@link PreEqCorrelationEngine}, with {@link CorrelationBond}
+ * classification using the thresholds of the engine. Correlations of the vectors without any variation are {@link Float#NaN} (bond
+ * {@link CorrelationBond#NONE}).
+ */
+public class CorrelationMatrix {
+    private final PreEqCorrelationEngine engine;
+    private final int size;
+    private final float[] correlations;
+
+    CorrelationMatrix(
+            final PreEqCorrelationEngine engine,
+            final int size,
+            final float[] correlations) {
+
+        this.engine = engine;
+        this.size = size;
+        this.correlations = correlations;
+    }
+
+    /**
+     * Returns the number of correlated devices (matrix dimension).
+     * @return int number of devices
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns Pearson correlation coefficient of the pair.
+     * @param i int index of the first device
+     * @param j int index of the second device
+     * @return float correlation coefficient in [-1, 1] (1 for i == j)
+     */
+    public float getCorrelation(
+            final int i,
+            final int j) {
+
+        return correlations[index(i, j)];
+    }
+
+    /**
+     * Returns correlation bond strength of the pair.
+     * @param i int index of the first device
+     * @param j int index of the second device
+     * @return {@link CorrelationBond} bond strength
+     */
+    public CorrelationBond getBond(
+            final int i,
+            final int j) {
+
+        return engine.classify(getCorrelation(i, j));
+    }
+
+    /**
+     * Returns indices of all other devices with at least the provided bond strength to the device.
+     * @param i int index of the device
+     * @param minimumBond {@link CorrelationBond} minimum bond strength ({@link CorrelationBond#WEAK} or {@link CorrelationBond#STRONG})
+     * @return array of int device indices in ascending order
+     */
+    public int[] getBonded(
+            final int i,
+            final CorrelationBond minimumBond) {
+
+        int[] result = new int[size];
+        int count = 0;
+        for (int j = 0, position = index(i, 0); j < size; j++, position++) {
+            if (j != i && engine.classify(correlations[position]).getNumValue() >= minimumBond.getNumValue()) result[count++] = j;
+        }
+
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Returns the number of distinct pairs with exactly the provided bond strength.
+     * @param bond {@link CorrelationBond} bond strength
+     * @return int number of pairs
+     */
+    public int getPairCount(final CorrelationBond bond) {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            for (int j = i + 1, position = i * size + j; j < size; j++, position++) {
+                if (engine.classify(correlations[position]) == bond) count++;
+            }
+        }
+
+        return count;
+    }
+
+    private int index(
+            final int i,
+            final int j) {
+
+        if (i < 0 || i >= size || j < 0 || j >= size) throw new IndexOutOfBoundsException("Pair out of bounds: " + i + ", " + j);
+        return i * size + j;
+    }
+}
@@ -0,0 +1,232 @@
+package hr.avrbanac.docsis.lib.analysis;
+
+import hr.avrbanac.docsis.lib.PreEqException;
+import hr.avrbanac.docsis.lib.util.MathUtility;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>
+ * Immutable FFT plan for the pre-eq ICFR calculation. Plan is defined by the FFT size and the {@link PreEqFFTInputFormat} and holds
+ * everything that can be calculated beforehand:
+ * </p>
+ * <ul>
+ *     <li>twiddle factor tables (cos / sin of 2*PI*i/N)</li>
+ *     <li>bit-reversal permutation for the radix-2 transform</li>
+ *     <li>rotation map: output rotation defined by the input format is folded into the input points (rotating output by r points equals
+ *     multiplying input point n with e^(-2*PI*i*r*n/N)), so each input point has its own precomputed twiddle index</li>
+ * </ul>
+ * <p>
+ * Plans are shared: all plans are kept in a thread-safe cache and created only once, first time required. Any plan (i.e. also other input
+ * format or larger FFT size than the default one) can be provided to the {@link PreEqAnalysis} or {@link PreEqBatchAnalysis}. Default
+ * plan lookup by tap structure is cached as well (per tap count, main tap index and input format), so the minimal FFT size is calculated
+ * only once per structure.
+ * </p>
+ */
+public final class FFTPlan {
+    /**
+     * Max supported FFT size (2^16).
+     */
+    public static final int MAX_SIZE = 1 << 16;
+    private static final int SIZE_SLOTS = Integer.numberOfTrailingZeros(MAX_SIZE) + 1;
+    private static final AtomicReferenceArray<FFTPlan> CACHE =
+            new AtomicReferenceArray<>(PreEqFFTInputFormat.values().length * SIZE_SLOTS);
+    /**
+     * Max tap count for which default plan lookup by tap structure is cached.
+     */
+    static final int MAX_CACHED_TAP_COUNT = 64;
+    private static final int TAP_SLOTS = MAX_CACHED_TAP_COUNT + 1;
+    private static final AtomicReferenceArray<FFTPlan> TAP_CACHE =
+            new AtomicReferenceArray<>(PreEqFFTInputFormat.values().length * TAP_SLOTS * TAP_SLOTS);
+
+    private final int size;
+    private final PreEqFFTInputFormat inputFormat;
+    private final int rotationIndex;
+    private final double[] cos;
+    private final double[] sin;
+    private final int[] bitReversal;
+    private final int[] rotationMap;
+
+    private FFTPlan(
+            final int size,
+            final PreEqFFTInputFormat inputFormat) {
+
+        this.size = size;
+        this.inputFormat = inputFormat;
+        int log2Size = Integer.numberOfTrailingZeros(size);
+
+        int rotationFactor = inputFormat.getRotationFactor();
+        this.rotationIndex = (rotationFactor > size || rotationFactor <= 0) ? 0 : size / rotationFactor;
+
+        this.cos = new double[size];
+        this.sin = new double[size];
+        this.bitReversal = new int[size];
+        this.rotationMap = new int[size];
+        for (int i = 0; i < size; i++) {
+            double angle = 2 * Math.PI * i / size;
+            cos[i] = Math.cos(angle);
+            sin[i] = Math.sin(angle);
+            bitReversal[i] = log2Size == 0 ? 0 : Integer.reverse(i) >>> (Integer.SIZE - log2Size);
+            rotationMap[i] = (int) (((long) rotationIndex * i) & (size - 1));
+        }
+    }
+
+    /**
+     * Returns shared plan for the provided FFT size and input format.
+     * @param fftSize int FFT size (power of 2, not greater than {@link #MAX_SIZE})
+     * @param inputFormat {@link PreEqFFTInputFormat} definition on how FFT input is filled up with tap data
+     * @return {@link FFTPlan} shared plan
+     */
+    public static FFTPlan of(
+            final int fftSize,
+            final PreEqFFTInputFormat inputFormat) {
+
+        if (fftSize <= 0 || fftSize > MAX_SIZE || Integer.bitCount(fftSize) != 1) {
+            throw PreEqException.FFT_TAP_COUNT_ERROR;
+        }
+
+        int slot = inputFormat.ordinal() * SIZE_SLOTS + Integer.numberOfTrailingZeros(fftSize);
+        FFTPlan plan = CACHE.get(slot);
+        if (plan == null) {
+            CACHE.compareAndSet(slot, null, new FFTPlan(fftSize, inputFormat));
+            plan = CACHE.get(slot);
+        }
+
+        return plan;
+    }
+
+    /**
+     * Returns shared plan of the minimal FFT size needed for the provided tap structure, within default FFT size bounds used by the
+     * {@link PreEqAnalysis}. Plan lookup is cached per tap structure and input format, so the FFT size is calculated only once.
+     * @param tapCount int total number of taps
+     * @param mainTapIndex int main tap index (not an array index)
+     * @param inputFormat {@link PreEqFFTInputFormat} definition on how FFT input is filled up with tap data
+     * @return {@link FFTPlan} shared plan
+     */
+    public static FFTPlan forTaps(
+            final int tapCount,
+            final int mainTapIndex,
+            final PreEqFFTInputFormat inputFormat) {
+
+        if (tapCount < 0 || tapCount > MAX_CACHED_TAP_COUNT || mainTapIndex < 0 || mainTapIndex > MAX_CACHED_TAP_COUNT) {
+            return forTaps(
+                    tapCount,
+                    mainTapIndex,
+                    inputFormat,
+                    PreEqAnalysis.MIN_FFT_INPUT_SIZE,
+                    PreEqAnalysis.MAX_FFT_INPUT_SIZE);
+        }
+
+        int slot = (inputFormat.ordinal() * TAP_SLOTS + tapCount) * TAP_SLOTS + mainTapIndex;
+        FFTPlan plan = TAP_CACHE.get(slot);
+        if (plan == null) {
+            TAP_CACHE.compareAndSet(slot, null, forTaps(
+                    tapCount,
+                    mainTapIndex,
+                    inputFormat,
+                    PreEqAnalysis.MIN_FFT_INPUT_SIZE,
+                    PreEqAnalysis.MAX_FFT_INPUT_SIZE));
+            plan = TAP_CACHE.get(slot);
+        }
+
+        return plan;
+    }
+
+    /**
+     * Returns shared plan of the minimal FFT size needed for the provided tap structure.
+     * @param tapCount int total number of taps
+     * @param mainTapIndex int main tap index (not an array index)
+     * @param inputFormat {@link PreEqFFTInputFormat} definition on how FFT input is filled up with tap data
+     * @param minFFTInputSize int minimum FFT size
+     * @param maxFFTInputSize int maximum FFT size
+     * @return {@link FFTPlan} shared plan
+     * @see MathUtility#getMinFFTSize(int, int, PreEqFFTInputFormat, int, int)
+     */
+    public static FFTPlan forTaps(
+            final int tapCount,
+            final int mainTapIndex,
+            final PreEqFFTInputFormat inputFormat,
+            final int minFFTInputSize,
+            final int maxFFTInputSize) {
+
+        int fftSize = MathUtility.getMinFFTSize(tapCount, mainTapIndex, inputFormat, minFFTInputSize, maxFFTInputSize);
+        if (fftSize < 0) {
+            throw PreEqException.FFT_TAP_COUNT_ERROR;
+        }
+
+        return of(fftSize, inputFormat);
+    }
+
+    /**
+     * Returns FFT size (number of input / output points).
+     * @return int FFT size
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns input format this plan was created for.
+     * @return {@link PreEqFFTInputFormat} input format
+     */
+    public PreEqFFTInputFormat getInputFormat() {
+        return inputFormat;
+    }
+
+    /**
+     * Returns the output rotation index. Rotated output point j is the raw output point (j + rotationIndex) mod size.
+     * @return int rotation index (0 if no rotation is needed)
+     */
+    public int getRotationIndex() {
+        return rotationIndex;
+    }
+
+    /**
+     * Returns the position of the first tap in the FFT input array. For {@link PreEqFFTInputFormat#MAIN_TAP_MIDDLE} main tap is placed
+     * in the middle of the input array, otherwise first tap is placed at the first input point.
+     * @param mainTapIndex int main tap index (not an array index)
+     * @return int FFT input position of the first tap
+     */
+    public int getInputStart(final int mainTapIndex) {
+        return PreEqFFTInputFormat.MAIN_TAP_MIDDLE.equals(inputFormat) ? size / 2 - mainTapIndex : 0;
+    }
+
+    /**
+     * Checks whether all taps of the provided structure fit into the FFT input array of this plan.
+     * @param tapCount int total number of taps
+     * @param mainTapIndex int main tap index (not an array index)
+     * @return boolean true if all taps fit into FFT input
+     */
+    public boolean fits(
+            final int tapCount,
+            final int mainTapIndex) {
+
+        int start = getInputStart(mainTapIndex);
+        return start >= 0 && start + tapCount <= size;
+    }
+
+    double[] getCos() {
+        return cos;
+    }
+
+    double[] getSin() {
+        return sin;
+    }
+
+    int[] getBitReversal() {
+        return bitReversal;
+    }
+
+    int[] getRotationMap() {
+        return rotationMap;
+    }
+
+    @Override
+    public String toString() {
+        return "FFTPlan{" +
+                "size=" + size +
+                ", inputFormat=" + inputFormat +
+                ", rotationIndex=" + rotationIndex +
+                '}';
+    }
+}
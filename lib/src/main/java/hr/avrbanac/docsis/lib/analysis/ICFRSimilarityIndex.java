@@ -0,0 +1,451 @@
+package hr.avrbanac.docsis.lib.analysis;
+
+import hr.avrbanac.docsis.lib.PreEqException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * <p>
+ * Approximate nearest-neighbour index over ICFR magnitude shapes ("find devices that look like this one"). Every ICFR vector is centered
+ * and normalized (so similarity is the same Pearson correlation as in {@link PreEqCorrelationEngine}, independent of the overall
+ * attenuation) and hashed with random hyperplane LSH (SimHash): each of the hash tables uses its own set of random hyperplanes and the
+ * signs of the projections form the bucket key. Similar shapes land in the same bucket of at least one table with high probability.
+ * </p>
+ * <p>
+ * Query visits only devices from the query buckets (one per table) and ranks them by the exact similarity of the stored normalized
+ * vectors, so query time depends on the bucket sizes and not on the number of indexed devices. More tables increase recall, more bits per
+ * table decrease bucket sizes. Device can be updated on every poll: it is removed from its old buckets and added to the new ones.
+ * </p>
+ * <p>
+ * Index is thread-safe: updates are exclusive, while queries run concurrently with each other. Buckets are created only when the first
+ * device lands in them (and dropped when the last one leaves), so memory use does not depend on the bits per table and is dominated by
+ * the stored vectors (4 bytes per ICFR point per device).
+ * </p>
+ */
+public class ICFRSimilarityIndex {
+    public static final int DEFAULT_TABLE_COUNT = 8;
+    public static final int DEFAULT_BITS_PER_TABLE = 16;
+    public static final int MAX_BITS_PER_TABLE = 24;
+    public static final long DEFAULT_SEED = 20240901L;
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int INITIAL_BUCKET_CAPACITY = 4;
+
+    private final int dimension;
+    private final int tableCount;
+    private final int bitsPerTable;
+
+    /**
+     * Random hyperplanes: hyperplane <strong>b</strong> of the table <strong>t</strong> starts at position
+     * <strong>(t * bitsPerTable + b) * dimension</strong>.
+     */
+    private final float[] hyperplanes;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // guarded by lock
+    /**
+     * Non-empty buckets of device slots per table, mapped by bucket key.
+     */
+    private final List<Map<Integer, Bucket>> buckets;
+    private final Map<Long, Integer> slots = new HashMap<>();
+    private long[] deviceIds = new long[INITIAL_CAPACITY];
+    private float[][] vectors = new float[INITIAL_CAPACITY][];
+    private int[][] keys = new int[INITIAL_CAPACITY][];
+    private int[] freeSlots = new int[INITIAL_CAPACITY];
+    private int freeSlotCount;
+    private int slotCount;
+
+    /**
+     * Private CTOR - use {@link Builder} instead.
+     */
+    private ICFRSimilarityIndex(final Builder builder) {
+        this.dimension = builder.dimension;
+        this.tableCount = builder.tableCount;
+        this.bitsPerTable = builder.bitsPerTable;
+
+        Random random = new Random(builder.seed);
+        this.hyperplanes = new float[tableCount * bitsPerTable * dimension];
+        for (int i = 0; i < hyperplanes.length; i++) {
+            hyperplanes[i] = (float) random.nextGaussian();
+        }
+
+        this.buckets = new ArrayList<>(tableCount);
+        for (int table = 0; table < tableCount; table++) {
+            buckets.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Adds the device ICFR shape or replaces the previous one.
+     * @param deviceId long device identifier
+     * @param analysis {@link PreEqAnalysis} device analysis
+     */
+    public void update(
+            final long deviceId,
+            final PreEqAnalysis analysis) {
+
+        update(deviceId, analysis.getInChannelFrequencyResponseMagnitude());
+    }
+
+    /**
+     * Adds the device ICFR shape or replaces the previous one. Provided array is not retained.
+     * @param deviceId long device identifier
+     * @param icfrMagnitude array of double values representing ICFR magnitudes (length must match index dimension)
+     */
+    public void update(
+            final long deviceId,
+            final double[] icfrMagnitude) {
+
+        float[] vector = normalize(icfrMagnitude);
+        int[] vectorKeys = hash(vector);
+
+        lock.writeLock().lock();
+        try {
+            Integer slot = slots.get(deviceId);
+            if (slot == null) {
+                slot = allocateSlot();
+                slots.put(deviceId, slot);
+                deviceIds[slot] = deviceId;
+            } else {
+                removeFromBuckets(slot);
+            }
+
+            vectors[slot] = vector;
+            keys[slot] = vectorKeys;
+            for (int table = 0; table < tableCount; table++) {
+                addToBucket(table, vectorKeys[table], slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the device from the index.
+     * @param deviceId long device identifier
+     * @return boolean true if device was indexed
+     */
+    public boolean remove(final long deviceId) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slots.remove(deviceId);
+            if (slot == null) return false;
+
+            removeFromBuckets(slot);
+            vectors[slot] = null;
+            keys[slot] = null;
+            if (freeSlotCount == freeSlots.length) freeSlots = Arrays.copyOf(freeSlots, freeSlotCount * 2);
+            freeSlots[freeSlotCount++] = slot;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of indexed devices.
+     * @return int number of devices
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slots.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds devices with ICFR shape most similar to the indexed device (device itself is not included).
+     * @param deviceId long device identifier
+     * @param k int maximum number of results
+     * @return {@link List} of {@link Match} ordered by descending similarity (empty for unknown device)
+     */
+    public List<Match> query(
+            final long deviceId,
+            final int k) {
+
+        lock.readLock().lock();
+        try {
+            Integer slot = slots.get(deviceId);
+            if (slot == null) return Collections.emptyList();
+
+            return query(vectors[slot], keys[slot], slot, k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds devices with ICFR shape most similar to the provided ICFR magnitudes.
+     * @param icfrMagnitude array of double values representing ICFR magnitudes (length must match index dimension)
+     * @param k int maximum number of results
+     * @return {@link List} of {@link Match} ordered by descending similarity
+     */
+    public List<Match> query(
+            final double[] icfrMagnitude,
+            final int k) {
+
+        float[] vector = normalize(icfrMagnitude);
+        int[] vectorKeys = hash(vector);
+
+        lock.readLock().lock();
+        try {
+            return query(vector, vectorKeys, -1, k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ranks all devices from the query buckets. Candidates found in more than one table are ranked only once.
+     */
+    private List<Match> query(
+            final float[] vector,
+            final int[] vectorKeys,
+            final int excludedSlot,
+            final int k) {
+
+        if (k < 1) throw new PreEqException("Number of results must be positive: " + k);
+
+        Bucket[] queryBuckets = new Bucket[tableCount];
+        int candidateCount = 0;
+        for (int table = 0; table < tableCount; table++) {
+            queryBuckets[table] = buckets.get(table).get(vectorKeys[table]);
+            if (queryBuckets[table] != null) candidateCount += queryBuckets[table].size;
+        }
+        int[] candidates = new int[candidateCount];
+        candidateCount = 0;
+        for (Bucket bucket : queryBuckets) {
+            if (bucket == null) continue;
+            System.arraycopy(bucket.slots, 0, candidates, candidateCount, bucket.size);
+            candidateCount += bucket.size;
+        }
+        Arrays.sort(candidates);
+
+        // top-k kept sorted by descending similarity (k is small, insertion is cheaper than a heap)
+        int[] topSlots = new int[k];
+        float[] topSimilarities = new float[k];
+        int topCount = 0;
+        for (int i = 0; i < candidateCount; i++) {
+            int slot = candidates[i];
+            if (slot == excludedSlot || (i > 0 && slot == candidates[i - 1])) continue;
+
+            float similarity = dot(vector, vectors[slot]);
+            if (topCount == k && similarity <= topSimilarities[k - 1]) continue;
+
+            int position = topCount == k ? k - 1 : topCount++;
+            while (position > 0 && topSimilarities[position - 1] < similarity) {
+                topSlots[position] = topSlots[position - 1];
+                topSimilarities[position] = topSimilarities[position - 1];
+                position--;
+            }
+            topSlots[position] = slot;
+            topSimilarities[position] = similarity;
+        }
+
+        List<Match> result = new ArrayList<>(topCount);
+        for (int i = 0; i < topCount; i++) {
+            result.add(new Match(deviceIds[topSlots[i]], topSimilarities[i]));
+        }
+
+        return result;
+    }
+
+    private float[] normalize(final double[] icfrMagnitude) {
+        if (icfrMagnitude.length != dimension) {
+            throw new PreEqException("ICFR length mismatch: " + icfrMagnitude.length + " != " + dimension);
+        }
+
+        double[] normalized = PreEqCorrelationEngine.normalize(icfrMagnitude.clone(), 1, dimension);
+        if (Double.isNaN(normalized[0])) throw new PreEqException("ICFR without any variation can not be indexed");
+
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) normalized[i];
+        }
+
+        return vector;
+    }
+
+    private int[] hash(final float[] vector) {
+        int[] result = new int[tableCount];
+        for (int table = 0, hyperplane = 0; table < tableCount; table++) {
+            int key = 0;
+            for (int bit = 0; bit < bitsPerTable; bit++, hyperplane++) {
+                float projection = 0f;
+                for (int i = 0, position = hyperplane * dimension; i < dimension; i++, position++) {
+                    projection += vector[i] * hyperplanes[position];
+                }
+                if (projection >= 0f) key |= 1 << bit;
+            }
+            result[table] = key;
+        }
+
+        return result;
+    }
+
+    private static float dot(
+            final float[] a,
+            final float[] b) {
+
+        float sum = 0f;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+
+        return sum;
+    }
+
+    private int allocateSlot() {
+        if (freeSlotCount > 0) return freeSlots[--freeSlotCount];
+
+        if (slotCount == deviceIds.length) {
+            int capacity = slotCount * 2;
+            deviceIds = Arrays.copyOf(deviceIds, capacity);
+            vectors = Arrays.copyOf(vectors, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+        }
+
+        return slotCount++;
+    }
+
+    private void addToBucket(
+            final int table,
+            final int key,
+            final int slot) {
+
+        Bucket bucket = buckets.get(table).computeIfAbsent(key, k -> new Bucket());
+        if (bucket.size == bucket.slots.length) bucket.slots = Arrays.copyOf(bucket.slots, bucket.size * 2);
+        bucket.slots[bucket.size++] = slot;
+    }
+
+    private void removeFromBuckets(final int slot) {
+        for (int table = 0; table < tableCount; table++) {
+            int key = keys[slot][table];
+            Bucket bucket = buckets.get(table).get(key);
+            for (int i = 0; i < bucket.size; i++) {
+                if (bucket.slots[i] != slot) continue;
+                bucket.slots[i] = bucket.slots[--bucket.size];
+                break;
+            }
+            if (bucket.size == 0) buckets.get(table).remove(key);
+        }
+    }
+
+    /**
+     * Device slots of a single bucket with used entries count.
+     */
+    private static final class Bucket {
+        private int[] slots = new int[INITIAL_BUCKET_CAPACITY];
+        private int size;
+    }
+
+    /**
+     * Single query result: indexed device and its ICFR shape similarity (Pearson correlation) to the query.
+     */
+    public static class Match {
+        private final long deviceId;
+        private final float similarity;
+
+        Match(
+                final long deviceId,
+                final float similarity) {
+
+            this.deviceId = deviceId;
+            this.similarity = similarity;
+        }
+
+        /**
+         * Returns matched device identifier.
+         * @return long device identifier
+         */
+        public long getDeviceId() {
+            return deviceId;
+        }
+
+        /**
+         * Returns ICFR shape similarity.
+         * @return float Pearson correlation of the ICFR magnitudes in [-1, 1]
+         */
+        public float getSimilarity() {
+            return similarity;
+        }
+
+        @Override
+        public String toString() {
+            return "Match{deviceId=" + deviceId + ", similarity=" + similarity + "}";
+        }
+    }
+
+    /**
+     * Builder for {@link ICFRSimilarityIndex}. ICFR dimension (FFT size) is mandatory; by default {@link #DEFAULT_TABLE_COUNT} tables with
+     * {@link #DEFAULT_BITS_PER_TABLE} bits and hyperplanes generated with {@link #DEFAULT_SEED} are used.
+     */
+    public static class Builder {
+        private final int dimension;
+        private int tableCount = DEFAULT_TABLE_COUNT;
+        private int bitsPerTable = DEFAULT_BITS_PER_TABLE;
+        private long seed = DEFAULT_SEED;
+
+        /**
+         * CTOR with mandatory ICFR dimension.
+         * @param dimension int number of ICFR points (FFT size), at least 2
+         */
+        public Builder(final int dimension) {
+            if (dimension < 2) throw new PreEqException("ICFR dimension must be at least 2: " + dimension);
+            this.dimension = dimension;
+        }
+
+        /**
+         * Sets number of hash tables (more tables increase recall).
+         * @param tableCount int positive table count
+         * @return {@link Builder} so the setters can be chained
+         */
+        public Builder setTableCount(final int tableCount) {
+            if (tableCount < 1) throw new PreEqException("Table count must be positive: " + tableCount);
+            this.tableCount = tableCount;
+            return this;
+        }
+
+        /**
+         * Sets number of random hyperplanes (bucket key bits) per table (more bits decrease bucket sizes).
+         * @param bitsPerTable int bits per table, from 1 to {@link #MAX_BITS_PER_TABLE}
+         * @return {@link Builder} so the setters can be chained
+         */
+        public Builder setBitsPerTable(final int bitsPerTable) {
+            if (bitsPerTable < 1 || bitsPerTable > MAX_BITS_PER_TABLE) {
+                throw new PreEqException("Bits per table out of range: " + bitsPerTable);
+            }
+            this.bitsPerTable = bitsPerTable;
+            return this;
+        }
+
+        /**
+         * Sets seed of the random hyperplane generator (same seed gives same hashes).
+         * @param seed long random seed
+         * @return {@link Builder} so the setters can be chained
+         */
+        public Builder setSeed(final long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Final builder method for building {@link ICFRSimilarityIndex}.
+         * @return {@link ICFRSimilarityIndex} built index
+         */
+        public ICFRSimilarityIndex build() {
+            return new ICFRSimilarityIndex(this);
+        }
+    }
+}
@@ -1,71 +1,176 @@
 package hr.avrbanac.docsis.lib.analysis;
 
 import hr.avrbanac.docsis.lib.PreEqException;
-import hr.avrbanac.docsis.lib.struct.Coefficient;
+import hr.avrbanac.docsis.lib.recorder.PreEqRecorder;
+import hr.avrbanac.docsis.lib.recorder.PreEqRecorders;
+import hr.avrbanac.docsis.lib.recorder.PreEqStage;
 import hr.avrbanac.docsis.lib.struct.PreEqData;
 import hr.avrbanac.docsis.lib.util.MathUtility;
 import org.apache.commons.math3.complex.Complex;
-import org.apache.commons.math3.transform.DftNormalization;
-import org.apache.commons.math3.transform.FastFourierTransformer;
-import org.apache.commons.math3.transform.TransformType;
 
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
+ * <p>
  * Main analysis class for parsed pre-equalization data.
+ * </p>
+ * <p>
+ * Analysis is thread-safe and one instance can be shared between many threads. ICFR results are calculated only once, first time required,
+ * and published lock-free (compare-and-set): if more threads require the same result at the same time, only the first calculated result
+ * is published and returned to all of them. Elapsed time is accumulated atomically. Returned ICFR arrays are shared between all callers
+ * and must not be modified; read-only views ({@link #getInChannelFrequencyResponseView()},
+ * {@link #getInChannelFrequencyResponseMagnitudeView()}) should be used when result is handed over to some other code.
+ * </p>
  */
 public class PreEqAnalysis {
     // Constants defined for FFT analysis (forward direction: from time domain to frequency domain)
-    private static final TransformType TRANSFORM_TYPE = TransformType.FORWARD;
-    private static final DftNormalization DFT_NORMALIZATION = DftNormalization.STANDARD;
-    private static final PreEqFFTInputFormat PRE_EQ_FFT_INPUT_FORMAT = PreEqFFTInputFormat.FIRST_TAP_FIRST_POINT;
-    private static final int MIN_FFT_INPUT_SIZE = 8;
-    private static final int MAX_FFT_INPUT_SIZE = 128;
-    private static final MathUtility.ParabolicInterpolation PARABOLIC_INTERPOLATION = MathUtility.ParabolicInterpolation.V2;
+    static final PreEqFFTInputFormat PRE_EQ_FFT_INPUT_FORMAT = PreEqFFTInputFormat.FIRST_TAP_FIRST_POINT;
+    static final int MIN_FFT_INPUT_SIZE = 8;
+    static final int MAX_FFT_INPUT_SIZE = 128;
+    static final MathUtility.ParabolicInterpolation PARABOLIC_INTERPOLATION = MathUtility.ParabolicInterpolation.V2;
 
     /**
      * Parsed pre-eq data with calculated key metrics.
      */
     private final PreEqData preEqData;
+    /**
+     * Shared FFT plan defining FFT size and input format.
+     */
+    private final FFTPlan fftPlan;
     /**
      * Size of the FFT input / output (number of points).
      */
     private final int fftSize;
+    /**
+     * Precision of the ICFR magnitude and micro-reflection dB calculations.
+     */
+    private final MathUtility.DecibelPrecision decibelPrecision;
 
     /**
      * Elapsed time in nanoseconds spent in calculation.
      */
-    private long elapsedTime;
+    private final AtomicLong elapsedTime = new AtomicLong();
     /**
-     * Complex array represents In Channel Frequency Response calculated only once, first time required.
+     * Per-tap derived values calculated only once, first time required.
      */
-    private Complex[] fftICFR = null;
+    private final AtomicReference<PreEqTapSnapshot> tapSnapshot = new AtomicReference<>();
+    /**
+     * Real and imaginary parts of the In Channel Frequency Response calculated only once, first time required.
+     */
+    private final AtomicReference<ICFRPoints> fftICFRPoints = new AtomicReference<>();
+    /**
+     * Complex array represents In Channel Frequency Response created only once, first time required.
+     */
+    private final AtomicReference<Complex[]> fftICFR = new AtomicReference<>();
     /**
      * Double array represents In Channel Frequency Response Magnitude calculated only once, first time required.
      */
-    private double[] fftICFRMag = null;
+    private final AtomicReference<double[]> fftICFRMag = new AtomicReference<>();
 
+    /**
+     * CTOR with default FFT input format and the minimal FFT size needed for the provided pre-eq data.
+     * @param preEqData {@link PreEqData} parsed pre-eq data
+     */
     public PreEqAnalysis(final PreEqData preEqData) {
-        this.preEqData = preEqData;
-        long start = System.nanoTime();
-        this.fftSize = MathUtility.getMinFFTSize(
+        this(preEqData, PRE_EQ_FFT_INPUT_FORMAT);
+    }
+
+    /**
+     * CTOR with provided FFT input format and the minimal FFT size needed for the provided pre-eq data.
+     * @param preEqData {@link PreEqData} parsed pre-eq data
+     * @param preEqFFTInputFormat {@link PreEqFFTInputFormat} definition on how FFT input is filled up with tap data
+     */
+    public PreEqAnalysis(
+            final PreEqData preEqData,
+            final PreEqFFTInputFormat preEqFFTInputFormat) {
+
+        this(preEqData, preEqFFTInputFormat, MathUtility.DecibelPrecision.EXACT);
+    }
+
+    /**
+     * CTOR with provided FFT input format, the minimal FFT size needed for the provided pre-eq data and provided dB precision.
+     * @param preEqData {@link PreEqData} parsed pre-eq data
+     * @param preEqFFTInputFormat {@link PreEqFFTInputFormat} definition on how FFT input is filled up with tap data
+     * @param decibelPrecision {@link MathUtility.DecibelPrecision} precision of the ICFR magnitude and micro-reflection calculation
+     */
+    public PreEqAnalysis(
+            final PreEqData preEqData,
+            final PreEqFFTInputFormat preEqFFTInputFormat,
+            final MathUtility.DecibelPrecision decibelPrecision) {
+
+        this(preEqData, FFTPlan.forTaps(
                 preEqData.getTapCount(),
                 preEqData.getMainTapIndex(),
-                PRE_EQ_FFT_INPUT_FORMAT,
-                MIN_FFT_INPUT_SIZE,
-                MAX_FFT_INPUT_SIZE);
+                preEqFFTInputFormat), decibelPrecision);
+    }
+
+    /**
+     * CTOR with provided FFT plan. Plan can be of any size (e.g. larger one for finer ICFR resolution), as long as all taps fit into its
+     * input array.
+     * @param preEqData {@link PreEqData} parsed pre-eq data
+     * @param fftPlan {@link FFTPlan} shared FFT plan
+     */
+    public PreEqAnalysis(
+            final PreEqData preEqData,
+            final FFTPlan fftPlan) {
 
-        if (fftSize < 0) {
+        this(preEqData, fftPlan, MathUtility.DecibelPrecision.EXACT);
+    }
+
+    /**
+     * CTOR with provided FFT plan and dB precision. Plan can be of any size, as long as all taps fit into its input array.
+     * @param preEqData {@link PreEqData} parsed pre-eq data
+     * @param fftPlan {@link FFTPlan} shared FFT plan
+     * @param decibelPrecision {@link MathUtility.DecibelPrecision} precision of the ICFR magnitude and micro-reflection calculation
+     */
+    public PreEqAnalysis(
+            final PreEqData preEqData,
+            final FFTPlan fftPlan,
+            final MathUtility.DecibelPrecision decibelPrecision) {
+
+        if (!fftPlan.fits(preEqData.getTapCount(), preEqData.getMainTapIndex())) {
             throw PreEqException.FFT_TAP_COUNT_ERROR;
         }
 
-        elapsedTime = System.nanoTime() - start;
+        this.preEqData = preEqData;
+        this.fftPlan = fftPlan;
+        this.fftSize = fftPlan.getSize();
+        this.decibelPrecision = decibelPrecision;
+    }
+
+    /**
+     * Returns the FFT plan used for ICFR calculation.
+     * @return {@link FFTPlan} shared FFT plan
+     */
+    public FFTPlan getFFTPlan() {
+        return fftPlan;
+    }
+
+    /**
+     * Returns the precision of the dB calculations.
+     * @return {@link MathUtility.DecibelPrecision} precision used for ICFR magnitude and micro-reflection
+     */
+    public MathUtility.DecibelPrecision getDecibelPrecision() {
+        return decibelPrecision;
+    }
+
+    /**
+     * Returns analyzed pre-eq data.
+     * @return {@link PreEqData} analyzed pre-eq data
+     */
+    public PreEqData getPreEqData() {
+        return preEqData;
     }
 
     /**
      * Returns the number of input / output points for FFT.
      * @return int FFT size
-     * @see MathUtility#getMinFFTSize(int, int, PreEqFFTInputFormat, int, int)
+     * @see FFTPlan#getSize()
      */
     public int getFFTSize() {
         return fftSize;
@@ -76,45 +181,113 @@ public class PreEqAnalysis {
      * @return long elapsed time in ns
      */
     public long getElapsedTime() {
-        return elapsedTime;
+        return elapsedTime.get();
+    }
+
+    /**
+     * Returns per-tap derived values (energy ratio, nominal energy ratio, relative power) calculated only once, first time required. TDR
+     * and ICFR input are read from the same snapshot, so it should be used for any other per-tap queries (e.g. UI, exports) as well.
+     * Snapshot is read-only: values are available only through indexed accessors.
+     * @return {@link PreEqTapSnapshot} shared snapshot of the analyzed pre-eq data
+     */
+    public PreEqTapSnapshot getTapSnapshot() {
+        PreEqTapSnapshot cached = tapSnapshot.get();
+        if (cached != null) return cached;
+
+        PreEqTapSnapshot result = PreEqTapSnapshot.of(preEqData, decibelPrecision);
+        return tapSnapshot.compareAndSet(null, result) ? result : tapSnapshot.get();
     }
 
     /**
      * Returns ICFR(In Channel Frequency Response) data as a result of forward FFT (Fast Fourier Transform).
-     * As describe for {@link #prepareComplexFFTInput()}, after forward FFT, rotation needs to be done for the FFT output.
+     * As described for {@link PreEqFFTInputFormat}, after forward FFT, rotation needs to be done for the FFT output.
      * Returned array is an array of complex points. For plotting of the ICFR use {@link #getInChannelFrequencyResponseMagnitude()} method
-     * instead.
+     * instead. Returned array is shared and must not be modified.
      * @return {@link Complex} array in frequency domain
      */
     public Complex[] getInChannelFrequencyResponse() {
-        if (fftICFR != null) return fftICFR;
+        Complex[] cached = fftICFR.get();
+        if (cached != null) return cached;
 
-        long start = System.nanoTime();
-        FastFourierTransformer transformer = new FastFourierTransformer(DFT_NORMALIZATION);
-        fftICFR = createRotatedFFTArray(transformer.transform(prepareComplexFFTInput(), TRANSFORM_TYPE));
-        elapsedTime += System.nanoTime() - start;
+        ICFRPoints points = calculateInChannelFrequencyResponse();
+        Complex[] result = new Complex[fftSize];
+        for (int i = 0; i < fftSize; i++) {
+            result[i] = new Complex(points.real[i], points.imag[i]);
+        }
 
-        return fftICFR;
+        return fftICFR.compareAndSet(null, result) ? result : fftICFR.get();
+    }
+
+    /**
+     * Returns read-only view of the ICFR complex points. No data is copied.
+     * @return unmodifiable {@link List} of {@link Complex} points in frequency domain
+     * @see #getInChannelFrequencyResponse()
+     */
+    public List<Complex> getInChannelFrequencyResponseView() {
+        return Collections.unmodifiableList(Arrays.asList(getInChannelFrequencyResponse()));
     }
 
     /**
      * Returns ICFR (In Channel Frequency Response) data as a result of forward FFT (Fast Fourier Transform).
-     * Implicitly, this method will call {@link #getInChannelFrequencyResponse()} and convert values to magnitude values for plotting.
+     * Implicitly, this method will calculate ICFR and convert values to magnitude values for plotting. Returned array is shared and must
+     * not be modified.
      * @return array of double values representing magnitudes of FFT output complex points
      */
     public double[] getInChannelFrequencyResponseMagnitude() {
-        if (fftICFRMag != null) return fftICFRMag;
+        double[] cached = fftICFRMag.get();
+        if (cached != null) return cached;
 
-        Complex[] fftResult = getInChannelFrequencyResponse();
-        fftICFRMag = new double[fftSize];
+        ICFRPoints points = calculateInChannelFrequencyResponse();
+        double[] result = new double[fftSize];
 
         long start = System.nanoTime();
-        for (int i = 0; i < fftSize; i++) {
-            fftICFRMag[i] = 20 * Math.log10(Math.hypot(fftResult[i].getReal(), fftResult[i].getImaginary()));
-        }
+        PreEqDFT.magnitude(points.real, points.imag, 0, fftSize, result, 0, decibelPrecision);
+
+        record(PreEqStage.MAGNITUDE, System.nanoTime() - start);
+        return fftICFRMag.compareAndSet(null, result) ? result : fftICFRMag.get();
+    }
+
+    /**
+     * Returns read-only view of the ICFR magnitudes. No data is copied.
+     * @return read-only {@link DoubleBuffer} of magnitudes of FFT output complex points
+     * @see #getInChannelFrequencyResponseMagnitude()
+     */
+    public DoubleBuffer getInChannelFrequencyResponseMagnitudeView() {
+        return DoubleBuffer.wrap(getInChannelFrequencyResponseMagnitude()).asReadOnlyBuffer();
+    }
 
-        elapsedTime += System.nanoTime() - start;
-        return fftICFRMag;
+    /**
+     * Helper method calculates ICFR into primitive arrays using {@link PreEqDFT} engine. Only non-zero FFT input points (taps) are
+     * transformed and output is written already rotated. Tap values are taken from the tap snapshot, while their position in the input
+     * array is defined via {@link FFTPlan#getInputStart(int)}. Values are scaled to relative power within the transform.
+     * @return {@link ICFRPoints} published ICFR points
+     */
+    private ICFRPoints calculateInChannelFrequencyResponse() {
+        ICFRPoints cached = fftICFRPoints.get();
+        if (cached != null) return cached;
+
+        long start = System.nanoTime();
+        PreEqTapSnapshot taps = getTapSnapshot();
+        long split = System.nanoTime();
+        record(PreEqStage.FFT_INPUT, split - start);
+
+        double[] outReal = new double[fftSize];
+        double[] outImag = new double[fftSize];
+        PreEqDFT.transform(
+                fftPlan,
+                taps.getReal(),
+                taps.getImag(),
+                0,
+                taps.getTapCount(),
+                preEqData.getMTNA(),
+                fftPlan.getInputStart(preEqData.getMainTapIndex()),
+                outReal,
+                outImag,
+                0);
+
+        record(PreEqStage.FFT, System.nanoTime() - split);
+        ICFRPoints result = new ICFRPoints(outReal, outImag);
+        return fftICFRPoints.compareAndSet(null, result) ? result : fftICFRPoints.get();
     }
 
     /**
@@ -172,13 +345,12 @@ public class PreEqAnalysis {
         int mainTapIndex = preEqData.getMainTapIndex();
         int tapCount = preEqData.getTapCount();
         double maxReflection = preEqData.getTapEnergyRatioBoundary();
-        List<Coefficient> coefficients = preEqData.getCoefficients();
-        long tte = preEqData.getTTE();
+        double[] energyRatio = getTapSnapshot().getEnergyRatio();
         int ptr = onlyFarReflections ? mainTapIndex + nearPostMainTapCount : mainTapIndex;
         int maxTapPtr = 0;
 
         while (ptr < tapCount) {
-            double currTapEnergyRatio = coefficients.get(ptr).getEnergyRatio(tte);
+            double currTapEnergyRatio = energyRatio[ptr];
             if (currTapEnergyRatio > maxReflection) {
                 maxReflection = currTapEnergyRatio;
                 maxTapPtr = ptr;
@@ -188,12 +360,16 @@ public class PreEqAnalysis {
 
         if (maxTapPtr <= mainTapIndex - 1) throw PreEqException.TDR_CALCULATION_ERROR;
 
-        Complex left = getLeftInterpolationPoint(coefficients, maxTapPtr, mainTapIndex, tte);
-        Complex middle = new Complex(maxTapPtr - mainTapIndex + 1d, coefficients.get(maxTapPtr).getEnergyRatio(tte));
-        Complex right = getRightInterpolationPoint(coefficients, maxTapPtr, mainTapIndex, tapCount, tte);
-
-        double result = calculateInterpolatedTDR(left, middle, right, channelWidth.getSymRate(), parabolicInterpolation);
-        elapsedTime += System.nanoTime() - start;
+        double result = calculateInterpolatedTDR(
+                getLeftInterpolationX(maxTapPtr, mainTapIndex),
+                energyRatio[getLeftInterpolationPtr(maxTapPtr, mainTapIndex)],
+                maxTapPtr - mainTapIndex + 1d,
+                energyRatio[maxTapPtr],
+                maxTapPtr - mainTapIndex + 2d,
+                energyRatio[getRightInterpolationPtr(maxTapPtr, tapCount)],
+                channelWidth.getSymRate(),
+                parabolicInterpolation);
+        record(PreEqStage.TDR, System.nanoTime() - start);
 
         return result;
     }
@@ -219,143 +395,149 @@ public class PreEqAnalysis {
             final ChannelWidth channelWidth,
             final MicroReflectionSeverityThreshold thresholdLevel) {
 
+        double[] icfrMag = getInChannelFrequencyResponseMagnitude();
         long start = System.nanoTime();
-        Signature signature = new Signature(getInChannelFrequencyResponseMagnitude(), channelWidth, thresholdLevel);
-        elapsedTime += System.nanoTime() - start;
+        Signature signature = new Signature(icfrMag, channelWidth, thresholdLevel, decibelPrecision);
+        record(PreEqStage.SIGNATURE, System.nanoTime() - start);
 
         return signature;
     }
 
     /**
-     * Helper method that prepares FFT input of {@link Complex} array structure. Depending on the defined {@link PreEqFFTInputFormat},
-     * different methods are used. Either main tap is mapped to the middle input point, or taps are mapped sequentially in the input array
-     * from the start to the last tap point and rest of the input array is zeroed.
-     * @return {@link Complex} array structure for FFT input (calculated from pre-eq coefficients)
-     * @see PreEqFFTInputFormat
+     * Returns micro-reflection severities for all threshold levels (low, medium, high) side by side. Signature is calculated only once and
+     * its micro-reflection is classified with each threshold level.
+     *
+     * @param channelWidth {@link ChannelWidth} provided so that symbol rate can be fetched
+     * @return {@link MicroReflectionSeverity} array indexed by threshold level + 1
+     * @see Signature#getMicroReflectionSeverities()
      */
-    private Complex[] prepareComplexFFTInput() {
-        List<Coefficient> coefficients = preEqData.getCoefficients();
-        Complex[] complexPoints = new Complex[fftSize];
-        int tapCount = preEqData.getTapCount();
-        long lMTNA = preEqData.getMTNA();
-
-        if (PreEqFFTInputFormat.MAIN_TAP_MIDDLE.equals(PRE_EQ_FFT_INPUT_FORMAT)) {
-            int mainTapIndex = preEqData.getMainTapIndex();
-            for (int i = 0; i < fftSize; i++) {
-                if ((i >= fftSize / 2 - mainTapIndex) &&(i < fftSize / 2 + (tapCount - mainTapIndex))) {
-                    Coefficient coefficient = coefficients.get(i - mainTapIndex);
-                    complexPoints[i] = new Complex(
-                            coefficient.getRelativePowerReal(lMTNA),
-                            coefficient.getRelativePowerImag(lMTNA));
-                } else {
-                    complexPoints[i] = Complex.ZERO;
-                }
-            }
-        } else {
-            for (int i = 0; i < fftSize; i++) {
-                if (i < tapCount) {
-                    Coefficient coefficient = coefficients.get(i);
-                    complexPoints[i] = new Complex(coefficient.getRelativePowerReal(lMTNA), coefficient.getRelativePowerImag(lMTNA));
-                } else {
-                    complexPoints[i] = Complex.ZERO;
-                }
-            }
-        }
-
-        return complexPoints;
+    public MicroReflectionSeverity[] getMicroReflectionSeverities(final ChannelWidth channelWidth) {
+        return getSignature(channelWidth).getMicroReflectionSeverities();
     }
 
     /**
-     * Helper method returns new array (deep copy) of rotated FFT Complex array by rotation factor defined via {@link PreEqFFTInputFormat}.
-     * @param rawFFTOutput {@link Complex} array as raw FFT result
-     * @return new {@link Complex} array of rotated FFT output
+     * Helper method will return the array index of the coefficient left of the max reflection tap. There is a special case, when the max
+     * reflection tap is the first one after the main tap. Then the calculation is done with the one left of the main tap.
+     * @param middlePtr int an array index of the coefficient with max MR
+     * @param mainTapIndex main tap index (not an array index)
+     * @return int array index of the left interpolation point
+     * @see #getLeftInterpolationX(int, int)
      */
-    private Complex[] createRotatedFFTArray(final Complex[] rawFFTOutput) {
-        int rotationFactor = PRE_EQ_FFT_INPUT_FORMAT.getRotationFactor();
-        Complex[] result = new Complex[fftSize];
-
-        if (rotationFactor > fftSize || rotationFactor <= 0) {
-            System.arraycopy(rawFFTOutput, 0, result, 0, fftSize);
-        } else {
-            int rotationIndex = fftSize / rotationFactor;
-            System.arraycopy(rawFFTOutput, rotationIndex, result, 0, fftSize - rotationIndex);
-            System.arraycopy(rawFFTOutput, 0, result, fftSize - rotationIndex, rotationIndex);
-        }
+    static int getLeftInterpolationPtr(
+            final int middlePtr,
+            final int mainTapIndex) {
 
-        return result;
+        return middlePtr == mainTapIndex ? middlePtr - 2 : middlePtr - 1;
     }
 
     /**
-     * Helper method will return {@link Complex} wrapper where real value is a number of the tap (not an array index) and imaginary value is
-     * the energy ratio of the coefficient left of the max reflection tap. There is a special case, when the max reflection tap is the first
-     * one after the main tap. Then the calculation is done with the one left of the main tap taking into account it's fixed position.
-     * @param coefficients {@link List} of the {@link Coefficient} with all the taps
+     * Helper method will return x value of the left interpolation point: a number of the tap (not an array index) relative to the main tap,
+     * taking into account fixed position of the main tap for the special case (see {@link #getLeftInterpolationPtr(int, int)}).
      * @param middlePtr int an array index of the coefficient with max MR
      * @param mainTapIndex main tap index (not an array index)
-     * @param tte long value of the total tap energy
-     * @return {@link Complex} wrapper for left interpolation point
+     * @return double x value of the left interpolation point
      */
-    private Complex getLeftInterpolationPoint(
-            final List<Coefficient> coefficients,
+    static double getLeftInterpolationX(
             final int middlePtr,
-            final int mainTapIndex,
-            final long tte) {
+            final int mainTapIndex) {
 
-        return middlePtr == mainTapIndex
-                ? new Complex(middlePtr - mainTapIndex - 1d, coefficients.get(middlePtr - 2).getEnergyRatio(tte))
-                : new Complex(middlePtr - mainTapIndex * 1d, coefficients.get(middlePtr - 1).getEnergyRatio(tte));
+        return middlePtr == mainTapIndex ? middlePtr - mainTapIndex - 1d : middlePtr - mainTapIndex * 1d;
     }
 
     /**
-     * Helper method will return {@link Complex} wrapper where real value is a number of the tap (not an array index) and imaginary value is
-     * the energy ratio of the coefficient right of the max reflection tap. There is a special case when the max reflection tap is the last
-     * post-main tap. Then the calculation is done using the coefficient left of the last one (it's energy ratio) and taking into account
-     * it's fixed position ("virtual" position right of the last one). This will result in targeting middle of the selected max reflection
-     * tap.
-     * @param coefficients {@link List} of the {@link Coefficient} with all the taps
+     * Helper method will return the array index of the coefficient right of the max reflection tap. There is a special case when the max
+     * reflection tap is the last post-main tap. Then the calculation is done using the coefficient left of the last one (it's energy ratio)
+     * and taking into account it's fixed position ("virtual" position right of the last one). This will result in targeting middle of the
+     * selected max reflection tap.
      * @param middlePtr int an array index of the coefficient with max MR
-     * @param mainTapIndex main tap index (not an array index)
      * @param tapCount int total tap count
-     * @param tte long value of the total tap energy
-     * @return {@link Complex} wrapper for right interpolation point
+     * @return int array index of the right interpolation point
      */
-    private Complex getRightInterpolationPoint(
-            final List<Coefficient> coefficients,
+    static int getRightInterpolationPtr(
             final int middlePtr,
-            final int mainTapIndex,
-            final int tapCount,
-            final long tte) {
+            final int tapCount) {
 
-        return (middlePtr == tapCount - 1)
-                ? new Complex(middlePtr - mainTapIndex + 2d, coefficients.get(middlePtr - 1).getEnergyRatio(tte))
-                : new Complex(middlePtr - mainTapIndex + 2d, coefficients.get(middlePtr + 1).getEnergyRatio(tte));
+        return middlePtr == tapCount - 1 ? middlePtr - 1 : middlePtr + 1;
     }
 
     /**
      * Helper method to interpolate and calculate TDR value from 3 points using parabolic interpolation. Method will also fix 3 point tilt
      * (which will very likely generate either negative or very large positive value) and inverted concavity cases.
      * There are 2 methods available for parabolic interpolation. Currently, using the one found in the third party pre-eq software.
-     * @param left {@link Complex} number representing left point with (real, imag) values
-     * @param middle {@link Complex} number representing middle point with (real, imag) values
-     * @param right {@link Complex} number representing right point with (real, imag) values
+     * @param leftX double x value (tap number) of the left point
+     * @param leftY double y value (energy ratio) of the left point
+     * @param middleX double x value (tap number) of the middle point
+     * @param middleY double y value (energy ratio) of the middle point
+     * @param rightX double x value (tap number) of the right point
+     * @param rightY double y value (energy ratio) of the right point
      * @param symRate float symbol rate value needed for distance calculation
+     * @param interpolation {@link MathUtility.ParabolicInterpolation} used for max point determination
      * @return double interpolated value fixed if needed (not to produce negative values)
-     * @see MathUtility.ParabolicInterpolation#calculate(Complex, Complex, Complex)
+     * @see MathUtility.ParabolicInterpolation#calculate(double, double, double, double, double, double)
      */
-    private double calculateInterpolatedTDR(
-            final Complex left,
-            final Complex middle,
-            final Complex right,
+    static double calculateInterpolatedTDR(
+            final double leftX,
+            final double leftY,
+            final double middleX,
+            final double middleY,
+            final double rightX,
+            final double rightY,
             final float symRate,
             final MathUtility.ParabolicInterpolation interpolation) {
 
-        double interpolated = interpolation.calculate(left, middle, right);
+        return fixInterpolatedTDR(
+                interpolation.calculate(leftX, leftY, middleX, middleY, rightX, rightY), leftY, middleY, rightY, symRate);
+    }
+
+    /**
+     * Helper method to fix already interpolated point and convert it to TDR value. Fixes 3 point tilt (which will very likely generate
+     * either negative or very large positive value) and inverted concavity cases.
+     * @param interpolated double interpolated X point
+     * @param leftY double y value (energy ratio) of the left point
+     * @param middleY double y value (energy ratio) of the middle point
+     * @param rightY double y value (energy ratio) of the right point
+     * @param symRate float symbol rate value needed for distance calculation
+     * @return double interpolated value fixed if needed (not to produce negative values)
+     */
+    static double fixInterpolatedTDR(
+            final double interpolated,
+            final double leftY,
+            final double middleY,
+            final double rightY,
+            final float symRate) {
 
         // find the tilt - this is very likely to be negative or very large positive value, or inverted concavity
-        if ((left.getImaginary() > middle.getImaginary() && middle.getImaginary() > right.getImaginary()) || (interpolated < 0)) {
-            interpolated = 1d;
-        }
+        double fixed = ((leftY > middleY && middleY > rightY) || (interpolated < 0)) ? 1d : interpolated;
+
+        return fixed * MathUtility.getTDRSpeedFactor(symRate);
+    }
 
-        return interpolated * MathUtility.getTDRSpeedFactor(symRate);
+    /**
+     * Adds stage latency to the elapsed time and reports it to the current {@link PreEqRecorder}.
+     * @param stage {@link PreEqStage} finished stage
+     * @param nanos long stage latency in nanoseconds
+     */
+    private void record(
+            final PreEqStage stage,
+            final long nanos) {
+
+        elapsedTime.addAndGet(nanos);
+        PreEqRecorders.get().record(stage, nanos);
+    }
+
+    /**
+     * Immutable holder of the ICFR real and imaginary parts, so that both are published together.
+     */
+    private static final class ICFRPoints {
+        private final double[] real;
+        private final double[] imag;
+
+        private ICFRPoints(
+                final double[] real,
+                final double[] imag) {
+
+            this.real = real;
+            this.imag = imag;
+        }
     }
 }
@@ -0,0 +1,331 @@
+package hr.avrbanac.docsis.lib.analysis;
+
+import hr.avrbanac.docsis.lib.PreEqException;
+import hr.avrbanac.docsis.lib.recorder.PreEqRecorder;
+import hr.avrbanac.docsis.lib.recorder.PreEqRecorders;
+import hr.avrbanac.docsis.lib.recorder.PreEqStage;
+import hr.avrbanac.docsis.lib.struct.PreEqBatch;
+import hr.avrbanac.docsis.lib.util.MathUtility;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Batch version of the {@link PreEqAnalysis}. All calculations run directly over the columns of the provided {@link PreEqBatch}, without
+ * creating per-device pre-eq data or coefficient objects. Results are returned as flat columns in the batch row order. Same as for
+ * {@link PreEqAnalysis}, ICFR is calculated only once, first time required, and published lock-free, so analysis can be shared between
+ * threads (batch must not be modified while analysed).
+ */
+public class PreEqBatchAnalysis {
+
+    /**
+     * Columnar pre-eq data with calculated key metrics.
+     */
+    private final PreEqBatch batch;
+    /**
+     * Number of analysed rows (batch size at the time of analysis creation).
+     */
+    private final int size;
+    /**
+     * Shared FFT plan defining FFT size and input format, same for all rows.
+     */
+    private final FFTPlan fftPlan;
+    /**
+     * Size of the FFT input / output (number of points), same for all rows.
+     */
+    private final int fftSize;
+    /**
+     * Precision of the ICFR magnitude and micro-reflection dB calculations.
+     */
+    private final MathUtility.DecibelPrecision decibelPrecision;
+    /**
+     * Flat ICFR magnitude column ({@link #fftSize} values per row), calculated only once, first time required, and published lock-free.
+     */
+    private final AtomicReference<double[]> fftICFRMag = new AtomicReference<>();
+
+    /**
+     * CTOR with default FFT input format and the smallest FFT size that fits all rows.
+     * @param batch {@link PreEqBatch} columnar pre-eq data
+     */
+    public PreEqBatchAnalysis(final PreEqBatch batch) {
+        this(batch, PreEqAnalysis.PRE_EQ_FFT_INPUT_FORMAT);
+    }
+
+    /**
+     * CTOR with provided FFT input format and the smallest FFT size that fits all rows.
+     * @param batch {@link PreEqBatch} columnar pre-eq data
+     * @param preEqFFTInputFormat {@link PreEqFFTInputFormat} definition on how FFT input is filled up with tap data
+     */
+    public PreEqBatchAnalysis(
+            final PreEqBatch batch,
+            final PreEqFFTInputFormat preEqFFTInputFormat) {
+
+        this(batch, FFTPlan.of(getMaxFFTSize(batch, preEqFFTInputFormat), preEqFFTInputFormat));
+    }
+
+    /**
+     * CTOR with provided FFT plan, used for all rows. All taps of every row must fit into plan input array.
+     * @param batch {@link PreEqBatch} columnar pre-eq data
+     * @param fftPlan {@link FFTPlan} shared FFT plan
+     */
+    public PreEqBatchAnalysis(
+            final PreEqBatch batch,
+            final FFTPlan fftPlan) {
+
+        this(batch, fftPlan, MathUtility.DecibelPrecision.EXACT);
+    }
+
+    /**
+     * CTOR with provided FFT plan (used for all rows) and dB precision. All taps of every row must fit into plan input array.
+     * @param batch {@link PreEqBatch} columnar pre-eq data
+     * @param fftPlan {@link FFTPlan} shared FFT plan
+     * @param decibelPrecision {@link MathUtility.DecibelPrecision} precision of the ICFR magnitude and micro-reflection calculation
+     */
+    public PreEqBatchAnalysis(
+            final PreEqBatch batch,
+            final FFTPlan fftPlan,
+            final MathUtility.DecibelPrecision decibelPrecision) {
+
+        this.batch = batch;
+        this.size = batch.size();
+        this.fftPlan = fftPlan;
+        this.fftSize = fftPlan.getSize();
+        this.decibelPrecision = decibelPrecision;
+
+        int[] mainTap = batch.getMainTap();
+        for (int row = 0; row < size; row++) {
+            if (!fftPlan.fits(batch.getTapCount(), mainTap[row])) {
+                throw PreEqException.FFT_TAP_COUNT_ERROR;
+            }
+        }
+    }
+
+    /**
+     * Helper method returns the smallest FFT size that fits all batch rows.
+     * @param batch {@link PreEqBatch} columnar pre-eq data
+     * @param preEqFFTInputFormat {@link PreEqFFTInputFormat} definition on how FFT input is filled up with tap data
+     * @return int FFT size
+     */
+    private static int getMaxFFTSize(
+            final PreEqBatch batch,
+            final PreEqFFTInputFormat preEqFFTInputFormat) {
+
+        int maxFFTSize = FFTPlan.forTaps(batch.getTapCount(), 1, preEqFFTInputFormat).getSize();
+        int[] mainTap = batch.getMainTap();
+        for (int row = 0; row < batch.size(); row++) {
+            maxFFTSize = Math.max(maxFFTSize, FFTPlan.forTaps(batch.getTapCount(), mainTap[row], preEqFFTInputFormat).getSize());
+        }
+
+        return maxFFTSize;
+    }
+
+    /**
+     * Returns the number of analysed rows.
+     * @return int number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the FFT plan used for ICFR calculation of all rows.
+     * @return {@link FFTPlan} shared FFT plan
+     */
+    public FFTPlan getFFTPlan() {
+        return fftPlan;
+    }
+
+    /**
+     * Returns the number of input / output points for FFT (same for all rows).
+     * @return int FFT size
+     */
+    public int getFFTSize() {
+        return fftSize;
+    }
+
+    /**
+     * Returns ICFR (In Channel Frequency Response) magnitudes for all rows as one flat column. Magnitudes for the row <strong>r</strong>
+     * start at array position <strong>r * {@link #getFFTSize()}</strong>. Returned array is an internal array (no copy).
+     * @return array of double values representing magnitudes of FFT output complex points
+     * @see PreEqAnalysis#getInChannelFrequencyResponseMagnitude()
+     */
+    public double[] getInChannelFrequencyResponseMagnitude() {
+        double[] cached = fftICFRMag.get();
+        if (cached != null) return cached;
+
+        double[] result = new double[size * fftSize];
+        double[] outReal = new double[fftSize];
+        double[] outImag = new double[fftSize];
+        int tapCount = batch.getTapCount();
+        int[] mainTap = batch.getMainTap();
+        long[] mtna = batch.getMTNA();
+        PreEqRecorder recorder = PreEqRecorders.get();
+
+        for (int row = 0; row < size; row++) {
+            long split = recorder.start();
+            PreEqDFT.transform(
+                    fftPlan,
+                    batch.getReal(),
+                    batch.getImag(),
+                    row * tapCount,
+                    tapCount,
+                    mtna[row],
+                    fftPlan.getInputStart(mainTap[row]),
+                    outReal,
+                    outImag,
+                    0);
+            split = recorder.split(PreEqStage.FFT, split);
+            PreEqDFT.magnitude(outReal, outImag, 0, fftSize, result, row * fftSize, decibelPrecision);
+            recorder.split(PreEqStage.MAGNITUDE, split);
+        }
+
+        return fftICFRMag.compareAndSet(null, result) ? result : fftICFRMag.get();
+    }
+
+    /**
+     * Returns ICFR magnitudes of a single row as a new array.
+     * @param row int row index
+     * @return array of double values representing magnitudes of FFT output complex points
+     */
+    public double[] getInChannelFrequencyResponseMagnitude(final int row) {
+        return Arrays.copyOfRange(getInChannelFrequencyResponseMagnitude(), row * fftSize, (row + 1) * fftSize);
+    }
+
+    /**
+     * Default overloaded method which initiates calculation with default parabolic interpolation.
+     * @param channelWidth {@link ChannelWidth} carrying the information about width of the channel and symbol rate
+     * @param nearPostMainTapCount int count of the post-main energy taps considered near reflections
+     * @param onlyFarReflections boolean value - true if near reflections should be left out of the calculation
+     * @return double array of TDR values (one per row)
+     * @see #getTDR(ChannelWidth, int, boolean, MathUtility.ParabolicInterpolation)
+     */
+    public double[] getTDR(
+            final ChannelWidth channelWidth,
+            final int nearPostMainTapCount,
+            final boolean onlyFarReflections) {
+
+        return getTDR(channelWidth, nearPostMainTapCount, onlyFarReflections, PreEqAnalysis.PARABOLIC_INTERPOLATION);
+    }
+
+    /**
+     * Time domain reflectometry calculation for all rows. Calculation is the same as the one for the single device, but rows for which TDR
+     * could not be calculated (see {@link PreEqException#TDR_CALCULATION_ERROR}) will hold {@link Double#NaN} value instead of throwing.
+     * Interpolation points of all rows are collected first and then interpolated at once, without wrapping them into objects; recorded
+     * TDR stage latency covers the per-row max reflection tap search.
+     * @param channelWidth {@link ChannelWidth} carrying the information about width of the channel and symbol rate
+     * @param nearPostMainTapCount int count of the post-main energy taps considered near reflections
+     * @param onlyFarReflections boolean value - true if near reflections should be left out of the calculation
+     * @param parabolicInterpolation {@link MathUtility.ParabolicInterpolation} used for max point determination
+     * @return double array of TDR values (one per row)
+     * @see PreEqAnalysis#getTDR(ChannelWidth, int, boolean, MathUtility.ParabolicInterpolation)
+     */
+    public double[] getTDR(
+            final ChannelWidth channelWidth,
+            final int nearPostMainTapCount,
+            final boolean onlyFarReflections,
+            final MathUtility.ParabolicInterpolation parabolicInterpolation) {
+
+        double[] result = new double[size];
+        double[] x = new double[size * 3];
+        double[] y = new double[size * 3];
+        int tapCount = batch.getTapCount();
+        int[] mainTap = batch.getMainTap();
+        long[] energy = batch.getEnergy();
+        long[] tte = batch.getTTE();
+        PreEqRecorder recorder = PreEqRecorders.get();
+
+        // first pass: find the max reflection tap and its interpolation points for each row
+        for (int row = 0, p = 0; row < size; row++, p += 3) {
+            long start = recorder.start();
+            int base = row * tapCount;
+            int mainTapIndex = mainTap[row];
+            double rowTTE = tte[row];
+            double maxReflection = batch.getTapEnergyRatioBoundary();
+            int ptr = onlyFarReflections ? mainTapIndex + nearPostMainTapCount : mainTapIndex;
+            int maxTapPtr = 0;
+
+            while (ptr < tapCount) {
+                double currTapEnergyRatio = Math.sqrt(energy[base + ptr] / rowTTE);
+                if (currTapEnergyRatio > maxReflection) {
+                    maxReflection = currTapEnergyRatio;
+                    maxTapPtr = ptr;
+                }
+                ptr++;
+            }
+
+            if (maxTapPtr <= mainTapIndex - 1) {
+                // middle x is NaN only for rows without TDR
+                x[p + 1] = Double.NaN;
+                recorder.split(PreEqStage.TDR, start);
+                continue;
+            }
+
+            x[p] = PreEqAnalysis.getLeftInterpolationX(maxTapPtr, mainTapIndex);
+            y[p] = Math.sqrt(energy[base + PreEqAnalysis.getLeftInterpolationPtr(maxTapPtr, mainTapIndex)] / rowTTE);
+            x[p + 1] = maxTapPtr - mainTapIndex + 1d;
+            y[p + 1] = Math.sqrt(energy[base + maxTapPtr] / rowTTE);
+            x[p + 2] = maxTapPtr - mainTapIndex + 2d;
+            y[p + 2] = Math.sqrt(energy[base + PreEqAnalysis.getRightInterpolationPtr(maxTapPtr, tapCount)] / rowTTE);
+            recorder.split(PreEqStage.TDR, start);
+        }
+
+        // second pass: interpolate all rows at once and fix the interpolated points
+        parabolicInterpolation.calculate(x, y, result, size);
+        float symRate = channelWidth.getSymRate();
+        for (int row = 0, p = 0; row < size; row++, p += 3) {
+            result[row] = Double.isNaN(x[p + 1])
+                    ? Double.NaN
+                    : PreEqAnalysis.fixInterpolatedTDR(result[row], y[p], y[p + 1], y[p + 2], symRate);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns {@link Signature} for all rows calculated with default CableLabs threshold recommendations.
+     * @param channelWidth {@link ChannelWidth} provided so that symbol rate can be fetched
+     * @return array of {@link Signature} (one per row)
+     */
+    public Signature[] getSignatures(final ChannelWidth channelWidth) {
+        return getSignatures(channelWidth, MicroReflectionSeverityThreshold.CABLE_LABS);
+    }
+
+    /**
+     * Returns {@link Signature} for all rows calculated with provided threshold level.
+     * @param channelWidth {@link ChannelWidth} provided so that symbol rate can be fetched
+     * @param thresholdLevel {@link MicroReflectionSeverityThreshold} provided thresholdLevel for MR
+     * @return array of {@link Signature} (one per row)
+     */
+    public Signature[] getSignatures(
+            final ChannelWidth channelWidth,
+            final MicroReflectionSeverityThreshold thresholdLevel) {
+
+        Signature[] result = new Signature[size];
+        PreEqRecorder recorder = PreEqRecorders.get();
+        for (int row = 0; row < size; row++) {
+            double[] icfrMag = getInChannelFrequencyResponseMagnitude(row);
+            long start = recorder.start();
+            result[row] = new Signature(icfrMag, channelWidth, thresholdLevel, decibelPrecision);
+            recorder.split(PreEqStage.SIGNATURE, start);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns micro-reflection severities of all rows for all threshold levels (low, medium, high) side by side. Signature of each row is
+     * calculated only once and its micro-reflection is classified with each threshold level.
+     * @param channelWidth {@link ChannelWidth} provided so that symbol rate can be fetched
+     * @return {@link MicroReflectionSeverity} flat array with {@link Signature#THRESHOLD_LEVEL_COUNT} severities per row, for row r and
+     *         threshold level l at index r * {@link Signature#THRESHOLD_LEVEL_COUNT} + l + 1
+     */
+    public MicroReflectionSeverity[] getMicroReflectionSeverities(final ChannelWidth channelWidth) {
+        Signature[] signatures = getSignatures(channelWidth);
+        MicroReflectionSeverity[] result = new MicroReflectionSeverity[size * Signature.THRESHOLD_LEVEL_COUNT];
+        for (int row = 0; row < size; row++) {
+            signatures[row].copyMicroReflectionSeverities(result, row * Signature.THRESHOLD_LEVEL_COUNT);
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,368 @@
+package hr.avrbanac.docsis.lib.analysis;
+
+import hr.avrbanac.docsis.lib.PreEqException;
+import hr.avrbanac.docsis.lib.struct.DefaultPreEqData;
+import hr.avrbanac.docsis.lib.struct.PreEqData;
+import hr.avrbanac.docsis.lib.util.MathUtility;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Parallel analyzer for large number of raw pre-eq inputs (e.g. nightly plant sweep). Each input is parsed, analysed (ICFR, TDR) and its
+ * {@link Signature} is calculated on the provided {@link ForkJoinPool}. Inputs are split into contiguous chunks of configurable size, so
+ * that each worker processes neighbouring inputs, while results are written to the position of the corresponding input. This way results
+ * are always returned in input order. Analyzer is immutable and can be shared between threads.
+ */
+public class PreEqBatchAnalyzer {
+    public static final int DEFAULT_CHUNK_SIZE = 256;
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final ChannelWidth channelWidth;
+    private final MicroReflectionSeverityThreshold thresholdLevel;
+    private final int nearPostMainTapCount;
+    private final boolean onlyFarReflections;
+    private final PreEqFFTInputFormat preEqFFTInputFormat;
+    private final MathUtility.DecibelPrecision decibelPrecision;
+
+    /**
+     * Private CTOR - use {@link Builder} instead.
+     */
+    private PreEqBatchAnalyzer(final Builder builder) {
+        this.pool = builder.pool;
+        this.chunkSize = builder.chunkSize;
+        this.channelWidth = builder.channelWidth;
+        this.thresholdLevel = builder.thresholdLevel;
+        this.nearPostMainTapCount = builder.nearPostMainTapCount;
+        this.onlyFarReflections = builder.onlyFarReflections;
+        this.preEqFFTInputFormat = builder.preEqFFTInputFormat;
+        this.decibelPrecision = builder.decibelPrecision;
+    }
+
+    /**
+     * Analyses all provided pre-eq strings in parallel.
+     * @param preEqStrings {@link List} of raw pre-eq strings
+     * @return {@link List} of {@link Result} in input order
+     */
+    public List<Result> analyze(final List<String> preEqStrings) {
+        return analyze(preEqStrings, DefaultPreEqData::new);
+    }
+
+    /**
+     * Analyses all provided pre-eq strings in parallel. Stream is collected first, so that work can be split into chunks.
+     * @param preEqStrings {@link Stream} of raw pre-eq strings
+     * @return {@link List} of {@link Result} in stream encounter order
+     */
+    public List<Result> analyze(final Stream<String> preEqStrings) {
+        return analyze(preEqStrings.collect(Collectors.toList()));
+    }
+
+    /**
+     * Analyses all provided raw pre-eq payloads in parallel.
+     * @param payloads {@link List} of raw pre-eq payloads (e.g. SNMP OctetString values)
+     * @return {@link List} of {@link Result} in input order
+     */
+    public List<Result> analyzePayloads(final List<byte[]> payloads) {
+        return analyze(payloads, DefaultPreEqData::new);
+    }
+
+    /**
+     * Analyses all provided inputs in parallel using provided parser. Inputs without random access (e.g. linked list) are copied first, so
+     * that each chunk can be read by index.
+     * @param inputs {@link List} of raw inputs
+     * @param parser {@link Function} creating {@link PreEqData} from a single raw input
+     * @param <T> type of raw input
+     * @return {@link List} of {@link Result} in input order
+     */
+    public <T> List<Result> analyze(
+            final List<T> inputs,
+            final Function<? super T, ? extends PreEqData> parser) {
+
+        List<T> indexed = inputs instanceof RandomAccess ? inputs : new ArrayList<>(inputs);
+        Result[] results = new Result[indexed.size()];
+        pool.invoke(new ChunkAction<>(indexed, parser, results, 0, results.length));
+
+        return Collections.unmodifiableList(Arrays.asList(results));
+    }
+
+    /**
+     * Analyses single raw input. Parsing and signature calculation errors are caught and stored in result, while TDR calculation error
+     * only marks TDR as not available ({@link Double#NaN}). This way failure of a single input never aborts the whole batch.
+     * @param input raw input
+     * @param parser {@link Function} creating {@link PreEqData} from a single raw input
+     * @param <T> type of raw input
+     * @return {@link Result} of the analysis
+     */
+    private <T> Result analyzeSingle(
+            final T input,
+            final Function<? super T, ? extends PreEqData> parser) {
+
+        PreEqData preEqData;
+        PreEqAnalysis preEqAnalysis;
+        try {
+            preEqData = parser.apply(input);
+            preEqAnalysis = new PreEqAnalysis(preEqData, preEqFFTInputFormat, decibelPrecision);
+        } catch (PreEqException e) {
+            return new Result(e);
+        } catch (Exception e) {
+            return new Result(new PreEqException(e.getMessage()));
+        }
+
+        double tdr;
+        try {
+            tdr = preEqAnalysis.getTDR(channelWidth, nearPostMainTapCount, onlyFarReflections);
+        } catch (PreEqException e) {
+            tdr = Double.NaN;
+        }
+
+        try {
+            return new Result(preEqData, preEqAnalysis, tdr, preEqAnalysis.getSignature(channelWidth, thresholdLevel), null);
+        } catch (PreEqException e) {
+            return new Result(preEqData, preEqAnalysis, tdr, null, e);
+        } catch (Exception e) {
+            return new Result(preEqData, preEqAnalysis, tdr, null, new PreEqException(e.getMessage()));
+        }
+    }
+
+    /**
+     * Fork-join action splitting input range in halves until it is not larger than the chunk size.
+     * @param <T> type of raw input
+     */
+    private class ChunkAction<T> extends RecursiveAction {
+        private static final long serialVersionUID = 20240601000000L;
+
+        private final transient List<T> inputs;
+        private final transient Function<? super T, ? extends PreEqData> parser;
+        private final transient Result[] results;
+        private final int from;
+        private final int to;
+
+        ChunkAction(
+                final List<T> inputs,
+                final Function<? super T, ? extends PreEqData> parser,
+                final Result[] results,
+                final int from,
+                final int to) {
+
+            this.inputs = inputs;
+            this.parser = parser;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                for (int i = from; i < to; i++) {
+                    results[i] = analyzeSingle(inputs.get(i), parser);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                        new ChunkAction<>(inputs, parser, results, from, middle),
+                        new ChunkAction<>(inputs, parser, results, middle, to));
+            }
+        }
+    }
+
+    /**
+     * Result of the analysis for a single raw input. If parsing failed, only {@link #getError()} is available. If signature calculation
+     * failed, parsed data, analysis and TDR are available, while signature is null and {@link #getError()} holds the reason.
+     */
+    public static class Result {
+        private final PreEqData preEqData;
+        private final PreEqAnalysis preEqAnalysis;
+        private final double tdr;
+        private final Signature signature;
+        private final PreEqException error;
+
+        Result(
+                final PreEqData preEqData,
+                final PreEqAnalysis preEqAnalysis,
+                final double tdr,
+                final Signature signature,
+                final PreEqException error) {
+
+            this.preEqData = preEqData;
+            this.preEqAnalysis = preEqAnalysis;
+            this.tdr = tdr;
+            this.signature = signature;
+            this.error = error;
+        }
+
+        Result(final PreEqException error) {
+            this.preEqData = null;
+            this.preEqAnalysis = null;
+            this.tdr = Double.NaN;
+            this.signature = null;
+            this.error = error;
+        }
+
+        /**
+         * Returns true if raw input was successfully parsed and analysed (including signature).
+         * @return boolean true if there was no error
+         */
+        public boolean isValid() {
+            return error == null;
+        }
+
+        /**
+         * Returns parsed pre-eq data.
+         * @return {@link PreEqData} or null if parsing failed
+         */
+        public PreEqData getPreEqData() {
+            return preEqData;
+        }
+
+        /**
+         * Returns pre-eq analysis (ICFR is already calculated).
+         * @return {@link PreEqAnalysis} or null if parsing failed
+         */
+        public PreEqAnalysis getPreEqAnalysis() {
+            return preEqAnalysis;
+        }
+
+        /**
+         * Returns ICFR magnitude.
+         * @return array of double values representing ICFR magnitudes or null if parsing failed
+         * @see PreEqAnalysis#getInChannelFrequencyResponseMagnitude()
+         */
+        public double[] getInChannelFrequencyResponseMagnitude() {
+            return preEqAnalysis == null ? null : preEqAnalysis.getInChannelFrequencyResponseMagnitude();
+        }
+
+        /**
+         * Returns calculated TDR.
+         * @return double TDR value or {@link Double#NaN} if it could not be calculated
+         */
+        public double getTDR() {
+            return tdr;
+        }
+
+        /**
+         * Returns calculated signature.
+         * @return {@link Signature} or null if parsing or signature calculation failed
+         */
+        public Signature getSignature() {
+            return signature;
+        }
+
+        /**
+         * Returns parsing or signature calculation error.
+         * @return {@link PreEqException} or null if there was no error
+         */
+        public PreEqException getError() {
+            return error;
+        }
+    }
+
+    /**
+     * Builder for {@link PreEqBatchAnalyzer}. By default, common fork-join pool, {@link #DEFAULT_CHUNK_SIZE}, 6.4 MHz channel width, CableLabs
+     * thresholds, TDR with 1 near post-main tap (including near reflections), default FFT input format and exact dB calculations are
+     * used.
+     */
+    public static class Builder {
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+        private int chunkSize = DEFAULT_CHUNK_SIZE;
+        private ChannelWidth channelWidth = ChannelWidth.CW_US_6_4;
+        private MicroReflectionSeverityThreshold thresholdLevel = MicroReflectionSeverityThreshold.CABLE_LABS;
+        private int nearPostMainTapCount = 1;
+        private boolean onlyFarReflections = false;
+        private PreEqFFTInputFormat preEqFFTInputFormat = PreEqAnalysis.PRE_EQ_FFT_INPUT_FORMAT;
+        private MathUtility.DecibelPrecision decibelPrecision = MathUtility.DecibelPrecision.EXACT;
+
+        /**
+         * Sets fork-join pool the inputs are analysed on.
+         * @param pool {@link ForkJoinPool} pool used for parallel analysis
+         * @return {@link Builder} so the setters can be chained
+         */
+        public Builder setPool(final ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        /**
+         * Sets max number of neighbouring inputs analysed by a single fork-join task.
+         * @param chunkSize int positive chunk size
+         * @return {@link Builder} so the setters can be chained
+         */
+        public Builder setChunkSize(final int chunkSize) {
+            if (chunkSize < 1) throw new PreEqException("Chunk size must be positive: " + chunkSize);
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        /**
+         * Sets channel width used for TDR and signature calculation.
+         * @param channelWidth {@link ChannelWidth} channel width (symbol rate)
+         * @return {@link Builder} so the setters can be chained
+         */
+        public Builder setChannelWidth(final ChannelWidth channelWidth) {
+            this.channelWidth = channelWidth;
+            return this;
+        }
+
+        /**
+         * Sets micro-reflection severity threshold level used for signature calculation.
+         * @param thresholdLevel {@link MicroReflectionSeverityThreshold} threshold level
+         * @return {@link Builder} so the setters can be chained
+         */
+        public Builder setThresholdLevel(final MicroReflectionSeverityThreshold thresholdLevel) {
+            this.thresholdLevel = thresholdLevel;
+            return this;
+        }
+
+        /**
+         * Sets TDR calculation parameters.
+         * @param nearPostMainTapCount int count of the post-main energy taps considered near reflections
+         * @param onlyFarReflections boolean value - true if near reflections should be left out of the calculation
+         * @return {@link Builder} so the setters can be chained
+         */
+        public Builder setTDR(
+                final int nearPostMainTapCount,
+                final boolean onlyFarReflections) {
+
+            this.nearPostMainTapCount = nearPostMainTapCount;
+            this.onlyFarReflections = onlyFarReflections;
+            return this;
+        }
+
+        /**
+         * Sets FFT input format used for ICFR calculation.
+         * @param preEqFFTInputFormat {@link PreEqFFTInputFormat} definition on how FFT input is filled up with tap data
+         * @return {@link Builder} so the setters can be chained
+         */
+        public Builder setFFTInputFormat(final PreEqFFTInputFormat preEqFFTInputFormat) {
+            this.preEqFFTInputFormat = preEqFFTInputFormat;
+            return this;
+        }
+
+        /**
+         * Sets precision of the ICFR magnitude and micro-reflection calculation.
+         * @param decibelPrecision {@link MathUtility.DecibelPrecision} dB precision
+         * @return {@link Builder} so the setters can be chained
+         */
+        public Builder setDecibelPrecision(final MathUtility.DecibelPrecision decibelPrecision) {
+            this.decibelPrecision = decibelPrecision;
+            return this;
+        }
+
+        /**
+         * Final builder method for building {@link PreEqBatchAnalyzer}.
+         * @return {@link PreEqBatchAnalyzer} built analyzer
+         */
+        public PreEqBatchAnalyzer build() {
+            return new PreEqBatchAnalyzer(this);
+        }
+    }
+}
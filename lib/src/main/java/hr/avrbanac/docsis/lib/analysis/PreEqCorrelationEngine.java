@@ -0,0 +1,320 @@
+package hr.avrbanac.docsis.lib.analysis;
+
+import hr.avrbanac.docsis.lib.PreEqException;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <p>
+ * Pairwise ICFR correlation engine for all devices of a single node. Pearson correlation coefficient of the ICFR magnitude vectors is
+ * calculated for every pair and classified into {@link CorrelationBond} (devices sharing the same plant impairment have strongly
+ * correlated ICFR ripple, regardless of their overall attenuation).
+ * </p>
+ * <p>
+ * Every vector is centered and normalized once, so the correlation of a pair is a single dot product. Dot products are calculated in
+ * square tiles of rows (both tiles of a pair stay in cache while all their pairs are calculated, 4 pairs at once per loaded row), and
+ * only the upper triangle of tiles is calculated. Tile rows are split between the workers of the provided {@link ForkJoinPool}. Engine
+ * is immutable and can be shared between threads.
+ * </p>
+ */
+public class PreEqCorrelationEngine {
+    public static final int DEFAULT_TILE_SIZE = 32;
+    public static final double DEFAULT_STRONG_THRESHOLD = 0.9d;
+    public static final double DEFAULT_WEAK_THRESHOLD = 0.7d;
+
+    private final ForkJoinPool pool;
+    private final int tileSize;
+    private final double strongThreshold;
+    private final double weakThreshold;
+
+    /**
+     * Private CTOR - use {@link Builder} instead.
+     */
+    private PreEqCorrelationEngine(final Builder builder) {
+        this.pool = builder.pool;
+        this.tileSize = builder.tileSize;
+        this.strongThreshold = builder.strongThreshold;
+        this.weakThreshold = builder.weakThreshold;
+    }
+
+    /**
+     * Correlates ICFR magnitudes of all provided analyses (all must use the same FFT size).
+     * @param analyses {@link List} of {@link PreEqAnalysis} of the node devices
+     * @return {@link CorrelationMatrix} pairwise correlation in input order
+     */
+    public CorrelationMatrix correlate(final List<PreEqAnalysis> analyses) {
+        double[][] icfrMagnitudes = new double[analyses.size()][];
+        for (int i = 0; i < icfrMagnitudes.length; i++) {
+            icfrMagnitudes[i] = analyses.get(i).getInChannelFrequencyResponseMagnitude();
+        }
+
+        return correlate(icfrMagnitudes);
+    }
+
+    /**
+     * Correlates ICFR magnitudes of all rows of the batch analysis.
+     * @param batchAnalysis {@link PreEqBatchAnalysis} batch analysis of the node devices
+     * @return {@link CorrelationMatrix} pairwise correlation in row order
+     */
+    public CorrelationMatrix correlate(final PreEqBatchAnalysis batchAnalysis) {
+        return correlate(batchAnalysis.getInChannelFrequencyResponseMagnitude(), batchAnalysis.size(), batchAnalysis.getFFTSize());
+    }
+
+    /**
+     * Correlates provided ICFR magnitude vectors (all must be of the same length).
+     * @param icfrMagnitudes array of ICFR magnitude vectors, one per device
+     * @return {@link CorrelationMatrix} pairwise correlation in input order
+     */
+    public CorrelationMatrix correlate(final double[][] icfrMagnitudes) {
+        int length = icfrMagnitudes.length == 0 ? 0 : icfrMagnitudes[0].length;
+        double[] flat = new double[icfrMagnitudes.length * length];
+        for (int i = 0; i < icfrMagnitudes.length; i++) {
+            if (icfrMagnitudes[i].length != length) {
+                throw new PreEqException("ICFR length mismatch: " + icfrMagnitudes[i].length + " != " + length);
+            }
+            System.arraycopy(icfrMagnitudes[i], 0, flat, i * length, length);
+        }
+
+        return correlateNormalized(normalize(flat, icfrMagnitudes.length, length), icfrMagnitudes.length, length);
+    }
+
+    /**
+     * Correlates ICFR magnitude vectors provided as one flat column: vector <strong>r</strong> starts at array position
+     * <strong>r * length</strong>. Provided array is not changed.
+     * @param icfrMagnitudes array of double values containing all ICFR magnitude vectors
+     * @param count int number of vectors
+     * @param length int length of each vector
+     * @return {@link CorrelationMatrix} pairwise correlation in input order
+     */
+    public CorrelationMatrix correlate(
+            final double[] icfrMagnitudes,
+            final int count,
+            final int length) {
+
+        if (count < 0 || length < 0 || (long) count * length > icfrMagnitudes.length) {
+            throw new PreEqException("Wrong ICFR column size: " + count + " x " + length);
+        }
+
+        return correlateNormalized(normalize(icfrMagnitudes.clone(), count, length), count, length);
+    }
+
+    /**
+     * Classifies correlation coefficient using configured thresholds.
+     * @param correlation double Pearson correlation coefficient
+     * @return {@link CorrelationBond} bond strength ({@link CorrelationBond#NONE} for {@link Double#NaN})
+     */
+    public CorrelationBond classify(final double correlation) {
+        if (correlation >= strongThreshold) return CorrelationBond.STRONG;
+        if (correlation >= weakThreshold) return CorrelationBond.WEAK;
+        return CorrelationBond.NONE;
+    }
+
+    /**
+     * Centers every vector in place and scales it to the unit norm. Vectors without any variation (or with non-finite values) are set to
+     * {@link Double#NaN}, so all their correlations are {@link Double#NaN}.
+     */
+    static double[] normalize(
+            final double[] vectors,
+            final int count,
+            final int length) {
+
+        for (int row = 0, start = 0; row < count; row++, start += length) {
+            double sum = 0d;
+            for (int i = start; i < start + length; i++) {
+                sum += vectors[i];
+            }
+            double mean = sum / length;
+            double squares = 0d;
+            for (int i = start; i < start + length; i++) {
+                vectors[i] -= mean;
+                squares += vectors[i] * vectors[i];
+            }
+
+            double scale = squares > 0d && Double.isFinite(squares) ? 1d / Math.sqrt(squares) : Double.NaN;
+            for (int i = start; i < start + length; i++) {
+                vectors[i] *= scale;
+            }
+        }
+
+        return vectors;
+    }
+
+    private CorrelationMatrix correlateNormalized(
+            final double[] vectors,
+            final int count,
+            final int length) {
+
+        float[] correlations = new float[count * count];
+        int tileCount = (count + tileSize - 1) / tileSize;
+        if (tileCount > 0) pool.invoke(new TileAction(vectors, count, length, correlations, 0, tileCount));
+
+        return new CorrelationMatrix(this, count, correlations);
+    }
+
+    /**
+     * Fork-join action splitting tile row range in halves until a single tile row is left, which is then correlated with itself and all
+     * following tile rows.
+     */
+    private class TileAction extends RecursiveAction {
+        private static final long serialVersionUID = 20240801000000L;
+
+        private final transient double[] vectors;
+        private final int count;
+        private final int length;
+        private final transient float[] correlations;
+        private final int from;
+        private final int to;
+
+        TileAction(
+                final double[] vectors,
+                final int count,
+                final int length,
+                final float[] correlations,
+                final int from,
+                final int to) {
+
+            this.vectors = vectors;
+            this.count = count;
+            this.length = length;
+            this.correlations = correlations;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                        new TileAction(vectors, count, length, correlations, from, middle),
+                        new TileAction(vectors, count, length, correlations, middle, to));
+                return;
+            }
+
+            int rowStart = from * tileSize;
+            int rowEnd = Math.min(rowStart + tileSize, count);
+            for (int columnStart = rowStart; columnStart < count; columnStart += tileSize) {
+                correlateTile(rowStart, rowEnd, columnStart, Math.min(columnStart + tileSize, count));
+            }
+        }
+
+        /**
+         * Calculates all pairs (i, j), j &gt; i, of the tile and writes them to both halves of the matrix.
+         */
+        private void correlateTile(
+                final int rowStart,
+                final int rowEnd,
+                final int columnStart,
+                final int columnEnd) {
+
+            for (int i = rowStart; i < rowEnd; i++) {
+                int a = i * length;
+                int j = Math.max(columnStart, i + 1);
+                for (; j + 3 < columnEnd; j += 4) {
+                    int b0 = j * length;
+                    int b1 = b0 + length;
+                    int b2 = b1 + length;
+                    int b3 = b2 + length;
+                    double s0 = 0d;
+                    double s1 = 0d;
+                    double s2 = 0d;
+                    double s3 = 0d;
+                    for (int k = 0; k < length; k++) {
+                        double v = vectors[a + k];
+                        s0 += v * vectors[b0 + k];
+                        s1 += v * vectors[b1 + k];
+                        s2 += v * vectors[b2 + k];
+                        s3 += v * vectors[b3 + k];
+                    }
+                    store(i, j, s0);
+                    store(i, j + 1, s1);
+                    store(i, j + 2, s2);
+                    store(i, j + 3, s3);
+                }
+                for (; j < columnEnd; j++) {
+                    int b = j * length;
+                    double s = 0d;
+                    for (int k = 0; k < length; k++) {
+                        s += vectors[a + k] * vectors[b + k];
+                    }
+                    store(i, j, s);
+                }
+                if (i >= columnStart && i < columnEnd) {
+                    correlations[i * count + i] = Double.isNaN(vectors[a]) ? Float.NaN : 1f;
+                }
+            }
+        }
+
+        private void store(
+                final int i,
+                final int j,
+                final double dot) {
+
+            // rounding can push dot product of unit vectors slightly out of [-1, 1]
+            float correlation = (float) Math.max(-1d, Math.min(1d, dot));
+            if (Double.isNaN(dot)) correlation = Float.NaN;
+            correlations[i * count + j] = correlation;
+            correlations[j * count + i] = correlation;
+        }
+    }
+
+    /**
+     * Builder for {@link PreEqCorrelationEngine}. By default, common fork-join pool, {@link #DEFAULT_TILE_SIZE},
+     * {@link #DEFAULT_STRONG_THRESHOLD} and {@link #DEFAULT_WEAK_THRESHOLD} are used.
+     */
+    public static class Builder {
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+        private int tileSize = DEFAULT_TILE_SIZE;
+        private double strongThreshold = DEFAULT_STRONG_THRESHOLD;
+        private double weakThreshold = DEFAULT_WEAK_THRESHOLD;
+
+        /**
+         * Sets fork-join pool the tile rows are correlated on.
+         * @param pool {@link ForkJoinPool} pool used for parallel correlation
+         * @return {@link Builder} so the setters can be chained
+         */
+        public Builder setPool(final ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        /**
+         * Sets number of rows in a single square tile of the correlation matrix.
+         * @param tileSize int positive tile size
+         * @return {@link Builder} so the setters can be chained
+         */
+        public Builder setTileSize(final int tileSize) {
+            if (tileSize < 1) throw new PreEqException("Tile size must be positive: " + tileSize);
+            this.tileSize = tileSize;
+            return this;
+        }
+
+        /**
+         * Sets correlation thresholds used for {@link CorrelationBond} classification.
+         * @param weakThreshold double min correlation of the weak bond
+         * @param strongThreshold double min correlation of the strong bond (not below the weak one)
+         * @return {@link Builder} so the setters can be chained
+         */
+        public Builder setThresholds(
+                final double weakThreshold,
+                final double strongThreshold) {
+
+            if (!(weakThreshold <= strongThreshold)) {
+                throw new PreEqException("Weak threshold must not be above strong threshold: " + weakThreshold + " > " + strongThreshold);
+            }
+            this.weakThreshold = weakThreshold;
+            this.strongThreshold = strongThreshold;
+            return this;
+        }
+
+        /**
+         * Final builder method for building {@link PreEqCorrelationEngine}.
+         * @return {@link PreEqCorrelationEngine} built engine
+         */
+        public PreEqCorrelationEngine build() {
+            return new PreEqCorrelationEngine(this);
+        }
+    }
+}
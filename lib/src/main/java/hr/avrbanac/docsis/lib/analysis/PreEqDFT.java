@@ -0,0 +1,117 @@
+package hr.avrbanac.docsis.lib.analysis;
+
+import hr.avrbanac.docsis.lib.util.MathUtility;
+
+/**
+ * <p>
+ * Internal transform engine for ICFR calculation. Pre-eq FFT input is known to be sparse: only tap count (24) points are non-zero, all of
+ * them in one contiguous block, while the rest of the input array is zero-padded. Only non-zero points are scaled and scattered (already
+ * in bit-reversed order) into the output arrays, then in-place iterative radix-2 FFT is run over primitive arrays, so no temporary objects
+ * are created at all.
+ * </p>
+ * <p>
+ * Sparsity is used only in the scatter; butterfly stages are run in full. With 24 non-zero points in 32 only the first stage has zero
+ * sub-transforms (8 of 80 butterflies), and a pruned variant measured no faster than the full stages on any supported plan size.
+ * </p>
+ * <p>
+ * All tables (twiddle factors, bit-reversal permutation and rotation map) are taken from the shared {@link FFTPlan}. Output rotation (see
+ * {@link PreEqFFTInputFormat#getRotationFactor()}) is folded into the input points using the plan rotation map, so the result is written
+ * already rotated.
+ * </p>
+ */
+final class PreEqDFT {
+
+    private PreEqDFT() { }
+
+    /**
+     * Forward FFT (standard normalization) of the zero-padded input with non-zero points given as relative powers: real and imaginary
+     * coefficient parts divided by the main tap nominal amplitude.
+     * @param plan {@link FFTPlan} with FFT size, input format and all precomputed tables
+     * @param real int array with real parts of the coefficients
+     * @param imag int array with imaginary parts of the coefficients
+     * @param offset int array position of the first coefficient
+     * @param count int number of coefficients (non-zero input points)
+     * @param lMTNA double main tap nominal amplitude
+     * @param inputStart int FFT input position of the first coefficient
+     * @param outReal double array to write real parts of the rotated output into
+     * @param outImag double array to write imaginary parts of the rotated output into
+     * @param outOffset int array position of the first output point
+     */
+    static void transform(
+            final FFTPlan plan,
+            final int[] real,
+            final int[] imag,
+            final int offset,
+            final int count,
+            final double lMTNA,
+            final int inputStart,
+            final double[] outReal,
+            final double[] outImag,
+            final int outOffset) {
+
+        int fftSize = plan.getSize();
+        double[] cos = plan.getCos();
+        double[] sin = plan.getSin();
+        int[] bitReversal = plan.getBitReversal();
+        int[] rotationMap = plan.getRotationMap();
+
+        for (int j = 0; j < fftSize; j++) {
+            outReal[outOffset + j] = 0d;
+            outImag[outOffset + j] = 0d;
+        }
+
+        // scatter non-zero points to bit-reversed positions, rotating each of them by its rotation map twiddle
+        for (int n = 0; n < count; n++) {
+            double re = real[offset + n] / lMTNA;
+            double im = imag[offset + n] / lMTNA;
+            int position = inputStart + n;
+            int twiddle = rotationMap[position];
+            int target = outOffset + bitReversal[position];
+            outReal[target] = re * cos[twiddle] + im * sin[twiddle];
+            outImag[target] = im * cos[twiddle] - re * sin[twiddle];
+        }
+
+        // in-place iterative radix-2 butterflies
+        for (int span = 2; span <= fftSize; span <<= 1) {
+            int half = span >>> 1;
+            int stride = fftSize / span;
+            for (int block = outOffset; block < outOffset + fftSize; block += span) {
+                for (int k = 0; k < half; k++) {
+                    int twiddle = k * stride;
+                    int top = block + k;
+                    int bottom = top + half;
+                    double bottomReal = outReal[bottom] * cos[twiddle] + outImag[bottom] * sin[twiddle];
+                    double bottomImag = outImag[bottom] * cos[twiddle] - outReal[bottom] * sin[twiddle];
+                    outReal[bottom] = outReal[top] - bottomReal;
+                    outImag[bottom] = outImag[top] - bottomImag;
+                    outReal[top] += bottomReal;
+                    outImag[top] += bottomImag;
+                }
+            }
+        }
+    }
+
+    /**
+     * Calculates magnitudes (in dB) of the complex points.
+     * @param real double array with real parts
+     * @param imag double array with imaginary parts
+     * @param offset int array position of the first point
+     * @param count int number of points
+     * @param out double array to write magnitudes into
+     * @param outOffset int array position of the first magnitude
+     * @param decibelPrecision {@link MathUtility.DecibelPrecision} precision of the dB calculation
+     */
+    static void magnitude(
+            final double[] real,
+            final double[] imag,
+            final int offset,
+            final int count,
+            final double[] out,
+            final int outOffset,
+            final MathUtility.DecibelPrecision decibelPrecision) {
+
+        for (int i = 0; i < count; i++) {
+            out[outOffset + i] = decibelPrecision.magnitudeToDecibels(real[offset + i], imag[offset + i]);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package hr.avrbanac.docsis.lib.analysis;
+
+import hr.avrbanac.docsis.lib.struct.Coefficient;
+import hr.avrbanac.docsis.lib.struct.PreEqData;
+import hr.avrbanac.docsis.lib.util.MathUtility;
+
+/**
+ * <p>
+ * Immutable snapshot of the per-tap values derived from the pre-eq data: tap values, energy ratio, nominal energy ratio (in dB) and
+ * relative real / imaginary power. Each derived vector is calculated only once into primitive arrays, with the same math as the
+ * {@link Coefficient} methods, so repeated queries against one device (TDR scan and its interpolation points, ICFR input, UI tables and
+ * charts, exports) cost nothing extra.
+ * </p>
+ * <p>
+ * Values are read with indexed accessors (array index, one less than the tap index). Snapshot is shared by all callers of the same
+ * analysis and used for its TDR and ICFR calculations, so internal arrays are never handed over outside the analysis package.
+ * </p>
+ * @see PreEqAnalysis#getTapSnapshot()
+ */
+public final class PreEqTapSnapshot {
+    private final int tapCount;
+    private final int mainTapIndex;
+    private final int[] real;
+    private final int[] imag;
+    private final double[] energyRatio;
+    private final double[] nominalEnergyRatio;
+    private final double[] relativePowerReal;
+    private final double[] relativePowerImag;
+
+    private PreEqTapSnapshot(
+            final PreEqData preEqData,
+            final MathUtility.DecibelPrecision decibelPrecision) {
+
+        this.tapCount = preEqData.getTapCount();
+        this.mainTapIndex = preEqData.getMainTapIndex();
+        this.real = new int[tapCount];
+        this.imag = new int[tapCount];
+        this.energyRatio = new double[tapCount];
+        this.nominalEnergyRatio = new double[tapCount];
+        this.relativePowerReal = new double[tapCount];
+        this.relativePowerImag = new double[tapCount];
+
+        long lTTE = preEqData.getTTE();
+        long lMTNA = preEqData.getMTNA();
+        long lMTNE = preEqData.getMTNE();
+        double boundary = preEqData.getTapEnergyRatioBoundary();
+        for (int i = 0; i < tapCount; i++) {
+            long energy = preEqData.getEnergy(i);
+            real[i] = preEqData.getReal(i);
+            imag[i] = preEqData.getImag(i);
+            energyRatio[i] = Math.sqrt(1d * energy / lTTE);
+            nominalEnergyRatio[i] = Math.max(decibelPrecision.toDecibels(energy, lMTNE), boundary);
+            relativePowerReal[i] = 1.0d * real[i] / lMTNA;
+            relativePowerImag[i] = 1.0d * imag[i] / lMTNA;
+        }
+    }
+
+    /**
+     * Creates snapshot of the provided pre-eq data with exact dB calculation.
+     * @param preEqData {@link PreEqData} parsed pre-eq data
+     * @return {@link PreEqTapSnapshot} per-tap derived values
+     */
+    public static PreEqTapSnapshot of(final PreEqData preEqData) {
+        return of(preEqData, MathUtility.DecibelPrecision.EXACT);
+    }
+
+    /**
+     * Creates snapshot of the provided pre-eq data.
+     * @param preEqData {@link PreEqData} parsed pre-eq data
+     * @param decibelPrecision {@link MathUtility.DecibelPrecision} precision of the nominal energy ratio calculation
+     * @return {@link PreEqTapSnapshot} per-tap derived values
+     */
+    public static PreEqTapSnapshot of(
+            final PreEqData preEqData,
+            final MathUtility.DecibelPrecision decibelPrecision) {
+
+        return new PreEqTapSnapshot(preEqData, decibelPrecision);
+    }
+
+    /**
+     * Returns the number of taps.
+     * @return int tap count
+     */
+    public int getTapCount() {
+        return tapCount;
+    }
+
+    /**
+     * Returns main tap index.
+     * @return int main tap index (not an array index)
+     */
+    public int getMainTapIndex() {
+        return mainTapIndex;
+    }
+
+    /**
+     * Returns real part of the tap coefficient.
+     * @param tap int array index of the tap (one less than the tap index)
+     * @return int real part
+     * @see Coefficient#getReal()
+     */
+    public int getReal(final int tap) {
+        return real[tap];
+    }
+
+    /**
+     * Returns imaginary part of the tap coefficient.
+     * @param tap int array index of the tap (one less than the tap index)
+     * @return int imaginary part
+     * @see Coefficient#getImag()
+     */
+    public int getImag(final int tap) {
+        return imag[tap];
+    }
+
+    /**
+     * Returns energy ratio of the tap to the total tap energy.
+     * @param tap int array index of the tap (one less than the tap index)
+     * @return double energy ratio
+     * @see Coefficient#getEnergyRatio(long)
+     */
+    public double getEnergyRatio(final int tap) {
+        return energyRatio[tap];
+    }
+
+    /**
+     * Returns nominal energy ratio of the tap in dB (limited by the tap energy ratio boundary).
+     * @param tap int array index of the tap (one less than the tap index)
+     * @return double nominal energy ratio in dB
+     * @see Coefficient#getNominalEnergyRatio(long)
+     */
+    public double getNominalEnergyRatio(final int tap) {
+        return nominalEnergyRatio[tap];
+    }
+
+    /**
+     * Returns relative power of the real part of the tap coefficient.
+     * @param tap int array index of the tap (one less than the tap index)
+     * @return double relative power of the real part
+     * @see Coefficient#getRelativePowerReal(long)
+     */
+    public double getRelativePowerReal(final int tap) {
+        return relativePowerReal[tap];
+    }
+
+    /**
+     * Returns relative power of the imaginary part of the tap coefficient.
+     * @param tap int array index of the tap (one less than the tap index)
+     * @return double relative power of the imaginary part
+     * @see Coefficient#getRelativePowerImag(long)
+     */
+    public double getRelativePowerImag(final int tap) {
+        return relativePowerImag[tap];
+    }
+
+    /**
+     * Returns real parts of the tap coefficients.
+     * @return int array (shared, must not be modified)
+     */
+    int[] getReal() {
+        return real;
+    }
+
+    /**
+     * Returns imaginary parts of the tap coefficients.
+     * @return int array (shared, must not be modified)
+     */
+    int[] getImag() {
+        return imag;
+    }
+
+    /**
+     * Returns energy ratios of the taps to the total tap energy.
+     * @return double array (shared, must not be modified)
+     */
+    double[] getEnergyRatio() {
+        return energyRatio;
+    }
+
+    /**
+     * Returns nominal energy ratios of the taps in dB (limited by the tap energy ratio boundary).
+     * @return double array (shared, must not be modified)
+     */
+    double[] getNominalEnergyRatio() {
+        return nominalEnergyRatio;
+    }
+
+    /**
+     * Returns relative power of the real parts of the tap coefficients.
+     * @return double array (shared, must not be modified)
+     */
+    double[] getRelativePowerReal() {
+        return relativePowerReal;
+    }
+
+    /**
+     * Returns relative power of the imaginary parts of the tap coefficients.
+     * @return double array (shared, must not be modified)
+     */
+    double[] getRelativePowerImag() {
+        return relativePowerImag;
+    }
+}
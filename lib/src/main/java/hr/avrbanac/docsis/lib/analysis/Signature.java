@@ -1,7 +1,6 @@
 package hr.avrbanac.docsis.lib.analysis;
 
-import java.util.ArrayList;
-import java.util.List;
+import hr.avrbanac.docsis.lib.util.MathUtility;
 
 /**
  * Pre-equalization strings carry the information of the line degradation. From pre-eq taps adjustments, using the FFT, a frequency domain
@@ -95,10 +94,10 @@ public class Signature {
         }
 
         /**
-         * Returns the newly created array transponded in such a way that the max value of the original array is in the first array position
-         * of the transponded array; followed by all the remaining original array elements, up until the end of the original array; followed
-         * by the skipped elements from the first position of the original array, up until the max value of the original array; with one
-         * additional element: another copy of the max value.
+         * Copies the original array into provided destination, transponded in such a way that the max value of the original array is in
+         * the first array position; followed by all the remaining original array elements, up until the end of the original array;
+         * followed by the skipped elements from the first position of the original array, up until the max value of the original array;
+         * with one additional element: another copy of the max value.
          * <p>
          *     <strong>Example:</strong>
          *     <ul>
@@ -106,11 +105,10 @@ public class Signature {
          *          <li>Transponded array: [7,1,2,3,4,5,6,7]</li>
          *     </ul>
          * </p>
-         * @return double[] newly created and transponded
+         * @param transponded double[] destination with at least original length + 1 elements
+         * @return int transponded length (original length + 1)
          */
-        public double[] createTranspondedArray() {
-
-            double[] transponded = new double[origIcfrMag.length + 1];
+        public int transpondInto(final double[] transponded) {
 
             // copy last m elements, starting from the max value element
             System.arraycopy(origIcfrMag, maxPtr, transponded, 0, origIcfrMag.length - maxPtr);
@@ -124,60 +122,40 @@ public class Signature {
             // copy max element once more at the transponded array's last position
             transponded[origIcfrMag.length] = max;
 
-            return transponded;
+            return origIcfrMag.length + 1;
         }
     }
 
     /**
-     * Helper class to hold value from ICFR array bound together with original array index.
+     * Helper class holding primitive work buffers for the delay calculation: transponded ICFR mag., peaks, valleys and delay candidates.
+     * One instance is kept per thread and reused for every {@link Signature} calculated on that thread; buffers only grow when longer
+     * ICFR mag. array is provided, so the steady state delay calculation does not allocate.
      */
-    private static class DelayElement {
-        private int index;
-        private double value;
-
-        DelayElement(
-                final int index,
-                final double value) {
-
-            this.index = index;
-            this.value = value;
-        }
-
-        /**
-         * Index getter.
-         * @return int value of the original index
-         */
-        public int getIndex() {
-            return index;
-        }
-
-        /**
-         * Value getter.
-         * @return double original ICFR mag. value
-         */
-        public double getValue() {
-            return value;
-        }
-
-        /**
-         * Setter for delay element. This method forces providing a pair of arguments as new values.
-         * @param index int value of the original ICFR mag. array element index
-         * @param value double value of the original ICFR mag. array element
-         */
-        public void set(
-                final int index,
-                final double value) {
-
-            this.index = index;
-            this.value = value;
-        }
+    private static final class SignatureScratch {
+        private double[] transponded = new double[0];
+        private int[] peakIndex = new int[0];
+        private double[] peakValue = new double[0];
+        private double[] valleyValue = new double[0];
+        private double[] delays = new double[0];
+        private int peakCount;
+        private int valleyCount;
 
         /**
-         * Returns newly created {@link DelayElement}. Returned object is a newly created deep copy.
-         * @return newly created deep copy of the current {@link DelayElement}
+         * Makes sure that all the buffers can hold provided transponded array length.
+         * @param transpondedLength int length of the transponded ICFR mag. array
+         * @return {@link SignatureScratch} this scratch
          */
-        public DelayElement copy() {
-            return new DelayElement(index, value);
+        SignatureScratch ensureCapacity(final int transpondedLength) {
+            if (transponded.length < transpondedLength) {
+                transponded = new double[transpondedLength];
+                peakIndex = new int[transpondedLength];
+                peakValue = new double[transpondedLength];
+                valleyValue = new double[transpondedLength];
+                delays = new double[transpondedLength];
+            }
+            peakCount = 0;
+            valleyCount = 0;
+            return this;
         }
     }
 
@@ -186,6 +164,12 @@ public class Signature {
      */
     private static final float MIN_PEAK_VALLEY_PERC = 0.5f;
     private static final int MR_DELAY_BOUND = -18;
+    /**
+     * Number of distinct threshold levels (low, medium and high), i.e. number of severities per signature returned by
+     * {@link #getMicroReflectionSeverities()}.
+     */
+    public static final int THRESHOLD_LEVEL_COUNT = 3;
+    private static final ThreadLocal<SignatureScratch> SCRATCH = ThreadLocal.withInitial(SignatureScratch::new);
     private final MicroReflectionSeverity microReflectionSeverity;
     private final double microReflection;
     private final double delay;
@@ -214,18 +198,67 @@ public class Signature {
                      final ChannelWidth channelWidth,
                      final MicroReflectionSeverityThreshold thresholdLevel) {
 
+        this(icfrMag, channelWidth, thresholdLevel, MathUtility.DecibelPrecision.EXACT);
+    }
+
+    /**
+     * Create {@link Signature} with provided threshold level and dB precision of the micro-reflection calculation.
+     *
+     * @param icfrMag double array of In Channel Frequency Response Magnitude
+     * @param channelWidth {@link ChannelWidth} provided so that symbol rate can be fetched
+     * @param thresholdLevel {@link MicroReflectionSeverityThreshold} provided threshold level
+     * @param decibelPrecision {@link MathUtility.DecibelPrecision} precision of the micro-reflection calculation
+     */
+    public Signature(
+            final double[] icfrMag,
+            final ChannelWidth channelWidth,
+            final MicroReflectionSeverityThreshold thresholdLevel,
+            final MathUtility.DecibelPrecision decibelPrecision) {
+
         SignatureArray sigArray = new SignatureArray(icfrMag);
-        microReflection = calculateMicroReflection(sigArray);
-        microReflectionSeverity = calculateMicroReflectionSeverity(thresholdLevel);
+        microReflection = calculateMicroReflection(sigArray, decibelPrecision);
+        microReflectionSeverity = calculateMicroReflectionSeverity(microReflection, thresholdLevel);
         delay = calculateDelay(sigArray, channelWidth);
     }
 
-    private double calculateMicroReflection(final SignatureArray signatureArray) {
-        double temp = Math.sqrt(Math.pow(10, signatureArray.getPeakToPeak() / 10));
-        return 10 * Math.log10(Math.pow((temp - 1) / (temp + 1), 2));
+    private Signature(
+            final double microReflection,
+            final MicroReflectionSeverity microReflectionSeverity,
+            final double delay) {
+
+        this.microReflection = microReflection;
+        this.microReflectionSeverity = microReflectionSeverity;
+        this.delay = delay;
+    }
+
+    /**
+     * Restores {@link Signature} from already calculated values (e.g. read back from the persisted binary record). Nothing is calculated.
+     *
+     * @param microReflection double calculated micro-reflection
+     * @param microReflectionSeverity {@link MicroReflectionSeverity} calculated micro-reflection severity
+     * @param delay double calculated micro-reflection delay
+     * @return {@link Signature} with provided values
+     */
+    public static Signature of(
+            final double microReflection,
+            final MicroReflectionSeverity microReflectionSeverity,
+            final double delay) {
+
+        return new Signature(microReflection, microReflectionSeverity, delay);
+    }
+
+    private double calculateMicroReflection(
+            final SignatureArray signatureArray,
+            final MathUtility.DecibelPrecision decibelPrecision) {
+
+        double temp = Math.sqrt(decibelPrecision.fromDecibels(signatureArray.getPeakToPeak()));
+        return decibelPrecision.toDecibels(Math.pow((temp - 1) / (temp + 1), 2));
     }
 
-    private MicroReflectionSeverity calculateMicroReflectionSeverity(final MicroReflectionSeverityThreshold thresholdLevel) {
+    private static MicroReflectionSeverity calculateMicroReflectionSeverity(
+            final double microReflection,
+            final MicroReflectionSeverityThreshold thresholdLevel) {
+
         if (microReflection >= MicroReflectionSeverity.BAD.getThresholdForLevel(thresholdLevel)) {
             return MicroReflectionSeverity.BAD;
         } else if (microReflection >= MicroReflectionSeverity.MARGINAL.getThresholdForLevel(thresholdLevel)) {
@@ -239,18 +272,17 @@ public class Signature {
             final SignatureArray signatureArray,
             final ChannelWidth channelWidth) {
 
-        double[] transArray = signatureArray.createTranspondedArray();
-        List<DelayElement> peaks = new ArrayList<>(transArray.length);
-        List<DelayElement> valleys = new ArrayList<>(transArray.length);
+        SignatureScratch scratch = SCRATCH.get().ensureCapacity(signatureArray.getOrigIcfrMag().length + 1);
+        int transLength = signatureArray.transpondInto(scratch.transponded);
 
-        findPeaksAndValleys(transArray, peaks, valleys);
-        removeHighOrderMRs(signatureArray, peaks, valleys);
-        List<Double> delayPeaks = createDelayPeakList(peaks, transArray.length);
+        findPeaksAndValleys(scratch, transLength);
+        removeHighOrderMRs(scratch, MIN_PEAK_VALLEY_PERC * signatureArray.getPeakToPeak());
+        int delayCount = createDelayPeaks(scratch, transLength);
 
         float symRate = channelWidth.getSymRate();
-        if (!delayPeaks.isEmpty()) {
-            // for future enhancement on heuristics (to calculate delay); now return first item from list
-            return delayPeaks.get(0) / symRate * 1000;
+        if (delayCount > 0) {
+            // for future enhancement on heuristics (to calculate delay); now return first delay candidate
+            return scratch.delays[0] / symRate * 1000;
         } else {
             // since there is only one peak, delay is below 1T, indicated as T (nsec) - 1 for clarity
             return (microReflection > MR_DELAY_BOUND)
@@ -259,88 +291,92 @@ public class Signature {
         }
     }
 
-    private void findPeaksAndValleys(
-            final double[] transpondedArray,
-            final List<DelayElement> peaks,
-            final List<DelayElement> valleys) {
+    private static void findPeaksAndValleys(
+            final SignatureScratch scratch,
+            final int transLength) {
+
+        double[] transponded = scratch.transponded;
+        int peakCount = 0;
+        int valleyCount = 0;
 
         // define prevSign as diff sign between first two elements
-        double prevSign = Math.signum(transpondedArray[1] - transpondedArray[0]);
+        double prevSign = Math.signum(transponded[1] - transponded[0]);
         double currSign;
 
         // first peak is at index point 0 (array is transponded beforehand)
-        peaks.add(new DelayElement(0, transpondedArray[0]));
+        scratch.peakIndex[peakCount] = 0;
+        scratch.peakValue[peakCount++] = transponded[0];
 
         // iterate array and search for sign change (means either peak or valley is found)
-        for (int i = 1; i < transpondedArray.length - 1; i++) {
-            currSign = Math.signum(transpondedArray[i + 1] - transpondedArray[i]);
+        for (int i = 1; i < transLength - 1; i++) {
+            currSign = Math.signum(transponded[i + 1] - transponded[i]);
 
             if (prevSign != currSign) {
                 if (currSign < 0) {
-                    peaks.add(new DelayElement(i, transpondedArray[i]));
+                    scratch.peakIndex[peakCount] = i;
+                    scratch.peakValue[peakCount++] = transponded[i];
                 } else {
-                    valleys.add(new DelayElement(i, transpondedArray[i]));
+                    scratch.valleyValue[valleyCount++] = transponded[i];
                 }
                 prevSign = currSign;
             }
         }
+
+        scratch.peakCount = peakCount;
+        scratch.valleyCount = valleyCount;
     }
 
-    private void removeHighOrderMRs(
-            final SignatureArray signatureArray,
-            final List<DelayElement> peaks,
-            final List<DelayElement> valleys) {
+    /**
+     * Removes (in place, in a single pass) every peak whose vertical distance to its preceding valley is below the peak-to-valley
+     * threshold, together with that valley. Peaks without preceding valley are kept as they are. Only peaks are compacted, since only
+     * they are used for the delay calculation.
+     */
+    private static void removeHighOrderMRs(
+            final SignatureScratch scratch,
+            final double minPeakValley) {
 
-        // fake initial valley value
-        DelayElement prevValley = new DelayElement(0, signatureArray.getOrigIcfrMag()[0]);
-        double minPeakValley = MIN_PEAK_VALLEY_PERC * signatureArray.getPeakToPeak();
+        int[] peakIndex = scratch.peakIndex;
+        double[] peakValue = scratch.peakValue;
+        int kept = 1;
         int currPtr = 1;
 
-        // remove high order MRs
-        while ((currPtr < peaks.size()) && (currPtr - 1 < valleys.size())) {
-            int index = valleys.get(currPtr - 1).getValue() <= prevValley.getValue()
-                    ? valleys.get(currPtr - 1).getIndex()
-                    : prevValley.getIndex();
-            double value = Math.min(prevValley.getValue(), valleys.get(currPtr - 1).getValue());
-            prevValley = new DelayElement(index, value);
-
-            if (Math.abs(peaks.get(currPtr).getValue() - valleys.get(currPtr - 1).getValue()) < minPeakValley) {
-                peaks.remove(currPtr);
-                valleys.remove(currPtr - 1);
-            } else {
-                index = valleys.get(currPtr - 1).getValue() <= prevValley.getValue()
-                        ? valleys.get(currPtr - 1).getIndex()
-                        : prevValley.getIndex();
-                value = Math.min(valleys.get(currPtr - 1).getValue(), prevValley.getValue());
-
-                valleys.set(currPtr - 1, new DelayElement(index, value));
-                prevValley.set(0, peaks.get(0).getValue());
-                currPtr++;
+        // remove high order MRs; peak at currPtr is always paired with valley at currPtr - 1
+        for (; currPtr < scratch.peakCount && currPtr - 1 < scratch.valleyCount; currPtr++) {
+            if (!(Math.abs(peakValue[currPtr] - scratch.valleyValue[currPtr - 1]) < minPeakValley)) {
+                peakIndex[kept] = peakIndex[currPtr];
+                peakValue[kept++] = peakValue[currPtr];
             }
         }
+
+        // keep remaining peaks that have no valley left to be compared with
+        for (; currPtr < scratch.peakCount; currPtr++) {
+            peakIndex[kept] = peakIndex[currPtr];
+            peakValue[kept++] = peakValue[currPtr];
+        }
+
+        scratch.peakCount = kept;
     }
 
-    private List<Double> createDelayPeakList(
-            final List<DelayElement> peaks,
+    private static int createDelayPeaks(
+            final SignatureScratch scratch,
             final int transArrayLength) {
 
-        List<Double> delayPeaks = new ArrayList<>(transArrayLength);
-        double delayValue;
+        int[] peakIndex = scratch.peakIndex;
+        int delayCount = 0;
 
-        // populate delay peak list by calculating horizontal distances between peaks (array index diff), but taking into account length
-        for (int i = 0; i < peaks.size() - 1; i++) {
-            int firstIndex = peaks.get(i).getIndex();
-            int secondIndex = peaks.get(i + 1).getIndex();
+        // populate delay peaks by calculating horizontal distances between peaks (array index diff), but taking into account length
+        for (int i = 0; i < scratch.peakCount - 1; i++) {
+            int firstIndex = peakIndex[i];
+            int secondIndex = peakIndex[i + 1];
 
             if ((firstIndex < transArrayLength / 2) && (secondIndex > transArrayLength / 2)) {
-                delayValue = 1.0f * transArrayLength / (transArrayLength - (secondIndex - firstIndex));
+                scratch.delays[delayCount++] = 1.0f * transArrayLength / (transArrayLength - (secondIndex - firstIndex));
             } else {
-                delayValue = 1.0f * transArrayLength / Math.abs(secondIndex - firstIndex);
+                scratch.delays[delayCount++] = 1.0f * transArrayLength / Math.abs(secondIndex - firstIndex);
             }
-            delayPeaks.add(delayValue);
         }
 
-        return delayPeaks;
+        return delayCount;
     }
 
     /**
@@ -359,6 +395,41 @@ public class Signature {
         return microReflectionSeverity;
     }
 
+    /**
+     * Returns micro-reflection severity for provided threshold level. Already calculated micro-reflection is only compared with the
+     * thresholds, so any number of threshold levels can be evaluated without recalculating the signature.
+     * @param thresholdLevel {@link MicroReflectionSeverityThreshold} provided threshold level
+     * @return {@link MicroReflectionSeverity} of the calculated micro-reflection for provided threshold level
+     */
+    public MicroReflectionSeverity getMicroReflectionSeverity(final MicroReflectionSeverityThreshold thresholdLevel) {
+        return calculateMicroReflectionSeverity(microReflection, thresholdLevel);
+    }
+
+    /**
+     * Returns micro-reflection severities for all threshold levels, side by side: array index is threshold level + 1 (low, medium, high).
+     * @return {@link MicroReflectionSeverity} newly created array of {@link #THRESHOLD_LEVEL_COUNT} severities
+     * @see MicroReflectionSeverityThreshold#getThresholdLevel()
+     */
+    public MicroReflectionSeverity[] getMicroReflectionSeverities() {
+        MicroReflectionSeverity[] severities = new MicroReflectionSeverity[THRESHOLD_LEVEL_COUNT];
+        copyMicroReflectionSeverities(severities, 0);
+        return severities;
+    }
+
+    /**
+     * Copies micro-reflection severities for all threshold levels (low, medium, high) into provided array, starting at provided offset.
+     * @param severities {@link MicroReflectionSeverity} destination array
+     * @param offset int destination array offset
+     */
+    void copyMicroReflectionSeverities(
+            final MicroReflectionSeverity[] severities,
+            final int offset) {
+
+        severities[offset] = calculateMicroReflectionSeverity(microReflection, MicroReflectionSeverityThreshold.LOW);
+        severities[offset + 1] = calculateMicroReflectionSeverity(microReflection, MicroReflectionSeverityThreshold.MEDIUM);
+        severities[offset + 2] = calculateMicroReflectionSeverity(microReflection, MicroReflectionSeverityThreshold.HIGH);
+    }
+
     /**
      * Returns calculated micro-reflection delay from In Channel Frequency Response data.
      * @return double value delay calculated from ICFR
@@ -0,0 +1,133 @@
+package hr.avrbanac.docsis.lib.cache;
+
+import hr.avrbanac.docsis.lib.analysis.ChannelWidth;
+import hr.avrbanac.docsis.lib.analysis.MicroReflectionSeverityThreshold;
+import hr.avrbanac.docsis.lib.analysis.PreEqAnalysis;
+import hr.avrbanac.docsis.lib.analysis.Signature;
+import hr.avrbanac.docsis.lib.struct.AbstractPreEqData;
+import hr.avrbanac.docsis.lib.struct.DefaultPreEqData;
+import hr.avrbanac.docsis.lib.struct.PreEqData;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Shared result of the whole pre-eq pipeline (parsing, analysis and signature) for one distinct raw pre-eq payload. The same instance is
+ * returned for all byte-identical payloads, so it must be treated as read-only: arrays returned by the {@link PreEqAnalysis} must not be
+ * modified (read-only views should be used instead). Signatures are calculated only once per ({@link ChannelWidth},
+ * {@link MicroReflectionSeverityThreshold}) pair, first time required, and published lock-free.
+ *
+ * @see PreEqResultCache
+ */
+public final class CachedPreEqResult {
+    private static final int THRESHOLD_COUNT = MicroReflectionSeverityThreshold.values().length;
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[AbstractPreEqData.INPUT_BYTE_LENGTH]);
+
+    private final long hash;
+    private final PreEqData preEqData;
+    private final PreEqAnalysis preEqAnalysis;
+    private final AtomicReferenceArray<Signature> signatures =
+            new AtomicReferenceArray<>(ChannelWidth.values().length * THRESHOLD_COUNT);
+
+    /**
+     * Referenced bit used by the cache eviction (second chance), set on every cache hit.
+     */
+    private volatile boolean referenced;
+
+    /**
+     * CTOR parses and prepares analysis for the raw pre-eq payload contained in a portion of the provided byte array. Provided array is not
+     * retained: the only payload copy is the one kept by the parsed pre-eq data.
+     * @param hash long 64-bit hash of the payload
+     * @param bytes byte array containing raw pre-eq payload
+     * @param offset int array position of the first payload byte
+     * @param length int payload length
+     */
+    CachedPreEqResult(
+            final long hash,
+            final byte[] bytes,
+            final int offset,
+            final int length) {
+
+        this.hash = hash;
+        this.preEqData = new DefaultPreEqData(bytes, offset, length);
+        this.preEqAnalysis = new PreEqAnalysis(preEqData);
+    }
+
+    /**
+     * Returns parsed pre-eq data.
+     * @return {@link PreEqData} shared parsed pre-eq data
+     */
+    public PreEqData getPreEqData() {
+        return preEqData;
+    }
+
+    /**
+     * Returns thread-safe pre-eq analysis.
+     * @return {@link PreEqAnalysis} shared pre-eq analysis
+     */
+    public PreEqAnalysis getPreEqAnalysis() {
+        return preEqAnalysis;
+    }
+
+    /**
+     * Returns signature with CableLabs thresholds for the provided channel width.
+     * @param channelWidth {@link ChannelWidth} channel width
+     * @return {@link Signature} shared signature
+     */
+    public Signature getSignature(final ChannelWidth channelWidth) {
+        return getSignature(channelWidth, MicroReflectionSeverityThreshold.CABLE_LABS);
+    }
+
+    /**
+     * Returns signature for the provided channel width and thresholds. Signature is calculated only once, first time required.
+     * @param channelWidth {@link ChannelWidth} channel width
+     * @param thresholdLevel {@link MicroReflectionSeverityThreshold} thresholds used for severity
+     * @return {@link Signature} shared signature
+     */
+    public Signature getSignature(
+            final ChannelWidth channelWidth,
+            final MicroReflectionSeverityThreshold thresholdLevel) {
+
+        int index = channelWidth.ordinal() * THRESHOLD_COUNT + thresholdLevel.ordinal();
+        Signature cached = signatures.get(index);
+        if (cached != null) return cached;
+
+        Signature result = preEqAnalysis.getSignature(channelWidth, thresholdLevel);
+        return signatures.compareAndSet(index, null, result) ? result : signatures.get(index);
+    }
+
+    long getHash() {
+        return hash;
+    }
+
+    /**
+     * Compares the provided payload with the payload of the parsed pre-eq data (copied into per-thread scratch array).
+     * @param bytes byte array containing raw pre-eq payload
+     * @param offset int array position of the first payload byte
+     * @param length int payload length
+     * @return boolean true if payloads are byte-identical
+     */
+    boolean matches(
+            final byte[] bytes,
+            final int offset,
+            final int length) {
+
+        byte[] payload = SCRATCH.get();
+        preEqData.getBytes(payload, 0);
+        return Arrays.equals(payload, 0, payload.length, bytes, offset, offset + length);
+    }
+
+    void markReferenced() {
+        if (!referenced) referenced = true;
+    }
+
+    /**
+     * Clears referenced bit.
+     * @return boolean true if the result was referenced since the last call
+     */
+    boolean clearReferenced() {
+        boolean result = referenced;
+        referenced = false;
+        return result;
+    }
+}
@@ -0,0 +1,114 @@
+package hr.avrbanac.docsis.lib.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ * Count-min sketch of 4-bit counters used as a TinyLFU popularity estimate of cache keys. Each long value holds 16 counters and every key
+ * is mapped to 4 counters (one per seed); estimated frequency is the minimum of them (max 15). Once the number of increments reaches the
+ * sample size, all counters are halved, so older popularity fades away and the sketch adapts to the changing input.
+ * </p>
+ * <p>
+ * Counters are updated with compare-and-set, so the sketch can be used from many threads without locking. Halving is not atomic as a
+ * whole, which is fine for an estimate.
+ * </p>
+ */
+final class FrequencySketch {
+    private static final long[] SEEDS = {
+            0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long COUNTER_MASK = 0xfL;
+    private static final int SAMPLE_FACTOR = 10;
+
+    private final AtomicLongArray table;
+    private final int tableMask;
+    private final int sampleSize;
+    private final AtomicInteger additions = new AtomicInteger();
+
+    /**
+     * CTOR for the sketch sized for the provided maximum number of cached entries.
+     * @param maximumSize int maximum number of cached entries
+     */
+    FrequencySketch(final int maximumSize) {
+        int tableSize = Integer.highestOneBit(Math.max(maximumSize, 8) - 1) << 1;
+        this.table = new AtomicLongArray(tableSize);
+        this.tableMask = tableSize - 1;
+        this.sampleSize = (int) Math.min((long) SAMPLE_FACTOR * maximumSize, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns estimated number of occurrences of the key (max 15).
+     * @param hash long 64-bit key hash
+     * @return int estimated frequency
+     */
+    int frequency(final long hash) {
+        int result = (int) COUNTER_MASK;
+        for (int i = 0; i < SEEDS.length; i++) {
+            long spread = spread(hash, i);
+            int offset = counterOffset(spread);
+            result = Math.min(result, (int) ((table.get(tableIndex(spread)) >>> offset) & COUNTER_MASK));
+        }
+
+        return result;
+    }
+
+    /**
+     * Increments all counters of the key (saturating at 15) and ages the sketch if the sample size is reached.
+     * @param hash long 64-bit key hash
+     */
+    void increment(final long hash) {
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            long spread = spread(hash, i);
+            added |= incrementAt(tableIndex(spread), counterOffset(spread));
+        }
+
+        if (added && additions.incrementAndGet() == sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(
+            final int index,
+            final int offset) {
+
+        long mask = COUNTER_MASK << offset;
+        long value;
+        do {
+            value = table.get(index);
+            if ((value & mask) == mask) return false;
+        } while (!table.compareAndSet(index, value, value + (1L << offset)));
+
+        return true;
+    }
+
+    /**
+     * Halves all counters (aging).
+     */
+    private void reset() {
+        for (int i = 0; i < table.length(); i++) {
+            long value;
+            do {
+                value = table.get(i);
+            } while (!table.compareAndSet(i, value, (value >>> 1) & RESET_MASK));
+        }
+        additions.addAndGet(-sampleSize / 2);
+    }
+
+    private static long spread(
+            final long hash,
+            final int seedIndex) {
+
+        long result = (hash ^ SEEDS[seedIndex]) * 0x9E3779B97F4A7C15L;
+        return result ^ (result >>> 29);
+    }
+
+    private int tableIndex(final long spread) {
+        return (int) (spread >>> 32) & tableMask;
+    }
+
+    private static int counterOffset(final long spread) {
+        return ((int) spread & 0xf) << 2;
+    }
+}
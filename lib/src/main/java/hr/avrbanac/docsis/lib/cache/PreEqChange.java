@@ -0,0 +1,131 @@
+package hr.avrbanac.docsis.lib.cache;
+
+import hr.avrbanac.docsis.lib.struct.PreEqData;
+
+/**
+ * Outcome of a single device poll processed by the {@link PreEqChangeTracker}: current (possibly reused) result, previous result and, if
+ * pre-eq data has changed, per-tap deltas (current minus previous value) of the coefficient real and imaginary parts and energies.
+ */
+public final class PreEqChange {
+    private static final int[] NO_INT_DELTAS = new int[0];
+    private static final long[] NO_LONG_DELTAS = new long[0];
+
+    private final PreEqChangeStatus status;
+    private final CachedPreEqResult result;
+    private final CachedPreEqResult previous;
+    private final int[] realDelta;
+    private final int[] imagDelta;
+    private final long[] energyDelta;
+    private final int changedTapCount;
+
+    /**
+     * CTOR calculates per-tap deltas if status is {@link PreEqChangeStatus#CHANGED}.
+     * @param status {@link PreEqChangeStatus} poll status
+     * @param result {@link CachedPreEqResult} current result
+     * @param previous {@link CachedPreEqResult} previous result (null for the new device)
+     */
+    PreEqChange(
+            final PreEqChangeStatus status,
+            final CachedPreEqResult result,
+            final CachedPreEqResult previous) {
+
+        this.status = status;
+        this.result = result;
+        this.previous = previous;
+
+        if (status != PreEqChangeStatus.CHANGED) {
+            this.realDelta = NO_INT_DELTAS;
+            this.imagDelta = NO_INT_DELTAS;
+            this.energyDelta = NO_LONG_DELTAS;
+            this.changedTapCount = 0;
+            return;
+        }
+
+        PreEqData current = result.getPreEqData();
+        PreEqData last = previous.getPreEqData();
+        int tapCount = current.getTapCount();
+        this.realDelta = new int[tapCount];
+        this.imagDelta = new int[tapCount];
+        this.energyDelta = new long[tapCount];
+        int changed = 0;
+        for (int i = 0; i < tapCount; i++) {
+            realDelta[i] = current.getReal(i) - last.getReal(i);
+            imagDelta[i] = current.getImag(i) - last.getImag(i);
+            energyDelta[i] = current.getEnergy(i) - last.getEnergy(i);
+            if (realDelta[i] != 0 || imagDelta[i] != 0) changed++;
+        }
+        this.changedTapCount = changed;
+    }
+
+    /**
+     * Returns poll status.
+     * @return {@link PreEqChangeStatus} poll status
+     */
+    public PreEqChangeStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns true if the pre-eq data has changed since the last poll (or if this is a new device), i.e. if analysis results are new.
+     * @return boolean true if results are not reused
+     */
+    public boolean isChanged() {
+        return status != PreEqChangeStatus.UNCHANGED;
+    }
+
+    /**
+     * Returns current result. For {@link PreEqChangeStatus#UNCHANGED} this is the same instance as the previous one.
+     * @return {@link CachedPreEqResult} current result
+     */
+    public CachedPreEqResult getResult() {
+        return result;
+    }
+
+    /**
+     * Returns previous result.
+     * @return {@link CachedPreEqResult} previous result or null for {@link PreEqChangeStatus#NEW}
+     */
+    public CachedPreEqResult getPrevious() {
+        return previous;
+    }
+
+    /**
+     * Returns number of taps with changed real or imaginary part (0 unless {@link PreEqChangeStatus#CHANGED}).
+     * @return int number of changed taps
+     */
+    public int getChangedTapCount() {
+        return changedTapCount;
+    }
+
+    /**
+     * Returns real part delta of the coefficient. Available only for {@link PreEqChangeStatus#CHANGED}.
+     * @param tap int array index of the coefficient (one less than the tap index)
+     * @return int real part delta
+     */
+    public int getRealDelta(final int tap) {
+        return realDelta[tap];
+    }
+
+    /**
+     * Returns imaginary part delta of the coefficient. Available only for {@link PreEqChangeStatus#CHANGED}.
+     * @param tap int array index of the coefficient (one less than the tap index)
+     * @return int imaginary part delta
+     */
+    public int getImagDelta(final int tap) {
+        return imagDelta[tap];
+    }
+
+    /**
+     * Returns energy delta of the coefficient. Available only for {@link PreEqChangeStatus#CHANGED}.
+     * @param tap int array index of the coefficient (one less than the tap index)
+     * @return long energy delta
+     */
+    public long getEnergyDelta(final int tap) {
+        return energyDelta[tap];
+    }
+
+    @Override
+    public String toString() {
+        return "PreEqChange{status=" + status + ", changedTapCount=" + changedTapCount + "}";
+    }
+}
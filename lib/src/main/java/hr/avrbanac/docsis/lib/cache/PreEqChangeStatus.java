@@ -0,0 +1,24 @@
+package hr.avrbanac.docsis.lib.cache;
+
+/**
+ * Status of the polled pre-eq data compared with the last pre-eq data seen for the same device.
+ *
+ * @see PreEqChangeTracker
+ */
+public enum PreEqChangeStatus {
+
+    /**
+     * First pre-eq data seen for the device (nothing to compare with).
+     */
+    NEW,
+
+    /**
+     * Raw pre-eq payload is byte-identical to the last one, previous results are reused.
+     */
+    UNCHANGED,
+
+    /**
+     * Raw pre-eq payload differs from the last one, per-tap deltas are available.
+     */
+    CHANGED
+}
@@ -0,0 +1,192 @@
+package hr.avrbanac.docsis.lib.cache;
+
+import hr.avrbanac.docsis.lib.util.HashUtility;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * Per-device tracker of the polled pre-eq data. Devices are polled periodically and most of the time their coefficients have not changed
+ * since the last poll. Tracker keeps the last result per device and compares the new raw payload with the last one: byte-identical payload
+ * short-circuits to the previous {@link CachedPreEqResult} (parsed data, analysis and signatures), so no parsing, FFT or signature
+ * calculation is repeated. Changed payload is processed and reported together with per-tap deltas ({@link PreEqChange}).
+ * </p>
+ * <p>
+ * Tracker can optionally be backed by the shared {@link PreEqResultCache}, so that changed payloads byte-identical to payloads of other
+ * devices are not processed again either. Tracker is thread-safe; polls of different devices can be processed concurrently, while polls of
+ * the same device are expected in order (if not, the last processed poll wins).
+ * </p>
+ *
+ * @param <K> device key type (e.g. MAC address)
+ */
+public final class PreEqChangeTracker<K> {
+    private final Map<K, CachedPreEqResult> lastResults = new ConcurrentHashMap<>();
+    private final PreEqResultCache cache;
+
+    private final LongAdder newCount = new LongAdder();
+    private final LongAdder unchangedCount = new LongAdder();
+    private final LongAdder changedCount = new LongAdder();
+
+    /**
+     * CTOR for the tracker processing changed payloads without the shared cache.
+     */
+    public PreEqChangeTracker() {
+        this(null);
+    }
+
+    /**
+     * CTOR for the tracker processing changed payloads through the shared cache.
+     * @param cache {@link PreEqResultCache} shared result cache or null
+     */
+    public PreEqChangeTracker(final PreEqResultCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Processes polled pre-eq string of the device.
+     * @param deviceKey device key
+     * @param preEqString {@link String} polled pre-eq string
+     * @return {@link PreEqChange} poll outcome
+     */
+    public PreEqChange update(
+            final K deviceKey,
+            final String preEqString) {
+
+        byte[] payload = PreEqResultCache.decodePayload(preEqString);
+        return update(deviceKey, payload, 0, payload.length);
+    }
+
+    /**
+     * Processes polled raw pre-eq payload of the device. Whole array is used as payload.
+     * @param deviceKey device key
+     * @param rawInputPreEqBytes byte array with polled raw pre-eq payload
+     * @return {@link PreEqChange} poll outcome
+     */
+    public PreEqChange update(
+            final K deviceKey,
+            final byte[] rawInputPreEqBytes) {
+
+        return update(deviceKey, rawInputPreEqBytes, 0, rawInputPreEqBytes.length);
+    }
+
+    /**
+     * Processes polled raw pre-eq payload of the device contained in a portion of the provided byte array. Provided array is not retained,
+     * payload is copied only if it has changed.
+     * @param deviceKey device key
+     * @param rawInputPreEqBytes byte array containing polled raw pre-eq payload
+     * @param offset int array position of the first payload byte
+     * @param length int payload length
+     * @return {@link PreEqChange} poll outcome
+     */
+    public PreEqChange update(
+            final K deviceKey,
+            final byte[] rawInputPreEqBytes,
+            final int offset,
+            final int length) {
+
+        PreEqResultCache.checkPayload(rawInputPreEqBytes, offset, length);
+        CachedPreEqResult previous = lastResults.get(deviceKey);
+        if (previous != null && previous.matches(rawInputPreEqBytes, offset, length)) {
+            unchangedCount.increment();
+            return new PreEqChange(PreEqChangeStatus.UNCHANGED, previous, previous);
+        }
+
+        CachedPreEqResult result = cache != null
+                ? cache.get(rawInputPreEqBytes, offset, length)
+                : new CachedPreEqResult(HashUtility.hash64(rawInputPreEqBytes, offset, length), rawInputPreEqBytes, offset, length);
+        lastResults.put(deviceKey, result);
+
+        if (previous == null) {
+            newCount.increment();
+            return new PreEqChange(PreEqChangeStatus.NEW, result, null);
+        }
+
+        changedCount.increment();
+        return new PreEqChange(PreEqChangeStatus.CHANGED, result, previous);
+    }
+
+    /**
+     * Processes polled raw pre-eq payload of the device contained in the remaining bytes of the provided {@link ByteBuffer}. Buffer
+     * position is not changed.
+     * @param deviceKey device key
+     * @param rawInputPreEqBuffer {@link ByteBuffer} with polled raw pre-eq payload between its position and limit
+     * @return {@link PreEqChange} poll outcome
+     */
+    public PreEqChange update(
+            final K deviceKey,
+            final ByteBuffer rawInputPreEqBuffer) {
+
+        if (rawInputPreEqBuffer.hasArray()) {
+            return update(
+                    deviceKey,
+                    rawInputPreEqBuffer.array(),
+                    rawInputPreEqBuffer.arrayOffset() + rawInputPreEqBuffer.position(),
+                    rawInputPreEqBuffer.remaining());
+        }
+
+        byte[] payload = new byte[rawInputPreEqBuffer.remaining()];
+        rawInputPreEqBuffer.duplicate().get(payload);
+        return update(deviceKey, payload, 0, payload.length);
+    }
+
+    /**
+     * Returns the last result of the device.
+     * @param deviceKey device key
+     * @return {@link CachedPreEqResult} last result or null if the device was never polled (or was removed)
+     */
+    public CachedPreEqResult getLastResult(final K deviceKey) {
+        return lastResults.get(deviceKey);
+    }
+
+    /**
+     * Removes the device (e.g. once it is decommissioned), so that its next poll is treated as {@link PreEqChangeStatus#NEW}.
+     * @param deviceKey device key
+     * @return {@link CachedPreEqResult} removed last result or null
+     */
+    public CachedPreEqResult remove(final K deviceKey) {
+        return lastResults.remove(deviceKey);
+    }
+
+    /**
+     * Returns the number of tracked devices.
+     * @return int number of devices
+     */
+    public int size() {
+        return lastResults.size();
+    }
+
+    /**
+     * Returns the number of polls of devices seen for the first time.
+     * @return long new device poll count
+     */
+    public long getNewCount() {
+        return newCount.sum();
+    }
+
+    /**
+     * Returns the number of polls short-circuited to the previous results.
+     * @return long unchanged poll count
+     */
+    public long getUnchangedCount() {
+        return unchangedCount.sum();
+    }
+
+    /**
+     * Returns the number of polls with changed pre-eq data.
+     * @return long changed poll count
+     */
+    public long getChangedCount() {
+        return changedCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "PreEqChangeTracker{devices=" + size()
+                + ", new=" + getNewCount()
+                + ", unchanged=" + getUnchangedCount()
+                + ", changed=" + getChangedCount() + "}";
+    }
+}
@@ -0,0 +1,290 @@
+package hr.avrbanac.docsis.lib.cache;
+
+import hr.avrbanac.docsis.lib.PreEqException;
+import hr.avrbanac.docsis.lib.struct.AbstractPreEqData;
+import hr.avrbanac.docsis.lib.util.HashUtility;
+import hr.avrbanac.docsis.lib.util.HexDecoder;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * Bounded, concurrent, content-addressed cache of the pre-eq pipeline results. Many devices report byte-identical pre-eq data (e.g.
+ * freshly ranged modems), so parsing, analysis and signature calculation are done only once per distinct raw payload and the same
+ * {@link CachedPreEqResult} is shared between all of them. Key is a 64-bit hash of the decoded payload ({@link HashUtility}); payload bytes
+ * are compared on every hit, so hash collision can never return a wrong result (colliding payload is simply not cached).
+ * </p>
+ * <p>
+ * Eviction is both size and frequency aware. Popularity of every key (also of not cached ones) is estimated with a TinyLFU sketch. Once
+ * the cache is full, the eviction candidate is chosen in insertion order with a second chance for results hit since the last pass
+ * (CLOCK), and a new result is admitted only if it is more popular than the candidate, so one-off payloads cannot flush popular ones.
+ * </p>
+ * <p>
+ * Hits are lock-free. Misses calculate the result outside of any lock, only admission and eviction are synchronized; concurrent misses of
+ * the same payload may calculate it more than once, but only one result is cached. Invalid pre-eq data is never cached: the same
+ * {@link PreEqException} as from the parser is thrown on each attempt.
+ * </p>
+ */
+public final class PreEqResultCache {
+    public static final int DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    private final int maximumSize;
+    private final Map<Long, CachedPreEqResult> results;
+    private final ArrayDeque<CachedPreEqResult> evictionQueue = new ArrayDeque<>();
+    private final FrequencySketch sketch;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder rejectionCount = new LongAdder();
+
+    /**
+     * CTOR for the cache with {@link #DEFAULT_MAXIMUM_SIZE}.
+     */
+    public PreEqResultCache() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * CTOR for the cache with provided maximum size.
+     * @param maximumSize int maximum number of cached results (must be positive)
+     */
+    public PreEqResultCache(final int maximumSize) {
+        if (maximumSize < 1) throw new PreEqException("Cache maximum size must be positive: " + maximumSize);
+        this.maximumSize = maximumSize;
+        this.results = new ConcurrentHashMap<>(Math.min(maximumSize, DEFAULT_MAXIMUM_SIZE));
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * Returns shared result for the provided pre-eq string. Same validation rules as for the {@link HexDecoder} apply (delimiters ':' and
+     * ' ' are skipped, both lower and upper case hex chars are accepted).
+     * @param preEqString {@link String} pre-eq string
+     * @return {@link CachedPreEqResult} shared pipeline result
+     */
+    public CachedPreEqResult get(final String preEqString) {
+        byte[] payload = decodePayload(preEqString);
+        return get(payload, 0, payload.length);
+    }
+
+    /**
+     * Returns shared result for the provided raw pre-eq payload. Whole array is used as payload.
+     * @param rawInputPreEqBytes byte array with raw pre-eq payload
+     * @return {@link CachedPreEqResult} shared pipeline result
+     */
+    public CachedPreEqResult get(final byte[] rawInputPreEqBytes) {
+        return get(rawInputPreEqBytes, 0, rawInputPreEqBytes.length);
+    }
+
+    /**
+     * Returns shared result for the raw pre-eq payload contained in a portion of the provided byte array. Provided array is not retained,
+     * payload is copied only if the result is not cached yet.
+     * @param rawInputPreEqBytes byte array containing raw pre-eq payload
+     * @param offset int array position of the first payload byte
+     * @param length int payload length (must be {@link AbstractPreEqData#INPUT_BYTE_LENGTH})
+     * @return {@link CachedPreEqResult} shared pipeline result
+     */
+    public CachedPreEqResult get(
+            final byte[] rawInputPreEqBytes,
+            final int offset,
+            final int length) {
+
+        checkPayload(rawInputPreEqBytes, offset, length);
+
+        long hash = HashUtility.hash64(rawInputPreEqBytes, offset, length);
+        sketch.increment(hash);
+        CachedPreEqResult cached = results.get(hash);
+        if (cached != null && cached.matches(rawInputPreEqBytes, offset, length)) {
+            cached.markReferenced();
+            hitCount.increment();
+            return cached;
+        }
+
+        missCount.increment();
+        return admit(new CachedPreEqResult(hash, rawInputPreEqBytes, offset, length), rawInputPreEqBytes, offset, length);
+    }
+
+    /**
+     * Returns shared result for the raw pre-eq payload contained in the remaining bytes of the provided {@link ByteBuffer}. Buffer position
+     * is not changed.
+     * @param rawInputPreEqBuffer {@link ByteBuffer} with raw pre-eq payload between its position and limit
+     * @return {@link CachedPreEqResult} shared pipeline result
+     */
+    public CachedPreEqResult get(final ByteBuffer rawInputPreEqBuffer) {
+        if (rawInputPreEqBuffer.hasArray()) {
+            return get(
+                    rawInputPreEqBuffer.array(),
+                    rawInputPreEqBuffer.arrayOffset() + rawInputPreEqBuffer.position(),
+                    rawInputPreEqBuffer.remaining());
+        }
+
+        byte[] payload = new byte[rawInputPreEqBuffer.remaining()];
+        rawInputPreEqBuffer.duplicate().get(payload);
+        return get(payload, 0, payload.length);
+    }
+
+    /**
+     * Returns number of requests served from the cache.
+     * @return long hit count
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Returns number of requests that required calculation of the result.
+     * @return long miss count
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Returns number of cached results evicted in favour of more popular ones.
+     * @return long eviction count
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * Returns number of calculated results not admitted to the full cache, since they were less popular than the eviction candidate.
+     * @return long rejection count
+     */
+    public long getRejectionCount() {
+        return rejectionCount.sum();
+    }
+
+    /**
+     * Returns ratio of hits to all requests, or 0 if there were no requests.
+     * @return double hit rate
+     */
+    public double getHitRate() {
+        long hits = hitCount.sum();
+        long requests = hits + missCount.sum();
+        return requests == 0 ? 0d : 1d * hits / requests;
+    }
+
+    /**
+     * Returns current number of cached results.
+     * @return int cache size
+     */
+    public int size() {
+        return results.size();
+    }
+
+    /**
+     * Returns maximum number of cached results.
+     * @return int maximum cache size
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Removes all cached results. Counters and popularity estimates are kept.
+     */
+    public void invalidateAll() {
+        synchronized (evictionQueue) {
+            results.clear();
+            evictionQueue.clear();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PreEqResultCache{size=" + size()
+                + ", maximumSize=" + maximumSize
+                + ", hits=" + getHitCount()
+                + ", misses=" + getMissCount()
+                + ", evictions=" + getEvictionCount()
+                + ", rejections=" + getRejectionCount() + "}";
+    }
+
+    /**
+     * Helper method decodes pre-eq string into new raw payload array. Same validation rules as for the {@link HexDecoder} apply.
+     * @param preEqString {@link String} pre-eq string
+     * @return byte array with raw pre-eq payload
+     */
+    static byte[] decodePayload(final String preEqString) {
+        byte[] payload = new byte[AbstractPreEqData.INPUT_BYTE_LENGTH];
+        int decoded = HexDecoder.decode(preEqString, payload, 0, payload.length);
+        if (decoded < 0 && HexDecoder.errorCode(decoded) == HexDecoder.WRONG_LENGTH) throw PreEqException.STRING_MISMATCH_BYTE_SIZE;
+        if (decoded < 0) throw PreEqException.STRING_NOT_BYTE_REPRESENTATION;
+
+        return payload;
+    }
+
+    /**
+     * Helper method validates raw pre-eq payload window (length and bounds only, content is validated by the parser).
+     * @param bytes byte array containing raw pre-eq payload
+     * @param offset int array position of the first payload byte
+     * @param length int payload length
+     */
+    static void checkPayload(
+            final byte[] bytes,
+            final int offset,
+            final int length) {
+
+        if (length != AbstractPreEqData.INPUT_BYTE_LENGTH || offset < 0 || offset + length > bytes.length) {
+            throw PreEqException.STRING_MISMATCH_BYTE_SIZE;
+        }
+    }
+
+    /**
+     * Admits calculated result to the cache, evicting the candidate if the cache is full and the new result is more popular.
+     * @param result {@link CachedPreEqResult} calculated result
+     * @param bytes byte array containing raw pre-eq payload of the calculated result
+     * @param offset int array position of the first payload byte
+     * @param length int payload length
+     * @return {@link CachedPreEqResult} result to be returned to the caller
+     */
+    private CachedPreEqResult admit(
+            final CachedPreEqResult result,
+            final byte[] bytes,
+            final int offset,
+            final int length) {
+
+        synchronized (evictionQueue) {
+            CachedPreEqResult existing = results.get(result.getHash());
+            if (existing != null) {
+                // either concurrent miss already cached the same payload, or this is a hash collision (not cached)
+                return existing.matches(bytes, offset, length) ? existing : result;
+            }
+
+            if (results.size() >= maximumSize) {
+                CachedPreEqResult victim = selectVictim();
+                if (sketch.frequency(result.getHash()) <= sketch.frequency(victim.getHash())) {
+                    rejectionCount.increment();
+                    return result;
+                }
+                evictionQueue.pollFirst();
+                results.remove(victim.getHash());
+                evictionCount.increment();
+            }
+
+            results.put(result.getHash(), result);
+            evictionQueue.addLast(result);
+            return result;
+        }
+    }
+
+    /**
+     * Returns eviction candidate (head of the eviction queue) without removing it. Results referenced since the last pass are given a
+     * second chance: their referenced bit is cleared and they are moved to the tail. Must be called while holding the eviction lock.
+     * @return {@link CachedPreEqResult} eviction candidate
+     */
+    private CachedPreEqResult selectVictim() {
+        for (int i = evictionQueue.size(); i > 0; i--) {
+            CachedPreEqResult head = evictionQueue.peekFirst();
+            if (!head.clearReferenced()) return head;
+            evictionQueue.addLast(evictionQueue.pollFirst());
+        }
+
+        return evictionQueue.peekFirst();
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * Contains caching classes for pre-eq pipeline results with {@link hr.avrbanac.docsis.lib.cache.PreEqResultCache} as an entry class: one
+ * shared result (parsed data, analysis and signatures) is kept for all devices reporting byte-identical pre-eq data.
+ */
+package hr.avrbanac.docsis.lib.cache;
@@ -0,0 +1,149 @@
+package hr.avrbanac.docsis.lib.codec;
+
+import hr.avrbanac.docsis.lib.PreEqException;
+import hr.avrbanac.docsis.lib.struct.AbstractPreEqData;
+import hr.avrbanac.docsis.lib.struct.LazyPreEqData;
+import hr.avrbanac.docsis.lib.struct.PreEqData;
+
+import static hr.avrbanac.docsis.lib.codec.CoefficientSeriesEncoder.GROUP_COUNT;
+import static hr.avrbanac.docsis.lib.codec.CoefficientSeriesEncoder.GROUP_SIZE;
+import static hr.avrbanac.docsis.lib.codec.CoefficientSeriesEncoder.HEADER_CHANGED;
+import static hr.avrbanac.docsis.lib.codec.CoefficientSeriesEncoder.HEADER_LENGTH;
+
+/**
+ * Streaming decoder of the series encoded by {@link CoefficientSeriesEncoder}. Polls are decoded one at a time ({@link #next()}) into a
+ * reused payload buffer, so the whole series can be read without any allocation; {@link PreEqData} is created only when requested. Provided
+ * array is not copied and must not be changed while decoding. Decoder is not thread-safe.
+ */
+public final class CoefficientSeriesDecoder {
+    private final byte[] encoded;
+    private final int end;
+    private final byte[] current = new byte[AbstractPreEqData.INPUT_BYTE_LENGTH];
+    private final int[] bitmaps = new int[GROUP_COUNT];
+    private int position;
+    private long epochSecond;
+    private long lastDelta;
+
+    /**
+     * CTOR for the whole array containing encoded series.
+     * @param encoded byte array with encoded series
+     */
+    public CoefficientSeriesDecoder(final byte[] encoded) {
+        this(encoded, 0, encoded.length);
+    }
+
+    /**
+     * CTOR for the encoded series contained in a portion of the provided byte array.
+     * @param encoded byte array containing encoded series
+     * @param offset int array position of the first series byte
+     * @param length int encoded series length
+     */
+    public CoefficientSeriesDecoder(
+            final byte[] encoded,
+            final int offset,
+            final int length) {
+
+        if (offset < 0 || length < 1 || offset + length > encoded.length) {
+            throw new PreEqException("Wrong coefficient series bounds: " + offset + ", " + length);
+        }
+        if (encoded[offset] != CoefficientSeriesEncoder.VERSION) {
+            throw new PreEqException("Unsupported coefficient series version: " + encoded[offset]);
+        }
+
+        this.encoded = encoded;
+        this.position = offset + 1;
+        this.end = offset + length;
+    }
+
+    /**
+     * Returns true if there are more polls to decode.
+     * @return boolean true if {@link #next()} will decode a poll
+     */
+    public boolean hasNext() {
+        return position < end;
+    }
+
+    /**
+     * Decodes the next poll.
+     * @return boolean true if poll was decoded, false at the end of the series
+     */
+    public boolean next() {
+        if (position >= end) return false;
+
+        long timestamp = readVarLong();
+        lastDelta += timestamp >>> 1 ^ -(timestamp & 1);
+        epochSecond += lastDelta;
+
+        int mask = readByte();
+        for (int group = 0; group < GROUP_COUNT; group++) {
+            bitmaps[group] = (mask & 1 << group) == 0 ? 0 : readByte();
+        }
+
+        if ((mask & HEADER_CHANGED) != 0) {
+            for (int i = 0; i < HEADER_LENGTH; i++) {
+                current[i] ^= (byte) readByte();
+            }
+        }
+
+        for (int group = 0; group < GROUP_COUNT; group++) {
+            for (int bit = 0; bitmaps[group] >>> bit != 0; bit++) {
+                if ((bitmaps[group] & 1 << bit) == 0) continue;
+                int wordPosition = HEADER_LENGTH + (group * GROUP_SIZE + bit) * 2;
+                int wordDelta = (int) readVarLong();
+                int word = CoefficientSeriesEncoder.getWord(current, wordPosition) + (wordDelta >>> 1 ^ -(wordDelta & 1));
+                current[wordPosition] = (byte) (word >>> 8);
+                current[wordPosition + 1] = (byte) word;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the timestamp of the last decoded poll.
+     * @return long seconds since epoch
+     */
+    public long getEpochSecond() {
+        return epochSecond;
+    }
+
+    /**
+     * Copies raw payload of the last decoded poll ({@link AbstractPreEqData#INPUT_BYTE_LENGTH} bytes) into the provided array.
+     * @param dst destination byte array
+     * @param dstOffset int destination array position
+     */
+    public void getBytes(
+            final byte[] dst,
+            final int dstOffset) {
+
+        System.arraycopy(current, 0, dst, dstOffset, current.length);
+    }
+
+    /**
+     * Creates pre-eq data of the last decoded poll. Key metrics are calculated on demand (see {@link LazyPreEqData}).
+     * @return {@link PreEqData} decoded pre-eq data
+     */
+    public PreEqData getPreEqData() {
+        return new LazyPreEqData(current);
+    }
+
+    long getLastDelta() {
+        return lastDelta;
+    }
+
+    private int readByte() {
+        if (position >= end) throw new PreEqException("Truncated coefficient series at: " + position);
+        return encoded[position++] & 0xff;
+    }
+
+    private long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+
+        throw new PreEqException("Malformed coefficient series var-int at: " + position);
+    }
+}
@@ -0,0 +1,218 @@
+package hr.avrbanac.docsis.lib.codec;
+
+import hr.avrbanac.docsis.lib.PreEqException;
+import hr.avrbanac.docsis.lib.struct.AbstractPreEqData;
+import hr.avrbanac.docsis.lib.struct.PreEqData;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Compressing encoder of the raw pre-eq payload series of a single device (one payload per poll). Consecutive polls usually differ only
+ * in a few taps by small amounts, so each poll is encoded as a difference from the previous one. Payload is handled as 4 header bytes
+ * followed by 48 16-bit words (real and imaginary part of every tap, as received), so the encoding is lossless for any coefficient
+ * encoding.
+ * Series starts with {@link #VERSION} byte, followed by the records:
+ * </p>
+ * <ul>
+ *     <li>timestamp: zig-zag var-int of the difference between the current and the previous timestamp delta (1 byte for a regular
+ *     poll interval)</li>
+ *     <li>change mask byte: bits 0 to 5 are set for changed 8-word groups, bit 6 is set for changed header</li>
+ *     <li>one bitmap byte of the changed words for every changed group</li>
+ *     <li>header XOR-ed with the previous header (4 bytes), only if changed</li>
+ *     <li>zig-zag var-int of the 16-bit difference of every changed word</li>
+ * </ul>
+ * <p>
+ * Unchanged poll takes 2 bytes and a poll with a few slightly changed taps ~10 bytes, compared to 200 characters of the hex string. First
+ * poll is encoded as a difference from zero payload. Encoder is not thread-safe.
+ * </p>
+ *
+ * @see CoefficientSeriesDecoder
+ */
+public final class CoefficientSeriesEncoder {
+    public static final byte VERSION = 1;
+
+    static final int HEADER_LENGTH = 4;
+    static final int WORD_COUNT = (AbstractPreEqData.INPUT_BYTE_LENGTH - HEADER_LENGTH) / 2;
+    static final int GROUP_SIZE = 8;
+    static final int GROUP_COUNT = WORD_COUNT / GROUP_SIZE;
+    static final int HEADER_CHANGED = 1 << GROUP_COUNT;
+    private static final int MAX_RECORD_LENGTH = 10 + 1 + GROUP_COUNT + HEADER_LENGTH + WORD_COUNT * 3;
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final byte[] previous = new byte[AbstractPreEqData.INPUT_BYTE_LENGTH];
+    private final byte[] current = new byte[AbstractPreEqData.INPUT_BYTE_LENGTH];
+    private byte[] buffer;
+    private int length;
+    private int size;
+    private long lastEpochSecond;
+    private long lastDelta;
+
+    /**
+     * CTOR for the empty series.
+     */
+    public CoefficientSeriesEncoder() {
+        this.buffer = new byte[INITIAL_CAPACITY];
+        buffer[0] = VERSION;
+        this.length = 1;
+    }
+
+    /**
+     * Creates encoder which continues the already encoded series (e.g. loaded from storage). Series is decoded once to restore the last
+     * payload and timestamp.
+     * @param encoded byte array containing encoded series
+     * @param offset int array position of the first series byte
+     * @param length int encoded series length
+     * @return {@link CoefficientSeriesEncoder} encoder appending to the copy of the provided series
+     */
+    public static CoefficientSeriesEncoder resume(
+            final byte[] encoded,
+            final int offset,
+            final int length) {
+
+        CoefficientSeriesDecoder decoder = new CoefficientSeriesDecoder(encoded, offset, length);
+        CoefficientSeriesEncoder encoder = new CoefficientSeriesEncoder();
+        while (decoder.next()) {
+            encoder.size++;
+        }
+
+        encoder.buffer = Arrays.copyOfRange(encoded, offset, offset + Math.max(length, INITIAL_CAPACITY));
+        encoder.length = length;
+        encoder.lastEpochSecond = decoder.getEpochSecond();
+        encoder.lastDelta = decoder.getLastDelta();
+        decoder.getBytes(encoder.previous, 0);
+        return encoder;
+    }
+
+    /**
+     * Appends raw payload of the polled pre-eq data.
+     * @param epochSecond long poll timestamp in seconds since epoch
+     * @param preEqData {@link PreEqData} polled pre-eq data
+     */
+    public void append(
+            final long epochSecond,
+            final PreEqData preEqData) {
+
+        preEqData.getBytes(current, 0);
+        encode(epochSecond, current, 0);
+    }
+
+    /**
+     * Appends raw pre-eq payload ({@link AbstractPreEqData#INPUT_BYTE_LENGTH} bytes). Payload is not validated.
+     * @param epochSecond long poll timestamp in seconds since epoch
+     * @param payload byte array containing raw pre-eq payload
+     * @param offset int array position of the first payload byte
+     */
+    public void append(
+            final long epochSecond,
+            final byte[] payload,
+            final int offset) {
+
+        if (offset < 0 || offset + AbstractPreEqData.INPUT_BYTE_LENGTH > payload.length) {
+            throw PreEqException.STRING_MISMATCH_BYTE_SIZE;
+        }
+
+        encode(epochSecond, payload, offset);
+    }
+
+    /**
+     * Returns the number of encoded polls.
+     * @return int number of polls
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the encoded series length.
+     * @return int number of bytes
+     */
+    public int getEncodedLength() {
+        return length;
+    }
+
+    /**
+     * Returns the copy of the encoded series.
+     * @return byte array with encoded series
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, length);
+    }
+
+    /**
+     * Returns decoder over the copy of the currently encoded series.
+     * @return {@link CoefficientSeriesDecoder} series decoder
+     */
+    public CoefficientSeriesDecoder decoder() {
+        return new CoefficientSeriesDecoder(toByteArray());
+    }
+
+    private void encode(
+            final long epochSecond,
+            final byte[] payload,
+            final int offset) {
+
+        if (length + MAX_RECORD_LENGTH > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + MAX_RECORD_LENGTH));
+        }
+
+        long delta = epochSecond - lastEpochSecond;
+        writeVarLong((delta - lastDelta) << 1 ^ (delta - lastDelta) >> 63);
+        lastDelta = delta;
+        lastEpochSecond = epochSecond;
+
+        int headerXor = getInt(payload, offset) ^ getInt(previous, 0);
+        int maskPosition = length++;
+        int mask = headerXor == 0 ? 0 : HEADER_CHANGED;
+        for (int group = 0; group < GROUP_COUNT; group++) {
+            int bitmap = 0;
+            for (int bit = 0; bit < GROUP_SIZE; bit++) {
+                int position = HEADER_LENGTH + (group * GROUP_SIZE + bit) * 2;
+                if (getWord(payload, offset + position) != getWord(previous, position)) bitmap |= 1 << bit;
+            }
+            if (bitmap != 0) {
+                mask |= 1 << group;
+                buffer[length++] = (byte) bitmap;
+            }
+        }
+        buffer[maskPosition] = (byte) mask;
+
+        if (headerXor != 0) {
+            buffer[length++] = (byte) (headerXor >>> 24);
+            buffer[length++] = (byte) (headerXor >>> 16);
+            buffer[length++] = (byte) (headerXor >>> 8);
+            buffer[length++] = (byte) headerXor;
+        }
+
+        for (int position = HEADER_LENGTH; position < AbstractPreEqData.INPUT_BYTE_LENGTH; position += 2) {
+            int wordDelta = (short) (getWord(payload, offset + position) - getWord(previous, position));
+            if (wordDelta != 0) writeVarLong(wordDelta << 1 ^ wordDelta >> 31);
+        }
+
+        System.arraycopy(payload, offset, previous, 0, AbstractPreEqData.INPUT_BYTE_LENGTH);
+        size++;
+    }
+
+    private void writeVarLong(final long value) {
+        long remaining = value;
+        while ((remaining & ~0x7fL) != 0) {
+            buffer[length++] = (byte) (remaining & 0x7f | 0x80);
+            remaining >>>= 7;
+        }
+        buffer[length++] = (byte) remaining;
+    }
+
+    static int getWord(
+            final byte[] bytes,
+            final int position) {
+
+        return (bytes[position] & 0xff) << 8 | bytes[position + 1] & 0xff;
+    }
+
+    static int getInt(
+            final byte[] bytes,
+            final int position) {
+
+        return getWord(bytes, position) << 16 | getWord(bytes, position + 2);
+    }
+}
@@ -0,0 +1,397 @@
+package hr.avrbanac.docsis.lib.codec;
+
+import hr.avrbanac.docsis.lib.PreEqException;
+import hr.avrbanac.docsis.lib.analysis.MicroReflectionSeverity;
+import hr.avrbanac.docsis.lib.analysis.Signature;
+import hr.avrbanac.docsis.lib.struct.AbstractPreEqData;
+import hr.avrbanac.docsis.lib.struct.PreEqData;
+import hr.avrbanac.docsis.lib.struct.PreEqMetrics;
+import hr.avrbanac.docsis.lib.struct.StoredPreEqData;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * <p>
+ * Versioned, fixed-layout binary codec for {@link PreEqRecord}s. Record is written as is (raw payload, key metrics, ICFR magnitudes and
+ * signature values) and read back without any recalculation: only coefficients are decoded from the raw payload (see
+ * {@link StoredPreEqData}). All values are big-endian, regardless of the provided buffer byte order. Record layout (version 1):
+ * </p>
+ *     <table>
+ *         <caption>Record layout</caption>
+ *         <tr><th>Offset</th><th>Size</th><th>Value</th></tr>
+ *         <tr><td>0</td><td>1</td><td>record version ({@link #VERSION})</td></tr>
+ *         <tr><td>1</td><td>1</td><td>flags (bit 0: ICFR magnitudes present, bit 1: signature present)</td></tr>
+ *         <tr><td>2</td><td>1</td><td>main tap index (same as the first payload byte)</td></tr>
+ *         <tr><td>3</td><td>1</td><td>micro-reflection severity level (-1 if signature is not present)</td></tr>
+ *         <tr><td>4</td><td>2</td><td>number of ICFR magnitudes (unsigned, 0 if not present)</td></tr>
+ *         <tr><td>6</td><td>2</td><td>reserved (0)</td></tr>
+ *         <tr><td>8</td><td>56</td><td>long metrics: MTE, MTNA, MTNE, preMTE, postMTE, TTE, elapsed time</td></tr>
+ *         <tr><td>64</td><td>56</td><td>double metrics: MTC, MTR, NMTER, preMTTER, postMTTER, PPESR, PPTSR</td></tr>
+ *         <tr><td>120</td><td>16</td><td>double signature values: micro-reflection, delay (0 if signature is not present)</td></tr>
+ *         <tr><td>136</td><td>100</td><td>raw pre-eq payload</td></tr>
+ *         <tr><td>236</td><td>4</td><td>padding (0)</td></tr>
+ *         <tr><td>240</td><td>8 * n</td><td>double ICFR magnitudes</td></tr>
+ *     </table>
+ * <p>
+ * Bulk format ({@link #encodeAll(PreEqRecord[], ByteBuffer)}) starts with a header: int {@link #MAGIC}, byte {@link #VERSION}, 3 reserved
+ * bytes and int record count, followed by the records.
+ * </p>
+ */
+public class PreEqCodec {
+    public static final byte VERSION = 1;
+    public static final int MAGIC = 0x50455142; // "PEQB"
+    public static final int FIXED_RECORD_SIZE = 240;
+    public static final int BULK_HEADER_SIZE = 12;
+
+    private static final int FLAG_ICFR = 1;
+    private static final int FLAG_SIGNATURE = 1 << 1;
+    private static final int MAX_ICFR_LENGTH = 0xffff;
+    private static final int PADDING = FIXED_RECORD_SIZE - 136 - AbstractPreEqData.INPUT_BYTE_LENGTH;
+    private static final MicroReflectionSeverity[] SEVERITIES = MicroReflectionSeverity.values();
+
+    private PreEqCodec() { }
+
+    /**
+     * Returns the number of bytes required for the record.
+     * @param record {@link PreEqRecord} record
+     * @return int encoded record size
+     */
+    public static int getEncodedSize(final PreEqRecord record) {
+        double[] icfrMag = record.getIcfrMag();
+        if (icfrMag == null) return FIXED_RECORD_SIZE;
+        if (icfrMag.length > MAX_ICFR_LENGTH) {
+            throw new PreEqException("Too many ICFR magnitudes for binary record: " + icfrMag.length);
+        }
+
+        return FIXED_RECORD_SIZE + icfrMag.length * Double.BYTES;
+    }
+
+    /**
+     * Returns the number of bytes required for the bulk encoding of the records (including bulk header).
+     * @param records array of {@link PreEqRecord}s
+     * @return int encoded bulk size
+     */
+    public static int getEncodedSize(final PreEqRecord[] records) {
+        int result = BULK_HEADER_SIZE;
+        for (PreEqRecord record : records) {
+            result += getEncodedSize(record);
+        }
+
+        return result;
+    }
+
+    /**
+     * Writes the record at the buffer position and advances the position. Throws {@link PreEqException} without writing anything if there
+     * is not enough room in the buffer. Buffer byte order is switched to big-endian while writing and restored afterwards.
+     * @param record {@link PreEqRecord} record
+     * @param buffer {@link ByteBuffer} destination buffer
+     */
+    public static void encode(
+            final PreEqRecord record,
+            final ByteBuffer buffer) {
+
+        checkRemaining(buffer, getEncodedSize(record));
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        try {
+            write(record, buffer);
+        } finally {
+            buffer.order(order);
+        }
+    }
+
+    /**
+     * Reads the record from the buffer position and advances the position. Buffer byte order is switched to big-endian while reading and
+     * restored afterwards.
+     * @param buffer {@link ByteBuffer} source buffer
+     * @return {@link PreEqRecord} record
+     */
+    public static PreEqRecord decode(final ByteBuffer buffer) {
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        try {
+            return read(buffer);
+        } finally {
+            buffer.order(order);
+        }
+    }
+
+    /**
+     * Writes bulk header and all records at the buffer position and advances the position. Throws {@link PreEqException} without writing
+     * anything if there is not enough room in the buffer. Buffer byte order is switched to big-endian while writing and restored
+     * afterwards.
+     * @param records array of {@link PreEqRecord}s
+     * @param buffer {@link ByteBuffer} destination buffer
+     */
+    public static void encodeAll(
+            final PreEqRecord[] records,
+            final ByteBuffer buffer) {
+
+        checkRemaining(buffer, getEncodedSize(records));
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        try {
+            buffer.putInt(MAGIC);
+            buffer.put(VERSION);
+            buffer.put((byte) 0).putShort((short) 0);
+            buffer.putInt(records.length);
+            for (PreEqRecord record : records) {
+                write(record, buffer);
+            }
+        } finally {
+            buffer.order(order);
+        }
+    }
+
+    /**
+     * Reads bulk header and all records from the buffer position and advances the position. Buffer byte order is switched to big-endian
+     * while reading and restored afterwards.
+     * @param buffer {@link ByteBuffer} source buffer
+     * @return array of {@link PreEqRecord}s
+     */
+    public static PreEqRecord[] decodeAll(final ByteBuffer buffer) {
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        try {
+            checkRemaining(buffer, BULK_HEADER_SIZE);
+            if (buffer.getInt() != MAGIC) throw new PreEqException("Not a pre-eq bulk record");
+            checkVersion(buffer.get());
+            buffer.position(buffer.position() + 3);
+            int count = buffer.getInt();
+            if (count < 0 || (long) count * FIXED_RECORD_SIZE > buffer.remaining()) {
+                throw new PreEqException("Wrong pre-eq bulk record count: " + count);
+            }
+
+            PreEqRecord[] result = new PreEqRecord[count];
+            for (int i = 0; i < count; i++) {
+                result[i] = read(buffer);
+            }
+
+            return result;
+        } finally {
+            buffer.order(order);
+        }
+    }
+
+    private static void write(
+            final PreEqRecord record,
+            final ByteBuffer buffer) {
+
+        PreEqData data = record.getPreEqData();
+        double[] icfrMag = record.getIcfrMag();
+        Signature signature = record.getSignature();
+
+        buffer.put(VERSION);
+        buffer.put((byte) ((icfrMag == null ? 0 : FLAG_ICFR) | (signature == null ? 0 : FLAG_SIGNATURE)));
+        buffer.put((byte) data.getMainTapIndex());
+        buffer.put((byte) (signature == null ? -1 : signature.getMicroReflectionSeverity().getLevel()));
+        buffer.putShort((short) (icfrMag == null ? 0 : icfrMag.length));
+        buffer.putShort((short) 0);
+
+        buffer.putLong(data.getMTE());
+        buffer.putLong(data.getMTNA());
+        buffer.putLong(data.getMTNE());
+        buffer.putLong(data.getPreMTE());
+        buffer.putLong(data.getPostMTE());
+        buffer.putLong(data.getTTE());
+        buffer.putLong(data.getElapsedTime());
+
+        buffer.putDouble(data.getMTC());
+        buffer.putDouble(data.getMTR());
+        buffer.putDouble(data.getNMTER());
+        buffer.putDouble(data.getPreMTTER());
+        buffer.putDouble(data.getPostMTTER());
+        buffer.putDouble(data.getPPESR());
+        buffer.putDouble(data.getPPTSR());
+
+        buffer.putDouble(signature == null ? 0d : signature.getMicroReflection());
+        buffer.putDouble(signature == null ? 0d : signature.getDelay());
+
+        if (buffer.hasArray()) {
+            data.getBytes(buffer.array(), buffer.arrayOffset() + buffer.position());
+            buffer.position(buffer.position() + AbstractPreEqData.INPUT_BYTE_LENGTH);
+        } else {
+            byte[] payload = new byte[AbstractPreEqData.INPUT_BYTE_LENGTH];
+            data.getBytes(payload, 0);
+            buffer.put(payload);
+        }
+        buffer.putInt(0);
+
+        if (icfrMag != null) {
+            buffer.asDoubleBuffer().put(icfrMag);
+            buffer.position(buffer.position() + icfrMag.length * Double.BYTES);
+        }
+    }
+
+    private static PreEqRecord read(final ByteBuffer buffer) {
+        checkRemaining(buffer, FIXED_RECORD_SIZE);
+        checkVersion(buffer.get());
+        int flags = buffer.get();
+        int mainTapIndex = buffer.get();
+        int severityLevel = buffer.get();
+        int icfrLength = buffer.getShort() & MAX_ICFR_LENGTH;
+        buffer.getShort();
+        checkRemaining(buffer, FIXED_RECORD_SIZE - 8 + icfrLength * Double.BYTES);
+
+        StoredMetrics metrics = new StoredMetrics(buffer);
+        double microReflection = buffer.getDouble();
+        double delay = buffer.getDouble();
+
+        if (buffer.get(buffer.position()) != mainTapIndex) {
+            throw new PreEqException("Main tap index does not match pre-eq payload: " + mainTapIndex);
+        }
+        PreEqData data;
+        if (buffer.hasArray()) {
+            data = new StoredPreEqData(buffer.array(), buffer.arrayOffset() + buffer.position(), metrics);
+            buffer.position(buffer.position() + AbstractPreEqData.INPUT_BYTE_LENGTH);
+        } else {
+            byte[] payload = new byte[AbstractPreEqData.INPUT_BYTE_LENGTH];
+            buffer.get(payload);
+            data = new StoredPreEqData(payload, 0, metrics);
+        }
+        buffer.position(buffer.position() + PADDING);
+
+        double[] icfrMag = null;
+        if ((flags & FLAG_ICFR) != 0) {
+            icfrMag = new double[icfrLength];
+            buffer.asDoubleBuffer().get(icfrMag);
+            buffer.position(buffer.position() + icfrLength * Double.BYTES);
+        }
+
+        Signature signature = null;
+        if ((flags & FLAG_SIGNATURE) != 0) {
+            signature = Signature.of(microReflection, getSeverity(severityLevel), delay);
+        }
+
+        return new PreEqRecord(data, icfrMag, signature);
+    }
+
+    private static MicroReflectionSeverity getSeverity(final int level) {
+        for (MicroReflectionSeverity severity : SEVERITIES) {
+            if (severity.getLevel() == level) return severity;
+        }
+
+        throw new PreEqException("Unknown micro-reflection severity level: " + level);
+    }
+
+    private static void checkVersion(final byte version) {
+        if (version != VERSION) throw new PreEqException("Unsupported pre-eq binary record version: " + version);
+    }
+
+    private static void checkRemaining(
+            final ByteBuffer buffer,
+            final int required) {
+
+        if (buffer.remaining() < required) {
+            throw new PreEqException("Buffer too small for pre-eq binary record: " + buffer.remaining() + " < " + required);
+        }
+    }
+
+    /**
+     * Key metrics read from the record (tap energy sums are only checked by {@link StoredPreEqData}).
+     */
+    private static final class StoredMetrics implements PreEqMetrics {
+        private final long lMTE;
+        private final long lMTNA;
+        private final long lMTNE;
+        private final long lPreMTE;
+        private final long lPostMTE;
+        private final long lTTE;
+        private final long elapsedTime;
+        private final double dMTC;
+        private final double dMTR;
+        private final double dNMTER;
+        private final double dPreMTTER;
+        private final double dPostMTTER;
+        private final double dPPESR;
+        private final double dPPTSR;
+
+        private StoredMetrics(final ByteBuffer buffer) {
+            lMTE = buffer.getLong();
+            lMTNA = buffer.getLong();
+            lMTNE = buffer.getLong();
+            lPreMTE = buffer.getLong();
+            lPostMTE = buffer.getLong();
+            lTTE = buffer.getLong();
+            elapsedTime = buffer.getLong();
+            dMTC = buffer.getDouble();
+            dMTR = buffer.getDouble();
+            dNMTER = buffer.getDouble();
+            dPreMTTER = buffer.getDouble();
+            dPostMTTER = buffer.getDouble();
+            dPPESR = buffer.getDouble();
+            dPPTSR = buffer.getDouble();
+        }
+
+        @Override
+        public long getMTE() {
+            return lMTE;
+        }
+
+        @Override
+        public long getMTNA() {
+            return lMTNA;
+        }
+
+        @Override
+        public long getMTNE() {
+            return lMTNE;
+        }
+
+        @Override
+        public long getPreMTE() {
+            return lPreMTE;
+        }
+
+        @Override
+        public long getPostMTE() {
+            return lPostMTE;
+        }
+
+        @Override
+        public long getTTE() {
+            return lTTE;
+        }
+
+        @Override
+        public double getMTC() {
+            return dMTC;
+        }
+
+        @Override
+        public double getMTR() {
+            return dMTR;
+        }
+
+        @Override
+        public double getNMTER() {
+            return dNMTER;
+        }
+
+        @Override
+        public double getPreMTTER() {
+            return dPreMTTER;
+        }
+
+        @Override
+        public double getPostMTTER() {
+            return dPostMTTER;
+        }
+
+        @Override
+        public double getPPESR() {
+            return dPPESR;
+        }
+
+        @Override
+        public double getPPTSR() {
+            return dPPTSR;
+        }
+
+        @Override
+        public long getElapsedTime() {
+            return elapsedTime;
+        }
+    }
+}
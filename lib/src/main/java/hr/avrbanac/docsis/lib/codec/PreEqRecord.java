@@ -0,0 +1,75 @@
+package hr.avrbanac.docsis.lib.codec;
+
+import hr.avrbanac.docsis.lib.analysis.ChannelWidth;
+import hr.avrbanac.docsis.lib.analysis.MicroReflectionSeverityThreshold;
+import hr.avrbanac.docsis.lib.analysis.PreEqAnalysis;
+import hr.avrbanac.docsis.lib.analysis.Signature;
+import hr.avrbanac.docsis.lib.struct.PreEqData;
+
+/**
+ * Single record of the {@link PreEqCodec}: parsed pre-eq data (raw payload with key metrics) and optional analysis results (ICFR
+ * magnitudes and {@link Signature}).
+ */
+public final class PreEqRecord {
+    private final PreEqData preEqData;
+    private final double[] icfrMag;
+    private final Signature signature;
+
+    /**
+     * CTOR for the record. ICFR magnitudes array is not copied and must not be modified later.
+     * @param preEqData {@link PreEqData} parsed pre-eq data
+     * @param icfrMag double array of ICFR magnitudes or null
+     * @param signature {@link Signature} signature or null
+     */
+    public PreEqRecord(
+            final PreEqData preEqData,
+            final double[] icfrMag,
+            final Signature signature) {
+
+        this.preEqData = preEqData;
+        this.icfrMag = icfrMag;
+        this.signature = signature;
+    }
+
+    /**
+     * Creates record with all analysis results (ICFR magnitudes and signature) taken from the provided analysis.
+     * @param preEqAnalysis {@link PreEqAnalysis} analysis of the pre-eq data
+     * @param channelWidth {@link ChannelWidth} channel width for signature
+     * @param thresholdLevel {@link MicroReflectionSeverityThreshold} thresholds for signature
+     * @return {@link PreEqRecord} record
+     */
+    public static PreEqRecord of(
+            final PreEqAnalysis preEqAnalysis,
+            final ChannelWidth channelWidth,
+            final MicroReflectionSeverityThreshold thresholdLevel) {
+
+        return new PreEqRecord(
+                preEqAnalysis.getPreEqData(),
+                preEqAnalysis.getInChannelFrequencyResponseMagnitude(),
+                preEqAnalysis.getSignature(channelWidth, thresholdLevel));
+    }
+
+    /**
+     * Returns parsed pre-eq data.
+     * @return {@link PreEqData} pre-eq data
+     */
+    public PreEqData getPreEqData() {
+        return preEqData;
+    }
+
+    /**
+     * Returns ICFR magnitudes.
+     * @return double array of ICFR magnitudes or null if not available
+     */
+    public double[] getIcfrMag() {
+        return icfrMag;
+    }
+
+    /**
+     * Returns signature.
+     * @return {@link Signature} signature or null if not available
+     */
+    public Signature getSignature() {
+        return signature;
+    }
+}
@@ -0,0 +1,6 @@
+/**
+ * Contains versioned, fixed-layout binary codec for persisting and shipping pre-eq data together with analysis results, with
+ * {@link hr.avrbanac.docsis.lib.codec.PreEqCodec} as an entry class. Raw coefficient series of a single device are compressed with
+ * {@link hr.avrbanac.docsis.lib.codec.CoefficientSeriesEncoder}.
+ */
+package hr.avrbanac.docsis.lib.codec;
@@ -0,0 +1,216 @@
+package hr.avrbanac.docsis.lib.history;
+
+import hr.avrbanac.docsis.lib.PreEqException;
+import hr.avrbanac.docsis.lib.codec.CoefficientSeriesDecoder;
+import hr.avrbanac.docsis.lib.codec.CoefficientSeriesEncoder;
+import hr.avrbanac.docsis.lib.struct.PreEqData;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * <p>
+ * Store of the raw pre-eq coefficient history per device, kept compressed with {@link CoefficientSeriesEncoder} (~10 bytes per poll
+ * instead of 200 characters of the hex string), so the history can be decoded back into {@link PreEqData} and analyzed again later.
+ * Store is kept in memory and can be saved to (and loaded from) a single file: int {@link #MAGIC}, byte
+ * {@link CoefficientSeriesEncoder#VERSION}, 3 reserved bytes and int device count, followed by long device id, int series length and
+ * encoded series of every device.
+ * </p>
+ * <p>
+ * Store is thread-safe: appends of a single device are serialized, while appends of different devices run concurrently.
+ * </p>
+ */
+public final class CoefficientHistoryStore {
+    public static final int MAGIC = 0x50454353; // "PECS"
+    private static final int DEVICE_HEADER_SIZE = 12; // device id and series length
+
+    private final Map<Long, CoefficientSeriesEncoder> series = new ConcurrentHashMap<>();
+
+    /**
+     * Appends raw payload of the polled pre-eq data.
+     * @param deviceId long device identifier (e.g. MAC address as long)
+     * @param epochSecond long poll timestamp in seconds since epoch
+     * @param preEqData {@link PreEqData} polled pre-eq data
+     */
+    public void append(
+            final long deviceId,
+            final long epochSecond,
+            final PreEqData preEqData) {
+
+        CoefficientSeriesEncoder encoder = series.computeIfAbsent(deviceId, id -> new CoefficientSeriesEncoder());
+        synchronized (encoder) {
+            encoder.append(epochSecond, preEqData);
+        }
+    }
+
+    /**
+     * Appends raw pre-eq payload.
+     * @param deviceId long device identifier (e.g. MAC address as long)
+     * @param epochSecond long poll timestamp in seconds since epoch
+     * @param payload byte array containing raw pre-eq payload
+     * @param offset int array position of the first payload byte
+     */
+    public void append(
+            final long deviceId,
+            final long epochSecond,
+            final byte[] payload,
+            final int offset) {
+
+        CoefficientSeriesEncoder encoder = series.computeIfAbsent(deviceId, id -> new CoefficientSeriesEncoder());
+        synchronized (encoder) {
+            encoder.append(epochSecond, payload, offset);
+        }
+    }
+
+    /**
+     * Returns decoder over the snapshot of the device history.
+     * @param deviceId long device identifier
+     * @return {@link CoefficientSeriesDecoder} history decoder (empty for unknown device)
+     */
+    public CoefficientSeriesDecoder getHistory(final long deviceId) {
+        CoefficientSeriesEncoder encoder = series.get(deviceId);
+        if (encoder == null) return new CoefficientSeriesEncoder().decoder();
+
+        synchronized (encoder) {
+            return encoder.decoder();
+        }
+    }
+
+    /**
+     * Visits history snapshots of all devices (e.g. to backfill the analysis of a whole fleet).
+     * @param consumer {@link ObjLongConsumer} consumer of the history decoder and device identifier
+     */
+    public void forEach(final ObjLongConsumer<CoefficientSeriesDecoder> consumer) {
+        series.keySet().forEach(deviceId -> consumer.accept(getHistory(deviceId), deviceId));
+    }
+
+    /**
+     * Returns the number of devices with stored history.
+     * @return int number of devices
+     */
+    public int getDeviceCount() {
+        return series.size();
+    }
+
+    /**
+     * Returns the total number of stored polls.
+     * @return long number of polls
+     */
+    public long getPollCount() {
+        long count = 0;
+        for (CoefficientSeriesEncoder encoder : series.values()) {
+            synchronized (encoder) {
+                count += encoder.size();
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the total encoded length of all stored series.
+     * @return long number of bytes
+     */
+    public long getEncodedLength() {
+        long length = 0;
+        for (CoefficientSeriesEncoder encoder : series.values()) {
+            synchronized (encoder) {
+                length += encoder.getEncodedLength();
+            }
+        }
+
+        return length;
+    }
+
+    /**
+     * Saves the store into the provided file (file is replaced). Store is written into a sibling temporary file first, which then
+     * atomically replaces the destination file, so failed save never destroys the previously saved history.
+     * @param file {@link Path} destination file
+     */
+    public void save(final Path file) {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(CoefficientSeriesEncoder.VERSION);
+            out.write(new byte[3]);
+            Map<Long, byte[]> snapshot = new HashMap<>();
+            series.forEach((deviceId, encoder) -> {
+                synchronized (encoder) {
+                    snapshot.put(deviceId, encoder.toByteArray());
+                }
+            });
+            out.writeInt(snapshot.size());
+            for (Map.Entry<Long, byte[]> entry : snapshot.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeInt(entry.getValue().length);
+                out.write(entry.getValue());
+            }
+        } catch (IOException e) {
+            deleteQuietly(tmp);
+            throw new PreEqException("Coefficient history could not be saved: " + e.getMessage());
+        }
+
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            deleteQuietly(tmp);
+            throw new PreEqException("Coefficient history could not be saved: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Loads the store from the provided file. Loaded series can be appended to. Corrupt or truncated file (e.g. device count or series
+     * length out of the file bounds) is rejected before anything is allocated for it.
+     * @param file {@link Path} source file
+     * @return {@link CoefficientHistoryStore} loaded store
+     */
+    public static CoefficientHistoryStore load(final Path file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            long fileSize = Files.size(file);
+            if (in.readInt() != MAGIC) throw new PreEqException("Not a coefficient history file: " + file);
+            byte version = in.readByte();
+            if (version != CoefficientSeriesEncoder.VERSION) {
+                throw new PreEqException("Unsupported coefficient history version: " + version);
+            }
+            in.skipBytes(3);
+
+            CoefficientHistoryStore store = new CoefficientHistoryStore();
+            int deviceCount = in.readInt();
+            if (deviceCount < 0 || deviceCount > fileSize / DEVICE_HEADER_SIZE) {
+                throw new PreEqException("Corrupt coefficient history, wrong device count: " + deviceCount);
+            }
+            for (int i = 0; i < deviceCount; i++) {
+                long deviceId = in.readLong();
+                int length = in.readInt();
+                if (length <= 0 || length > fileSize) {
+                    throw new PreEqException("Corrupt coefficient history, wrong series length of device " + deviceId + ": " + length);
+                }
+                byte[] encoded = new byte[length];
+                in.readFully(encoded);
+                store.series.put(deviceId, CoefficientSeriesEncoder.resume(encoded, 0, encoded.length));
+            }
+
+            return store;
+        } catch (IOException e) {
+            throw new PreEqException("Coefficient history could not be loaded: " + e.getMessage());
+        }
+    }
+
+    private static void deleteQuietly(final Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // original exception is more important
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package hr.avrbanac.docsis.lib.history;
+
+import java.util.Arrays;
+
+/**
+ * Columnar (struct-of-arrays) time series of the stored metric records of a single device, in chronological order (oldest first). Values
+ * that were not available when appended are {@link Float#NaN}.
+ *
+ * @see MetricHistoryStore#scan(long, long, long)
+ */
+public final class MetricHistory {
+    private static final int INITIAL_CAPACITY = 96;
+
+    private long[] epochSeconds = new long[INITIAL_CAPACITY];
+    private float[] mtr = new float[INITIAL_CAPACITY];
+    private float[] nmter = new float[INITIAL_CAPACITY];
+    private float[] mtc = new float[INITIAL_CAPACITY];
+    private float[] microReflection = new float[INITIAL_CAPACITY];
+    private float[] tdr = new float[INITIAL_CAPACITY];
+    private int size;
+
+    MetricHistory() { }
+
+    /**
+     * Adds scanned record (scan visits records newest first, see {@link #reverse()}).
+     * @param epochSecond long record timestamp (seconds since epoch)
+     * @param mtr float main tap ratio
+     * @param nmter float non-main tap to total energy ratio
+     * @param mtc float main tap compression
+     * @param microReflection float signature micro-reflection
+     * @param tdr float TDR distance
+     */
+    void add(
+            final long epochSecond,
+            final float mtr,
+            final float nmter,
+            final float mtc,
+            final float microReflection,
+            final float tdr) {
+
+        if (size == epochSeconds.length) {
+            int capacity = size * 2;
+            this.epochSeconds = Arrays.copyOf(epochSeconds, capacity);
+            this.mtr = Arrays.copyOf(this.mtr, capacity);
+            this.nmter = Arrays.copyOf(this.nmter, capacity);
+            this.mtc = Arrays.copyOf(this.mtc, capacity);
+            this.microReflection = Arrays.copyOf(this.microReflection, capacity);
+            this.tdr = Arrays.copyOf(this.tdr, capacity);
+        }
+
+        epochSeconds[size] = epochSecond;
+        this.mtr[size] = mtr;
+        this.nmter[size] = nmter;
+        this.mtc[size] = mtc;
+        this.microReflection[size] = microReflection;
+        this.tdr[size] = tdr;
+        size++;
+    }
+
+    /**
+     * Reverses collected records into chronological order.
+     * @return {@link MetricHistory} this history
+     */
+    MetricHistory reverse() {
+        for (int i = 0, j = size - 1; i < j; i++, j--) {
+            long epochSecond = epochSeconds[i];
+            epochSeconds[i] = epochSeconds[j];
+            epochSeconds[j] = epochSecond;
+            swap(mtr, i, j);
+            swap(nmter, i, j);
+            swap(mtc, i, j);
+            swap(microReflection, i, j);
+            swap(tdr, i, j);
+        }
+
+        return this;
+    }
+
+    private static void swap(
+            final float[] values,
+            final int i,
+            final int j) {
+
+        float value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+
+    /**
+     * Returns the number of records.
+     * @return int number of records
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns record timestamp.
+     * @param i int record index (0 is the oldest record)
+     * @return long seconds since epoch
+     */
+    public long getEpochSecond(final int i) {
+        return epochSeconds[i];
+    }
+
+    /**
+     * Returns record main tap ratio.
+     * @param i int record index (0 is the oldest record)
+     * @return float MTR (dB)
+     */
+    public float getMTR(final int i) {
+        return mtr[i];
+    }
+
+    /**
+     * Returns record non-main tap to total energy ratio.
+     * @param i int record index (0 is the oldest record)
+     * @return float NMTER (dB)
+     */
+    public float getNMTER(final int i) {
+        return nmter[i];
+    }
+
+    /**
+     * Returns record main tap compression.
+     * @param i int record index (0 is the oldest record)
+     * @return float MTC (dB)
+     */
+    public float getMTC(final int i) {
+        return mtc[i];
+    }
+
+    /**
+     * Returns record signature micro-reflection.
+     * @param i int record index (0 is the oldest record)
+     * @return float micro-reflection (dBc)
+     */
+    public float getMicroReflection(final int i) {
+        return microReflection[i];
+    }
+
+    /**
+     * Returns record TDR.
+     * @param i int record index (0 is the oldest record)
+     * @return float TDR distance
+     */
+    public float getTDR(final int i) {
+        return tdr[i];
+    }
+}
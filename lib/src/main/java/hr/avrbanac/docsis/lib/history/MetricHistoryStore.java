@@ -0,0 +1,510 @@
+package hr.avrbanac.docsis.lib.history;
+
+import hr.avrbanac.docsis.lib.PreEqException;
+import hr.avrbanac.docsis.lib.analysis.Signature;
+import hr.avrbanac.docsis.lib.struct.PreEqData;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * <p>
+ * Append-only, memory-mapped store of the key metric history (MTR, NMTER, MTC, micro-reflection and TDR) per device. Only fixed-width
+ * primitive records are kept, so no {@link PreEqData} objects need to be retained for trending. Store is a directory with an index file and
+ * fixed-size segment files, all of them memory-mapped:
+ * </p>
+ * <ul>
+ *     <li>segment file holds {@link #RECORD_SIZE} bytes records (previous record offset of the same device, timestamp in seconds and 5
+ *     float metrics) in append order; new segment is created once the current one is full</li>
+ *     <li>index file holds store header and open addressing hash table with the last record offset of every device, so records of one
+ *     device form a backward chain and range scans visit only records of that device (newest first, stopping at the window start) without
+ *     reading whole files</li>
+ *     <li>index file also holds the newest timestamp of every live segment (up to {@link #MAX_LIVE_SEGMENTS}), so retention never drops a
+ *     segment that still holds records within the retention window, whatever the order of the devices in it</li>
+ * </ul>
+ * <p>
+ * Default sizing is for 1M devices polled 96 times a day: 90 days are 8.64e9 records, i.e. ~276 GB in 1 GiB segments, while the index
+ * takes 32 MiB (plus 256 KiB segment table). Old history is dropped a segment at a time ({@link #deleteOlderThan(long)}), and devices
+ * left without any record are dropped from the index at the same time, so device churn never fills the index. Timestamps of each device
+ * must not decrease.
+ * </p>
+ * <p>
+ * Store is thread-safe: appends and retention are exclusive, while scans run concurrently with each other.
+ * </p>
+ */
+public final class MetricHistoryStore implements Closeable {
+    public static final int RECORD_SIZE = 32;
+    public static final int DEFAULT_MAX_DEVICES = 1 << 20;
+    public static final int DEFAULT_SEGMENT_CAPACITY = 1 << 25;
+    public static final int MAX_SEGMENT_CAPACITY = 1 << 25;
+    public static final int MAX_DEVICES = 1 << 25;
+    public static final int MAX_LIVE_SEGMENTS = 1 << 16;
+
+    private static final int MAGIC = 0x50454d48; // "PEMH"
+    private static final int VERSION = 2;
+    private static final String INDEX_FILE = "index.dat";
+    private static final String SEGMENT_FILE = "segment-%010d.dat";
+    private static final long MAX_EPOCH_SECOND = 0xffffffffL;
+
+    // index file header layout
+    private static final int HEADER_SIZE = 64;
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_SEGMENT_CAPACITY = 8;
+    private static final int HEADER_INDEX_CAPACITY = 12;
+    private static final int HEADER_SIZE_FIELD = 16;
+    private static final int HEADER_FIRST_SEGMENT = 24;
+    private static final int HEADER_DEVICE_COUNT = 28;
+    private static final int INDEX_ENTRY_SIZE = 16;
+    private static final int SEGMENT_ENTRY_SIZE = 4;
+
+    // record layout
+    private static final int RECORD_PREVIOUS = 0;
+    private static final int RECORD_EPOCH_SECOND = 8;
+    private static final int RECORD_MTR = 12;
+    private static final int RECORD_NMTER = 16;
+    private static final int RECORD_MTC = 20;
+    private static final int RECORD_MICRO_REFLECTION = 24;
+    private static final int RECORD_TDR = 28;
+
+    private final Path directory;
+    private final int segmentCapacity;
+    private final int indexCapacity;
+    private final int segmentTable;
+    private final MappedByteBuffer index;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // guarded by lock
+    private MappedByteBuffer[] segments;
+    private long size;
+    private int firstSegment;
+    private int deviceCount;
+    private boolean closed;
+
+    private MetricHistoryStore(
+            final Path directory,
+            final int maxDevices,
+            final int segmentCapacity) throws IOException {
+
+        this.directory = directory;
+        Files.createDirectories(directory);
+        Path indexPath = directory.resolve(INDEX_FILE);
+        boolean exists = Files.exists(indexPath);
+        if (exists) {
+            MappedByteBuffer header = map(indexPath, HEADER_SIZE);
+            if (header.getInt(HEADER_MAGIC) != MAGIC || header.getInt(HEADER_VERSION) != VERSION) {
+                throw new PreEqException("Not a supported metric history store: " + directory);
+            }
+            this.segmentCapacity = header.getInt(HEADER_SEGMENT_CAPACITY);
+            this.indexCapacity = header.getInt(HEADER_INDEX_CAPACITY);
+        } else {
+            this.segmentCapacity = segmentCapacity;
+            this.indexCapacity = (maxDevices == 1 ? 1 : Integer.highestOneBit(maxDevices - 1) << 1) << 1;
+        }
+
+        this.segmentTable = HEADER_SIZE + indexCapacity * INDEX_ENTRY_SIZE;
+        this.index = map(indexPath, segmentTable + (long) MAX_LIVE_SEGMENTS * SEGMENT_ENTRY_SIZE);
+        if (exists) {
+            this.size = index.getLong(HEADER_SIZE_FIELD);
+            this.firstSegment = index.getInt(HEADER_FIRST_SEGMENT);
+            this.deviceCount = index.getInt(HEADER_DEVICE_COUNT);
+        } else {
+            index.putInt(HEADER_SEGMENT_CAPACITY, this.segmentCapacity);
+            index.putInt(HEADER_INDEX_CAPACITY, indexCapacity);
+            index.putInt(HEADER_VERSION, VERSION);
+            index.putInt(HEADER_MAGIC, MAGIC);
+        }
+
+        int segmentCount = size == 0 ? 0 : (int) ((size - 1) / this.segmentCapacity) + 1;
+        this.segments = new MappedByteBuffer[segmentCount];
+        for (int i = firstSegment; i < segmentCount; i++) {
+            segments[i] = mapSegment(i);
+        }
+    }
+
+    /**
+     * Opens existing store in the provided directory, or creates a new one with default sizing.
+     * @param directory {@link Path} store directory
+     * @return {@link MetricHistoryStore} opened store
+     */
+    public static MetricHistoryStore open(final Path directory) {
+        return open(directory, DEFAULT_MAX_DEVICES, DEFAULT_SEGMENT_CAPACITY);
+    }
+
+    /**
+     * Opens existing store in the provided directory, or creates a new one with provided sizing. Sizing of the existing store is kept as
+     * it was created.
+     * @param directory {@link Path} store directory
+     * @param maxDevices int maximum number of devices (rounded up to the power of 2, max {@link #MAX_DEVICES})
+     * @param segmentCapacity int number of records per segment file (max {@link #MAX_SEGMENT_CAPACITY})
+     * @return {@link MetricHistoryStore} opened store
+     */
+    public static MetricHistoryStore open(
+            final Path directory,
+            final int maxDevices,
+            final int segmentCapacity) {
+
+        if (maxDevices < 1 || maxDevices > MAX_DEVICES) throw new PreEqException("Wrong max device count: " + maxDevices);
+        if (segmentCapacity < 1 || segmentCapacity > MAX_SEGMENT_CAPACITY) {
+            throw new PreEqException("Wrong segment capacity: " + segmentCapacity);
+        }
+
+        try {
+            return new MetricHistoryStore(directory, maxDevices, segmentCapacity);
+        } catch (IOException e) {
+            throw new PreEqException("Metric history store could not be opened: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Appends key metrics of the polled device.
+     * @param deviceId long device identifier (e.g. MAC address as long)
+     * @param epochSecond long poll timestamp in seconds since epoch (must not be lower than the last timestamp of the device)
+     * @param preEqData {@link PreEqData} parsed pre-eq data (MTR, NMTER and MTC are stored)
+     * @param signature {@link Signature} signature (micro-reflection is stored) or null
+     * @param tdr double TDR distance or {@link Double#NaN} if not available
+     */
+    public void append(
+            final long deviceId,
+            final long epochSecond,
+            final PreEqData preEqData,
+            final Signature signature,
+            final double tdr) {
+
+        append(
+                deviceId,
+                epochSecond,
+                preEqData.getMTR(),
+                preEqData.getNMTER(),
+                preEqData.getMTC(),
+                signature == null ? Double.NaN : signature.getMicroReflection(),
+                tdr);
+    }
+
+    /**
+     * Appends key metrics of the polled device. Values are stored as floats; use {@link Double#NaN} for values that are not available.
+     * @param deviceId long device identifier (e.g. MAC address as long)
+     * @param epochSecond long poll timestamp in seconds since epoch (must not be lower than the last timestamp of the device)
+     * @param mtr double main tap ratio
+     * @param nmter double non-main tap to total energy ratio
+     * @param mtc double main tap compression
+     * @param microReflection double signature micro-reflection
+     * @param tdr double TDR distance
+     */
+    public void append(
+            final long deviceId,
+            final long epochSecond,
+            final double mtr,
+            final double nmter,
+            final double mtc,
+            final double microReflection,
+            final double tdr) {
+
+        if (epochSecond < 0 || epochSecond > MAX_EPOCH_SECOND) throw new PreEqException("Timestamp out of range: " + epochSecond);
+
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            int entry = findEntry(deviceId);
+            long head = index.getLong(entry + 8);
+            if (head == 0) {
+                if (deviceCount >= indexCapacity / 2) throw new PreEqException("Metric history index is full: " + deviceCount);
+                index.putLong(entry, deviceId);
+                index.putInt(HEADER_DEVICE_COUNT, ++deviceCount);
+            } else if (head - 1 >= getFirstOffset() && epochSecond < getEpochSecond(head - 1)) {
+                throw new PreEqException("Timestamp is older than the last one of the device: " + epochSecond);
+            }
+
+            long offset = size;
+            int segmentIndex = (int) (offset / segmentCapacity);
+            if (segmentIndex - firstSegment >= MAX_LIVE_SEGMENTS) {
+                throw new PreEqException("Too many metric history segments, older ones should be deleted: " + segmentIndex);
+            }
+            MappedByteBuffer segment = getSegmentForAppend(offset);
+            int position = getPosition(offset);
+            segment.putLong(position + RECORD_PREVIOUS, head);
+            segment.putInt(position + RECORD_EPOCH_SECOND, (int) epochSecond);
+            segment.putFloat(position + RECORD_MTR, (float) mtr);
+            segment.putFloat(position + RECORD_NMTER, (float) nmter);
+            segment.putFloat(position + RECORD_MTC, (float) mtc);
+            segment.putFloat(position + RECORD_MICRO_REFLECTION, (float) microReflection);
+            segment.putFloat(position + RECORD_TDR, (float) tdr);
+
+            if (position == 0 || epochSecond > getSegmentEpochSecond(segmentIndex)) {
+                index.putInt(getSegmentEntry(segmentIndex), (int) epochSecond);
+            }
+            index.putLong(entry + 8, offset + 1);
+            size = offset + 1;
+            index.putLong(HEADER_SIZE_FIELD, size);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Visits all records of the device within the provided time window (both bounds inclusive), newest record first. Only records of the
+     * device are read, directly from the mapped segments.
+     * @param deviceId long device identifier
+     * @param fromEpochSecond long window start in seconds since epoch
+     * @param toEpochSecond long window end in seconds since epoch
+     * @param visitor {@link MetricHistoryVisitor} record visitor
+     * @return int number of visited records
+     */
+    public int scan(
+            final long deviceId,
+            final long fromEpochSecond,
+            final long toEpochSecond,
+            final MetricHistoryVisitor visitor) {
+
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            long firstOffset = getFirstOffset();
+            long ptr = index.getLong(findEntry(deviceId) + 8) - 1;
+            int count = 0;
+            while (ptr >= firstOffset) {
+                MappedByteBuffer segment = segments[(int) (ptr / segmentCapacity)];
+                int position = getPosition(ptr);
+                long epochSecond = segment.getInt(position + RECORD_EPOCH_SECOND) & MAX_EPOCH_SECOND;
+                if (epochSecond < fromEpochSecond) break;
+                if (epochSecond <= toEpochSecond) {
+                    visitor.visit(
+                            epochSecond,
+                            segment.getFloat(position + RECORD_MTR),
+                            segment.getFloat(position + RECORD_NMTER),
+                            segment.getFloat(position + RECORD_MTC),
+                            segment.getFloat(position + RECORD_MICRO_REFLECTION),
+                            segment.getFloat(position + RECORD_TDR));
+                    count++;
+                }
+                ptr = segment.getLong(position + RECORD_PREVIOUS) - 1;
+            }
+
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns all records of the device within the provided time window (both bounds inclusive) in chronological order.
+     * @param deviceId long device identifier
+     * @param fromEpochSecond long window start in seconds since epoch
+     * @param toEpochSecond long window end in seconds since epoch
+     * @return {@link MetricHistory} device history
+     */
+    public MetricHistory scan(
+            final long deviceId,
+            final long fromEpochSecond,
+            final long toEpochSecond) {
+
+        MetricHistory history = new MetricHistory();
+        scan(deviceId, fromEpochSecond, toEpochSecond, history::add);
+        return history.reverse();
+    }
+
+    /**
+     * Deletes the oldest segments with all records older than the provided timestamp (newest timestamp of the segment is compared, so
+     * segment is kept while any of its records is within the window). Since segments are deleted as a whole, some records older than the
+     * provided timestamp may be kept. Current (last) segment is never deleted. Devices without any remaining record are removed from the
+     * index, so their entries can be used by new devices.
+     * @param epochSecond long retention start in seconds since epoch
+     * @return int number of deleted segments
+     */
+    public int deleteOlderThan(final long epochSecond) {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            int deleted = 0;
+            while (firstSegment < segments.length - 1
+                    && getSegmentEpochSecond(firstSegment) < epochSecond) {
+                segments[firstSegment] = null;
+                Files.deleteIfExists(getSegmentPath(firstSegment));
+                index.putInt(HEADER_FIRST_SEGMENT, ++firstSegment);
+                deleted++;
+            }
+            if (deleted > 0) rebuildIndex();
+
+            return deleted;
+        } catch (IOException e) {
+            throw new PreEqException("Metric history segment could not be deleted: " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of records appended since the store was created (including deleted ones).
+     * @return long number of records
+     */
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of devices with at least one record that is not deleted yet.
+     * @return int number of devices
+     */
+    public int getDeviceCount() {
+        lock.readLock().lock();
+        try {
+            return deviceCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Forces all changes of the mapped files to the storage device.
+     */
+    public void flush() {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            for (MappedByteBuffer segment : segments) {
+                if (segment != null) segment.force();
+            }
+            index.force();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Flushes and closes the store. Mapped buffers are released once garbage collected.
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (closed) return;
+            for (MappedByteBuffer segment : segments) {
+                if (segment != null) segment.force();
+            }
+            index.force();
+            segments = new MappedByteBuffer[0];
+            closed = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MetricHistoryStore{directory=" + directory
+                + ", records=" + size()
+                + ", devices=" + getDeviceCount() + "}";
+    }
+
+    private void checkOpen() {
+        if (closed) throw new PreEqException("Metric history store is closed: " + directory);
+    }
+
+    /**
+     * Returns index entry position of the device: either the entry holding the device, or the empty entry where it should be added.
+     * @param deviceId long device identifier
+     * @return int index entry position
+     */
+    private int findEntry(final long deviceId) {
+        long hash = deviceId * 0x9E3779B97F4A7C15L;
+        int slot = (int) (hash ^ (hash >>> 32)) & (indexCapacity - 1);
+        while (true) {
+            int entry = HEADER_SIZE + slot * INDEX_ENTRY_SIZE;
+            if (index.getLong(entry + 8) == 0 || index.getLong(entry) == deviceId) return entry;
+            slot = (slot + 1) & (indexCapacity - 1);
+        }
+    }
+
+    /**
+     * Rebuilds the index hash table with live devices only (last record not deleted). Live entries are collected first and then added to
+     * the cleared table, since open addressing entries can not simply be emptied.
+     */
+    private void rebuildIndex() {
+        long firstOffset = getFirstOffset();
+        long[] deviceIds = new long[deviceCount];
+        long[] heads = new long[deviceCount];
+        int liveCount = 0;
+        for (int slot = 0; slot < indexCapacity; slot++) {
+            int entry = HEADER_SIZE + slot * INDEX_ENTRY_SIZE;
+            long head = index.getLong(entry + 8);
+            if (head - 1 >= firstOffset) {
+                deviceIds[liveCount] = index.getLong(entry);
+                heads[liveCount++] = head;
+            }
+            index.putLong(entry, 0L);
+            index.putLong(entry + 8, 0L);
+        }
+
+        for (int i = 0; i < liveCount; i++) {
+            int entry = findEntry(deviceIds[i]);
+            index.putLong(entry, deviceIds[i]);
+            index.putLong(entry + 8, heads[i]);
+        }
+        deviceCount = liveCount;
+        index.putInt(HEADER_DEVICE_COUNT, deviceCount);
+    }
+
+    private long getFirstOffset() {
+        return (long) firstSegment * segmentCapacity;
+    }
+
+    private int getPosition(final long offset) {
+        return (int) (offset % segmentCapacity) * RECORD_SIZE;
+    }
+
+    private long getEpochSecond(final long offset) {
+        return segments[(int) (offset / segmentCapacity)].getInt(getPosition(offset) + RECORD_EPOCH_SECOND) & MAX_EPOCH_SECOND;
+    }
+
+    private int getSegmentEntry(final int segment) {
+        return segmentTable + (segment & (MAX_LIVE_SEGMENTS - 1)) * SEGMENT_ENTRY_SIZE;
+    }
+
+    private long getSegmentEpochSecond(final int segment) {
+        return index.getInt(getSegmentEntry(segment)) & MAX_EPOCH_SECOND;
+    }
+
+    private MappedByteBuffer getSegmentForAppend(final long offset) {
+        int segment = (int) (offset / segmentCapacity);
+        if (segment < segments.length) return segments[segment];
+
+        try {
+            segments = Arrays.copyOf(segments, segment + 1);
+            segments[segment] = mapSegment(segment);
+            return segments[segment];
+        } catch (IOException e) {
+            throw new PreEqException("Metric history segment could not be created: " + e.getMessage());
+        }
+    }
+
+    private Path getSegmentPath(final int segment) {
+        return directory.resolve(String.format(SEGMENT_FILE, segment));
+    }
+
+    private MappedByteBuffer mapSegment(final int segment) throws IOException {
+        return map(getSegmentPath(segment), (long) segmentCapacity * RECORD_SIZE);
+    }
+
+    private static MappedByteBuffer map(
+            final Path path,
+            final long length) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(
+                path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package hr.avrbanac.docsis.lib.history;
+
+/**
+ * Visitor of the stored metric records, called by {@link MetricHistoryStore#scan(long, long, long, MetricHistoryVisitor)} for every record
+ * in the requested time window, newest record first. Values that were not available when appended are {@link Float#NaN}.
+ */
+@FunctionalInterface
+public interface MetricHistoryVisitor {
+
+    /**
+     * Visits single metric record.
+     * @param epochSecond long record timestamp (seconds since epoch)
+     * @param mtr float main tap ratio (dB)
+     * @param nmter float non-main tap to total energy ratio (dB)
+     * @param mtc float main tap compression (dB)
+     * @param microReflection float signature micro-reflection (dBc)
+     * @param tdr float time domain reflectometry distance
+     */
+    void visit(
+            long epochSecond,
+            float mtr,
+            float nmter,
+            float mtc,
+            float microReflection,
+            float tdr);
+}
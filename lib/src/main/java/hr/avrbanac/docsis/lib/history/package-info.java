@@ -0,0 +1,5 @@
+/**
+ * Contains memory-mapped, append-only per-device history of the key metrics with {@link hr.avrbanac.docsis.lib.history.MetricHistoryStore}
+ * as an entry class, and compressed raw coefficient history with {@link hr.avrbanac.docsis.lib.history.CoefficientHistoryStore}.
+ */
+package hr.avrbanac.docsis.lib.history;
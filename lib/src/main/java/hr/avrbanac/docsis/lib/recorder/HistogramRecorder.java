@@ -0,0 +1,65 @@
+package hr.avrbanac.docsis.lib.recorder;
+
+/**
+ * Built-in {@link PreEqRecorder} implementation which keeps one lock-free {@link LatencyHistogram} per {@link PreEqStage}, so latency
+ * percentiles (e.g. p50 / p99 / p999) of every stage can be collected over a production run.
+ */
+public final class HistogramRecorder implements PreEqRecorder {
+    private static final PreEqStage[] STAGES = PreEqStage.values();
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+
+    /**
+     * CTOR with empty histograms for all stages.
+     */
+    public HistogramRecorder() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void record(
+            final PreEqStage stage,
+            final long nanos) {
+
+        histograms[stage.ordinal()].record(nanos);
+    }
+
+    /**
+     * Returns the latency histogram of the stage.
+     * @param stage {@link PreEqStage} pipeline stage
+     * @return {@link LatencyHistogram} stage histogram (in nanoseconds)
+     */
+    public LatencyHistogram getHistogram(final PreEqStage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    /**
+     * Resets histograms of all stages.
+     */
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Returns multi-line report with one line (count, mean, p50, p99, p999 and max in nanoseconds) per stage with recorded values.
+     * @return {@link String} report
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("HistogramRecorder (ns):");
+        for (PreEqStage stage : STAGES) {
+            LatencyHistogram histogram = histograms[stage.ordinal()];
+            if (histogram.getCount() == 0) continue;
+            sb.append(System.lineSeparator()).append(stage).append(": ").append(histogram);
+        }
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,140 @@
+package hr.avrbanac.docsis.lib.recorder;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * Lock-free latency histogram with HDR-style (log-linear) buckets. Values below 64 are counted exactly, while every higher power-of-2
+ * range is split into 32 linear sub-buckets, so every recorded value is kept with relative error below 1/32 (~3%) over the whole long
+ * range, in fixed memory and without any allocation while recording.
+ * </p>
+ * <p>
+ * Recording is a single atomic increment of the bucket counter, so histogram can be updated from many threads. Percentiles read while
+ * values are being recorded are consistent enough for monitoring, but not an atomic snapshot.
+ * </p>
+ */
+public final class LatencyHistogram {
+    static final int SUB_BUCKET_BITS = 6;
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_HALF_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalSum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    /**
+     * Records single value. Negative values (e.g. clock adjustments) are recorded as 0.
+     * @param value long value (e.g. latency in nanoseconds)
+     */
+    public void record(final long value) {
+        long positive = Math.max(value, 0L);
+        counts.incrementAndGet(bucketIndex(positive));
+        totalCount.increment();
+        totalSum.add(positive);
+        max.accumulate(positive);
+    }
+
+    /**
+     * Returns the number of recorded values.
+     * @return long count
+     */
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    /**
+     * Returns the mean of recorded values, or 0 if nothing was recorded.
+     * @return double mean value
+     */
+    public double getMean() {
+        long count = totalCount.sum();
+        return count == 0 ? 0d : 1d * totalSum.sum() / count;
+    }
+
+    /**
+     * Returns exact max recorded value.
+     * @return long max value
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the value at the provided percentile: highest value equivalent (within histogram precision) to the value below which the
+     * provided percentage of recorded values falls. Returns 0 if nothing was recorded.
+     * @param percentile double percentile (0 - 100), e.g. 99.9
+     * @return long value at percentile
+     */
+    public long getValueAtPercentile(final double percentile) {
+        long count = 0L;
+        long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) return 0L;
+
+        long target = Math.max(1L, (long) Math.ceil(Math.min(Math.max(percentile, 0d), 100d) / 100d * count));
+        long cumulative = 0L;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            cumulative += snapshot[i];
+            if (cumulative >= target) {
+                return Math.min(highestEquivalentValue(i), getMax());
+            }
+        }
+
+        return getMax();
+    }
+
+    /**
+     * Resets all counters.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0L);
+        }
+        totalCount.reset();
+        totalSum.reset();
+        max.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram{count=" + getCount()
+                + ", mean=" + Math.round(getMean())
+                + ", p50=" + getValueAtPercentile(50d)
+                + ", p99=" + getValueAtPercentile(99d)
+                + ", p999=" + getValueAtPercentile(99.9d)
+                + ", max=" + getMax() + "}";
+    }
+
+    /**
+     * Returns bucket index of the value: values below {@link #SUB_BUCKET_COUNT} map directly, higher values map to the linear sub-bucket
+     * (top {@link #SUB_BUCKET_BITS} bits) of their power-of-2 range.
+     * @param value long non-negative value
+     * @return int bucket index
+     */
+    static int bucketIndex(final long value) {
+        if (value < SUB_BUCKET_COUNT) return (int) value;
+
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF_COUNT + (int) (value >>> shift) - SUB_BUCKET_HALF_COUNT;
+    }
+
+    /**
+     * Returns the highest value that maps to the provided bucket.
+     * @param index int bucket index
+     * @return long highest equivalent value
+     */
+    static long highestEquivalentValue(final int index) {
+        if (index < SUB_BUCKET_COUNT) return index;
+
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,41 @@
+package hr.avrbanac.docsis.lib.recorder;
+
+/**
+ * Default {@link PreEqRecorder} implementation which records nothing and takes no timestamps.
+ */
+public final class NoOpRecorder implements PreEqRecorder {
+    public static final NoOpRecorder INSTANCE = new NoOpRecorder();
+
+    private NoOpRecorder() { }
+
+    /**
+     * Does nothing.
+     */
+    @Override
+    public void record(
+            final PreEqStage stage,
+            final long nanos) {
+        // nothing to record
+    }
+
+    /**
+     * Returns 0 without taking a timestamp.
+     * @return long always 0
+     */
+    @Override
+    public long start() {
+        return 0L;
+    }
+
+    /**
+     * Returns 0 without taking a timestamp.
+     * @return long always 0
+     */
+    @Override
+    public long split(
+            final PreEqStage stage,
+            final long since) {
+
+        return 0L;
+    }
+}
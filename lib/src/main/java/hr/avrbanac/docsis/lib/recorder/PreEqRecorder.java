@@ -0,0 +1,46 @@
+package hr.avrbanac.docsis.lib.recorder;
+
+/**
+ * <p>
+ * Recorder SPI for per-stage latencies of the pre-eq pipeline. Library calls the current recorder (see {@link PreEqRecorders}) at every
+ * stage boundary, so implementations must be thread-safe and fast: {@link #record(PreEqStage, long)} is called from hot loops.
+ * </p>
+ * <p>
+ * Stage boundaries are taken with {@link #start()} and {@link #split(PreEqStage, long)}, so implementations that do not record anything
+ * (see {@link NoOpRecorder}) can avoid calling {@link System#nanoTime()} at all.
+ * </p>
+ */
+public interface PreEqRecorder {
+
+    /**
+     * Records single latency sample of the stage.
+     * @param stage {@link PreEqStage} pipeline stage
+     * @param nanos long stage latency in nanoseconds
+     */
+    void record(
+            PreEqStage stage,
+            long nanos);
+
+    /**
+     * Returns the timestamp of the first stage boundary.
+     * @return long timestamp in nanoseconds
+     */
+    default long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the stage that started at the provided timestamp and ended now.
+     * @param stage {@link PreEqStage} finished pipeline stage
+     * @param since long timestamp of the stage start (returned by {@link #start()} or previous split)
+     * @return long timestamp of this boundary, i.e. start of the next stage
+     */
+    default long split(
+            final PreEqStage stage,
+            final long since) {
+
+        long now = System.nanoTime();
+        record(stage, now - since);
+        return now;
+    }
+}
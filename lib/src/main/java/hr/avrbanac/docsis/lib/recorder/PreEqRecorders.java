@@ -0,0 +1,39 @@
+package hr.avrbanac.docsis.lib.recorder;
+
+import java.util.Iterator;
+import java.util.ServiceLoader;
+
+/**
+ * Holder of the current {@link PreEqRecorder} used by the library. Initial recorder is the first {@link PreEqRecorder} implementation
+ * registered with {@link ServiceLoader} (META-INF/services), or {@link NoOpRecorder} if there is none. Recorder can be replaced in runtime
+ * (e.g. {@link HistogramRecorder} installed for a production run); new recorder is used for all stages started after the replacement.
+ */
+public class PreEqRecorders {
+    private static volatile PreEqRecorder recorder = load();
+
+    private PreEqRecorders() { }
+
+    /**
+     * Returns current recorder.
+     * @return {@link PreEqRecorder} current recorder
+     */
+    public static PreEqRecorder get() {
+        return recorder;
+    }
+
+    /**
+     * Replaces current recorder.
+     * @param newRecorder {@link PreEqRecorder} new recorder or null for {@link NoOpRecorder}
+     * @return {@link PreEqRecorder} replaced recorder
+     */
+    public static PreEqRecorder set(final PreEqRecorder newRecorder) {
+        PreEqRecorder replaced = recorder;
+        recorder = newRecorder == null ? NoOpRecorder.INSTANCE : newRecorder;
+        return replaced;
+    }
+
+    private static PreEqRecorder load() {
+        Iterator<PreEqRecorder> providers = ServiceLoader.load(PreEqRecorder.class).iterator();
+        return providers.hasNext() ? providers.next() : NoOpRecorder.INSTANCE;
+    }
+}
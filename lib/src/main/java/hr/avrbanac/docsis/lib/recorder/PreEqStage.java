@@ -0,0 +1,47 @@
+package hr.avrbanac.docsis.lib.recorder;
+
+/**
+ * Stages of the pre-eq pipeline reported to the {@link PreEqRecorder}.
+ */
+public enum PreEqStage {
+
+    /**
+     * Decoding of the hex (ASCII) pre-eq string into the raw payload.
+     */
+    HEX_DECODE,
+
+    /**
+     * Header validation and decoding of the raw payload into coefficients (real, imaginary parts and energies) with tap energy sums.
+     */
+    COEFFICIENT_DECODE,
+
+    /**
+     * Calculation of the key metrics (MTNA and dB ratios).
+     */
+    METRICS,
+
+    /**
+     * Preparation of the FFT input (coefficients in the input order).
+     */
+    FFT_INPUT,
+
+    /**
+     * FFT of the prepared input (ICFR complex points).
+     */
+    FFT,
+
+    /**
+     * Conversion of the ICFR complex points into magnitudes.
+     */
+    MAGNITUDE,
+
+    /**
+     * Time domain reflectometry calculation.
+     */
+    TDR,
+
+    /**
+     * Signature calculation (ICFR peaks and valleys, micro-reflection and its severity).
+     */
+    SIGNATURE
+}
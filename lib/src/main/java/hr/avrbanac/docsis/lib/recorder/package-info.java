@@ -0,0 +1,5 @@
+/**
+ * Contains recorder SPI for per-stage latencies of the pre-eq pipeline with {@link hr.avrbanac.docsis.lib.recorder.PreEqRecorders} as an
+ * entry class. By default no-op recorder is used; built-in lock-free histogram recorder can be installed to collect latency percentiles.
+ */
+package hr.avrbanac.docsis.lib.recorder;
@@ -0,0 +1,462 @@
+package hr.avrbanac.docsis.lib.struct;
+
+import hr.avrbanac.docsis.lib.PreEqException;
+import hr.avrbanac.docsis.lib.recorder.PreEqRecorder;
+import hr.avrbanac.docsis.lib.recorder.PreEqRecorders;
+import hr.avrbanac.docsis.lib.recorder.PreEqStage;
+import hr.avrbanac.docsis.lib.util.HexDecoder;
+import hr.avrbanac.docsis.lib.util.ParsingUtility;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Common part of the 24 energy tap {@link PreEqData} implementations. Header is validated, coefficients are decoded into primitive arrays
+ * and all tap energy sums (long values: MTE, pre-MTE, post-MTE, TTE) are calculated in CTOR, so any invalid pre-eq data is rejected right
+ * away. Calculation of the remaining key metrics (MTNA and dB ratios) is left to the implementation: eagerly in {@link DefaultPreEqData} or
+ * on demand in {@link LazyPreEqData}. {@link Coefficient} objects are created only if required, as {@link CoefficientView} flyweights over
+ * the primitive arrays.
+ */
+public abstract class AbstractPreEqData implements PreEqData {
+    public static final int INPUT_STRING_LENGTH = 200;
+    public static final int INPUT_BYTE_LENGTH = INPUT_STRING_LENGTH / 2;
+    private static final int NIBBLE_CHECK_MASK = 0b1111_0000_0000_0000;
+    static final int TAP_COUNT = 24;
+    static final int COEFFICIENT_PER_SYMBOL = 1;
+    private static final double BORDER_DIFF_PERC = 0.0005d;
+
+    /**
+     * Normalized pre-eq input string, created from raw payload bytes only once it is first required.
+     */
+    private volatile String preEqString;
+
+    /**
+     * Raw pre-eq payload bytes (header followed by coefficients).
+     */
+    private final byte[] bytes;
+
+    /**
+     * Main tap index fetched from pre-eq header data. THIS IS AN ACTUAL INDEX, NOT AN ARRAY INDEX (use 1 less for array).
+     */
+    private final int mainTapIndex;
+
+    /**
+     * Real parts of the 24 energy tap coefficients.
+     */
+    private final int[] real = new int[TAP_COUNT];
+
+    /**
+     * Imaginary parts of the 24 energy tap coefficients.
+     */
+    private final int[] imag = new int[TAP_COUNT];
+
+    /**
+     * Energies of the 24 energy tap coefficients.
+     */
+    private final long[] energy = new long[TAP_COUNT];
+
+    /**
+     * Coefficient views over primitive arrays, created only once, first time required.
+     */
+    private volatile List<Coefficient> coefficients;
+
+    // The following are the tap energy sums:
+    private final long lMTE;
+    private final long lPreMTE;
+    private final long lPostMTE;
+    private final long lTTE;
+    private final double tapEnergyRatioBoundary;
+
+    /**
+     * Common CTOR. Either raw pre-eq string or raw payload bytes are provided. If raw payload bytes are missing, they will be decoded from
+     * the pre-eq string in a single scan (see {@link #decode(String)}).
+     * @param rawInputPreEqString {@link String} raw pre-eq string or null
+     * @param rawBytes byte array containing raw pre-eq payload or null
+     * @param offset int array position of the first payload byte
+     * @param length int payload length
+     */
+    AbstractPreEqData(
+            final String rawInputPreEqString,
+            final byte[] rawBytes,
+            final int offset,
+            final int length) {
+
+        PreEqRecorder recorder = PreEqRecorders.get();
+        long split = recorder.start();
+        if (rawBytes == null) {
+            this.bytes = decode(rawInputPreEqString);
+            split = recorder.split(PreEqStage.HEX_DECODE, split);
+        } else {
+            if (length != (TAP_COUNT + 1) * 4 || offset < 0 || offset + length > rawBytes.length) {
+                throw PreEqException.STRING_MISMATCH_BYTE_SIZE;
+            }
+            this.bytes = Arrays.copyOfRange(rawBytes, offset, offset + length);
+        }
+
+        PreEqException.ErrorClass headerError = checkHeader(bytes, 0, bytes.length);
+        if (headerError != null) {
+            throw PreEqException.of(headerError);
+        }
+
+        this.mainTapIndex = bytes[0];
+        boolean use3NibbleEncoding = is3NibbleEncoding(bytes, 0, bytes.length);
+
+        for (int i = 0, ptr = 4; i < TAP_COUNT; i++, ptr += 4) {
+            real[i] = DefaultCoefficient.decodeValue(bytes[ptr], bytes[ptr + 1], use3NibbleEncoding);
+            imag[i] = DefaultCoefficient.decodeValue(bytes[ptr + 2], bytes[ptr + 3], use3NibbleEncoding);
+            energy[i] = (long) real[i] * real[i] + (long) imag[i] * imag[i];
+        }
+
+        tapEnergyRatioBoundary = DefaultCoefficient.TAP_ENERGY_RATIO_BOUNDARY;
+        lMTE = energy[mainTapIndex - 1];
+        lPreMTE = calculateEnergyForTaps(1, mainTapIndex - 1);
+        lPostMTE = calculateEnergyForTaps(mainTapIndex + 1, TAP_COUNT);
+        if (lPreMTE + lPostMTE == 0L || lPostMTE == 0L) {
+            throw PreEqException.ZERO_NON_MAIN_TAP_ENERGY;
+        }
+
+        lTTE = lPreMTE + lMTE + lPostMTE;
+        recorder.split(PreEqStage.COEFFICIENT_DECODE, split);
+    }
+
+    /**
+     * Checks raw pre-eq payload size and header (coefficients per symbol, tap count and main tap index). Both taps adjacent to the main tap
+     * are required (for PPTSR).
+     * @param bytes byte array containing raw pre-eq payload
+     * @param offset int array position of the first payload byte
+     * @param length int payload length
+     * @return {@link PreEqException.ErrorClass} of the first failed check or null if payload header is valid
+     */
+    static PreEqException.ErrorClass checkHeader(
+            final byte[] bytes,
+            final int offset,
+            final int length) {
+
+        if (length != INPUT_BYTE_LENGTH || offset < 0 || offset + length > bytes.length) {
+            return PreEqException.ErrorClass.STRING_MISMATCH_BYTE_SIZE;
+        }
+        if (bytes[offset + 1] != COEFFICIENT_PER_SYMBOL) {
+            return PreEqException.ErrorClass.COEFFICIENT_PER_SYMBOL_MISMATCH;
+        }
+        if (bytes[offset + 2] != TAP_COUNT) {
+            return PreEqException.ErrorClass.WRONG_TAP_COUNT;
+        }
+        if (bytes[offset] < 2 || bytes[offset] >= TAP_COUNT) {
+            return PreEqException.ErrorClass.MAIN_TAP_OUT_OF_BOUNDS;
+        }
+
+        return null;
+    }
+
+    /**
+     * Checks raw pre-eq payload without decoding it into pre-eq data: header (see {@link #checkHeader(byte[], int, int)}) and post-main
+     * tap energy. Pre-eq data created from the payload which passed this check will not throw any {@link PreEqException}.
+     * @param bytes byte array containing raw pre-eq payload
+     * @param offset int array position of the first payload byte
+     * @param length int payload length
+     * @return {@link PreEqException.ErrorClass} of the first failed check or null if payload is valid
+     */
+    static PreEqException.ErrorClass check(
+            final byte[] bytes,
+            final int offset,
+            final int length) {
+
+        PreEqException.ErrorClass headerError = checkHeader(bytes, offset, length);
+        if (headerError != null) return headerError;
+
+        boolean use3NibbleEncoding = is3NibbleEncoding(bytes, offset, length);
+        for (int ptr = offset + 4 + bytes[offset] * 4; ptr < offset + length; ptr += 4) {
+            if (DefaultCoefficient.decodeValue(bytes[ptr], bytes[ptr + 1], use3NibbleEncoding) != 0
+                    || DefaultCoefficient.decodeValue(bytes[ptr + 2], bytes[ptr + 3], use3NibbleEncoding) != 0) {
+                return null;
+            }
+        }
+
+        return PreEqException.ErrorClass.ZERO_NON_MAIN_TAP_ENERGY;
+    }
+
+    /**
+     * Helper method validates, normalizes (delimiters and case) and decodes raw pre-eq string in a single scan.
+     * @param rawInputPreEqString {@link String} provided raw pre-eq string
+     * @return byte array with raw pre-eq payload
+     * @see HexDecoder#decode(CharSequence, byte[], int, int)
+     */
+    static byte[] decode(final String rawInputPreEqString) {
+        byte[] payload = new byte[INPUT_BYTE_LENGTH];
+        int result = HexDecoder.decode(rawInputPreEqString, payload, 0, INPUT_BYTE_LENGTH);
+        if (result < 0) throw PreEqException.of(toErrorClass(result));
+
+        return payload;
+    }
+
+    /**
+     * Helper method maps failed {@link HexDecoder} result to the error class.
+     * @param decodeResult int negative decode result
+     * @return {@link PreEqException.ErrorClass} of the decoding failure
+     */
+    static PreEqException.ErrorClass toErrorClass(final int decodeResult) {
+        return HexDecoder.errorCode(decodeResult) == HexDecoder.INVALID_CHARACTER
+                ? PreEqException.ErrorClass.STRING_NOT_BYTE_REPRESENTATION
+                : PreEqException.ErrorClass.STRING_MISMATCH_BYTE_SIZE;
+    }
+
+    /**
+     * Helper method returns byte array containing remaining bytes of the provided buffer without changing its position. Backing array is
+     * returned as is (no copy) if available; copying of the payload is left to the common CTOR.
+     * @param buffer {@link ByteBuffer} provided buffer
+     * @return byte array containing remaining buffer bytes
+     * @see #toArrayOffset(ByteBuffer)
+     */
+    static byte[] toByteArray(final ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            return buffer.array();
+        }
+
+        byte[] result = new byte[buffer.remaining()];
+        buffer.duplicate().get(result);
+        return result;
+    }
+
+    /**
+     * Helper method returns array position of the first remaining byte in the array returned by {@link #toByteArray(ByteBuffer)}.
+     * @param buffer {@link ByteBuffer} provided buffer
+     * @return int array offset of the first remaining buffer byte
+     */
+    static int toArrayOffset(final ByteBuffer buffer) {
+        return buffer.hasArray() ? buffer.arrayOffset() + buffer.position() : 0;
+    }
+
+    private long calculateEnergyForTaps(
+            final int startTap,
+            final int endTap) {
+
+        long sum = 0L;
+        for (int i = startTap - 1; i < endTap; i++) {
+            sum += energy[i];
+        }
+
+        return sum;
+    }
+
+    /**
+     * Helper method returns energy ratio in dB.
+     * @param numerator long energy in numerator
+     * @param denominator long energy in denominator
+     * @return double energy ratio in dB
+     */
+    static double calculateRatio(
+            final long numerator,
+            final long denominator) {
+
+        return 10 * Math.log10(1d * numerator / denominator);
+    }
+
+    double calculateMTC() {
+        return calculateRatio(lTTE, lMTE);
+    }
+
+    double calculateMTR() {
+        return calculateRatio(lMTE, lPreMTE + lPostMTE);
+    }
+
+    double calculateNMTER() {
+        return calculateRatio(lPreMTE + lPostMTE, lTTE);
+    }
+
+    double calculatePreMTTER() {
+        return calculateRatio(lPreMTE, lTTE);
+    }
+
+    double calculatePostMTTER() {
+        return calculateRatio(lPostMTE, lTTE);
+    }
+
+    double calculatePPESR() {
+        return calculateRatio(lPreMTE, lPostMTE);
+    }
+
+    double calculatePPTSR() {
+        return calculateRatio(energy[mainTapIndex - 2], energy[mainTapIndex]);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void getBytes(
+            final byte[] dst,
+            final int dstOffset) {
+
+        System.arraycopy(bytes, 0, dst, dstOffset, bytes.length);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getPreEqString() {
+        String result = preEqString;
+        if (result == null) {
+            result = ParsingUtility.byteArrayToHexString(bytes, 0, bytes.length);
+            preEqString = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Coefficient> getCoefficients() {
+        List<Coefficient> result = coefficients;
+        if (result == null) {
+            Coefficient[] views = new Coefficient[TAP_COUNT];
+            for (int i = 0; i < TAP_COUNT; i++) {
+                views[i] = new CoefficientView(bytes, 4 + i * 4, real, imag, energy, i, i + 1);
+            }
+            result = Collections.unmodifiableList(Arrays.asList(views));
+            coefficients = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getReal(final int tap) {
+        return real[tap];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getImag(final int tap) {
+        return imag[tap];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getEnergy(final int tap) {
+        return energy[tap];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getTapCount() {
+        return TAP_COUNT;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getMainTapIndex() {
+        return mainTapIndex;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getCoefficientPerSymbol() {
+        return COEFFICIENT_PER_SYMBOL;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMTE() {
+        return lMTE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getPreMTE() {
+        return lPreMTE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getPostMTE() {
+        return lPostMTE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getTTE() {
+        return lTTE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getTapEnergyRatioBoundary() {
+        return tapEnergyRatioBoundary;
+    }
+
+    /**
+     * Checks whole provided byte array for leading (fourth) nibble of each real / imaginary part of the complex coefficient. Only if all
+     * checked nibbles are zero can 3-nibble decoding be used.
+     * @param bytes provided array
+     * @param offset int array position of the first payload (header) byte
+     * @param length int payload length
+     * @return true if all leading nibbles are zero for all coefficients and their real / imaginary parts
+     * @see DefaultCoefficient
+     */
+    static boolean is3NibbleEncoding(
+            final byte[] bytes,
+            final int offset,
+            final int length) {
+
+        for (int i = offset + 4; i < offset + length; i += 2) {
+            if ((bytes[i] & NIBBLE_CHECK_MASK) != 0) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * This empiric helper method returns calculated main tap nominal energy value. It should be a value that is <strong>2^n - 1</strong>.
+     * From available documentation, usual values are 511, 1023, 2047; but in practice we see values like 32767 often. Keeping this
+     * calculation in a separate method is intentional, since the math behind it is not clear. Approximate value could be calculated as a
+     * sqrt of TTE. Formula found online is more precise but not 100% correct (there are some pre-eq strings that gave wrong MTNA value).
+     * This happens, as it seems, when quotient of ln(sqrt(tte))/ln(2) is just a little above the integer value. Using Math.ceil gives next
+     * integer, and taking 2 to the power of that increased number is landing whole scale above the correct value for MTNA.
+     *
+     * <p>
+     * New calculation (algorithm) will use old calculation only as a top boundary for iteration process of finding the correct value. In
+     * other words, if new calculation fails, old one will kick in. Finding the correct MTNA value will start with
+     * <strong>2^8 - 1 = 511</strong>.
+     * </p>
+     * @param lTTE long total tap energy
+     * @return long calculated MTNA (main tap nominal energy)
+     */
+    static long calculateMTNA(final long lTTE) {
+        double nearValue = Math.sqrt(lTTE);
+        long oldCalculation = Math.round(Math.pow(2, Math.ceil(Math.log(nearValue) / Math.log(2))) - 1);
+
+        for (long i = (2L << 8) - 1; i < oldCalculation; i = ((i + 1) << 1) - 1) {
+            if (Math.abs(1d * i - nearValue ) / nearValue < BORDER_DIFF_PERC) return i;
+        }
+
+        return oldCalculation;
+    }
+}
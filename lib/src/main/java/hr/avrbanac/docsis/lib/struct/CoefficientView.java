@@ -0,0 +1,156 @@
+package hr.avrbanac.docsis.lib.struct;
+
+import java.util.Arrays;
+
+/**
+ * Lightweight (flyweight) implementation of the {@link Coefficient} interface. View holds no decoded values of its own, it only points to a
+ * single position in the primitive arrays (real, imaginary, energy and raw payload) owned by the parent {@link AbstractPreEqData} or
+ * {@link PreEqBatch}. Views are meant for API compatibility only; hot loops should use indexed accessors (e.g.
+ * {@link PreEqData#getEnergy(int)}) instead.
+ */
+public final class CoefficientView implements Coefficient {
+    private static final int REAL_SIZE = 2;
+    private static final int IMAG_SIZE = 2;
+    private static final int COMPLEX_SIZE = REAL_SIZE + IMAG_SIZE;
+
+    private final byte[] payload;
+    private final int payloadOffset;
+    private final int[] real;
+    private final int[] imag;
+    private final long[] energy;
+    private final int position;
+    private final int index;
+
+    /**
+     * CTOR for the view of a single coefficient.
+     * @param payload byte array with raw pre-eq payload
+     * @param payloadOffset int array position of the first coefficient byte in payload
+     * @param real int array with real parts
+     * @param imag int array with imaginary parts
+     * @param energy long array with tap energies
+     * @param position int array position of the coefficient in real, imaginary and energy arrays
+     * @param index int coefficient index (not an array index)
+     */
+    CoefficientView(
+            final byte[] payload,
+            final int payloadOffset,
+            final int[] real,
+            final int[] imag,
+            final long[] energy,
+            final int position,
+            final int index) {
+
+        this.payload = payload;
+        this.payloadOffset = payloadOffset;
+        this.real = real;
+        this.imag = imag;
+        this.energy = energy;
+        this.position = position;
+        this.index = index;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public int getRealSize() {
+        return REAL_SIZE;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public int getImagSize() {
+        return IMAG_SIZE;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public int getCoefficientSize() {
+        return COMPLEX_SIZE;
+    }
+
+    /**
+     * Returns copy of the original coefficient bytes (backing payload is never exposed).
+     * @return coefficient byte array
+     */
+    @Override
+    public byte[] getBytes() {
+        return Arrays.copyOfRange(payload, payloadOffset, payloadOffset + COMPLEX_SIZE);
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public int getReal() {
+        return real[position];
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public int getImag() {
+        return imag[position];
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public long getEnergy() {
+        return energy[position];
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getEnergyRatio(final long lTTE) {
+        return Math.sqrt(1d * energy[position] / lTTE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getNominalEnergyRatio(final long lMTNE) {
+        return Math.max(10 * Math.log10(1d * energy[position] / lMTNE), DefaultCoefficient.TAP_ENERGY_RATIO_BOUNDARY);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getRelativePowerReal(final long lMTNA) {
+        return 1.0d * real[position] / lMTNA;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getRelativePowerImag(final long lMTNA) {
+        return 1.0d * imag[position] / lMTNA;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getTapEnergyRatioBoundary() {
+        return DefaultCoefficient.TAP_ENERGY_RATIO_BOUNDARY;
+    }
+}
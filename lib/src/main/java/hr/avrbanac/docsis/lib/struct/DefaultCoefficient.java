@@ -40,7 +40,7 @@ public class DefaultCoefficient implements Coefficient {
     private static final int NIBBLE_MASK    = 0b0000_1111_1111_1111;
     private static final int LOWER_INT_MASK = 0x00_00_ff_ff;
     private static final int BYTE_MASK      = 0x00_00_00_ff;
-    private static final double TAP_ENERGY_RATIO_BOUNDARY = -100d;
+    static final double TAP_ENERGY_RATIO_BOUNDARY = -100d;
 
     /**
      * Size in bytes for the real portion of the complex coefficient.
@@ -86,8 +86,8 @@ public class DefaultCoefficient implements Coefficient {
 
         this.bytes = bytes;
         this.index = index;
-        this.real = calculateValue(bytes[0], bytes[1], use3NibbleEncoding);
-        this.imag = calculateValue(bytes[2], bytes[3], use3NibbleEncoding);
+        this.real = decodeValue(bytes[0], bytes[1], use3NibbleEncoding);
+        this.imag = decodeValue(bytes[2], bytes[3], use3NibbleEncoding);
         this.energy = (long) this.real * this.real + (long) this.imag * this.imag;
     }
 
@@ -200,9 +200,10 @@ public class DefaultCoefficient implements Coefficient {
      * int promotion needs to be accounted for.
      * @param left first input byte
      * @param right second input byte
+     * @param is3NibbleEncoding boolean true if 3 nibble decoding should be used
      * @return decoded value using either 3 or 4 nibble decoding
      */
-    private int calculateValue(
+    static int decodeValue(
             final byte left,
             final byte right,
             final boolean is3NibbleEncoding) {
@@ -1,11 +1,10 @@
 package hr.avrbanac.docsis.lib.struct;
 
-import hr.avrbanac.docsis.lib.util.ParsingUtility;
-import hr.avrbanac.docsis.lib.PreEqException;
+import hr.avrbanac.docsis.lib.recorder.PreEqRecorder;
+import hr.avrbanac.docsis.lib.recorder.PreEqRecorders;
+import hr.avrbanac.docsis.lib.recorder.PreEqStage;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.nio.ByteBuffer;
 
 /**
  * <p>
@@ -130,40 +129,16 @@ import java.util.List;
  *     </tr>
  * </table>
  */
-public class DefaultPreEqData implements PreEqData {
-    public static final int INPUT_STRING_LENGTH = 200;
-    private static final int NIBBLE_CHECK_MASK = 0b1111_0000_0000_0000;
-    private static final int TAP_COUNT = 24;
-    private static final int COEFFICIENT_PER_SYMBOL = 1;
-    private static final double BORDER_DIFF_PERC = 0.0005d;
-
-    /**
-     * Normalized pre-eq input string.
-     */
-    private final String preEqString;
-
-    /**
-     * Main tap index fetched from pre-eq header data. THIS IS AN ACTUAL INDEX, NOT AN ARRAY INDEX (use 1 less for array).
-     */
-    private final int mainTapIndex;
-
-    /**
-     * Parsed complex coefficients corresponding to 24 energy taps.
-     */
-    private final List<Coefficient> coefficients = new ArrayList<>();
+public class DefaultPreEqData extends AbstractPreEqData {
 
     /**
      * Time in milliseconds it took for data to be parsed and calculated.
      */
     private final long elapsedTime;
 
-    // The following are the key metrics:
-    private final long lMTE;
+    // The following are the key metrics (tap energy sums are kept in AbstractPreEqData):
     private final long lMTNA;
     private final long lMTNE;
-    private final long lPreMTE;
-    private final long lPostMTE;
-    private final long lTTE;
     private final double dMTC;
     private final double dMTR;
     private final double dNMTER;
@@ -171,129 +146,81 @@ public class DefaultPreEqData implements PreEqData {
     private final double dPostMTTER;
     private final double dPPESR;
     private final double dPPTSR;
-    private final double tapEnergyRatioBoundary;
 
     /**
-     * The only CTOR available. All key metrics will be calculated in CTOR.
+     * CTOR for the pre-eq string (hex representation). All key metrics will be calculated in CTOR.
      * @param rawInputPreEqString {@link String} provided raw pre-eq string
      */
     public DefaultPreEqData(final String rawInputPreEqString) {
-        long start = System.nanoTime();
-        this.preEqString = rawInputPreEqString
-                .toLowerCase()
-                .replace(":","")
-                .replace(" ","");
-
-        if (this.preEqString.length() != (TAP_COUNT + 1) * 8) {
-            throw PreEqException.STRING_MISMATCH_BYTE_SIZE;
-        }
-
-        byte[] bytes = ParsingUtility.hexStringToByteArray(this.preEqString);
-        this.mainTapIndex = bytes[0];
-
-        if (bytes[1] != COEFFICIENT_PER_SYMBOL) {
-            throw PreEqException.COEFFICIENT_PER_SYMBOL_MISMATCH;
-        }
-
-        if (bytes[2] != TAP_COUNT) {
-            throw PreEqException.WRONG_TAP_COUNT;
-        }
-
-        boolean use3NibbleEncoding = is3NibbleEncoding(bytes);
-
-        for (int i = 4; i < bytes.length; i += 4) {
-            coefficients.add(new DefaultCoefficient(Arrays.copyOfRange(bytes, i, i + 4), i / 4, use3NibbleEncoding));
-        }
-
-        try {
-            Coefficient mainTap = coefficients.get(mainTapIndex - 1);
-            tapEnergyRatioBoundary = mainTap.getTapEnergyRatioBoundary();
-            lMTE = mainTap.getEnergy();
-            lPreMTE = calculateEnergyForTaps(1, mainTapIndex - 1);
-            lPostMTE = calculateEnergyForTaps(mainTapIndex + 1, TAP_COUNT);
-            if (lPreMTE + lPostMTE == 0L || lPostMTE == 0L) {
-                throw new PreEqException("Error in decoding, this would produce division by zero");
-            }
-
-            lTTE = lPreMTE + lMTE + lPostMTE;
-            dMTC = 10 * Math.log10(1d * lTTE / lMTE);
-            dMTR = 10 * Math.log10(1d * lMTE / (lPreMTE + lPostMTE));
-            dNMTER = 10 * Math.log10(1d * (lPreMTE + lPostMTE) / lTTE);
-            dPreMTTER = 10 * Math.log10(1d * lPreMTE / lTTE);
-            dPostMTTER = 10 * Math.log10(1d * lPostMTE / lTTE);
-            dPPESR = 10 * Math.log10(1d * lPreMTE / lPostMTE);
-            dPPTSR = 10 * Math.log10(1d * coefficients.get(mainTapIndex - 2).getEnergy() / coefficients.get(mainTapIndex).getEnergy());
-
-            lMTNA = calculateMTNA(lTTE);
-            lMTNE = lMTNA * lMTNA;
-        } catch (PreEqException e) {
-            // just rethrow already defined error
-            throw e;
-        } catch (Exception e) {
-            throw new PreEqException(e.getMessage());
-        }
-
-        this.elapsedTime = System.nanoTime() - start;
-    }
-
-    private long calculateEnergyForTaps(
-            final int startTap,
-            final int endTap) {
-
-        long energy = 0L;
-        for (int i = startTap - 1; i < endTap; i++) {
-            energy += coefficients.get(i).getEnergy();
-        }
-
-        return energy;
+        this(System.nanoTime(), rawInputPreEqString, null, 0, 0);
     }
 
     /**
-     * {@inheritDoc}
+     * CTOR for the raw pre-eq payload (e.g. SNMP OctetString value of the docsIf3CmtsCmUsStatusEqData). Whole array is used as payload,
+     * so it must contain exactly {@link #INPUT_BYTE_LENGTH} bytes. All key metrics will be calculated in CTOR.
+     * @param rawInputPreEqBytes byte array with raw pre-eq payload
      */
-    @Override
-    public String getPreEqString() {
-        return preEqString;
+    public DefaultPreEqData(final byte[] rawInputPreEqBytes) {
+        this(rawInputPreEqBytes, 0, rawInputPreEqBytes.length);
     }
 
     /**
-     * {@inheritDoc}
+     * CTOR for the raw pre-eq payload contained in a portion of the provided byte array. Provided array is not retained, payload is
+     * copied. All key metrics will be calculated in CTOR.
+     * @param rawInputPreEqBytes byte array containing raw pre-eq payload
+     * @param offset int array position of the first payload byte
+     * @param length int payload length (must be {@link #INPUT_BYTE_LENGTH})
      */
-    @Override
-    public List<Coefficient> getCoefficients() {
-        return coefficients;
-    }
+    public DefaultPreEqData(
+            final byte[] rawInputPreEqBytes,
+            final int offset,
+            final int length) {
 
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public int getTapCount() {
-        return TAP_COUNT;
+        this(System.nanoTime(), null, rawInputPreEqBytes, offset, length);
     }
 
     /**
-     * {@inheritDoc}
+     * CTOR for the raw pre-eq payload contained in the remaining bytes of the provided {@link ByteBuffer}. Buffer position is not changed.
+     * All key metrics will be calculated in CTOR.
+     * @param rawInputPreEqBuffer {@link ByteBuffer} with raw pre-eq payload between its position and limit
      */
-    @Override
-    public int getMainTapIndex() {
-        return mainTapIndex;
+    public DefaultPreEqData(final ByteBuffer rawInputPreEqBuffer) {
+        this(System.nanoTime(), null, toByteArray(rawInputPreEqBuffer), toArrayOffset(rawInputPreEqBuffer), rawInputPreEqBuffer.remaining());
     }
 
     /**
-     * {@inheritDoc}
+     * Common CTOR. Either raw pre-eq string or raw payload bytes are provided. Decoding is done in {@link AbstractPreEqData}, while
+     * all remaining key metrics are calculated here.
+     * @param start long nanoTime value when parsing started
+     * @param rawInputPreEqString {@link String} raw pre-eq string or null
+     * @param rawBytes byte array containing raw pre-eq payload or null
+     * @param offset int array position of the first payload byte
+     * @param length int payload length
      */
-    @Override
-    public int getCoefficientPerSymbol() {
-        return COEFFICIENT_PER_SYMBOL;
-    }
+    private DefaultPreEqData(
+            final long start,
+            final String rawInputPreEqString,
+            final byte[] rawBytes,
+            final int offset,
+            final int length) {
+
+        super(rawInputPreEqString, rawBytes, offset, length);
+
+        PreEqRecorder recorder = PreEqRecorders.get();
+        long split = recorder.start();
+        dMTC = calculateMTC();
+        dMTR = calculateMTR();
+        dNMTER = calculateNMTER();
+        dPreMTTER = calculatePreMTTER();
+        dPostMTTER = calculatePostMTTER();
+        dPPESR = calculatePPESR();
+        dPPTSR = calculatePPTSR();
+
+        lMTNA = calculateMTNA(getTTE());
+        lMTNE = lMTNA * lMTNA;
+        recorder.split(PreEqStage.METRICS, split);
 
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public long getMTE() {
-        return lMTE;
+        this.elapsedTime = System.nanoTime() - start;
     }
 
     /**
@@ -312,30 +239,6 @@ public class DefaultPreEqData implements PreEqData {
         return lMTNE;
     }
 
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public long getPreMTE() {
-        return lPreMTE;
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public long getPostMTE() {
-        return lPostMTE;
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public long getTTE() {
-        return lTTE;
-    }
-
     /**
      * {@inheritDoc}
      */
@@ -399,54 +302,4 @@ public class DefaultPreEqData implements PreEqData {
     public long getElapsedTime() {
         return elapsedTime;
     }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public double getTapEnergyRatioBoundary() {
-        return tapEnergyRatioBoundary;
-    }
-
-    /**
-     * Checks whole provided byte array for leading (fourth) nibble of each real / imaginary part of the complex coefficient. Only if all
-     * checked nibbles are zero can 3-nibble decoding be used.
-     * @param bytes provided array
-     * @return true if all leading nibbles are zero for all coefficients and their real / imaginary parts
-     * @see DefaultCoefficient
-     */
-    private boolean is3NibbleEncoding(final byte[] bytes) {
-        for (int i = 4; i < bytes.length; i += 2) {
-            if ((bytes[i] & NIBBLE_CHECK_MASK) != 0) return false;
-        }
-
-        return true;
-    }
-
-    /**
-     * This empiric helper method returns calculated main tap nominal energy value. It should be a value that is <strong>2^n - 1</strong>.
-     * From available documentation, usual values are 511, 1023, 2047; but in practice we see values like 32767 often. Keeping this
-     * calculation in a separate method is intentional, since the math behind it is not clear. Approximate value could be calculated as a
-     * sqrt of TTE. Formula found online is more precise but not 100% correct (there are some pre-eq strings that gave wrong MTNA value).
-     * This happens, as it seems, when quotient of ln(sqrt(tte))/ln(2) is just a little above the integer value. Using Math.ceil gives next
-     * integer, and taking 2 to the power of that increased number is landing whole scale above the correct value for MTNA.
-     *
-     * <p>
-     * New calculation (algorithm) will use old calculation only as a top boundary for iteration process of finding the correct value. In
-     * other words, if new calculation fails, old one will kick in. Finding the correct MTNA value will start with
-     * <strong>2^8 - 1 = 511</strong>.
-     * </p>
-     * @param lTTE long total tap energy
-     * @return long calculated MTNA (main tap nominal energy)
-     */
-    private long calculateMTNA(final long lTTE) {
-        double nearValue = Math.sqrt(lTTE);
-        long oldCalculation = Math.round(Math.pow(2, Math.ceil(Math.log(nearValue) / Math.log(2))) - 1);
-
-        for (long i = (2L << 8) - 1; i < oldCalculation; i = ((i + 1) << 1) - 1) {
-            if (Math.abs(1d * i - nearValue ) / nearValue < BORDER_DIFF_PERC) return i;
-        }
-
-        return oldCalculation;
-    }
 }
@@ -0,0 +1,216 @@
+package hr.avrbanac.docsis.lib.struct;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>
+ * Lazy 24 energy tap implementation of the {@link PreEqData}. Same as {@link DefaultPreEqData}, pre-eq data is validated, coefficients are
+ * decoded and tap energy sums (MTE, pre-MTE, post-MTE, TTE) are calculated in CTOR. All the other key metrics (MTNA, MTNE and dB ratios)
+ * are calculated only once each of them is first required. This is useful for screening passes that read only a few metrics (e.g. MTR and
+ * NMTER), since they do not pay for calculation of all the others.
+ * </p>
+ * <p>
+ * Instances are safe to publish across threads. Lazy metrics are kept in volatile fields and each calculation is idempotent, so concurrent
+ * first access can at worst calculate the same value more than once.
+ * </p>
+ */
+public class LazyPreEqData extends AbstractPreEqData {
+    private static final long UNDEFINED = -1L;
+
+    /**
+     * Time in nanoseconds it took for data to be parsed (without lazy key metrics).
+     */
+    private final long elapsedTime;
+
+    // The following are the lazy key metrics (NaN or UNDEFINED until first required):
+    private volatile long lMTNA = UNDEFINED;
+    private volatile double dMTC = Double.NaN;
+    private volatile double dMTR = Double.NaN;
+    private volatile double dNMTER = Double.NaN;
+    private volatile double dPreMTTER = Double.NaN;
+    private volatile double dPostMTTER = Double.NaN;
+    private volatile double dPPESR = Double.NaN;
+    private volatile double dPPTSR = Double.NaN;
+
+    /**
+     * CTOR for the pre-eq string (hex representation). Key metrics will be calculated on demand.
+     * @param rawInputPreEqString {@link String} provided raw pre-eq string
+     */
+    public LazyPreEqData(final String rawInputPreEqString) {
+        this(System.nanoTime(), rawInputPreEqString, null, 0, 0);
+    }
+
+    /**
+     * CTOR for the raw pre-eq payload. Whole array is used as payload, so it must contain exactly {@link #INPUT_BYTE_LENGTH} bytes. Key
+     * metrics will be calculated on demand.
+     * @param rawInputPreEqBytes byte array with raw pre-eq payload
+     */
+    public LazyPreEqData(final byte[] rawInputPreEqBytes) {
+        this(rawInputPreEqBytes, 0, rawInputPreEqBytes.length);
+    }
+
+    /**
+     * CTOR for the raw pre-eq payload contained in a portion of the provided byte array. Provided array is not retained, payload is
+     * copied. Key metrics will be calculated on demand.
+     * @param rawInputPreEqBytes byte array containing raw pre-eq payload
+     * @param offset int array position of the first payload byte
+     * @param length int payload length (must be {@link #INPUT_BYTE_LENGTH})
+     */
+    public LazyPreEqData(
+            final byte[] rawInputPreEqBytes,
+            final int offset,
+            final int length) {
+
+        this(System.nanoTime(), null, rawInputPreEqBytes, offset, length);
+    }
+
+    /**
+     * CTOR for the raw pre-eq payload contained in the remaining bytes of the provided {@link ByteBuffer}. Buffer position is not changed.
+     * Key metrics will be calculated on demand.
+     * @param rawInputPreEqBuffer {@link ByteBuffer} with raw pre-eq payload between its position and limit
+     */
+    public LazyPreEqData(final ByteBuffer rawInputPreEqBuffer) {
+        this(System.nanoTime(), null, toByteArray(rawInputPreEqBuffer), toArrayOffset(rawInputPreEqBuffer), rawInputPreEqBuffer.remaining());
+    }
+
+    private LazyPreEqData(
+            final long start,
+            final String rawInputPreEqString,
+            final byte[] rawBytes,
+            final int offset,
+            final int length) {
+
+        super(rawInputPreEqString, rawBytes, offset, length);
+        this.elapsedTime = System.nanoTime() - start;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMTNA() {
+        long result = lMTNA;
+        if (result == UNDEFINED) {
+            result = calculateMTNA(getTTE());
+            lMTNA = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMTNE() {
+        long mtna = getMTNA();
+        return mtna * mtna;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getMTC() {
+        double result = dMTC;
+        if (Double.isNaN(result)) {
+            result = calculateMTC();
+            dMTC = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getMTR() {
+        double result = dMTR;
+        if (Double.isNaN(result)) {
+            result = calculateMTR();
+            dMTR = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getNMTER() {
+        double result = dNMTER;
+        if (Double.isNaN(result)) {
+            result = calculateNMTER();
+            dNMTER = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getPreMTTER() {
+        double result = dPreMTTER;
+        if (Double.isNaN(result)) {
+            result = calculatePreMTTER();
+            dPreMTTER = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getPostMTTER() {
+        double result = dPostMTTER;
+        if (Double.isNaN(result)) {
+            result = calculatePostMTTER();
+            dPostMTTER = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getPPESR() {
+        double result = dPPESR;
+        if (Double.isNaN(result)) {
+            result = calculatePPESR();
+            dPPESR = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getPPTSR() {
+        double result = dPPTSR;
+        if (Double.isNaN(result)) {
+            result = calculatePPTSR();
+            dPPTSR = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of nanoseconds it took for pre-eq data to be parsed. Lazy key metrics are not included.
+     * @return long number of nanoseconds
+     */
+    @Override
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+}
@@ -0,0 +1,615 @@
+package hr.avrbanac.docsis.lib.struct;
+
+import hr.avrbanac.docsis.lib.PreEqException;
+import hr.avrbanac.docsis.lib.recorder.PreEqRecorder;
+import hr.avrbanac.docsis.lib.recorder.PreEqRecorders;
+import hr.avrbanac.docsis.lib.recorder.PreEqStage;
+import hr.avrbanac.docsis.lib.util.HexDecoder;
+import hr.avrbanac.docsis.lib.util.MathUtility;
+import hr.avrbanac.docsis.lib.util.ParsingUtility;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>
+ * Columnar (struct-of-arrays) container for pre-eq data of many devices (e.g. whole node or whole CMTS). Instead of creating one
+ * {@link DefaultPreEqData} object for each device, every device is stored as a row spread over flat primitive columns. Tap columns
+ * ({@link #getReal()}, {@link #getImag()}, {@link #getEnergy()}) hold {@link #TAP_COUNT} values per row, so tap values for the row
+ * <strong>r</strong> start at array position <strong>r * TAP_COUNT</strong>. All other columns hold one value per row.
+ * </p>
+ * <p>
+ * Key metrics are calculated over the columns when row is added, using the same math as the {@link DefaultPreEqData}, so batch rows carry
+ * the same values as the {@link PreEqMetrics} of the corresponding pre-eq data (unless {@link MathUtility.DecibelPrecision#FAST} precision
+ * is selected). Returned column arrays are internal arrays (no copy) and only first {@link #size()} rows contain valid data. This class
+ * is not thread-safe for adding rows.
+ * </p>
+ */
+public class PreEqBatch {
+    public static final int TAP_COUNT = AbstractPreEqData.TAP_COUNT;
+    public static final int PAYLOAD_SIZE = AbstractPreEqData.INPUT_BYTE_LENGTH;
+    public static final int REJECTED = -1;
+
+    private static final PreEqException.ErrorClass[] ERROR_CLASSES = PreEqException.ErrorClass.values();
+
+    private final int capacity;
+    private final MathUtility.DecibelPrecision decibelPrecision;
+    private int size = 0;
+
+    // Rejected input counters (since the last clear):
+    private final int[] errorCounts = new int[ERROR_CLASSES.length];
+    private int rejectedCount = 0;
+    private PreEqException.ErrorClass lastError;
+
+    // Raw data and tap columns:
+    private final byte[] payload;
+    private final int[] mainTap;
+    private final int[] real;
+    private final int[] imag;
+    private final long[] energy;
+
+    // Key metrics columns:
+    private final long[] lMTE;
+    private final long[] lMTNA;
+    private final long[] lMTNE;
+    private final long[] lPreMTE;
+    private final long[] lPostMTE;
+    private final long[] lTTE;
+    private final double[] dMTC;
+    private final double[] dMTR;
+    private final double[] dNMTER;
+    private final double[] dPreMTTER;
+    private final double[] dPostMTTER;
+    private final double[] dPPESR;
+    private final double[] dPPTSR;
+
+    /**
+     * Creates empty batch with all columns allocated for the provided number of rows. Key metrics are calculated exactly.
+     * @param capacity int max number of rows (devices) this batch can hold
+     */
+    public PreEqBatch(final int capacity) {
+        this(capacity, MathUtility.DecibelPrecision.EXACT);
+    }
+
+    /**
+     * Creates empty batch with all columns allocated for the provided number of rows and provided precision of the key metrics.
+     * @param capacity int max number of rows (devices) this batch can hold
+     * @param decibelPrecision {@link MathUtility.DecibelPrecision} precision of the dB key metrics (MTC, MTR, NMTER, ...)
+     */
+    public PreEqBatch(
+            final int capacity,
+            final MathUtility.DecibelPrecision decibelPrecision) {
+
+        this.capacity = capacity;
+        this.decibelPrecision = decibelPrecision;
+        this.payload = new byte[capacity * PAYLOAD_SIZE];
+        this.mainTap = new int[capacity];
+        this.real = new int[capacity * TAP_COUNT];
+        this.imag = new int[capacity * TAP_COUNT];
+        this.energy = new long[capacity * TAP_COUNT];
+        this.lMTE = new long[capacity];
+        this.lMTNA = new long[capacity];
+        this.lMTNE = new long[capacity];
+        this.lPreMTE = new long[capacity];
+        this.lPostMTE = new long[capacity];
+        this.lTTE = new long[capacity];
+        this.dMTC = new double[capacity];
+        this.dMTR = new double[capacity];
+        this.dNMTER = new double[capacity];
+        this.dPreMTTER = new double[capacity];
+        this.dPostMTTER = new double[capacity];
+        this.dPPESR = new double[capacity];
+        this.dPPTSR = new double[capacity];
+    }
+
+    /**
+     * Adds pre-eq string (hex representation) as a new row.
+     * @param rawInputPreEqString {@link String} provided raw pre-eq string
+     * @return int row index of the added data
+     * @see DefaultPreEqData#DefaultPreEqData(String)
+     */
+    public int add(final String rawInputPreEqString) {
+        return checkAdded(tryAdd(rawInputPreEqString));
+    }
+
+    /**
+     * Adds pre-eq string (hex representation) as a new row, without throwing {@link PreEqException} for invalid input.
+     * @param rawInputPreEqString {@link String} provided raw pre-eq string
+     * @return int row index of the added data or {@link #REJECTED} (see {@link #getLastError()})
+     * @see #tryAdd(byte[], int, int)
+     */
+    public int tryAdd(final String rawInputPreEqString) {
+        checkCapacity();
+        PreEqRecorder recorder = PreEqRecorders.get();
+        long split = recorder.start();
+        int decodeResult = HexDecoder.decode(rawInputPreEqString, payload, size * PAYLOAD_SIZE, PAYLOAD_SIZE);
+        recorder.split(PreEqStage.HEX_DECODE, split);
+
+        return tryAddDecoded(decodeResult);
+    }
+
+    /**
+     * Adds pre-eq string stored as ASCII bytes (e.g. line of the bulk import file) as a new row. Input is decoded with {@link HexDecoder}
+     * straight into the payload column, so no intermediate {@link String} is created.
+     * @param ascii byte array with ASCII pre-eq string
+     * @param offset int array position of the first char
+     * @param length int number of chars (including delimiters)
+     * @return int row index of the added data
+     */
+    public int addHex(
+            final byte[] ascii,
+            final int offset,
+            final int length) {
+
+        return checkAdded(tryAddHex(ascii, offset, length));
+    }
+
+    /**
+     * Adds pre-eq string stored as ASCII bytes as a new row, without throwing {@link PreEqException} for invalid input.
+     * @param ascii byte array with ASCII pre-eq string
+     * @param offset int array position of the first char
+     * @param length int number of chars (including delimiters)
+     * @return int row index of the added data or {@link #REJECTED} (see {@link #getLastError()})
+     * @see #addHex(byte[], int, int)
+     */
+    public int tryAddHex(
+            final byte[] ascii,
+            final int offset,
+            final int length) {
+
+        checkCapacity();
+        PreEqRecorder recorder = PreEqRecorders.get();
+        long split = recorder.start();
+        int decodeResult = HexDecoder.decode(ascii, offset, length, payload, size * PAYLOAD_SIZE, PAYLOAD_SIZE);
+        recorder.split(PreEqStage.HEX_DECODE, split);
+        return tryAddDecoded(decodeResult);
+    }
+
+    /**
+     * Adds pre-eq string stored as ASCII bytes between position and limit of the provided {@link ByteBuffer} as a new row. Buffer position
+     * is not changed.
+     * @param ascii {@link ByteBuffer} with ASCII pre-eq string
+     * @return int row index of the added data
+     * @see #addHex(byte[], int, int)
+     */
+    public int addHex(final ByteBuffer ascii) {
+        return checkAdded(tryAddHex(ascii));
+    }
+
+    /**
+     * Adds pre-eq string stored as ASCII bytes between position and limit of the provided {@link ByteBuffer} as a new row, without
+     * throwing {@link PreEqException} for invalid input. Buffer position is not changed.
+     * @param ascii {@link ByteBuffer} with ASCII pre-eq string
+     * @return int row index of the added data or {@link #REJECTED} (see {@link #getLastError()})
+     */
+    public int tryAddHex(final ByteBuffer ascii) {
+        checkCapacity();
+        PreEqRecorder recorder = PreEqRecorders.get();
+        long split = recorder.start();
+        int decodeResult = HexDecoder.decode(ascii, payload, size * PAYLOAD_SIZE, PAYLOAD_SIZE);
+        recorder.split(PreEqStage.HEX_DECODE, split);
+        return tryAddDecoded(decodeResult);
+    }
+
+    /**
+     * Adds row already decoded into the payload column.
+     * @param decodeResult int result of the {@link HexDecoder} decoding
+     * @return int row index of the added data or {@link #REJECTED}
+     */
+    private int tryAddDecoded(final int decodeResult) {
+        if (decodeResult < 0) {
+            return reject(AbstractPreEqData.toErrorClass(decodeResult));
+        }
+
+        return tryAdd(payload, size * PAYLOAD_SIZE, PAYLOAD_SIZE);
+    }
+
+    /**
+     * Counts rejected input.
+     * @param errorClass {@link PreEqException.ErrorClass} rejection reason
+     * @return int {@link #REJECTED}
+     */
+    private int reject(final PreEqException.ErrorClass errorClass) {
+        errorCounts[errorClass.ordinal()]++;
+        rejectedCount++;
+        lastError = errorClass;
+        return REJECTED;
+    }
+
+    /**
+     * Converts the result of the non-throwing add into the result of the throwing one.
+     * @param row int row index or {@link #REJECTED}
+     * @return int row index
+     */
+    private int checkAdded(final int row) {
+        if (row == REJECTED) {
+            throw PreEqException.of(lastError);
+        }
+
+        return row;
+    }
+
+    private void checkCapacity() {
+        if (size == capacity) {
+            throw new PreEqException("Pre-eq batch capacity (" + capacity + ") exceeded");
+        }
+    }
+
+    /**
+     * Adds raw pre-eq payload as a new row. Row is decoded directly into the columns and key metrics are calculated. If the provided
+     * payload is not valid, {@link PreEqException} is thrown and the batch is left unchanged.
+     * @param bytes byte array containing raw pre-eq payload
+     * @param offset int array position of the first payload byte
+     * @param length int payload length (must be {@link #PAYLOAD_SIZE})
+     * @return int row index of the added data
+     * @see DefaultPreEqData#DefaultPreEqData(byte[], int, int)
+     */
+    public int add(
+            final byte[] bytes,
+            final int offset,
+            final int length) {
+
+        return checkAdded(tryAdd(bytes, offset, length));
+    }
+
+    /**
+     * Adds raw pre-eq payload as a new row, without throwing {@link PreEqException} for invalid input (e.g. a few percent of garbage in
+     * raw SNMP data): invalid input is only counted per {@link PreEqException.ErrorClass} and the batch is left unchanged, so no exception
+     * is created on the bulk path. Exceeded batch capacity is still reported with {@link PreEqException}.
+     * @param bytes byte array containing raw pre-eq payload
+     * @param offset int array position of the first payload byte
+     * @param length int payload length (must be {@link #PAYLOAD_SIZE})
+     * @return int row index of the added data or {@link #REJECTED} (see {@link #getLastError()})
+     */
+    public int tryAdd(
+            final byte[] bytes,
+            final int offset,
+            final int length) {
+
+        checkCapacity();
+        PreEqRecorder recorder = PreEqRecorders.get();
+        long split = recorder.start();
+
+        PreEqException.ErrorClass headerError = AbstractPreEqData.checkHeader(bytes, offset, length);
+        if (headerError != null) {
+            return reject(headerError);
+        }
+
+        int row = size;
+        int mainTapIndex = bytes[offset];
+        boolean use3NibbleEncoding = AbstractPreEqData.is3NibbleEncoding(bytes, offset, length);
+        int base = row * TAP_COUNT;
+        for (int i = 0, ptr = offset + 4; i < TAP_COUNT; i++, ptr += 4) {
+            int re = DefaultCoefficient.decodeValue(bytes[ptr], bytes[ptr + 1], use3NibbleEncoding);
+            int im = DefaultCoefficient.decodeValue(bytes[ptr + 2], bytes[ptr + 3], use3NibbleEncoding);
+            real[base + i] = re;
+            imag[base + i] = im;
+            energy[base + i] = (long) re * re + (long) im * im;
+        }
+
+        split = recorder.split(PreEqStage.COEFFICIENT_DECODE, split);
+        if (!calculateMetrics(row, mainTapIndex)) {
+            return reject(PreEqException.ErrorClass.ZERO_NON_MAIN_TAP_ENERGY);
+        }
+        recorder.split(PreEqStage.METRICS, split);
+        System.arraycopy(bytes, offset, payload, row * PAYLOAD_SIZE, PAYLOAD_SIZE);
+        mainTap[row] = mainTapIndex;
+        size++;
+
+        return row;
+    }
+
+    /**
+     * Calculates all key metrics for the provided row directly from the tap energy column.
+     * @param row int row index
+     * @param mainTapIndex int main tap index (not an array index)
+     * @return boolean false if there is no post-main tap energy (metrics are not calculated)
+     */
+    private boolean calculateMetrics(
+            final int row,
+            final int mainTapIndex) {
+
+        int base = row * TAP_COUNT;
+        long mte = energy[base + mainTapIndex - 1];
+        long preMte = 0L;
+        long postMte = 0L;
+        for (int i = base; i < base + mainTapIndex - 1; i++) {
+            preMte += energy[i];
+        }
+        for (int i = base + mainTapIndex; i < base + TAP_COUNT; i++) {
+            postMte += energy[i];
+        }
+
+        if (preMte + postMte == 0L || postMte == 0L) {
+            return false;
+        }
+
+        long tte = preMte + mte + postMte;
+        lMTE[row] = mte;
+        lPreMTE[row] = preMte;
+        lPostMTE[row] = postMte;
+        lTTE[row] = tte;
+        dMTC[row] = decibelPrecision.toDecibels(tte, mte);
+        dMTR[row] = decibelPrecision.toDecibels(mte, preMte + postMte);
+        dNMTER[row] = decibelPrecision.toDecibels(preMte + postMte, tte);
+        dPreMTTER[row] = decibelPrecision.toDecibels(preMte, tte);
+        dPostMTTER[row] = decibelPrecision.toDecibels(postMte, tte);
+        dPPESR[row] = decibelPrecision.toDecibels(preMte, postMte);
+        dPPTSR[row] = decibelPrecision.toDecibels(energy[base + mainTapIndex - 2], energy[base + mainTapIndex]);
+        lMTNA[row] = AbstractPreEqData.calculateMTNA(tte);
+        lMTNE[row] = lMTNA[row] * lMTNA[row];
+        return true;
+    }
+
+    /**
+     * Removes all rows and resets rejected input counters. Columns are kept allocated, so the batch can be reused for the next poll cycle.
+     */
+    public void clear() {
+        size = 0;
+        Arrays.fill(errorCounts, 0);
+        rejectedCount = 0;
+        lastError = null;
+    }
+
+    /**
+     * Returns the number of inputs rejected since the last clear.
+     * @return int number of rejected inputs
+     */
+    public int getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * Returns the number of inputs rejected for the provided reason since the last clear.
+     * @param errorClass {@link PreEqException.ErrorClass} rejection reason
+     * @return int number of rejected inputs
+     */
+    public int getErrorCount(final PreEqException.ErrorClass errorClass) {
+        return errorCounts[errorClass.ordinal()];
+    }
+
+    /**
+     * Returns the reason of the last rejected input.
+     * @return {@link PreEqException.ErrorClass} rejection reason or null if no input was rejected since the last clear
+     */
+    public PreEqException.ErrorClass getLastError() {
+        return lastError;
+    }
+
+    /**
+     * Returns the number of rows (devices) currently in batch.
+     * @return int number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns max number of rows this batch can hold.
+     * @return int batch capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the precision of the dB key metrics.
+     * @return {@link MathUtility.DecibelPrecision} key metrics precision
+     */
+    public MathUtility.DecibelPrecision getDecibelPrecision() {
+        return decibelPrecision;
+    }
+
+    /**
+     * Returns the number of taps per row.
+     * @return int number of taps per row
+     */
+    public int getTapCount() {
+        return TAP_COUNT;
+    }
+
+    /**
+     * Returns normalized pre-eq string for the provided row.
+     * @param row int row index
+     * @return {@link String} pre-eq string in lower case without delimiters
+     */
+    public String getPreEqString(final int row) {
+        return ParsingUtility.byteArrayToHexString(payload, row * PAYLOAD_SIZE, (row + 1) * PAYLOAD_SIZE);
+    }
+
+    /**
+     * Returns coefficient of the provided row as a lightweight view over batch columns (no values are copied).
+     * @param row int row index
+     * @param tap int array index of the coefficient (one less than the tap index)
+     * @return {@link Coefficient} view
+     */
+    public Coefficient getCoefficient(
+            final int row,
+            final int tap) {
+
+        return new CoefficientView(
+                payload, row * PAYLOAD_SIZE + 4 + tap * 4, real, imag, energy, row * TAP_COUNT + tap, tap + 1);
+    }
+
+    /**
+     * Returns all coefficients of the provided row as lightweight views over batch columns.
+     * @param row int row index
+     * @return {@link List} of {@link Coefficient} views
+     * @see #getCoefficient(int, int)
+     */
+    public List<Coefficient> getCoefficients(final int row) {
+        Coefficient[] views = new Coefficient[TAP_COUNT];
+        for (int i = 0; i < TAP_COUNT; i++) {
+            views[i] = getCoefficient(row, i);
+        }
+
+        return Collections.unmodifiableList(Arrays.asList(views));
+    }
+
+    /**
+     * Returns raw payload column ({@link #PAYLOAD_SIZE} bytes per row).
+     * @return byte array of raw pre-eq payloads
+     */
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    /**
+     * Returns main tap index column. Values are actual indices, not array indices.
+     * @return int array of main tap indices
+     */
+    public int[] getMainTap() {
+        return mainTap;
+    }
+
+    /**
+     * Returns real part column of all coefficients ({@link #TAP_COUNT} values per row).
+     * @return int array of coefficient real parts
+     */
+    public int[] getReal() {
+        return real;
+    }
+
+    /**
+     * Returns imaginary part column of all coefficients ({@link #TAP_COUNT} values per row).
+     * @return int array of coefficient imaginary parts
+     */
+    public int[] getImag() {
+        return imag;
+    }
+
+    /**
+     * Returns energy column of all coefficients ({@link #TAP_COUNT} values per row).
+     * @return long array of tap energies
+     */
+    public long[] getEnergy() {
+        return energy;
+    }
+
+    /**
+     * Returns main tap energy column.
+     * @return long array of values
+     * @see PreEqMetrics#getMTE()
+     */
+    public long[] getMTE() {
+        return lMTE;
+    }
+
+    /**
+     * Returns main tap nominal amplitude column.
+     * @return long array of values
+     * @see PreEqMetrics#getMTNA()
+     */
+    public long[] getMTNA() {
+        return lMTNA;
+    }
+
+    /**
+     * Returns main tap nominal energy column.
+     * @return long array of values
+     * @see PreEqMetrics#getMTNE()
+     */
+    public long[] getMTNE() {
+        return lMTNE;
+    }
+
+    /**
+     * Returns pre-main tap energy column.
+     * @return long array of values
+     * @see PreEqMetrics#getPreMTE()
+     */
+    public long[] getPreMTE() {
+        return lPreMTE;
+    }
+
+    /**
+     * Returns post-main tap energy column.
+     * @return long array of values
+     * @see PreEqMetrics#getPostMTE()
+     */
+    public long[] getPostMTE() {
+        return lPostMTE;
+    }
+
+    /**
+     * Returns total tap energy column.
+     * @return long array of values
+     * @see PreEqMetrics#getTTE()
+     */
+    public long[] getTTE() {
+        return lTTE;
+    }
+
+    /**
+     * Returns main tap compression column.
+     * @return double array of values in dB
+     * @see PreEqMetrics#getMTC()
+     */
+    public double[] getMTC() {
+        return dMTC;
+    }
+
+    /**
+     * Returns main tap ratio column.
+     * @return double array of values in dB
+     * @see PreEqMetrics#getMTR()
+     */
+    public double[] getMTR() {
+        return dMTR;
+    }
+
+    /**
+     * Returns non-main tap to total energy ratio column.
+     * @return double array of values in dB
+     * @see PreEqMetrics#getNMTER()
+     */
+    public double[] getNMTER() {
+        return dNMTER;
+    }
+
+    /**
+     * Returns pre-main tap to total energy ratio column.
+     * @return double array of values in dB
+     * @see PreEqMetrics#getPreMTTER()
+     */
+    public double[] getPreMTTER() {
+        return dPreMTTER;
+    }
+
+    /**
+     * Returns post-main tap to total energy ratio column.
+     * @return double array of values in dB
+     * @see PreEqMetrics#getPostMTTER()
+     */
+    public double[] getPostMTTER() {
+        return dPostMTTER;
+    }
+
+    /**
+     * Returns pre-post energy symmetry ratio column.
+     * @return double array of values in dB
+     * @see PreEqMetrics#getPPESR()
+     */
+    public double[] getPPESR() {
+        return dPPESR;
+    }
+
+    /**
+     * Returns pre-post tap symmetry ratio column.
+     * @return double array of values in dB
+     * @see PreEqMetrics#getPPTSR()
+     */
+    public double[] getPPTSR() {
+        return dPPTSR;
+    }
+
+    /**
+     * Returns the lowest boundary (minimal possible value) of the tap energy ratio. Same value as for the {@link DefaultCoefficient}.
+     * @return double lowest boundary for energy tap ratio
+     */
+    public double getTapEnergyRatioBoundary() {
+        return DefaultCoefficient.TAP_ENERGY_RATIO_BOUNDARY;
+    }
+}
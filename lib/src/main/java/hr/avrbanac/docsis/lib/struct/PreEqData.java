@@ -1,5 +1,7 @@
 package hr.avrbanac.docsis.lib.struct;
 
+import hr.avrbanac.docsis.lib.util.ParsingUtility;
+
 import java.util.List;
 
 /**
@@ -20,6 +22,50 @@ public interface PreEqData extends PreEqHeader, PreEqMetrics {
      */
     List<Coefficient> getCoefficients();
 
+    /**
+     * Copies raw pre-eq payload (header followed by coefficients) into the provided array. Implementations that keep raw payload should
+     * override this method, so that no hex string round trip is needed.
+     * @param dst byte array to copy payload into
+     * @param dstOffset int array position of the first payload byte
+     */
+    default void getBytes(
+            final byte[] dst,
+            final int dstOffset) {
+
+        byte[] payload = ParsingUtility.hexStringToByteArray(getPreEqString());
+        System.arraycopy(payload, 0, dst, dstOffset, payload.length);
+    }
+
+    /**
+     * Returns real part of the coefficient. Implementations backed by primitive arrays should override this method, so that no
+     * {@link Coefficient} objects are needed in hot loops.
+     * @param tap int array index of the coefficient (one less than the tap index)
+     * @return int real part of the coefficient
+     */
+    default int getReal(final int tap) {
+        return getCoefficients().get(tap).getReal();
+    }
+
+    /**
+     * Returns imaginary part of the coefficient. Implementations backed by primitive arrays should override this method, so that no
+     * {@link Coefficient} objects are needed in hot loops.
+     * @param tap int array index of the coefficient (one less than the tap index)
+     * @return int imaginary part of the coefficient
+     */
+    default int getImag(final int tap) {
+        return getCoefficients().get(tap).getImag();
+    }
+
+    /**
+     * Returns energy of the coefficient. Implementations backed by primitive arrays should override this method, so that no
+     * {@link Coefficient} objects are needed in hot loops.
+     * @param tap int array index of the coefficient (one less than the tap index)
+     * @return long energy of the coefficient
+     */
+    default long getEnergy(final int tap) {
+        return getCoefficients().get(tap).getEnergy();
+    }
+
     /**
      * Returns the lowest boundary (minimal possible value) of the tap energy ratio that the {@link Coefficient#getTapEnergyRatioBoundary()}
      * method can return. This method should just forward the same value unless the implementation has a superb reason to return some other
@@ -0,0 +1,96 @@
+package hr.avrbanac.docsis.lib.struct;
+
+import hr.avrbanac.docsis.lib.PreEqException;
+
+/**
+ * Result of the non-throwing parsing ({@link PreEqParser}): either parsed {@link PreEqData} or {@link PreEqException.ErrorClass} of the
+ * rejected input. Rejected pre-eq strings additionally report the position of the first char which made the string invalid. Results of
+ * the other rejected inputs are shared instances (one per error class), so rejecting them allocates nothing.
+ */
+public final class PreEqParseResult {
+    private static final PreEqParseResult[] REJECTED = new PreEqParseResult[PreEqException.ErrorClass.values().length];
+
+    static {
+        for (PreEqException.ErrorClass errorClass : PreEqException.ErrorClass.values()) {
+            REJECTED[errorClass.ordinal()] = new PreEqParseResult(null, errorClass, -1);
+        }
+    }
+
+    private final PreEqData preEqData;
+    private final PreEqException.ErrorClass errorClass;
+    private final int offset;
+
+    private PreEqParseResult(
+            final PreEqData preEqData,
+            final PreEqException.ErrorClass errorClass,
+            final int offset) {
+
+        this.preEqData = preEqData;
+        this.errorClass = errorClass;
+        this.offset = offset;
+    }
+
+    static PreEqParseResult valid(final PreEqData preEqData) {
+        return new PreEqParseResult(preEqData, null, -1);
+    }
+
+    static PreEqParseResult rejected(final PreEqException.ErrorClass errorClass) {
+        return REJECTED[errorClass.ordinal()];
+    }
+
+    static PreEqParseResult rejected(
+            final PreEqException.ErrorClass errorClass,
+            final int offset) {
+
+        return new PreEqParseResult(null, errorClass, offset);
+    }
+
+    /**
+     * Returns true if input was successfully parsed.
+     * @return boolean true if there was no error
+     */
+    public boolean isValid() {
+        return errorClass == null;
+    }
+
+    /**
+     * Returns parsed pre-eq data.
+     * @return {@link PreEqData} or null if input was rejected
+     */
+    public PreEqData getPreEqData() {
+        return preEqData;
+    }
+
+    /**
+     * Returns the reason of the rejection.
+     * @return {@link PreEqException.ErrorClass} or null if input was parsed
+     */
+    public PreEqException.ErrorClass getErrorClass() {
+        return errorClass;
+    }
+
+    /**
+     * Returns position of the first char which made the rejected pre-eq string invalid (char that is neither hex char nor delimiter, first
+     * hex char over the required length, or the string length if the string is too short).
+     * @return int char position or -1 if input was parsed, or if it was not rejected while decoding the pre-eq string
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns shared exception of the rejection reason (e.g. to be thrown by the caller).
+     * @return {@link PreEqException} or null if input was parsed
+     * @see PreEqException#of(PreEqException.ErrorClass)
+     */
+    public PreEqException getError() {
+        return errorClass == null ? null : PreEqException.of(errorClass);
+    }
+
+    @Override
+    public String toString() {
+        if (isValid()) return "PreEqParseResult{valid}";
+
+        return offset < 0 ? "PreEqParseResult{" + errorClass + "}" : "PreEqParseResult{" + errorClass + " at " + offset + "}";
+    }
+}
@@ -0,0 +1,178 @@
+package hr.avrbanac.docsis.lib.struct;
+
+import hr.avrbanac.docsis.lib.PreEqException;
+import hr.avrbanac.docsis.lib.util.HexDecoder;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * Non-throwing parser for bulk raw pre-eq inputs with a few percent of garbage (truncated strings, wrong tap counts, zero post-main tap
+ * energy). Input is checked first (same checks as in {@link AbstractPreEqData} CTOR) and pre-eq data is created only for valid input, so
+ * no {@link PreEqException} is created (or thrown) for invalid input. Every input is counted either as valid or per
+ * {@link PreEqException.ErrorClass} of the rejection.
+ * </p>
+ * <p>
+ * Parser is thread-safe and is meant to be shared (e.g. one per collector), so counters cover the whole run.
+ * </p>
+ */
+public class PreEqParser {
+    private static final PreEqException.ErrorClass[] ERROR_CLASSES = PreEqException.ErrorClass.values();
+
+    private final boolean lazy;
+    private final LongAdder validCount = new LongAdder();
+    private final LongAdder[] errorCounts = new LongAdder[ERROR_CLASSES.length];
+
+    /**
+     * CTOR for parser creating {@link DefaultPreEqData} (all key metrics calculated eagerly).
+     */
+    public PreEqParser() {
+        this(false);
+    }
+
+    /**
+     * CTOR for parser creating either {@link LazyPreEqData} or {@link DefaultPreEqData}.
+     * @param lazy boolean true if key metrics should be calculated on demand
+     */
+    public PreEqParser(final boolean lazy) {
+        this.lazy = lazy;
+        for (int i = 0; i < errorCounts.length; i++) {
+            errorCounts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Parses pre-eq string (hex representation, delimiters are allowed). String is validated, normalized and decoded in a single scan; if
+     * it is rejected while decoding, result reports the position of the first invalid char (see {@link PreEqParseResult#getOffset()}).
+     * @param rawInputPreEqString {@link String} provided raw pre-eq string
+     * @return {@link PreEqParseResult} parsed data or rejection reason
+     */
+    public PreEqParseResult parse(final String rawInputPreEqString) {
+        if (rawInputPreEqString == null) return reject(PreEqException.ErrorClass.STRING_MISMATCH_BYTE_SIZE);
+
+        byte[] bytes = new byte[AbstractPreEqData.INPUT_BYTE_LENGTH];
+        int decodeResult = HexDecoder.decode(rawInputPreEqString, bytes, 0, bytes.length);
+        if (decodeResult < 0) {
+            PreEqException.ErrorClass errorClass = AbstractPreEqData.toErrorClass(decodeResult);
+            errorCounts[errorClass.ordinal()].increment();
+            return PreEqParseResult.rejected(errorClass, HexDecoder.errorOffset(decodeResult));
+        }
+
+        return parse(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Parses pre-eq string stored as ASCII bytes (e.g. line of the bulk import file), decoded with {@link HexDecoder}.
+     * @param ascii byte array with ASCII pre-eq string
+     * @param offset int array position of the first char
+     * @param length int number of chars (including delimiters)
+     * @return {@link PreEqParseResult} parsed data or rejection reason
+     */
+    public PreEqParseResult parseHex(
+            final byte[] ascii,
+            final int offset,
+            final int length) {
+
+        byte[] bytes = new byte[AbstractPreEqData.INPUT_BYTE_LENGTH];
+        int decodeResult = HexDecoder.decode(ascii, offset, length, bytes, 0, bytes.length);
+        if (decodeResult < 0) return reject(AbstractPreEqData.toErrorClass(decodeResult));
+
+        return parse(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Parses raw pre-eq payload contained in the remaining bytes of the provided {@link ByteBuffer}. Buffer position is not changed.
+     * @param rawInputPreEqBuffer {@link ByteBuffer} with raw pre-eq payload between its position and limit
+     * @return {@link PreEqParseResult} parsed data or rejection reason
+     */
+    public PreEqParseResult parse(final ByteBuffer rawInputPreEqBuffer) {
+        return parse(
+                AbstractPreEqData.toByteArray(rawInputPreEqBuffer),
+                AbstractPreEqData.toArrayOffset(rawInputPreEqBuffer),
+                rawInputPreEqBuffer.remaining());
+    }
+
+    /**
+     * Parses raw pre-eq payload (e.g. SNMP OctetString value) contained in a portion of the provided byte array.
+     * @param rawInputPreEqBytes byte array containing raw pre-eq payload
+     * @param offset int array position of the first payload byte
+     * @param length int payload length (must be {@link AbstractPreEqData#INPUT_BYTE_LENGTH})
+     * @return {@link PreEqParseResult} parsed data or rejection reason
+     */
+    public PreEqParseResult parse(
+            final byte[] rawInputPreEqBytes,
+            final int offset,
+            final int length) {
+
+        if (rawInputPreEqBytes == null) return reject(PreEqException.ErrorClass.STRING_MISMATCH_BYTE_SIZE);
+
+        PreEqException.ErrorClass errorClass = AbstractPreEqData.check(rawInputPreEqBytes, offset, length);
+        if (errorClass != null) return reject(errorClass);
+
+        validCount.increment();
+        return PreEqParseResult.valid(lazy
+                ? new LazyPreEqData(rawInputPreEqBytes, offset, length)
+                : new DefaultPreEqData(rawInputPreEqBytes, offset, length));
+    }
+
+    private PreEqParseResult reject(final PreEqException.ErrorClass errorClass) {
+        errorCounts[errorClass.ordinal()].increment();
+        return PreEqParseResult.rejected(errorClass);
+    }
+
+    /**
+     * Returns the number of parsed inputs.
+     * @return long number of valid inputs
+     */
+    public long getValidCount() {
+        return validCount.sum();
+    }
+
+    /**
+     * Returns the number of inputs rejected for the provided reason.
+     * @param errorClass {@link PreEqException.ErrorClass} rejection reason
+     * @return long number of rejected inputs
+     */
+    public long getErrorCount(final PreEqException.ErrorClass errorClass) {
+        return errorCounts[errorClass.ordinal()].sum();
+    }
+
+    /**
+     * Returns the number of all rejected inputs.
+     * @return long number of rejected inputs
+     */
+    public long getErrorCount() {
+        long count = 0;
+        for (LongAdder errorCount : errorCounts) {
+            count += errorCount.sum();
+        }
+
+        return count;
+    }
+
+    /**
+     * Resets all counters.
+     */
+    public void reset() {
+        validCount.reset();
+        for (LongAdder errorCount : errorCounts) {
+            errorCount.reset();
+        }
+    }
+
+    /**
+     * Returns counters as a single line: valid count followed by the count of every error class with rejected inputs.
+     * @return {@link String} counters
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("PreEqParser{valid=").append(getValidCount());
+        for (PreEqException.ErrorClass errorClass : ERROR_CLASSES) {
+            long count = getErrorCount(errorClass);
+            if (count > 0) sb.append(", ").append(errorClass).append('=').append(count);
+        }
+
+        return sb.append('}').toString();
+    }
+}
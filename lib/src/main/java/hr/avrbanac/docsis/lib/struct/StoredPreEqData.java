@@ -0,0 +1,141 @@
+package hr.avrbanac.docsis.lib.struct;
+
+import hr.avrbanac.docsis.lib.PreEqException;
+
+/**
+ * <p>
+ * 24 energy tap implementation of the {@link PreEqData} restored from already calculated key metrics (e.g. read back from the persisted
+ * binary record). Coefficients are decoded from the raw payload as usual, but key metrics (MTNA and dB ratios) and elapsed time are taken
+ * from the provided {@link PreEqMetrics}, so nothing is recalculated.
+ * </p>
+ * <p>
+ * Tap energy sums are exactly determined by the payload, so provided sums are only checked against decoded ones: {@link PreEqException}
+ * is thrown if they do not match (i.e. metrics do not belong to the payload).
+ * </p>
+ */
+public class StoredPreEqData extends AbstractPreEqData {
+    private final long elapsedTime;
+    private final long lMTNA;
+    private final long lMTNE;
+    private final double dMTC;
+    private final double dMTR;
+    private final double dNMTER;
+    private final double dPreMTTER;
+    private final double dPostMTTER;
+    private final double dPPESR;
+    private final double dPPTSR;
+
+    /**
+     * CTOR for the raw pre-eq payload contained in a portion of the provided byte array with already calculated key metrics. Provided
+     * array is not retained, payload is copied.
+     * @param rawInputPreEqBytes byte array containing raw pre-eq payload
+     * @param offset int array position of the first payload byte
+     * @param metrics {@link PreEqMetrics} already calculated key metrics of the payload
+     */
+    public StoredPreEqData(
+            final byte[] rawInputPreEqBytes,
+            final int offset,
+            final PreEqMetrics metrics) {
+
+        super(null, rawInputPreEqBytes, offset, INPUT_BYTE_LENGTH);
+
+        if (metrics.getMTE() != getMTE()
+                || metrics.getPreMTE() != getPreMTE()
+                || metrics.getPostMTE() != getPostMTE()
+                || metrics.getTTE() != getTTE()) {
+            throw new PreEqException("Stored tap energy sums do not match pre-eq payload");
+        }
+
+        this.lMTNA = metrics.getMTNA();
+        this.lMTNE = metrics.getMTNE();
+        this.dMTC = metrics.getMTC();
+        this.dMTR = metrics.getMTR();
+        this.dNMTER = metrics.getNMTER();
+        this.dPreMTTER = metrics.getPreMTTER();
+        this.dPostMTTER = metrics.getPostMTTER();
+        this.dPPESR = metrics.getPPESR();
+        this.dPPTSR = metrics.getPPTSR();
+        this.elapsedTime = metrics.getElapsedTime();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMTNA() {
+        return lMTNA;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMTNE() {
+        return lMTNE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getMTC() {
+        return dMTC;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getMTR() {
+        return dMTR;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getNMTER() {
+        return dNMTER;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getPreMTTER() {
+        return dPreMTTER;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getPostMTTER() {
+        return dPostMTTER;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getPPESR() {
+        return dPPESR;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getPPTSR() {
+        return dPPTSR;
+    }
+
+    /**
+     * Returns the number of nanoseconds it took for the original pre-eq data to be parsed (as stored).
+     * @return long number of nanoseconds
+     */
+    @Override
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+}
@@ -0,0 +1,68 @@
+package hr.avrbanac.docsis.lib.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Utility class for hashing purposes. Hashes are fast non-cryptographic 64-bit hashes meant for content addressing of raw pre-eq payloads
+ * (e.g. cache keys), not for security.
+ */
+public class HashUtility {
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    // xxHash64 primes
+    private static final long PRIME_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME_3 = 0x165667B19E3779F9L;
+    private static final long PRIME_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME_5 = 0x27D4EB2F165667C5L;
+
+    private HashUtility() { }
+
+    /**
+     * Returns 64-bit hash of the provided byte array window. Input is consumed 8 bytes at a time (single lane xxHash64 style mixing), the
+     * tail byte by byte, and the result is finalized with the xxHash64 avalanche, so every input bit affects every output bit.
+     * @param bytes byte array with input
+     * @param offset int array position of the first input byte
+     * @param length int number of input bytes
+     * @return long 64-bit hash
+     */
+    public static long hash64(
+            final byte[] bytes,
+            final int offset,
+            final int length) {
+
+        int end = offset + length;
+        int ptr = offset;
+        long hash = PRIME_5 + length;
+
+        for (; ptr + 8 <= end; ptr += 8) {
+            long word = (long) LONG_VIEW.get(bytes, ptr);
+            hash ^= Long.rotateLeft(word * PRIME_2, 31) * PRIME_1;
+            hash = Long.rotateLeft(hash, 27) * PRIME_1 + PRIME_4;
+        }
+
+        for (; ptr < end; ptr++) {
+            hash ^= (bytes[ptr] & 0xffL) * PRIME_5;
+            hash = Long.rotateLeft(hash, 11) * PRIME_1;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME_3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    /**
+     * Returns 64-bit hash of the whole provided byte array.
+     * @param bytes byte array with input
+     * @return long 64-bit hash
+     * @see #hash64(byte[], int, int)
+     */
+    public static long hash64(final byte[] bytes) {
+        return hash64(bytes, 0, bytes.length);
+    }
+}
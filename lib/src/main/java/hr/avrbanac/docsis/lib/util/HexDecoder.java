@@ -0,0 +1,394 @@
+package hr.avrbanac.docsis.lib.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * <p>
+ * Decoder for pre-eq strings stored as ASCII bytes (e.g. lines of the bulk import file already in I/O buffer). Input is decoded straight
+ * from the provided byte window into the caller-supplied array, so no intermediate {@link String} is ever created. Delimiters (':' and ' ')
+ * are skipped inline. Validation rules are exactly the same as for the {@link ParsingUtility#isPreEqStringValid(String, int)}: once
+ * delimiters are left out, input must be of required length and made of hex chars only (both lower and upper case).
+ * </p>
+ * <p>
+ * Pre-eq strings already in memory (e.g. user input) are decoded with {@link #decode(CharSequence, byte[], int, int)}: validation,
+ * normalization and decoding are done in a single scan, and the position of the first char that made the input invalid is reported.
+ * </p>
+ * <p>
+ * Decoding uses 8-bytes-at-a-time SWAR (SIMD within a register) approach: 8 ASCII chars are read as one long value, validated and converted
+ * to 4 bytes with a few arithmetic operations. Windows containing delimiters (or invalid chars) fall back to the nibble lookup table.
+ * </p>
+ */
+public class HexDecoder {
+    /**
+     * Returned if input contains a char that is neither hex char nor delimiter.
+     */
+    public static final int INVALID_CHARACTER = -1;
+    /**
+     * Returned if input (without delimiters) is not of the required length.
+     */
+    public static final int WRONG_LENGTH = -2;
+
+    private static final byte DELIMITER = -2;
+    private static final byte INVALID = -1;
+    private static final byte[] NIBBLES = new byte[256];
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    // SWAR constants (each byte of the long value treated separately)
+    private static final long ONES = 0x01_01_01_01_01_01_01_01L;
+    private static final long HIGH_BITS = 0x80_80_80_80_80_80_80_80L;
+    private static final long LOW_NIBBLES = 0x0f_0f_0f_0f_0f_0f_0f_0fL;
+    private static final long LOWER_CASE_BITS = 0x20_20_20_20_20_20_20_20L;
+
+    static {
+        for (int i = 0; i < NIBBLES.length; i++) {
+            NIBBLES[i] = (byte) Character.digit(i, 16);
+            if (i > 'f') NIBBLES[i] = INVALID;
+        }
+        NIBBLES[':'] = DELIMITER;
+        NIBBLES[' '] = DELIMITER;
+    }
+
+    private HexDecoder() { }
+
+    /**
+     * Decodes ASCII hex input from the provided byte array window into the provided destination array window. Destination window length
+     * defines required input length: once delimiters are left out, input must contain exactly 2 * dstLength hex chars.
+     * @param src byte array with ASCII input
+     * @param srcOffset int array position of the first input char
+     * @param srcLength int number of input chars (including delimiters)
+     * @param dst byte array to write decoded bytes into
+     * @param dstOffset int array position of the first decoded byte
+     * @param dstLength int required number of decoded bytes
+     * @return int number of decoded bytes if successful, otherwise {@link #WRONG_LENGTH} or {@link #INVALID_CHARACTER}
+     */
+    public static int decode(
+            final byte[] src,
+            final int srcOffset,
+            final int srcLength,
+            final byte[] dst,
+            final int dstOffset,
+            final int dstLength) {
+
+        int end = srcOffset + srcLength;
+        int required = dstLength * 2;
+        int count = 0;
+        boolean valid = true;
+        int ptr = srcOffset;
+
+        while (ptr < end) {
+            // fast path: 8 hex chars without delimiters (count must be even so that output stays byte aligned)
+            if (ptr + 8 <= end && (count & 1) == 0 && count + 8 <= required) {
+                long word = (long) LONG_VIEW.get(src, ptr);
+                if (isHexWord(word)) {
+                    writeInt(dst, dstOffset + count / 2, decodeWord(word));
+                    count += 8;
+                    ptr += 8;
+                    continue;
+                }
+            }
+
+            byte nibble = NIBBLES[src[ptr++] & 0xff];
+            if (nibble == DELIMITER) continue;
+            if (nibble == INVALID) valid = false;
+            if (count < required && valid) writeNibble(dst, dstOffset, count, nibble);
+            count++;
+        }
+
+        return result(count, required, valid, dstLength);
+    }
+
+    /**
+     * Decodes ASCII hex input from the remaining bytes of the provided {@link ByteBuffer} into the provided destination array window.
+     * Buffer position is not changed.
+     * @param src {@link ByteBuffer} with ASCII input between its position and limit
+     * @param dst byte array to write decoded bytes into
+     * @param dstOffset int array position of the first decoded byte
+     * @param dstLength int required number of decoded bytes
+     * @return int number of decoded bytes if successful, otherwise {@link #WRONG_LENGTH} or {@link #INVALID_CHARACTER}
+     * @see #decode(byte[], int, int, byte[], int, int)
+     */
+    public static int decode(
+            final ByteBuffer src,
+            final byte[] dst,
+            final int dstOffset,
+            final int dstLength) {
+
+        if (src.hasArray()) {
+            return decode(src.array(), src.arrayOffset() + src.position(), src.remaining(), dst, dstOffset, dstLength);
+        }
+
+        boolean littleEndian = src.order() == ByteOrder.LITTLE_ENDIAN;
+        int end = src.limit();
+        int required = dstLength * 2;
+        int count = 0;
+        boolean valid = true;
+        int ptr = src.position();
+
+        while (ptr < end) {
+            if (ptr + 8 <= end && (count & 1) == 0 && count + 8 <= required) {
+                long word = littleEndian ? Long.reverseBytes(src.getLong(ptr)) : src.getLong(ptr);
+                if (isHexWord(word)) {
+                    writeInt(dst, dstOffset + count / 2, decodeWord(word));
+                    count += 8;
+                    ptr += 8;
+                    continue;
+                }
+            }
+
+            byte nibble = NIBBLES[src.get(ptr++) & 0xff];
+            if (nibble == DELIMITER) continue;
+            if (nibble == INVALID) valid = false;
+            if (count < required && valid) writeNibble(dst, dstOffset, count, nibble);
+            count++;
+        }
+
+        return result(count, required, valid, dstLength);
+    }
+
+    /**
+     * Validates, normalizes and decodes hex input from the provided char sequence into the provided destination array window, all in a
+     * single scan. Same rules (and the same error priority) as for the {@link ParsingUtility#isPreEqStringValid(String, int)} and the
+     * other decode methods apply: wrong length is reported before invalid char. Position of the error is reported as well: first hex char
+     * over the required length (or input length if the input is too short) and first char that is neither hex char nor delimiter. On
+     * failure destination window content is undefined.
+     * @param src {@link CharSequence} input (e.g. pre-eq string)
+     * @param dst byte array to write decoded bytes into
+     * @param dstOffset int array position of the first decoded byte
+     * @param dstLength int required number of decoded bytes
+     * @return int number of decoded bytes if successful, otherwise negative value with error code and position (see
+     * {@link #errorCode(int)} and {@link #errorOffset(int)})
+     */
+    public static int decode(
+            final CharSequence src,
+            final byte[] dst,
+            final int dstOffset,
+            final int dstLength) {
+
+        int length = src.length();
+        int required = dstLength * 2;
+        int count = 0;
+        int invalidOffset = -1;
+
+        for (int ptr = 0; ptr < length; ptr++) {
+            char c = src.charAt(ptr);
+            byte nibble = c > 0xff ? INVALID : NIBBLES[c];
+            if (nibble == DELIMITER) continue;
+            if (count == required) return error(ptr, WRONG_LENGTH);
+            if (nibble == INVALID) {
+                if (invalidOffset < 0) invalidOffset = ptr;
+            } else if (invalidOffset < 0) {
+                writeNibble(dst, dstOffset, count, nibble);
+            }
+            count++;
+        }
+
+        if (count != required) return error(length, WRONG_LENGTH);
+        if (invalidOffset >= 0) return error(invalidOffset, INVALID_CHARACTER);
+
+        return dstLength;
+    }
+
+    /**
+     * Returns error code of the failed {@link #decode(CharSequence, byte[], int, int)} result. Plain error codes returned by the other
+     * decode methods are returned as is (they are encoded the same way, with position 0).
+     * @param result int negative decode result
+     * @return int {@link #WRONG_LENGTH} or {@link #INVALID_CHARACTER}
+     */
+    public static int errorCode(final int result) {
+        return ((-result - 1) & 1) == 0 ? INVALID_CHARACTER : WRONG_LENGTH;
+    }
+
+    /**
+     * Returns position of the first char which made the input invalid, for the failed {@link #decode(CharSequence, byte[], int, int)}
+     * result. For the input that is too short, this is the input length.
+     * @param result int negative decode result
+     * @return int char position within the input
+     */
+    public static int errorOffset(final int result) {
+        return (-result - 1) >>> 1;
+    }
+
+    /**
+     * Validates input from the provided char sequence. Same rules as for the {@link ParsingUtility#isPreEqStringValid(String, int)} apply.
+     * @param src {@link CharSequence} input
+     * @param size int size of the normalized input (number of chars without delimiters)
+     * @return boolean true if the input was successfully validated
+     */
+    public static boolean isValid(
+            final CharSequence src,
+            final int size) {
+
+        int count = 0;
+        for (int ptr = 0; ptr < src.length(); ptr++) {
+            char c = src.charAt(ptr);
+            byte nibble = c > 0xff ? INVALID : NIBBLES[c];
+            if (nibble == DELIMITER) continue;
+            if (nibble == INVALID || ++count > size) return false;
+        }
+
+        return count == size;
+    }
+
+    /**
+     * Validates ASCII input from the provided byte array window. Same rules as for the
+     * {@link ParsingUtility#isPreEqStringValid(String, int)} apply.
+     * @param src byte array with ASCII input
+     * @param srcOffset int array position of the first input char
+     * @param srcLength int number of input chars (including delimiters)
+     * @param size int size of the normalized input (number of chars without delimiters)
+     * @return boolean true if the input was successfully validated
+     */
+    public static boolean isValid(
+            final byte[] src,
+            final int srcOffset,
+            final int srcLength,
+            final int size) {
+
+        int count = 0;
+        for (int ptr = srcOffset; ptr < srcOffset + srcLength; ptr++) {
+            byte nibble = NIBBLES[src[ptr] & 0xff];
+            if (nibble == DELIMITER) continue;
+            if (nibble == INVALID) return false;
+            count++;
+        }
+
+        return count == size;
+    }
+
+    /**
+     * Validates ASCII input from the remaining bytes of the provided {@link ByteBuffer}. Buffer position is not changed.
+     * @param src {@link ByteBuffer} with ASCII input between its position and limit
+     * @param size int size of the normalized input (number of chars without delimiters)
+     * @return boolean true if the input was successfully validated
+     * @see #isValid(byte[], int, int, int)
+     */
+    public static boolean isValid(
+            final ByteBuffer src,
+            final int size) {
+
+        int count = 0;
+        for (int ptr = src.position(); ptr < src.limit(); ptr++) {
+            byte nibble = NIBBLES[src.get(ptr) & 0xff];
+            if (nibble == DELIMITER) continue;
+            if (nibble == INVALID) return false;
+            count++;
+        }
+
+        return count == size;
+    }
+
+    /**
+     * Returns nibble value of the provided char using decoder lookup table.
+     * @param c int char value
+     * @return int nibble value (0-15), or negative value if the char is not a hex char
+     */
+    static int nibble(final int c) {
+        if (c > 0xff) return INVALID;
+        byte nibble = NIBBLES[c];
+        return nibble == DELIMITER ? INVALID : nibble;
+    }
+
+    /**
+     * Returns true if the provided char is one of the delimiters that are skipped.
+     * @param c int char value
+     * @return boolean true if the char is a delimiter
+     */
+    static boolean isDelimiter(final int c) {
+        return c <= 0xff && NIBBLES[c] == DELIMITER;
+    }
+
+    /**
+     * SWAR check: all 8 bytes of the word must be ASCII hex chars ('0'-'9', 'a'-'f' or 'A'-'F').
+     * @param word long value with 8 ASCII chars (first char in the most significant byte)
+     * @return boolean true if all chars are hex chars
+     */
+    private static boolean isHexWord(final long word) {
+        if ((word & HIGH_BITS) != 0) return false;
+        long lower = word | LOWER_CASE_BITS;
+        long digits = inRange(word, '0', '9');
+        long letters = inRange(lower, 'a', 'f');
+
+        return (digits | letters) == HIGH_BITS;
+    }
+
+    /**
+     * SWAR range check for ASCII bytes: high bit of each byte is set if the byte value is within [lo, hi].
+     * @param word long value with 8 ASCII bytes (high bits must be zero)
+     * @param lo char lower boundary (included)
+     * @param hi char upper boundary (included)
+     * @return long with high bits set for bytes within range
+     */
+    private static long inRange(
+            final long word,
+            final char lo,
+            final char hi) {
+
+        long notBelow = word + ONES * (0x80 - lo);
+        long above = word + ONES * (0x7f - hi);
+
+        return notBelow & ~above & HIGH_BITS;
+    }
+
+    /**
+     * SWAR conversion of 8 hex chars to 4 bytes. Word must be validated beforehand.
+     * @param word long value with 8 ASCII hex chars (first char in the most significant byte)
+     * @return int value of 4 decoded bytes (first byte in the most significant byte)
+     */
+    private static int decodeWord(final long word) {
+        long letters = inRange(word | LOWER_CASE_BITS, 'a', 'f');
+        // digits and letters have nibble value in lower 4 bits, letters additionally need +9 ('a' = 0x61 -> 1 + 9)
+        long nibbles = (word & LOW_NIBBLES) + (letters >>> 7) * 9;
+        nibbles = (nibbles | (nibbles >>> 4)) & 0x00_ff_00_ff_00_ff_00_ffL;
+        nibbles = (nibbles | (nibbles >>> 8)) & 0x00_00_ff_ff_00_00_ff_ffL;
+        nibbles = (nibbles | (nibbles >>> 16)) & 0x00_00_00_00_ff_ff_ff_ffL;
+
+        return (int) nibbles;
+    }
+
+    private static void writeInt(
+            final byte[] dst,
+            final int ptr,
+            final int value) {
+
+        dst[ptr] = (byte) (value >>> 24);
+        dst[ptr + 1] = (byte) (value >>> 16);
+        dst[ptr + 2] = (byte) (value >>> 8);
+        dst[ptr + 3] = (byte) value;
+    }
+
+    private static void writeNibble(
+            final byte[] dst,
+            final int dstOffset,
+            final int count,
+            final byte nibble) {
+
+        int ptr = dstOffset + count / 2;
+        if ((count & 1) == 0) {
+            dst[ptr] = (byte) (nibble << 4);
+        } else {
+            dst[ptr] = (byte) (dst[ptr] | nibble);
+        }
+    }
+
+    private static int error(
+            final int offset,
+            final int errorCode) {
+
+        return -((offset << 1) | (errorCode == WRONG_LENGTH ? 1 : 0)) - 1;
+    }
+
+    private static int result(
+            final int count,
+            final int required,
+            final boolean valid,
+            final int dstLength) {
+
+        if (count != required) return WRONG_LENGTH;
+        if (!valid) return INVALID_CHARACTER;
+
+        return dstLength;
+    }
+}
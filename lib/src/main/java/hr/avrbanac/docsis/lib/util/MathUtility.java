@@ -8,8 +8,149 @@ import org.apache.commons.math3.complex.Complex;
  * Utility class for math purposes.
  */
 public class MathUtility {
+    private static final int LOG2_TABLE_BITS = 8;
+    private static final int MANTISSA_BITS = 52;
+    private static final int FRACTION_BITS = MANTISSA_BITS - LOG2_TABLE_BITS;
+    private static final long MANTISSA_MASK = (1L << MANTISSA_BITS) - 1;
+    private static final long FRACTION_MASK = (1L << FRACTION_BITS) - 1;
+    private static final double FRACTION_SCALE = 1d / (1L << FRACTION_BITS);
+    private static final int EXPONENT_BIAS = 1023;
+    private static final int EXPONENT_SPECIAL = 0x7ff;
+    private static final double LOG10_2 = Math.log10(2);
+    private static final double LN10_TENTH = Math.log(10) / 10;
+
+    /**
+     * Log2 values of the mantissa (1 + i / 256) for linear interpolation, last entry closes the interval (log2(2) = 1).
+     */
+    private static final double[] LOG2_TABLE = new double[(1 << LOG2_TABLE_BITS) + 1];
+
+    static {
+        for (int i = 0; i < LOG2_TABLE.length; i++) {
+            LOG2_TABLE[i] = Math.log1p((double) i / (1 << LOG2_TABLE_BITS)) / Math.log(2);
+        }
+    }
+
     private MathUtility() { }
 
+    /**
+     * Precision of the dB calculations. {@link #EXACT} is the default used throughout the lib; {@link #FAST} trades a bounded error for
+     * throughput in fleet-wide calculations (e.g. dashboards), where IEEE-exact dB values are not needed.
+     */
+    public enum DecibelPrecision {
+        /**
+         * Exact calculation using {@link Math#log10(double)}, {@link Math#hypot(double, double)} and {@link Math#pow(double, double)}; the
+         * results are the same as before precision could be selected.
+         */
+        EXACT {
+            @Override
+            public double log10(final double value) {
+                return Math.log10(value);
+            }
+
+            @Override
+            public double magnitudeToDecibels(
+                    final double real,
+                    final double imag) {
+
+                return 20 * Math.log10(Math.hypot(real, imag));
+            }
+
+            @Override
+            public double fromDecibels(final double decibels) {
+                return Math.pow(10, decibels / 10);
+            }
+        },
+        /**
+         * Fast calculation using {@link #fastLog10(double)} (absolute error below 0.00001 dB) and magnitude calculated as
+         * 10*log10(re^2 + im^2) instead of 20*log10(hypot(re, im)).
+         */
+        FAST {
+            @Override
+            public double log10(final double value) {
+                return fastLog10(value);
+            }
+
+            @Override
+            public double magnitudeToDecibels(
+                    final double real,
+                    final double imag) {
+
+                return 10 * fastLog10(real * real + imag * imag);
+            }
+
+            @Override
+            public double fromDecibels(final double decibels) {
+                return Math.exp(decibels * LN10_TENTH);
+            }
+        };
+
+        /**
+         * Returns base 10 logarithm of the provided value.
+         * @param value double value
+         * @return double log10 value
+         */
+        public abstract double log10(final double value);
+
+        /**
+         * Returns magnitude of the complex point in dB.
+         * @param real double real part
+         * @param imag double imaginary part
+         * @return double magnitude in dB
+         */
+        public abstract double magnitudeToDecibels(
+                final double real,
+                final double imag);
+
+        /**
+         * Returns power ratio of the provided dB value.
+         * @param decibels double value in dB
+         * @return double power ratio
+         */
+        public abstract double fromDecibels(final double decibels);
+
+        /**
+         * Returns power ratio in dB.
+         * @param powerRatio double power (energy) ratio
+         * @return double power ratio in dB
+         */
+        public double toDecibels(final double powerRatio) {
+            return 10 * log10(powerRatio);
+        }
+
+        /**
+         * Returns energy ratio in dB.
+         * @param numerator long energy in numerator
+         * @param denominator long energy in denominator
+         * @return double energy ratio in dB
+         */
+        public double toDecibels(
+                final long numerator,
+                final long denominator) {
+
+            return toDecibels(1d * numerator / denominator);
+        }
+    }
+
+    /**
+     * Fast base 10 logarithm: exponent is taken from the double representation, while log2 of the mantissa is linearly interpolated from
+     * 256 entry table. Absolute error is below 1e-6 (below 0.00001 dB for 10*log10 values). Zero, negative, subnormal, infinite and NaN
+     * values are delegated to {@link Math#log10(double)}.
+     * @param value double value
+     * @return double approximate log10 value
+     */
+    public static double fastLog10(final double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        int exponent = (int) (bits >>> MANTISSA_BITS) & EXPONENT_SPECIAL;
+        if (bits <= 0L || exponent == 0 || exponent == EXPONENT_SPECIAL) return Math.log10(value);
+
+        long mantissa = bits & MANTISSA_MASK;
+        int index = (int) (mantissa >>> FRACTION_BITS);
+        double fraction = (mantissa & FRACTION_MASK) * FRACTION_SCALE;
+        double log2 = exponent - EXPONENT_BIAS + LOG2_TABLE[index] + (LOG2_TABLE[index + 1] - LOG2_TABLE[index]) * fraction;
+
+        return log2 * LOG10_2;
+    }
+
     /**
      * Parabolic interpolation enumeration with 2 different implementations.
      */
@@ -30,20 +171,21 @@ public class MathUtility {
          * </ul>
          */
         V1 {
-            /**
-             * @param left {@link Complex} complex number so (x0, y0) pair can be easily wrapped together
-             * @param middle {@link Complex} complex number so (x1, y1) pair can be easily wrapped together
-             * @param right {@link Complex} complex number so (x2, y2) pair can be easily wrapped together
-             * @return double value of the X point (interpolated) - real part of the complex number
-             */
             @Override
-            public double doCalculate(Complex left, Complex middle, Complex right) {
-                double diff = left.getImaginary() - right.getImaginary(); //v2
-                double a = (left.getImaginary() - 2 * middle.getImaginary() + right.getImaginary()) / 2;
+            double doCalculate(
+                    final double x1,
+                    final double y1,
+                    final double x2,
+                    final double y2,
+                    final double x3,
+                    final double y3) {
+
+                double diff = y1 - y3; //v2
+                double a = (y1 - 2 * y2 + y3) / 2;
                 double xm = diff / (4 * a);
                 // this is needed only for y value: double ym = (-1d * (diff * diff)) / (16 * a)
 
-                return middle.getReal() + xm;
+                return x2 + xm;
             }
         },
         /**
@@ -51,20 +193,14 @@ public class MathUtility {
          * original code, energy ratio (calculated with TTE) was used instead of nominal values.
          */
         V2 {
-            /**
-             * @param left {@link Complex} complex number so (x0, y0) pair can be easily wrapped together
-             * @param middle {@link Complex} complex number so (x1, y1) pair can be easily wrapped together
-             * @param right {@link Complex} complex number so (x2, y2) pair can be easily wrapped together
-             * @return double value of the X point (interpolated) - real part of the complex number
-             */
             @Override
-            public double doCalculate(Complex left, Complex middle, Complex right) {
-                double x1 = left.getReal();
-                double y1 = left.getImaginary();
-                double x2 = middle.getReal();
-                double y2 = middle.getImaginary();
-                double x3 = right.getReal();
-                double y3 = right.getImaginary();
+            double doCalculate(
+                    final double x1,
+                    final double y1,
+                    final double x2,
+                    final double y2,
+                    final double x3,
+                    final double y3) {
 
                 double u1 = x1 * x1 - x2 * x2;
                 double u2 = x1 * x1 - x3 * x3;
@@ -82,7 +218,13 @@ public class MathUtility {
             }
         };
 
-        abstract double doCalculate(final Complex left, final Complex middle, final Complex right);
+        abstract double doCalculate(
+                double x1,
+                double y1,
+                double x2,
+                double y2,
+                double x3,
+                double y3);
 
         /**
          * Calculates Parabolic interpolation with one of the implementations.
@@ -98,7 +240,50 @@ public class MathUtility {
                 final Complex middle,
                 final Complex right) {
 
-            return this.doCalculate(left, middle, right);
+            return this.doCalculate(
+                    left.getReal(), left.getImaginary(), middle.getReal(), middle.getImaginary(), right.getReal(), right.getImaginary());
+        }
+
+        /**
+         * Calculates Parabolic interpolation with one of the implementations, without wrapping the points.
+         * @param x1 double x value of the left point
+         * @param y1 double y value of the left point
+         * @param x2 double x value of the middle point
+         * @param y2 double y value of the middle point
+         * @param x3 double x value of the right point
+         * @param y3 double y value of the right point
+         * @return double value of the X point (interpolated)
+         * @see #calculate(Complex, Complex, Complex)
+         */
+        public double calculate(
+                final double x1,
+                final double y1,
+                final double x2,
+                final double y2,
+                final double x3,
+                final double y3) {
+
+            return this.doCalculate(x1, y1, x2, y2, x3, y3);
+        }
+
+        /**
+         * Calculates Parabolic interpolation for many point triplets at once (e.g. one triplet per device of a batch). Triplet i is held by
+         * x and y array positions 3*i (left), 3*i + 1 (middle) and 3*i + 2 (right).
+         * @param x double array with x values of the point triplets
+         * @param y double array with y values of the point triplets
+         * @param result double array which will receive interpolated X point of each triplet
+         * @param count int number of triplets to interpolate
+         * @see #calculate(double, double, double, double, double, double)
+         */
+        public void calculate(
+                final double[] x,
+                final double[] y,
+                final double[] result,
+                final int count) {
+
+            for (int i = 0, p = 0; i < count; i++, p += 3) {
+                result[i] = this.doCalculate(x[p], y[p], x[p + 1], y[p + 1], x[p + 2], y[p + 2]);
+            }
         }
     }
 
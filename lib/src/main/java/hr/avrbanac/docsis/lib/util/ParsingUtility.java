@@ -8,6 +8,7 @@ import hr.avrbanac.docsis.lib.struct.PreEqData;
  */
 public class ParsingUtility {
     private static final String LS = System.lineSeparator();
+    private static final char[] HEX_CHARS = "0123456789abcdef".toCharArray();
 
     private ParsingUtility() { }
 
@@ -36,6 +37,8 @@ public class ParsingUtility {
      *     <li>string is made of hex chars</li>
      *     <li>string is of required length (once normalized without separators)</li>
      * </ul>
+     * String is checked in a single scan, without creating the normalized string. To decode the string as well, use
+     * {@link HexDecoder#decode(CharSequence, byte[], int, int)} instead of validating it first.
      * @param preEqString {@link String} input string to check
      * @param size int size of the normalized string
      * @return boolean true if the string was successfully validated
@@ -44,49 +47,7 @@ public class ParsingUtility {
             final String preEqString,
             final int size) {
 
-        String normalized = preEqString.replace(":","").replace(" ","");
-        if (normalized.length() != size) return false;
-
-        for (char c : normalized.toCharArray()) {
-            if (!isHex(c)) return false;
-        }
-
-        return true;
-    }
-
-    /**
-     * Fast way to check whether character is a hex character.
-     * @param c char input to test
-     * @return boolean true if char is a hex char
-     */
-    private static boolean isHex(final char c) {
-        switch (c) {
-            case '0':
-            case '1':
-            case '2':
-            case '3':
-            case '4':
-            case '5':
-            case '6':
-            case '7':
-            case '8':
-            case '9':
-            case 'a':
-            case 'b':
-            case 'c':
-            case 'd':
-            case 'e':
-            case 'f':
-            case 'A':
-            case 'B':
-            case 'C':
-            case 'D':
-            case 'E':
-            case 'F':
-                return true;
-            default:
-                return false;
-        }
+        return HexDecoder.isValid(preEqString, size);
     }
 
     /**
@@ -102,11 +63,12 @@ public class ParsingUtility {
             final int end) {
 
         if (start < end && end <= bytes.length) {
-            StringBuilder sb = new StringBuilder();
-            for (int i = start; i < end; i++) {
-                sb.append(String.format("%02x",bytes[i] & 0xff));
+            char[] chars = new char[(end - start) * 2];
+            for (int i = start, j = 0; i < end; i++) {
+                chars[j++] = HEX_CHARS[(bytes[i] >> 4) & 0x0f];
+                chars[j++] = HEX_CHARS[bytes[i] & 0x0f];
             }
-            return sb.toString();
+            return new String(chars);
         } else {
             return "";
         }
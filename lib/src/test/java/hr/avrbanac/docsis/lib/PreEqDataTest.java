@@ -1,18 +1,77 @@
 package hr.avrbanac.docsis.lib;
 
 import hr.avrbanac.docsis.lib.analysis.ChannelWidth;
+import hr.avrbanac.docsis.lib.analysis.CorrelationBond;
+import hr.avrbanac.docsis.lib.analysis.CorrelationMatrix;
+import hr.avrbanac.docsis.lib.analysis.FFTPlan;
+import hr.avrbanac.docsis.lib.analysis.ICFRSimilarityIndex;
+import hr.avrbanac.docsis.lib.analysis.MicroReflectionSeverity;
+import hr.avrbanac.docsis.lib.analysis.MicroReflectionSeverityThreshold;
 import hr.avrbanac.docsis.lib.analysis.PreEqAnalysis;
+import hr.avrbanac.docsis.lib.analysis.PreEqBatchAnalysis;
+import hr.avrbanac.docsis.lib.analysis.PreEqBatchAnalyzer;
+import hr.avrbanac.docsis.lib.analysis.PreEqCorrelationEngine;
+import hr.avrbanac.docsis.lib.analysis.PreEqFFTInputFormat;
+import hr.avrbanac.docsis.lib.analysis.PreEqTapSnapshot;
 import hr.avrbanac.docsis.lib.analysis.Signature;
+import hr.avrbanac.docsis.lib.cache.CachedPreEqResult;
+import hr.avrbanac.docsis.lib.cache.PreEqChange;
+import hr.avrbanac.docsis.lib.cache.PreEqChangeStatus;
+import hr.avrbanac.docsis.lib.cache.PreEqChangeTracker;
+import hr.avrbanac.docsis.lib.cache.PreEqResultCache;
+import hr.avrbanac.docsis.lib.codec.CoefficientSeriesDecoder;
+import hr.avrbanac.docsis.lib.codec.CoefficientSeriesEncoder;
+import hr.avrbanac.docsis.lib.codec.PreEqCodec;
+import hr.avrbanac.docsis.lib.codec.PreEqRecord;
+import hr.avrbanac.docsis.lib.history.CoefficientHistoryStore;
+import hr.avrbanac.docsis.lib.history.MetricHistory;
+import hr.avrbanac.docsis.lib.history.MetricHistoryStore;
+import hr.avrbanac.docsis.lib.recorder.HistogramRecorder;
+import hr.avrbanac.docsis.lib.recorder.LatencyHistogram;
+import hr.avrbanac.docsis.lib.recorder.PreEqRecorder;
+import hr.avrbanac.docsis.lib.recorder.PreEqRecorders;
+import hr.avrbanac.docsis.lib.recorder.PreEqStage;
+import hr.avrbanac.docsis.lib.struct.AbstractPreEqData;
+import hr.avrbanac.docsis.lib.struct.Coefficient;
+import hr.avrbanac.docsis.lib.struct.DefaultCoefficient;
+import hr.avrbanac.docsis.lib.struct.PreEqBatch;
 import hr.avrbanac.docsis.lib.struct.PreEqData;
+import hr.avrbanac.docsis.lib.struct.PreEqParseResult;
+import hr.avrbanac.docsis.lib.struct.PreEqParser;
 import hr.avrbanac.docsis.lib.struct.DefaultPreEqData;
+import hr.avrbanac.docsis.lib.struct.LazyPreEqData;
+import hr.avrbanac.docsis.lib.util.HexDecoder;
 import hr.avrbanac.docsis.lib.util.MathUtility;
 import hr.avrbanac.docsis.lib.util.ParsingUtility;
+import org.apache.commons.math3.complex.Complex;
+import org.apache.commons.math3.transform.DftNormalization;
+import org.apache.commons.math3.transform.FastFourierTransformer;
+import org.apache.commons.math3.transform.TransformType;
 import org.apache.commons.math3.util.Precision;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
 /**
  * Main test class for pre-eq lib. This classes method will use {@link TestBook} with wrapped data to iterate it and run tests with all
  * available data.
@@ -90,6 +149,258 @@ class PreEqDataTest {
         });
     }
 
+    /**
+     * Method for testing pre-eq data structure created from raw payload bytes. Result must be the same as the one created from pre-eq
+     * string.
+     */
+    @Test
+    void testDefaultPreEqDataFromBytes() {
+        TestBook.getPreEqTests().forEach(testStructure -> {
+            PreEqData expected = new DefaultPreEqData(testStructure.getPreEqString());
+            byte[] payload = ParsingUtility.hexStringToByteArray(expected.getPreEqString());
+            byte[] padded = new byte[payload.length + 6];
+            System.arraycopy(payload, 0, padded, 3, payload.length);
+
+            PreEqData[] parsed = new PreEqData[] {
+                    new DefaultPreEqData(payload),
+                    new DefaultPreEqData(padded, 3, payload.length),
+                    new DefaultPreEqData(ByteBuffer.wrap(padded, 3, payload.length)),
+                    new DefaultPreEqData(ByteBuffer.allocateDirect(payload.length).put(payload).flip())
+            };
+
+            for (PreEqData ped : parsed) {
+                Assertions.assertEquals(expected.getPreEqString(), ped.getPreEqString());
+                Assertions.assertEquals(expected.getMainTapIndex(), ped.getMainTapIndex());
+                Assertions.assertEquals(expected.getTTE(), ped.getTTE());
+                Assertions.assertEquals(expected.getMTNA(), ped.getMTNA());
+                Assertions.assertEquals(expected.getMTR(), ped.getMTR());
+                Assertions.assertEquals(expected.getNMTER(), ped.getNMTER());
+                Assertions.assertEquals(expected.getPPTSR(), ped.getPPTSR());
+                for (int i = 0; i < expected.getTapCount(); i++) {
+                    Assertions.assertEquals(expected.getCoefficients().get(i).getEnergy(), ped.getCoefficients().get(i).getEnergy());
+                }
+            }
+
+            Assertions.assertThrows(PreEqException.class, () -> new DefaultPreEqData(padded));
+        });
+    }
+
+    /**
+     * Method for testing coefficient views and indexed accessors. Views (both from pre-eq data and from batch) must carry the same values as
+     * {@link DefaultCoefficient} created from the same coefficient bytes.
+     */
+    @Test
+    void testCoefficientView() {
+        TestBook.getPreEqTests().forEach(testStructure -> {
+            PreEqData ped = new DefaultPreEqData(testStructure.getPreEqString());
+            PreEqBatch batch = new PreEqBatch(1);
+            batch.add(testStructure.getPreEqString());
+            Assertions.assertSame(ped.getCoefficients(), ped.getCoefficients());
+
+            byte[] payload = ParsingUtility.hexStringToByteArray(ped.getPreEqString());
+            boolean use3NibbleEncoding = true;
+            for (int i = 4; i < payload.length; i += 2) {
+                use3NibbleEncoding &= (payload[i] & 0xF000) == 0;
+            }
+
+            for (int i = 0; i < ped.getTapCount(); i++) {
+                Coefficient view = ped.getCoefficients().get(i);
+                Coefficient expected = new DefaultCoefficient(view.getBytes(), i + 1, use3NibbleEncoding);
+                for (Coefficient coefficient : Arrays.asList(view, batch.getCoefficient(0, i))) {
+                    Assertions.assertArrayEquals(expected.getBytes(), coefficient.getBytes());
+                    Assertions.assertEquals(expected.getIndex(), coefficient.getIndex());
+                    Assertions.assertEquals(expected.getReal(), coefficient.getReal());
+                    Assertions.assertEquals(expected.getImag(), coefficient.getImag());
+                    Assertions.assertEquals(expected.getEnergy(), coefficient.getEnergy());
+                    Assertions.assertEquals(expected.getEnergyRatio(ped.getTTE()), coefficient.getEnergyRatio(ped.getTTE()));
+                    Assertions.assertEquals(
+                            expected.getNominalEnergyRatio(ped.getMTNE()), coefficient.getNominalEnergyRatio(ped.getMTNE()));
+                }
+                Assertions.assertEquals(expected.getReal(), ped.getReal(i));
+                Assertions.assertEquals(expected.getImag(), ped.getImag(i));
+                Assertions.assertEquals(expected.getEnergy(), ped.getEnergy(i));
+            }
+        });
+    }
+
+    /**
+     * Method for testing lazy pre-eq data structure. Lazy metrics must be the same as eagerly calculated ones, also when first accessed
+     * concurrently, while invalid data must still be rejected in CTOR.
+     */
+    @Test
+    void testLazyPreEqData() {
+        TestBook.getPreEqTests().forEach(testStructure -> {
+            PreEqData expected = new DefaultPreEqData(testStructure.getPreEqString());
+            PreEqData lazy = new LazyPreEqData(testStructure.getPreEqString());
+
+            List<Double> concurrentMTR = Collections.synchronizedList(new ArrayList<>());
+            IntStream.range(0, 8).parallel().forEach(i -> concurrentMTR.add(lazy.getMTR()));
+            concurrentMTR.forEach(mtr -> Assertions.assertEquals(expected.getMTR(), mtr));
+
+            Assertions.assertEquals(expected.getPreEqString(), lazy.getPreEqString());
+            Assertions.assertEquals(expected.getMTE(), lazy.getMTE());
+            Assertions.assertEquals(expected.getPreMTE(), lazy.getPreMTE());
+            Assertions.assertEquals(expected.getPostMTE(), lazy.getPostMTE());
+            Assertions.assertEquals(expected.getTTE(), lazy.getTTE());
+            Assertions.assertEquals(expected.getMTNA(), lazy.getMTNA());
+            Assertions.assertEquals(expected.getMTNE(), lazy.getMTNE());
+            Assertions.assertEquals(expected.getMTC(), lazy.getMTC());
+            Assertions.assertEquals(expected.getNMTER(), lazy.getNMTER());
+            Assertions.assertEquals(expected.getPreMTTER(), lazy.getPreMTTER());
+            Assertions.assertEquals(expected.getPostMTTER(), lazy.getPostMTTER());
+            Assertions.assertEquals(expected.getPPESR(), lazy.getPPESR());
+            Assertions.assertEquals(expected.getPPTSR(), lazy.getPPTSR());
+            Assertions.assertArrayEquals(
+                    new PreEqAnalysis(expected).getInChannelFrequencyResponseMagnitude(),
+                    new PreEqAnalysis(lazy).getInChannelFrequencyResponseMagnitude());
+
+            String broken = "01" + expected.getPreEqString().substring(2);
+            Assertions.assertThrows(PreEqException.class, () -> new DefaultPreEqData(broken));
+            Assertions.assertThrows(PreEqException.class, () -> new LazyPreEqData(broken));
+        });
+    }
+
+    /**
+     * Method for testing ASCII hex decoder. Decoded bytes must match {@link ParsingUtility#hexStringToByteArray(String)} and validation must
+     * match {@link ParsingUtility#isPreEqStringValid(String, int)} for different (also broken) variations of the test strings.
+     */
+    @Test
+    void testHexDecoder() {
+        TestBook.getPreEqTests().forEach(testStructure -> {
+            String normalized = new DefaultPreEqData(testStructure.getPreEqString()).getPreEqString();
+            byte[] expected = ParsingUtility.hexStringToByteArray(normalized);
+            StringBuilder delimited = new StringBuilder();
+            for (int i = 0; i < normalized.length(); i += 2) {
+                delimited.append(i > 0 ? (i % 8 == 0 ? " " : ":") : "").append(normalized, i, i + 2);
+            }
+
+            String[] variations = new String[] {
+                    normalized,
+                    normalized.toUpperCase(),
+                    delimited.toString(),
+                    normalized.substring(2),
+                    normalized + "00",
+                    normalized.substring(0, 51) + "g" + normalized.substring(52),
+                    delimited.substring(0, 17) + "-" + delimited.substring(18),
+                    normalized.substring(0, 198) + "::" + normalized.substring(198)
+            };
+
+            for (String variation : variations) {
+                byte[] ascii = (" " + variation + " ").getBytes(StandardCharsets.US_ASCII);
+                boolean expectedValid = ParsingUtility.isPreEqStringValid(variation, DefaultPreEqData.INPUT_STRING_LENGTH);
+                Assertions.assertEquals(expectedValid,
+                        HexDecoder.isValid(ascii, 1, ascii.length - 2, DefaultPreEqData.INPUT_STRING_LENGTH));
+                Assertions.assertEquals(expectedValid,
+                        HexDecoder.isValid(ByteBuffer.wrap(ascii, 1, ascii.length - 2), DefaultPreEqData.INPUT_STRING_LENGTH));
+
+                byte[] decoded = new byte[DefaultPreEqData.INPUT_BYTE_LENGTH + 2];
+                int result = HexDecoder.decode(ascii, 1, ascii.length - 2, decoded, 1, DefaultPreEqData.INPUT_BYTE_LENGTH);
+                ByteBuffer direct = ByteBuffer.allocateDirect(ascii.length).put(ascii).flip();
+                byte[] decodedDirect = new byte[DefaultPreEqData.INPUT_BYTE_LENGTH];
+                int resultDirect = HexDecoder.decode(direct, decodedDirect, 0, DefaultPreEqData.INPUT_BYTE_LENGTH);
+                Assertions.assertEquals(expectedValid, result == DefaultPreEqData.INPUT_BYTE_LENGTH);
+                Assertions.assertEquals(result, resultDirect);
+                if (expectedValid) {
+                    Assertions.assertArrayEquals(expected, Arrays.copyOfRange(decoded, 1, 1 + DefaultPreEqData.INPUT_BYTE_LENGTH));
+                    Assertions.assertArrayEquals(expected, decodedDirect);
+                }
+            }
+
+            PreEqBatch batch = new PreEqBatch(1);
+            byte[] ascii = delimited.toString().getBytes(StandardCharsets.US_ASCII);
+            batch.addHex(ascii, 0, ascii.length);
+            Assertions.assertEquals(normalized, batch.getPreEqString(0));
+        });
+    }
+
+    /**
+     * Method for testing columnar pre-eq batch and its analysis. Each batch row must carry the same values as the corresponding pre-eq data
+     * and analysis.
+     */
+    @Test
+    void testPreEqBatch() {
+        PreEqBatch batch = new PreEqBatch(TestBook.getPreEqTests().size());
+        TestBook.getPreEqTests().forEach(testStructure -> batch.add(testStructure.getPreEqString()));
+        PreEqBatchAnalysis batchAnalysis = new PreEqBatchAnalysis(batch);
+        double[] batchTDR = batchAnalysis.getTDR(ChannelWidth.CW_US_6_4, 1, false);
+        Signature[] batchSignatures = batchAnalysis.getSignatures(ChannelWidth.CW_US_6_4);
+
+        for (int row = 0; row < batch.size(); row++) {
+            PreEqData ped = new DefaultPreEqData(TestBook.getPreEqTests().get(row).getPreEqString());
+            PreEqAnalysis pea = new PreEqAnalysis(ped);
+            Assertions.assertEquals(ped.getPreEqString(), batch.getPreEqString(row));
+            Assertions.assertEquals(ped.getMainTapIndex(), batch.getMainTap()[row]);
+            Assertions.assertEquals(ped.getMTNA(), batch.getMTNA()[row]);
+            Assertions.assertEquals(ped.getTTE(), batch.getTTE()[row]);
+            Assertions.assertEquals(ped.getMTC(), batch.getMTC()[row]);
+            Assertions.assertEquals(ped.getMTR(), batch.getMTR()[row]);
+            Assertions.assertEquals(ped.getNMTER(), batch.getNMTER()[row]);
+            Assertions.assertEquals(ped.getPPESR(), batch.getPPESR()[row]);
+            Assertions.assertEquals(ped.getPPTSR(), batch.getPPTSR()[row]);
+            for (int i = 0; i < batch.getTapCount(); i++) {
+                Assertions.assertEquals(ped.getCoefficients().get(i).getReal(), batch.getReal()[row * batch.getTapCount() + i]);
+                Assertions.assertEquals(ped.getCoefficients().get(i).getImag(), batch.getImag()[row * batch.getTapCount() + i]);
+            }
+
+            Assertions.assertArrayEquals(pea.getInChannelFrequencyResponseMagnitude(), batchAnalysis.getInChannelFrequencyResponseMagnitude(row));
+            Assertions.assertEquals(pea.getTDR(ChannelWidth.CW_US_6_4, 1, false), batchTDR[row]);
+            Signature signature = pea.getSignature(ChannelWidth.CW_US_6_4);
+            Assertions.assertEquals(signature.getMicroReflection(), batchSignatures[row].getMicroReflection());
+            Assertions.assertEquals(signature.getMicroReflectionSeverity(), batchSignatures[row].getMicroReflectionSeverity());
+            Assertions.assertEquals(signature.getDelay(), batchSignatures[row].getDelay());
+        }
+    }
+
+    /**
+     * Method for testing parallel batch analyzer. Results must be returned in input order, with errors kept only for broken inputs.
+     */
+    @Test
+    void testPreEqBatchAnalyzer() {
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            TestBook.getPreEqTests().forEach(testStructure -> inputs.add(testStructure.getPreEqString()));
+            inputs.add(i % 2 == 0 ? "broken" : "");
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<PreEqBatchAnalyzer.Result> results = new PreEqBatchAnalyzer.Builder()
+                    .setPool(pool)
+                    .setChunkSize(16)
+                    .build()
+                    .analyze(inputs.stream());
+
+            Assertions.assertEquals(inputs.size(), results.size());
+            for (int i = 0; i < inputs.size(); i++) {
+                PreEqBatchAnalyzer.Result result = results.get(i);
+                if (inputs.get(i).length() < DefaultPreEqData.INPUT_STRING_LENGTH) {
+                    Assertions.assertFalse(result.isValid());
+                    Assertions.assertEquals(PreEqException.ErrorClass.STRING_MISMATCH_BYTE_SIZE, result.getError().getErrorClass());
+                    continue;
+                }
+
+                PreEqAnalysis pea = new PreEqAnalysis(new DefaultPreEqData(inputs.get(i)));
+                Assertions.assertTrue(result.isValid());
+                Assertions.assertEquals(inputs.get(i).toLowerCase(), result.getPreEqData().getPreEqString());
+                Assertions.assertArrayEquals(pea.getInChannelFrequencyResponseMagnitude(), result.getInChannelFrequencyResponseMagnitude());
+                Assertions.assertEquals(pea.getTDR(ChannelWidth.CW_US_6_4, 1, false), result.getTDR());
+                Assertions.assertEquals(pea.getSignature(ChannelWidth.CW_US_6_4).getDelay(), result.getSignature().getDelay());
+            }
+
+            List<PreEqBatchAnalyzer.Result> linkedResults = new PreEqBatchAnalyzer.Builder()
+                    .setPool(pool)
+                    .setChunkSize(16)
+                    .build()
+                    .analyze(new LinkedList<>(inputs));
+            Assertions.assertEquals(inputs.size(), linkedResults.size());
+            for (int i = 0; i < inputs.size(); i++) {
+                Assertions.assertEquals(results.get(i).isValid(), linkedResults.get(i).isValid());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
     /**
      * Method for testing pre-eq analysis. Minimal information set is provided for each test datum.
      */
@@ -113,6 +424,874 @@ class PreEqDataTest {
         });
     }
 
+    /**
+     * Method for testing shared pre-eq analysis. Concurrent first access must publish a single ICFR result to all threads, while views
+     * must be read-only and must match returned arrays.
+     */
+    @Test
+    void testPreEqAnalysisConcurrency() {
+        TestBook.getPreEqTests().forEach(testStructure -> {
+            PreEqAnalysis pea = new PreEqAnalysis(new DefaultPreEqData(testStructure.getPreEqString()));
+
+            List<double[]> concurrentICFR = Collections.synchronizedList(new ArrayList<>());
+            List<Complex[]> concurrentComplexICFR = Collections.synchronizedList(new ArrayList<>());
+            IntStream.range(0, 8).parallel().forEach(i -> {
+                concurrentICFR.add(pea.getInChannelFrequencyResponseMagnitude());
+                concurrentComplexICFR.add(pea.getInChannelFrequencyResponse());
+            });
+            double[] icfr = pea.getInChannelFrequencyResponseMagnitude();
+            Complex[] complexICFR = pea.getInChannelFrequencyResponse();
+            concurrentICFR.forEach(result -> Assertions.assertSame(icfr, result));
+            concurrentComplexICFR.forEach(result -> Assertions.assertSame(complexICFR, result));
+            Assertions.assertTrue(pea.getElapsedTime() > 0);
+
+            DoubleBuffer magnitudeView = pea.getInChannelFrequencyResponseMagnitudeView();
+            Assertions.assertTrue(magnitudeView.isReadOnly());
+            Assertions.assertEquals(icfr.length, magnitudeView.remaining());
+            for (int i = 0; i < icfr.length; i++) {
+                Assertions.assertEquals(icfr[i], magnitudeView.get(i));
+            }
+
+            List<Complex> complexView = pea.getInChannelFrequencyResponseView();
+            Assertions.assertEquals(Arrays.asList(complexICFR), complexView);
+            Assertions.assertThrows(UnsupportedOperationException.class, () -> complexView.set(0, Complex.ZERO));
+        });
+    }
+
+    /**
+     * Method for testing pre-eq result cache. Byte-identical pre-eq data (in any input form) must share one result equal to the uncached
+     * pipeline result, while full cache must admit only payloads more popular than the eviction candidate.
+     */
+    @Test
+    void testPreEqResultCache() {
+        PreEqResultCache cache = new PreEqResultCache(2);
+        TestBook.getPreEqTests().forEach(testStructure -> {
+            PreEqData expected = new DefaultPreEqData(testStructure.getPreEqString());
+            Signature expectedSignature = new PreEqAnalysis(expected).getSignature(ChannelWidth.CW_US_6_4);
+            byte[] payload = ParsingUtility.hexStringToByteArray(expected.getPreEqString());
+
+            CachedPreEqResult result = cache.get(testStructure.getPreEqString());
+            Assertions.assertSame(result, cache.get(payload));
+            Assertions.assertSame(result, cache.get(ByteBuffer.wrap(payload)));
+            Assertions.assertSame(result.getSignature(ChannelWidth.CW_US_6_4), result.getSignature(ChannelWidth.CW_US_6_4));
+            Assertions.assertEquals(expected.getPreEqString(), result.getPreEqData().getPreEqString());
+            Assertions.assertEquals(expected.getMTR(), result.getPreEqData().getMTR());
+            Assertions.assertEquals(expectedSignature.getMicroReflection(), result.getSignature(ChannelWidth.CW_US_6_4).getMicroReflection());
+            Assertions.assertEquals(
+                    expectedSignature.getMicroReflectionSeverity(),
+                    result.getSignature(ChannelWidth.CW_US_6_4).getMicroReflectionSeverity());
+        });
+        LOG.info("Cache: {}", cache);
+        Assertions.assertEquals(2 * TestBook.getPreEqTests().size(), cache.getHitCount());
+        Assertions.assertTrue(cache.size() <= cache.getMaximumSize());
+        Assertions.assertEquals(cache.getMissCount(), cache.size() + cache.getEvictionCount() + cache.getRejectionCount());
+
+        Assertions.assertThrows(PreEqException.class, () -> cache.get("08011800"));
+        Assertions.assertThrows(PreEqException.class, () -> cache.get(new byte[10]));
+
+        // distinct payloads differ only in the last tap: A and B fill the cache, A is popular, C is admitted only once seen twice
+        byte[][] payloads = new byte[3][];
+        for (int i = 0; i < payloads.length; i++) {
+            payloads[i] = ParsingUtility.hexStringToByteArray(TestBook.getPreEqTests().get(0).getPreEqString().toLowerCase());
+            payloads[i][payloads[i].length - 1] ^= (byte) (i + 1);
+        }
+        PreEqResultCache smallCache = new PreEqResultCache(2);
+        CachedPreEqResult resultA = smallCache.get(payloads[0]);
+        smallCache.get(payloads[1]);
+        Assertions.assertSame(resultA, smallCache.get(payloads[0]));
+        smallCache.get(payloads[2]);
+        Assertions.assertEquals(1, smallCache.getRejectionCount());
+        CachedPreEqResult resultC = smallCache.get(payloads[2]);
+        Assertions.assertEquals(1, smallCache.getEvictionCount());
+        Assertions.assertSame(resultA, smallCache.get(payloads[0]));
+        Assertions.assertSame(resultC, smallCache.get(payloads[2]));
+        Assertions.assertEquals(2, smallCache.size());
+    }
+
+    /**
+     * Method for testing per-device pre-eq change tracking. Unchanged payload must reuse previous results, while changed payload must be
+     * reported with per-tap deltas.
+     */
+    @Test
+    void testPreEqChangeTracker() {
+        TestBook.getPreEqTests().forEach(testStructure -> {
+            PreEqChangeTracker<String> tracker = new PreEqChangeTracker<>(new PreEqResultCache());
+            byte[] payload = ParsingUtility.hexStringToByteArray(testStructure.getPreEqString().toLowerCase());
+
+            PreEqChange first = tracker.update("cm", testStructure.getPreEqString());
+            Assertions.assertEquals(PreEqChangeStatus.NEW, first.getStatus());
+            Assertions.assertNull(first.getPrevious());
+
+            PreEqChange unchanged = tracker.update("cm", payload);
+            Assertions.assertEquals(PreEqChangeStatus.UNCHANGED, unchanged.getStatus());
+            Assertions.assertFalse(unchanged.isChanged());
+            Assertions.assertSame(first.getResult(), unchanged.getResult());
+
+            payload[payload.length - 1] ^= 1;
+            PreEqChange changed = tracker.update("cm", ByteBuffer.wrap(payload));
+            LOG.info("Change: {}", changed);
+            Assertions.assertEquals(PreEqChangeStatus.CHANGED, changed.getStatus());
+            Assertions.assertSame(first.getResult(), changed.getPrevious());
+            Assertions.assertSame(changed.getResult(), tracker.getLastResult("cm"));
+            Assertions.assertEquals(1, changed.getChangedTapCount());
+            int lastTap = changed.getResult().getPreEqData().getTapCount() - 1;
+            Assertions.assertEquals(0, changed.getRealDelta(lastTap));
+            Assertions.assertNotEquals(0, changed.getImagDelta(lastTap));
+            for (int i = 0; i <= lastTap; i++) {
+                Assertions.assertEquals(
+                        changed.getResult().getPreEqData().getEnergy(i) - first.getResult().getPreEqData().getEnergy(i),
+                        changed.getEnergyDelta(i));
+            }
+
+            Assertions.assertEquals(1, tracker.getNewCount());
+            Assertions.assertEquals(1, tracker.getUnchangedCount());
+            Assertions.assertEquals(1, tracker.getChangedCount());
+            Assertions.assertEquals(PreEqChangeStatus.NEW, tracker.update("other", payload).getStatus());
+            Assertions.assertSame(changed.getResult(), tracker.getLastResult("other"));
+        });
+    }
+
+    /**
+     * Method for testing pipeline stage recording. Installed histogram recorder must receive every stage, while histogram percentiles must
+     * be within histogram precision.
+     */
+    @Test
+    void testHistogramRecorder() {
+        HistogramRecorder recorder = new HistogramRecorder();
+        PreEqRecorder previous = PreEqRecorders.set(recorder);
+        try {
+            TestBook.getPreEqTests().forEach(testStructure -> {
+                PreEqAnalysis pea = new PreEqAnalysis(new DefaultPreEqData(testStructure.getPreEqString()));
+                pea.getSignature(ChannelWidth.CW_US_6_4);
+                pea.getTDR(ChannelWidth.CW_US_6_4, 1, false);
+            });
+        } finally {
+            PreEqRecorders.set(previous);
+        }
+        LOG.info("{}", recorder);
+        for (PreEqStage stage : PreEqStage.values()) {
+            Assertions.assertEquals(TestBook.getPreEqTests().size(), recorder.getHistogram(stage).getCount(), stage.name());
+        }
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        IntStream.rangeClosed(1, 100_000).parallel().forEach(histogram::record);
+        Assertions.assertEquals(100_000, histogram.getCount());
+        Assertions.assertEquals(100_000, histogram.getMax());
+        Assertions.assertEquals(50_000, histogram.getValueAtPercentile(50d), 50_000 / 32d);
+        Assertions.assertEquals(99_000, histogram.getValueAtPercentile(99d), 99_000 / 32d);
+        Assertions.assertEquals(99_900, histogram.getValueAtPercentile(99.9d), 99_900 / 32d);
+        Assertions.assertEquals(100_000, histogram.getValueAtPercentile(100d));
+        Assertions.assertEquals(1, histogram.getValueAtPercentile(0d));
+    }
+
+    /**
+     * Method for testing binary codec. Records (single and bulk, with and without analysis results) must be read back with all values equal
+     * to the written ones, regardless of the buffer type and byte order.
+     */
+    @Test
+    void testPreEqCodec() {
+        TestBook.getPreEqTests().forEach(testStructure -> {
+            PreEqAnalysis pea = new PreEqAnalysis(new DefaultPreEqData(testStructure.getPreEqString()));
+            PreEqRecord full = PreEqRecord.of(pea, ChannelWidth.CW_US_6_4, MicroReflectionSeverityThreshold.CABLE_LABS);
+            PreEqRecord dataOnly = new PreEqRecord(pea.getPreEqData(), null, null);
+            PreEqRecord[] records = { full, dataOnly, full };
+
+            for (ByteBuffer buffer : Arrays.asList(
+                    ByteBuffer.allocate(PreEqCodec.getEncodedSize(records)).order(ByteOrder.LITTLE_ENDIAN),
+                    ByteBuffer.allocateDirect(PreEqCodec.getEncodedSize(records)))) {
+                PreEqCodec.encodeAll(records, buffer);
+                Assertions.assertFalse(buffer.hasRemaining());
+                buffer.flip();
+                PreEqRecord[] decoded = PreEqCodec.decodeAll(buffer);
+                Assertions.assertFalse(buffer.hasRemaining());
+                Assertions.assertEquals(records.length, decoded.length);
+                for (int i = 0; i < records.length; i++) {
+                    assertRecordEquals(records[i], decoded[i]);
+                }
+            }
+
+            ByteBuffer single = ByteBuffer.allocate(PreEqCodec.getEncodedSize(full));
+            PreEqCodec.encode(full, single);
+            single.flip();
+            assertRecordEquals(full, PreEqCodec.decode(single));
+
+            Assertions.assertThrows(PreEqException.class, () -> PreEqCodec.encode(full, ByteBuffer.allocate(PreEqCodec.FIXED_RECORD_SIZE)));
+            single.put(0, (byte) (PreEqCodec.VERSION + 1));
+            single.rewind();
+            Assertions.assertThrows(PreEqException.class, () -> PreEqCodec.decode(single));
+        });
+    }
+
+    private static void assertRecordEquals(
+            final PreEqRecord expected,
+            final PreEqRecord actual) {
+
+        PreEqData expectedData = expected.getPreEqData();
+        PreEqData actualData = actual.getPreEqData();
+        Assertions.assertEquals(expectedData.getPreEqString(), actualData.getPreEqString());
+        Assertions.assertEquals(expectedData.getMainTapIndex(), actualData.getMainTapIndex());
+        Assertions.assertEquals(expectedData.getMTNA(), actualData.getMTNA());
+        Assertions.assertEquals(expectedData.getMTNE(), actualData.getMTNE());
+        Assertions.assertEquals(expectedData.getMTC(), actualData.getMTC());
+        Assertions.assertEquals(expectedData.getMTR(), actualData.getMTR());
+        Assertions.assertEquals(expectedData.getNMTER(), actualData.getNMTER());
+        Assertions.assertEquals(expectedData.getPreMTTER(), actualData.getPreMTTER());
+        Assertions.assertEquals(expectedData.getPostMTTER(), actualData.getPostMTTER());
+        Assertions.assertEquals(expectedData.getPPESR(), actualData.getPPESR());
+        Assertions.assertEquals(expectedData.getPPTSR(), actualData.getPPTSR());
+        Assertions.assertEquals(expectedData.getElapsedTime(), actualData.getElapsedTime());
+        Assertions.assertArrayEquals(expected.getIcfrMag(), actual.getIcfrMag());
+        if (expected.getSignature() == null) {
+            Assertions.assertNull(actual.getSignature());
+        } else {
+            Assertions.assertEquals(expected.getSignature().getMicroReflection(), actual.getSignature().getMicroReflection());
+            Assertions.assertEquals(expected.getSignature().getMicroReflectionSeverity(), actual.getSignature().getMicroReflectionSeverity());
+            Assertions.assertEquals(expected.getSignature().getDelay(), actual.getSignature().getDelay());
+        }
+    }
+
+    /**
+     * Method for testing metric history store. Records of interleaved devices must be scanned per device and time window in chronological
+     * order, kept after reopening and dropped a whole segment at a time, together with index entries of devices left without records.
+     */
+    @Test
+    void testMetricHistoryStore(@TempDir final Path directory) {
+        TestBook.getPreEqTests().forEach(testStructure -> {
+            PreEqAnalysis pea = new PreEqAnalysis(new DefaultPreEqData(testStructure.getPreEqString()));
+            Signature signature = pea.getSignature(ChannelWidth.CW_US_6_4, MicroReflectionSeverityThreshold.CABLE_LABS);
+            Path storeDirectory = directory.resolve(String.valueOf(testStructure.hashCode()));
+
+            try (MetricHistoryStore store = MetricHistoryStore.open(storeDirectory, 4, 5)) {
+                for (int poll = 0; poll < 10; poll++) {
+                    for (long device = 1; device <= 3; device++) {
+                        store.append(device, 1000L + poll * 900L, poll, device, 0, Double.NaN, poll * device);
+                    }
+                }
+                store.append(4, 10000L, pea.getPreEqData(), signature, 12.5);
+
+                Assertions.assertEquals(31, store.size());
+                Assertions.assertEquals(4, store.getDeviceCount());
+                Assertions.assertThrows(PreEqException.class, () -> store.append(5, 0, 0, 0, 0, 0, 0));
+                Assertions.assertThrows(PreEqException.class, () -> store.append(2, 1000L, 0, 0, 0, 0, 0));
+
+                MetricHistory history = store.scan(2, 1000L + 900L * 3, 1000L + 900L * 6);
+                Assertions.assertEquals(4, history.size());
+                for (int i = 0; i < history.size(); i++) {
+                    Assertions.assertEquals(1000L + 900L * (i + 3), history.getEpochSecond(i));
+                    Assertions.assertEquals(i + 3, history.getMTR(i));
+                    Assertions.assertEquals(2, history.getNMTER(i));
+                    Assertions.assertTrue(Float.isNaN(history.getMicroReflection(i)));
+                    Assertions.assertEquals((i + 3) * 2, history.getTDR(i));
+                }
+
+                MetricHistory single = store.scan(4, 0, Long.MAX_VALUE);
+                Assertions.assertEquals(1, single.size());
+                Assertions.assertEquals((float) pea.getPreEqData().getMTR(), single.getMTR(0));
+                Assertions.assertEquals((float) pea.getPreEqData().getMTC(), single.getMTC(0));
+                Assertions.assertEquals((float) signature.getMicroReflection(), single.getMicroReflection(0));
+                Assertions.assertEquals(0, store.scan(6, 0, Long.MAX_VALUE).size());
+            }
+
+            try (MetricHistoryStore store = MetricHistoryStore.open(storeDirectory)) {
+                Assertions.assertEquals(31, store.size());
+                Assertions.assertEquals(10, store.scan(3, 0, Long.MAX_VALUE).size());
+                // 3 records per poll in 5 record segments: segments 0 to 3 (records 0 to 19) hold only polls older than poll 7
+                Assertions.assertEquals(4, store.deleteOlderThan(1000L + 900L * 7));
+                Assertions.assertEquals(0, store.deleteOlderThan(1000L + 900L * 7));
+                MetricHistory history = store.scan(1, 0, Long.MAX_VALUE);
+                Assertions.assertEquals(3, history.size());
+                Assertions.assertEquals(1000L + 900L * 7, history.getEpochSecond(0));
+                store.append(1, 1000L + 900L * 10, 0, 0, 0, 0, 0);
+                Assertions.assertEquals(4, store.scan(1, 0, Long.MAX_VALUE).size());
+            }
+
+            // late poll of one device closes the segment that still holds newer records of another device
+            try (MetricHistoryStore store = MetricHistoryStore.open(storeDirectory.resolve("late"), 4, 2)) {
+                store.append(2, 5000L, 0, 0, 0, 0, 0);
+                store.append(1, 100L, 0, 0, 0, 0, 0);
+                store.append(1, 200L, 0, 0, 0, 0, 0);
+                store.append(2, 6000L, 0, 0, 0, 0, 0);
+                store.append(1, 300L, 0, 0, 0, 0, 0);
+                Assertions.assertEquals(0, store.deleteOlderThan(1000L));
+                Assertions.assertEquals(2, store.scan(2, 1000L, Long.MAX_VALUE).size());
+                Assertions.assertEquals(1, store.deleteOlderThan(5001L));
+                Assertions.assertEquals(1, store.scan(2, 1000L, Long.MAX_VALUE).size());
+            }
+
+            // devices without remaining records free their index entries for new devices
+            try (MetricHistoryStore store = MetricHistoryStore.open(storeDirectory.resolve("churn"), 4, 2)) {
+                for (long device = 1; device <= 4; device++) {
+                    store.append(device, 100L, 0, 0, 0, 0, 0);
+                }
+                Assertions.assertThrows(PreEqException.class, () -> store.append(5, 100L, 0, 0, 0, 0, 0));
+                store.append(1, 1000L, 0, 0, 0, 0, 0);
+                Assertions.assertEquals(2, store.deleteOlderThan(500L));
+                Assertions.assertEquals(1, store.getDeviceCount());
+                for (long device = 5; device <= 7; device++) {
+                    store.append(device, 1000L, 0, 0, 0, 0, 0);
+                }
+                Assertions.assertEquals(4, store.getDeviceCount());
+                Assertions.assertThrows(PreEqException.class, () -> store.append(8, 1000L, 0, 0, 0, 0, 0));
+                Assertions.assertEquals(1, store.scan(1, 0, Long.MAX_VALUE).size());
+                Assertions.assertEquals(0, store.scan(2, 0, Long.MAX_VALUE).size());
+                Assertions.assertEquals(1, store.scan(7, 0, Long.MAX_VALUE).size());
+            }
+            try (MetricHistoryStore store = MetricHistoryStore.open(storeDirectory.resolve("churn"))) {
+                Assertions.assertEquals(4, store.getDeviceCount());
+                Assertions.assertEquals(1, store.scan(5, 0, Long.MAX_VALUE).size());
+            }
+            Assertions.assertThrows(
+                    PreEqException.class,
+                    () -> MetricHistoryStore.open(storeDirectory.resolve("large"), MetricHistoryStore.MAX_DEVICES + 1, 5));
+        });
+    }
+
+    /**
+     * Method for testing compressed coefficient series. Slowly changing polls must be decoded back into the same payloads and pre-eq data
+     * with at least 10 times smaller size than the hex strings, also after the store is saved, loaded and appended to.
+     */
+    @Test
+    void testCoefficientHistory(@TempDir final Path directory) throws IOException {
+        TestBook.getPreEqTests().forEach(testStructure -> {
+            PreEqData original = new DefaultPreEqData(testStructure.getPreEqString());
+            byte[][] payloads = new byte[200][AbstractPreEqData.INPUT_BYTE_LENGTH];
+            original.getBytes(payloads[0], 0);
+            for (int poll = 1; poll < payloads.length; poll++) {
+                payloads[poll] = payloads[poll - 1].clone();
+                // slight change of the last byte of two coefficient values (not the main tap), every 10th poll unchanged
+                if (poll % 10 != 0) {
+                    payloads[poll][4 + (poll % 7) * 4 + 1] += (byte) (poll % 3 - 1);
+                    payloads[poll][4 + (12 + poll % 9) * 4 + 3] += 1;
+                }
+            }
+
+            CoefficientHistoryStore store = new CoefficientHistoryStore();
+            for (int poll = 0; poll < payloads.length; poll++) {
+                store.append(1L, 1_600_000_000L + poll * 900L + poll % 2, payloads[poll], 0);
+            }
+            store.append(2L, 1_600_000_000L, original);
+
+            Assertions.assertEquals(2, store.getDeviceCount());
+            Assertions.assertEquals(payloads.length + 1, store.getPollCount());
+            Assertions.assertTrue(store.getEncodedLength() * 10 < store.getPollCount() * AbstractPreEqData.INPUT_STRING_LENGTH);
+
+            Path file = directory.resolve("coefficients.dat");
+            store.save(file);
+            CoefficientHistoryStore loaded = CoefficientHistoryStore.load(file);
+            loaded.append(1L, 1_600_000_000L + payloads.length * 900L, original);
+
+            byte[] decoded = new byte[AbstractPreEqData.INPUT_BYTE_LENGTH];
+            CoefficientSeriesDecoder decoder = loaded.getHistory(1L);
+            for (int poll = 0; poll < payloads.length; poll++) {
+                Assertions.assertTrue(decoder.next());
+                Assertions.assertEquals(1_600_000_000L + poll * 900L + poll % 2, decoder.getEpochSecond());
+                decoder.getBytes(decoded, 0);
+                Assertions.assertArrayEquals(payloads[poll], decoded);
+            }
+            Assertions.assertTrue(decoder.next());
+            Assertions.assertEquals(original.getPreEqString(), decoder.getPreEqData().getPreEqString());
+            Assertions.assertEquals(original.getMTR(), decoder.getPreEqData().getMTR());
+            Assertions.assertFalse(decoder.next());
+
+            CoefficientSeriesDecoder single = loaded.getHistory(2L);
+            Assertions.assertTrue(single.next());
+            Assertions.assertEquals(original.getPreEqString(), single.getPreEqData().getPreEqString());
+            Assertions.assertFalse(single.hasNext());
+            Assertions.assertFalse(loaded.getHistory(3L).next());
+
+            CoefficientSeriesEncoder encoder = new CoefficientSeriesEncoder();
+            Assertions.assertEquals(1, encoder.getEncodedLength());
+            encoder.append(0L, original);
+            byte[] encoded = encoder.toByteArray();
+            Assertions.assertThrows(PreEqException.class, () -> new CoefficientSeriesDecoder(encoded, 0, encoded.length - 1).next());
+
+            // save replaces the previous file through a temporary one
+            loaded.save(file);
+            Assertions.assertFalse(Files.exists(directory.resolve("coefficients.dat.tmp")));
+            Assertions.assertEquals(loaded.getPollCount(), CoefficientHistoryStore.load(file).getPollCount());
+        });
+
+        // corrupt device count and series length must be rejected before allocation
+        Path corrupt = directory.resolve("corrupt.dat");
+        ByteBuffer header = ByteBuffer.allocate(24).putInt(CoefficientHistoryStore.MAGIC).put(CoefficientSeriesEncoder.VERSION);
+        Files.write(corrupt, header.putInt(8, -1).array());
+        Assertions.assertThrows(PreEqException.class, () -> CoefficientHistoryStore.load(corrupt));
+        Files.write(corrupt, header.putInt(8, 1).putLong(12, 1L).putInt(20, Integer.MAX_VALUE).array());
+        Assertions.assertThrows(PreEqException.class, () -> CoefficientHistoryStore.load(corrupt));
+        Files.write(corrupt, header.putInt(20, -5).array());
+        Assertions.assertThrows(PreEqException.class, () -> CoefficientHistoryStore.load(corrupt));
+    }
+
+    /**
+     * Method for testing ICFR correlation engine. Tiled parallel correlation must match the reference Pearson correlation for any tile
+     * size, devices with the same ripple (but different attenuation) must be strongly bonded and flat ICFR must not be bonded at all.
+     */
+    @Test
+    void testPreEqCorrelationEngine() {
+        Random random = new Random(17);
+        int count = 11;
+        double[][] icfr = new double[count][64];
+        for (int device = 0; device < count - 1; device++) {
+            for (int k = 0; k < icfr[device].length; k++) {
+                double ripple = device % 2 == 0 ? Math.sin(k * 0.4d) : Math.cos(k * 1.3d);
+                icfr[device][k] = ripple - device + random.nextGaussian() * 0.05d;
+            }
+        }
+        Arrays.fill(icfr[count - 1], -3d);
+
+        for (int tileSize : new int[] { 1, 3, 4, 64 }) {
+            PreEqCorrelationEngine engine = new PreEqCorrelationEngine.Builder()
+                    .setTileSize(tileSize)
+                    .build();
+            CorrelationMatrix matrix = engine.correlate(icfr);
+            Assertions.assertEquals(count, matrix.size());
+            for (int i = 0; i < count - 1; i++) {
+                Assertions.assertEquals(1f, matrix.getCorrelation(i, i));
+                for (int j = 0; j < count - 1; j++) {
+                    Assertions.assertEquals(matrix.getCorrelation(i, j), matrix.getCorrelation(j, i));
+                    Assertions.assertEquals(pearson(icfr[i], icfr[j]), matrix.getCorrelation(i, j), 1e-6);
+                    if (i != j) {
+                        Assertions.assertEquals(i % 2 == j % 2 ? CorrelationBond.STRONG : CorrelationBond.NONE, matrix.getBond(i, j));
+                    }
+                }
+                Assertions.assertTrue(Float.isNaN(matrix.getCorrelation(i, count - 1)));
+                Assertions.assertEquals(CorrelationBond.NONE, matrix.getBond(i, count - 1));
+            }
+            Assertions.assertArrayEquals(new int[] { 0, 2, 4, 6 }, matrix.getBonded(8, CorrelationBond.STRONG));
+            Assertions.assertEquals(2 * 10, matrix.getPairCount(CorrelationBond.STRONG));
+        }
+
+        TestBook.getPreEqTests().forEach(testStructure -> {
+            PreEqAnalysis pea = new PreEqAnalysis(new DefaultPreEqData(testStructure.getPreEqString()));
+            CorrelationMatrix matrix = new PreEqCorrelationEngine.Builder().build().correlate(Arrays.asList(pea, pea));
+            Assertions.assertEquals(CorrelationBond.STRONG, matrix.getBond(0, 1));
+        });
+        Assertions.assertThrows(PreEqException.class, () -> new PreEqCorrelationEngine.Builder().build().correlate(
+                new double[][] { new double[4], new double[5] }));
+    }
+
+    private static double pearson(
+            final double[] x,
+            final double[] y) {
+
+        double meanX = Arrays.stream(x).average().orElse(0d);
+        double meanY = Arrays.stream(y).average().orElse(0d);
+        double covariance = 0d;
+        double varianceX = 0d;
+        double varianceY = 0d;
+        for (int i = 0; i < x.length; i++) {
+            covariance += (x[i] - meanX) * (y[i] - meanY);
+            varianceX += (x[i] - meanX) * (x[i] - meanX);
+            varianceY += (y[i] - meanY) * (y[i] - meanY);
+        }
+
+        return covariance / Math.sqrt(varianceX * varianceY);
+    }
+
+    /**
+     * Method for testing ICFR similarity index. Devices with the same ICFR shape (different attenuation and noise) must be found among many
+     * random shapes, also after updates and removals.
+     */
+    @Test
+    void testICFRSimilarityIndex() {
+        Random random = new Random(18);
+        ICFRSimilarityIndex index = new ICFRSimilarityIndex.Builder(64).build();
+        double[] target = randomRipple(random, 64, 0d);
+        for (long device = 0; device < 2000; device++) {
+            index.update(device, randomRipple(random, 64, device * 0.01d));
+        }
+        for (long device = 10_000; device < 10_005; device++) {
+            double[] similar = target.clone();
+            for (int k = 0; k < similar.length; k++) {
+                similar[k] += random.nextGaussian() * 0.02d - device % 10;
+            }
+            index.update(device, similar);
+        }
+        Assertions.assertEquals(2005, index.size());
+
+        List<ICFRSimilarityIndex.Match> matches = index.query(target, 5);
+        Assertions.assertEquals(5, matches.size());
+        for (int i = 0; i < matches.size(); i++) {
+            Assertions.assertTrue(matches.get(i).getDeviceId() >= 10_000);
+            Assertions.assertTrue(matches.get(i).getSimilarity() > 0.95f);
+            if (i > 0) Assertions.assertTrue(matches.get(i - 1).getSimilarity() >= matches.get(i).getSimilarity());
+        }
+
+        List<ICFRSimilarityIndex.Match> neighbours = index.query(10_000L, 10);
+        Assertions.assertTrue(neighbours.stream().noneMatch(match -> match.getDeviceId() == 10_000L));
+        Assertions.assertEquals(4, neighbours.stream().filter(match -> match.getSimilarity() > 0.95f).count());
+
+        // device moved to another shape and removed device must not be found any more
+        index.update(10_001L, randomRipple(random, 64, 0d));
+        Assertions.assertTrue(index.remove(10_002L));
+        Assertions.assertFalse(index.remove(10_002L));
+        Assertions.assertEquals(2004, index.size());
+        Assertions.assertEquals(3, index.query(target, 10).stream().filter(match -> match.getSimilarity() > 0.95f).count());
+        Assertions.assertTrue(index.query(10_002L, 10).isEmpty());
+
+        // buckets are allocated lazily, so even the widest keys cost nothing up front
+        ICFRSimilarityIndex wideIndex = new ICFRSimilarityIndex.Builder(64)
+                .setTableCount(32)
+                .setBitsPerTable(ICFRSimilarityIndex.MAX_BITS_PER_TABLE)
+                .build();
+        wideIndex.update(1L, target);
+        Assertions.assertEquals(1L, wideIndex.query(target, 1).get(0).getDeviceId());
+
+        TestBook.getPreEqTests().forEach(testStructure -> {
+            PreEqAnalysis pea = new PreEqAnalysis(new DefaultPreEqData(testStructure.getPreEqString()));
+            ICFRSimilarityIndex icfrIndex = new ICFRSimilarityIndex.Builder(pea.getFFTSize()).build();
+            icfrIndex.update(1L, pea);
+            icfrIndex.update(2L, pea);
+            Assertions.assertEquals(2L, icfrIndex.query(1L, 1).get(0).getDeviceId());
+            Assertions.assertEquals(1f, icfrIndex.query(1L, 1).get(0).getSimilarity(), 1e-5);
+        });
+
+        Assertions.assertThrows(PreEqException.class, () -> index.update(1L, new double[64]));
+        Assertions.assertThrows(PreEqException.class, () -> index.update(1L, new double[32]));
+    }
+
+    private static double[] randomRipple(
+            final Random random,
+            final int length,
+            final double offset) {
+
+        double frequency = 0.1d + random.nextDouble();
+        double phase = random.nextDouble() * Math.PI * 2;
+        double amplitude = 0.5d + random.nextDouble();
+        double[] result = new double[length];
+        for (int k = 0; k < length; k++) {
+            result[k] = amplitude * Math.sin(k * frequency + phase) + random.nextGaussian() * 0.3d - offset;
+        }
+
+        return result;
+    }
+
+    /**
+     * Method for testing non-throwing parsing. Every kind of garbage input must be rejected with its error class (shared result instance)
+     * and counted, both by the parser and by the batch, while valid inputs are parsed the same way as by the throwing API.
+     */
+    @Test
+    void testPreEqParser() {
+        TestBook.getPreEqTests().forEach(testStructure -> {
+            String valid = testStructure.getPreEqString();
+            byte[] payload = new byte[AbstractPreEqData.INPUT_BYTE_LENGTH];
+            new DefaultPreEqData(valid).getBytes(payload, 0);
+            int mainTap = payload[0];
+
+            byte[] wrongTapCount = payload.clone();
+            wrongTapCount[2] = 16;
+            byte[] mainTapOutOfBounds = payload.clone();
+            mainTapOutOfBounds[0] = 24;
+            byte[] zeroPostMainEnergy = payload.clone();
+            Arrays.fill(zeroPostMainEnergy, 4 + mainTap * 4, zeroPostMainEnergy.length, (byte) 0);
+
+            Map<String, PreEqException.ErrorClass> inputs = new LinkedHashMap<>();
+            inputs.put(valid, null);
+            inputs.put(valid.substring(0, 150), PreEqException.ErrorClass.STRING_MISMATCH_BYTE_SIZE);
+            inputs.put("zz" + valid.substring(2), PreEqException.ErrorClass.STRING_NOT_BYTE_REPRESENTATION);
+            inputs.put(
+                    ParsingUtility.byteArrayToHexString(wrongTapCount, 0, wrongTapCount.length),
+                    PreEqException.ErrorClass.WRONG_TAP_COUNT);
+            inputs.put(
+                    ParsingUtility.byteArrayToHexString(mainTapOutOfBounds, 0, mainTapOutOfBounds.length),
+                    PreEqException.ErrorClass.MAIN_TAP_OUT_OF_BOUNDS);
+            inputs.put(
+                    ParsingUtility.byteArrayToHexString(zeroPostMainEnergy, 0, zeroPostMainEnergy.length),
+                    PreEqException.ErrorClass.ZERO_NON_MAIN_TAP_ENERGY);
+
+            PreEqParser parser = new PreEqParser();
+            PreEqBatch batch = new PreEqBatch(inputs.size() * 2);
+            inputs.forEach((input, expected) -> {
+                PreEqParseResult result = parser.parse(input);
+                byte[] ascii = input.getBytes(StandardCharsets.US_ASCII);
+                PreEqParseResult hexResult = parser.parseHex(ascii, 0, ascii.length);
+                Assertions.assertEquals(expected, result.getErrorClass());
+                Assertions.assertEquals(expected, hexResult.getErrorClass());
+                Assertions.assertEquals(expected == null ? 0 : PreEqBatch.REJECTED, batch.tryAdd(input));
+                Assertions.assertEquals(expected == null ? 1 : PreEqBatch.REJECTED, batch.tryAddHex(ascii, 0, ascii.length));
+
+                if (expected == null) {
+                    Assertions.assertTrue(result.isValid());
+                    Assertions.assertEquals(valid, result.getPreEqData().getPreEqString());
+                    Assertions.assertEquals(new DefaultPreEqData(valid).getMTR(), result.getPreEqData().getMTR());
+                } else {
+                    Assertions.assertFalse(result.isValid());
+                    Assertions.assertNull(result.getPreEqData());
+                    Assertions.assertEquals(-1, hexResult.getOffset());
+                    Assertions.assertSame(PreEqException.of(expected), result.getError());
+                    Assertions.assertEquals(expected, batch.getLastError());
+                    Assertions.assertThrows(PreEqException.class, () -> new DefaultPreEqData(input));
+                }
+            });
+
+            Assertions.assertEquals(2, parser.getValidCount());
+            Assertions.assertEquals(10, parser.getErrorCount());
+            Assertions.assertEquals(2, parser.getErrorCount(PreEqException.ErrorClass.WRONG_TAP_COUNT));
+            Assertions.assertEquals(2, batch.size());
+            Assertions.assertEquals(10, batch.getRejectedCount());
+            Assertions.assertEquals(2, batch.getErrorCount(PreEqException.ErrorClass.ZERO_NON_MAIN_TAP_ENERGY));
+            Assertions.assertSame(PreEqException.ZERO_NON_MAIN_TAP_ENERGY, Assertions.assertThrows(
+                    PreEqException.class, () -> batch.add(zeroPostMainEnergy, 0, zeroPostMainEnergy.length)));
+            Assertions.assertEquals(PreEqException.ErrorClass.STRING_MISMATCH_BYTE_SIZE, parser.parse((String) null).getErrorClass());
+            LOG.info("{}", parser);
+
+            // single scan reports the first invalid char, first hex char over the length (or the end of too short string)
+            String delimited = valid.substring(0, 2) + ":" + valid.substring(2, 4) + " " + valid.substring(4);
+            Assertions.assertEquals(valid, parser.parse(delimited.toUpperCase()).getPreEqData().getPreEqString());
+            Assertions.assertEquals(150, parser.parse(valid.substring(0, 150)).getOffset());
+            Assertions.assertEquals(200, parser.parse(valid + "0").getOffset());
+            Assertions.assertEquals(51, parser.parse(valid.substring(0, 51) + "g" + valid.substring(52)).getOffset());
+            PreEqParseResult delimitedResult = parser.parse(delimited.substring(0, 6) + "x" + delimited.substring(7));
+            Assertions.assertEquals(PreEqException.ErrorClass.STRING_NOT_BYTE_REPRESENTATION, delimitedResult.getErrorClass());
+            Assertions.assertEquals(6, delimitedResult.getOffset());
+            Assertions.assertEquals(150, parser.parse("zz" + valid.substring(2, 150)).getOffset());
+            Assertions.assertEquals(-1, parser.parse(ParsingUtility.byteArrayToHexString(wrongTapCount, 0, 100)).getOffset());
+            Assertions.assertSame(PreEqException.STRING_NOT_BYTE_REPRESENTATION, Assertions.assertThrows(
+                    PreEqException.class, () -> new DefaultPreEqData("zz" + valid.substring(2))));
+
+            batch.clear();
+            Assertions.assertEquals(0, batch.getRejectedCount());
+            Assertions.assertNull(batch.getLastError());
+            parser.reset();
+            Assertions.assertEquals(0, parser.getValidCount() + parser.getErrorCount());
+        });
+    }
+
+    /**
+     * Method for testing dB precision modes. Exact mode must produce the same values as before, fast mode must stay within 0.01 dB for
+     * key metrics, ICFR magnitudes and micro-reflection.
+     */
+    @Test
+    void testDecibelPrecision() {
+        Random random = new Random(21);
+        double maxError = 0d;
+        for (int i = 0; i < 100_000; i++) {
+            double value = Math.pow(10, random.nextDouble() * 40 - 20);
+            maxError = Math.max(maxError, Math.abs(10 * MathUtility.fastLog10(value) - 10 * Math.log10(value)));
+        }
+        LOG.info("Max fast log10 error: {} dB", maxError);
+        Assertions.assertTrue(maxError < 0.00001d);
+        Assertions.assertEquals(0d, MathUtility.fastLog10(1d));
+        Assertions.assertEquals(3d, MathUtility.fastLog10(1000d), 1e-6d);
+        Assertions.assertEquals(Double.NEGATIVE_INFINITY, MathUtility.fastLog10(0d));
+        Assertions.assertTrue(Double.isNaN(MathUtility.fastLog10(-1d)));
+        Assertions.assertEquals(Math.log10(Double.MIN_VALUE), MathUtility.fastLog10(Double.MIN_VALUE));
+        Assertions.assertEquals(Double.POSITIVE_INFINITY, MathUtility.fastLog10(Double.POSITIVE_INFINITY));
+
+        TestBook.getPreEqTests().forEach(testStructure -> {
+            PreEqData ped = new DefaultPreEqData(testStructure.getPreEqString());
+            PreEqBatch exactBatch = new PreEqBatch(1);
+            PreEqBatch fastBatch = new PreEqBatch(1, MathUtility.DecibelPrecision.FAST);
+            exactBatch.add(testStructure.getPreEqString());
+            fastBatch.add(testStructure.getPreEqString());
+            Assertions.assertEquals(ped.getMTR(), exactBatch.getMTR()[0]);
+            Assertions.assertEquals(ped.getPPTSR(), exactBatch.getPPTSR()[0]);
+            Assertions.assertEquals(ped.getMTC(), fastBatch.getMTC()[0], 0.01d);
+            Assertions.assertEquals(ped.getMTR(), fastBatch.getMTR()[0], 0.01d);
+            Assertions.assertEquals(ped.getNMTER(), fastBatch.getNMTER()[0], 0.01d);
+            Assertions.assertEquals(ped.getPreMTTER(), fastBatch.getPreMTTER()[0], 0.01d);
+            Assertions.assertEquals(ped.getPostMTTER(), fastBatch.getPostMTTER()[0], 0.01d);
+            Assertions.assertEquals(ped.getPPESR(), fastBatch.getPPESR()[0], 0.01d);
+            Assertions.assertEquals(ped.getPPTSR(), fastBatch.getPPTSR()[0], 0.01d);
+
+            PreEqAnalysis exact = new PreEqAnalysis(ped);
+            PreEqAnalysis fast = new PreEqAnalysis(ped, PreEqFFTInputFormat.FIRST_TAP_FIRST_POINT, MathUtility.DecibelPrecision.FAST);
+            Assertions.assertEquals(MathUtility.DecibelPrecision.EXACT, exact.getDecibelPrecision());
+            double[] exactMag = exact.getInChannelFrequencyResponseMagnitude();
+            double[] fastMag = fast.getInChannelFrequencyResponseMagnitude();
+            for (int k = 0; k < exactMag.length; k++) {
+                Assertions.assertEquals(exactMag[k], fastMag[k], 0.01d);
+            }
+
+            Signature exactSignature = exact.getSignature(ChannelWidth.CW_US_6_4);
+            Signature fastSignature = fast.getSignature(ChannelWidth.CW_US_6_4);
+            Assertions.assertEquals(
+                    new Signature(exactMag, ChannelWidth.CW_US_6_4).getMicroReflection(),
+                    exactSignature.getMicroReflection());
+            Assertions.assertEquals(exactSignature.getMicroReflection(), fastSignature.getMicroReflection(), 0.01d);
+            Assertions.assertEquals(exactSignature.getMicroReflectionSeverity(), fastSignature.getMicroReflectionSeverity());
+
+            PreEqBatchAnalysis fastBatchAnalysis = new PreEqBatchAnalysis(
+                    fastBatch,
+                    FFTPlan.of(fast.getFFTSize(), PreEqFFTInputFormat.FIRST_TAP_FIRST_POINT),
+                    MathUtility.DecibelPrecision.FAST);
+            Assertions.assertArrayEquals(fastMag, fastBatchAnalysis.getInChannelFrequencyResponseMagnitude(0), 1e-9d);
+        });
+    }
+
+    /**
+     * Method for testing per-tap snapshot. Derived values must be exactly the same as the ones calculated by coefficients and snapshot
+     * must be calculated only once per analysis.
+     */
+    @Test
+    void testPreEqTapSnapshot() {
+        TestBook.getPreEqTests().forEach(testStructure -> {
+            PreEqData ped = new DefaultPreEqData(testStructure.getPreEqString());
+            PreEqAnalysis pea = new PreEqAnalysis(ped);
+            PreEqTapSnapshot taps = pea.getTapSnapshot();
+            Assertions.assertSame(taps, pea.getTapSnapshot());
+            Assertions.assertEquals(ped.getTapCount(), taps.getTapCount());
+            Assertions.assertEquals(ped.getMainTapIndex(), taps.getMainTapIndex());
+
+            List<Coefficient> coefficients = ped.getCoefficients();
+            for (int i = 0; i < taps.getTapCount(); i++) {
+                Coefficient coefficient = coefficients.get(i);
+                Assertions.assertEquals(coefficient.getReal(), taps.getReal(i));
+                Assertions.assertEquals(coefficient.getImag(), taps.getImag(i));
+                Assertions.assertEquals(coefficient.getEnergyRatio(ped.getTTE()), taps.getEnergyRatio(i));
+                Assertions.assertEquals(coefficient.getNominalEnergyRatio(ped.getMTNE()), taps.getNominalEnergyRatio(i));
+                Assertions.assertEquals(coefficient.getRelativePowerReal(ped.getMTNA()), taps.getRelativePowerReal(i));
+                Assertions.assertEquals(coefficient.getRelativePowerImag(ped.getMTNA()), taps.getRelativePowerImag(i));
+            }
+
+            // TDR and ICFR read from the snapshot, results must not depend on whether snapshot was already created
+            PreEqAnalysis fresh = new PreEqAnalysis(ped);
+            Assertions.assertEquals(fresh.getTDR(ChannelWidth.CW_US_6_4, 2, false), pea.getTDR(ChannelWidth.CW_US_6_4, 2, false));
+            Assertions.assertArrayEquals(
+                    new PreEqAnalysis(ped).getInChannelFrequencyResponseMagnitude(),
+                    pea.getInChannelFrequencyResponseMagnitude());
+            Assertions.assertSame(taps, pea.getTapSnapshot());
+
+            PreEqTapSnapshot fast = PreEqTapSnapshot.of(ped, MathUtility.DecibelPrecision.FAST);
+            for (int i = 0; i < taps.getTapCount(); i++) {
+                Assertions.assertEquals(taps.getNominalEnergyRatio(i), fast.getNominalEnergyRatio(i), 0.01d);
+                Assertions.assertEquals(taps.getEnergyRatio(i), fast.getEnergyRatio(i));
+            }
+        });
+    }
+
+    /**
+     * Method for testing signature calculation with reused per-thread buffers. Results must not depend on previously calculated
+     * signatures (of any length) or on the calculating thread.
+     */
+    @Test
+    void testSignatureScratchReuse() {
+        Random random = new Random(23);
+        TestBook.getPreEqTests().forEach(testStructure -> {
+            double[] icfrMag = new PreEqAnalysis(new DefaultPreEqData(testStructure.getPreEqString()))
+                    .getInChannelFrequencyResponseMagnitude();
+            Signature expected = new Signature(icfrMag, ChannelWidth.CW_US_6_4);
+
+            // longer array grows the buffers, shorter one leaves stale data behind
+            double[] longer = new double[icfrMag.length * 4];
+            for (int i = 0; i < longer.length; i++) {
+                longer[i] = Math.sin(i / 3d) + random.nextGaussian() * 0.1d;
+            }
+            Assertions.assertNotNull(new Signature(longer, ChannelWidth.CW_US_3_2));
+            Assertions.assertNotNull(new Signature(new double[] { 1d, -1d }, ChannelWidth.CW_US_6_4));
+
+            Signature reused = new Signature(icfrMag, ChannelWidth.CW_US_6_4);
+            Assertions.assertEquals(expected.getMicroReflection(), reused.getMicroReflection());
+            Assertions.assertEquals(expected.getMicroReflectionSeverity(), reused.getMicroReflectionSeverity());
+            Assertions.assertEquals(expected.getDelay(), reused.getDelay());
+
+            IntStream.range(0, 64).parallel().forEach(i -> {
+                Signature parallel = new Signature(i % 2 == 0 ? icfrMag : longer, ChannelWidth.CW_US_6_4);
+                if (i % 2 == 0) {
+                    Assertions.assertEquals(expected.getDelay(), parallel.getDelay());
+                    Assertions.assertEquals(expected.getMicroReflection(), parallel.getMicroReflection());
+                }
+            });
+        });
+    }
+
+    /**
+     * Method for testing multi-threshold signature evaluation. Severities must be the same as the ones of signatures calculated separately
+     * for each threshold level, both for single device and for batch.
+     */
+    @Test
+    void testMicroReflectionSeverities() {
+        MicroReflectionSeverityThreshold[] levels = {
+                MicroReflectionSeverityThreshold.LOW, MicroReflectionSeverityThreshold.MEDIUM, MicroReflectionSeverityThreshold.HIGH };
+        PreEqBatch batch = new PreEqBatch(TestBook.getPreEqTests().size());
+        TestBook.getPreEqTests().forEach(testStructure -> batch.add(testStructure.getPreEqString()));
+        MicroReflectionSeverity[] batchSeverities = new PreEqBatchAnalysis(batch).getMicroReflectionSeverities(ChannelWidth.CW_US_6_4);
+        Assertions.assertEquals(batch.size() * Signature.THRESHOLD_LEVEL_COUNT, batchSeverities.length);
+
+        for (int row = 0; row < batch.size(); row++) {
+            PreEqAnalysis pea = new PreEqAnalysis(new DefaultPreEqData(TestBook.getPreEqTests().get(row).getPreEqString()));
+            MicroReflectionSeverity[] severities = pea.getMicroReflectionSeverities(ChannelWidth.CW_US_6_4);
+            Assertions.assertEquals(Signature.THRESHOLD_LEVEL_COUNT, severities.length);
+            for (MicroReflectionSeverityThreshold threshold : MicroReflectionSeverityThreshold.values()) {
+                MicroReflectionSeverity expected = pea.getSignature(ChannelWidth.CW_US_6_4, threshold).getMicroReflectionSeverity();
+                int level = threshold.getThresholdLevel() + 1;
+                Assertions.assertEquals(expected, severities[level]);
+                Assertions.assertEquals(expected, batchSeverities[row * Signature.THRESHOLD_LEVEL_COUNT + level]);
+                Assertions.assertEquals(expected, pea.getSignature(ChannelWidth.CW_US_6_4).getMicroReflectionSeverity(threshold));
+            }
+        }
+
+        // restored signatures are classified only by their micro-reflection, covering every severity of every level
+        for (int microReflection = -40; microReflection <= 0; microReflection++) {
+            Signature restored = Signature.of(microReflection, MicroReflectionSeverity.GOOD, 0d);
+            MicroReflectionSeverity[] severities = restored.getMicroReflectionSeverities();
+            for (int level = 0; level < levels.length; level++) {
+                MicroReflectionSeverityThreshold threshold = levels[level];
+                MicroReflectionSeverity expected = microReflection >= MicroReflectionSeverity.BAD.getThresholdForLevel(threshold)
+                        ? MicroReflectionSeverity.BAD
+                        : microReflection >= MicroReflectionSeverity.MARGINAL.getThresholdForLevel(threshold)
+                                ? MicroReflectionSeverity.MARGINAL
+                                : MicroReflectionSeverity.GOOD;
+                Assertions.assertEquals(expected, severities[level]);
+                Assertions.assertEquals(expected, restored.getMicroReflectionSeverity(threshold));
+            }
+        }
+    }
+
+    /**
+     * Method for testing shared FFT plans. Plans must be cached and ICFR calculated with any plan (input format, size) must match the
+     * reference full FFT of the zero-padded and rotated input.
+     */
+    @Test
+    void testFFTPlan() {
+        Assertions.assertSame(
+                FFTPlan.of(32, PreEqFFTInputFormat.MAIN_TAP_MIDDLE),
+                FFTPlan.of(32, PreEqFFTInputFormat.MAIN_TAP_MIDDLE));
+        Assertions.assertNotSame(
+                FFTPlan.of(32, PreEqFFTInputFormat.MAIN_TAP_MIDDLE),
+                FFTPlan.of(32, PreEqFFTInputFormat.FIRST_TAP_FIRST_POINT));
+        Assertions.assertThrows(PreEqException.class, () -> FFTPlan.of(48, PreEqFFTInputFormat.MAIN_TAP_MIDDLE));
+        Assertions.assertSame(
+                FFTPlan.forTaps(24, 8, PreEqFFTInputFormat.MAIN_TAP_MIDDLE),
+                FFTPlan.forTaps(24, 8, PreEqFFTInputFormat.MAIN_TAP_MIDDLE));
+        Assertions.assertSame(
+                FFTPlan.forTaps(24, 8, PreEqFFTInputFormat.MAIN_TAP_MIDDLE),
+                FFTPlan.forTaps(24, 8, PreEqFFTInputFormat.MAIN_TAP_MIDDLE, 8, 128));
+        Assertions.assertThrows(PreEqException.class, () -> FFTPlan.forTaps(200, 8, PreEqFFTInputFormat.FIRST_TAP_FIRST_POINT));
+
+        FastFourierTransformer transformer = new FastFourierTransformer(DftNormalization.STANDARD);
+        TestBook.getPreEqTests().forEach(testStructure -> {
+            PreEqData ped = new DefaultPreEqData(testStructure.getPreEqString());
+            for (PreEqFFTInputFormat format : PreEqFFTInputFormat.values()) {
+                PreEqAnalysis defaultSizeAnalysis = new PreEqAnalysis(ped, format);
+                List<FFTPlan> plans = Arrays.asList(
+                        defaultSizeAnalysis.getFFTPlan(),
+                        FFTPlan.of(defaultSizeAnalysis.getFFTSize() * 8, format));
+
+                for (FFTPlan plan : plans) {
+                    PreEqAnalysis pea = new PreEqAnalysis(ped, plan);
+                    int fftSize = plan.getSize();
+                    Complex[] input = new Complex[fftSize];
+                    Arrays.fill(input, Complex.ZERO);
+                    int inputStart = plan.getInputStart(ped.getMainTapIndex());
+                    for (int i = 0; i < ped.getTapCount(); i++) {
+                        input[inputStart + i] = new Complex(
+                                ped.getCoefficients().get(i).getReal() / (double) ped.getMTNA(),
+                                ped.getCoefficients().get(i).getImag() / (double) ped.getMTNA());
+                    }
+                    Complex[] raw = transformer.transform(input, TransformType.FORWARD);
+                    double[] icfr = pea.getInChannelFrequencyResponseMagnitude();
+
+                    Assertions.assertEquals(fftSize, icfr.length);
+                    for (int j = 0; j < fftSize; j++) {
+                        Assertions.assertEquals(
+                                20 * Math.log10(raw[(j + plan.getRotationIndex()) % fftSize].abs()), icfr[j], 1e-9);
+                    }
+                }
+            }
+        });
+    }
+
     /**
      * Method for testing pre-eq parabolic interpolation algorithm. This test uses {@link MathUtility.ParabolicInterpolation#V1} only.
      */
@@ -127,6 +1306,47 @@ class PreEqDataTest {
         });
     }
 
+    /**
+     * Method for testing primitive and batch parabolic interpolation entry points. Results must be the same as the ones calculated from
+     * {@link Complex} points, for both algorithms, and batch TDR must be the same as the one of the single device.
+     */
+    @Test
+    void testMathParabolicInterpolationPrimitive() {
+        List<TestParabolicInterpolation> interpolations = TestBook.getParabolicInterpolations();
+        double[] x = new double[interpolations.size() * 3];
+        double[] y = new double[interpolations.size() * 3];
+        for (int i = 0; i < interpolations.size(); i++) {
+            TestParabolicInterpolation tpi = interpolations.get(i);
+            x[i * 3] = tpi.getLeftPoint().getReal();
+            y[i * 3] = tpi.getLeftPoint().getImaginary();
+            x[i * 3 + 1] = tpi.getMiddlePoint().getReal();
+            y[i * 3 + 1] = tpi.getMiddlePoint().getImaginary();
+            x[i * 3 + 2] = tpi.getRightPoint().getReal();
+            y[i * 3 + 2] = tpi.getRightPoint().getImaginary();
+        }
+
+        for (MathUtility.ParabolicInterpolation interpolation : MathUtility.ParabolicInterpolation.values()) {
+            double[] batchResult = new double[interpolations.size()];
+            interpolation.calculate(x, y, batchResult, interpolations.size());
+            for (int i = 0; i < interpolations.size(); i++) {
+                TestParabolicInterpolation tpi = interpolations.get(i);
+                double expected = interpolation.calculate(tpi.getLeftPoint(), tpi.getMiddlePoint(), tpi.getRightPoint());
+                Assertions.assertEquals(
+                        expected,
+                        interpolation.calculate(x[i * 3], y[i * 3], x[i * 3 + 1], y[i * 3 + 1], x[i * 3 + 2], y[i * 3 + 2]));
+                Assertions.assertEquals(expected, batchResult[i]);
+            }
+
+            PreEqBatch batch = new PreEqBatch(TestBook.getPreEqTests().size() + 1);
+            TestBook.getPreEqTests().forEach(testStructure -> batch.add(testStructure.getPreEqString()));
+            double[] batchTDR = new PreEqBatchAnalysis(batch).getTDR(ChannelWidth.CW_US_6_4, 1, false, interpolation);
+            for (int row = 0; row < batch.size(); row++) {
+                PreEqAnalysis pea = new PreEqAnalysis(new DefaultPreEqData(TestBook.getPreEqTests().get(row).getPreEqString()));
+                Assertions.assertEquals(pea.getTDR(ChannelWidth.CW_US_6_4, 1, false, interpolation), batchTDR[row]);
+            }
+        }
+    }
+
     /**
      * Method for testing TDR calculation. Test uses {@link MathUtility.ParabolicInterpolation#V2} only.
      */